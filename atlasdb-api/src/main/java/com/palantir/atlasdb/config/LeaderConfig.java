@@ -76,6 +76,15 @@ public abstract class LeaderConfig {
         return 5000L;
     }
 
+    /**
+     * If true, the leader reuses one promised proposal id across consecutive paxos rounds and skips the prepare
+     * phase for them. Every node in {@link #leaders()} must be on a version that supports this before enabling it.
+     */
+    @Value.Default
+    public boolean multiPaxos() {
+        return false;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(quorumSize() > leaders().size() / 2,
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.keyvalue.api;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -418,6 +419,53 @@ public interface KeyValueService extends AutoCloseable {
             RangeRequest rangeRequest,
             @QueryParam("timestamp") long timestamp) throws InsufficientConsistencyException;
 
+    /**
+     * Gets the timestamps of each cell in the range that are &lt; given_ts, like
+     * {@link #getRangeOfTimestamps(TableReference, RangeRequest, long)}, and also whether the value written at the
+     * greatest of those timestamps is empty. This lets sweep tell whether a cell was deleted by its latest write
+     * without a second scan of the range.
+     * <p>
+     * This method has the same consistency guarantees as
+     * {@link #getRangeOfTimestamps(TableReference, RangeRequest, long)}.
+     *
+     * @param tableRef the name of the table to read from.
+     * @param rangeRequest the range to load.
+     * @param timestamp the maximum timestamp to load.
+     *
+     * @throws InsufficientConsistencyException if not all hosts respond successfully
+     */
+    @POST
+    @Path("get-range-of-timestamps-for-sweeping")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent
+    ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            @QueryParam("tableRef") TableReference tableRef,
+            RangeRequest rangeRequest,
+            @QueryParam("timestamp") long timestamp) throws InsufficientConsistencyException;
+
+    /**
+     * Splits the given range into at most {@code desiredSplits} consecutive, non-overlapping ranges that together
+     * cover it, so that they can be read in parallel with {@link #getRange(TableReference, RangeRequest, long)}.
+     * Each returned range keeps the columns and batch hint of the given one.
+     * <p>
+     * Implementations split along the way their data is distributed where they know it, for example so that each
+     * range is owned by a single set of replicas. Implementations that cannot split a range, and reverse ranges,
+     * return the given range unchanged.
+     *
+     * @param tableRef the name of the table the range is over.
+     * @param rangeRequest the range to split.
+     * @param desiredSplits the maximum number of ranges to return; must be positive.
+     */
+    @POST
+    @Path("get-range-splits")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent
+    List<RangeRequest> getRangeSplits(@QueryParam("tableRef") TableReference tableRef,
+                                      RangeRequest rangeRequest,
+                                      @QueryParam("desiredSplits") int desiredSplits);
+
     /**
      * For each range passed in the result will have the first page of results for that range.
      * <p>
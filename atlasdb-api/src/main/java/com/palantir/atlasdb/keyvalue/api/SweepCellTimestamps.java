@@ -0,0 +1,42 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.util.Set;
+
+import org.immutables.value.Value;
+
+/**
+ * The timestamps of a cell that sweep may consider, as returned by
+ * {@link KeyValueService#getRangeOfTimestampsForSweeping(TableReference, RangeRequest, long)}.
+ *
+ * {@link #timestamps()} all timestamps of the cell below the requested timestamp.
+ * {@link #isLatestValueEmpty()} whether the value written at the greatest of those timestamps is empty, that is
+ * whether the cell was deleted by its latest write.
+ */
+@Value.Immutable
+public abstract class SweepCellTimestamps {
+    public abstract Set<Long> timestamps();
+
+    public abstract boolean isLatestValueEmpty();
+
+    public static SweepCellTimestamps of(Set<Long> timestamps, boolean isLatestValueEmpty) {
+        return ImmutableSweepCellTimestamps.builder()
+                .timestamps(timestamps)
+                .isLatestValueEmpty(isLatestValueEmpty)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.api;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * A view of a {@link Transaction} whose remote operations return futures rather than blocking the caller.
+ * <p>
+ * Writes are buffered locally until commit, so they are made through {@link #getTransaction()}.
+ *
+ * @see TransactionManager#runTaskWithRetryAsync(AsyncTransactionTask)
+ */
+public interface AsyncTransaction {
+    /**
+     * The underlying transaction. Its read methods block the calling thread.
+     */
+    Transaction getTransaction();
+
+    /**
+     * The executor that runs this transaction's remote operations. Continuations that do their own blocking
+     * work should be scheduled on it rather than on the thread that completed the future.
+     */
+    Executor executor();
+
+    CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection);
+
+    CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells);
+
+    /**
+     * Commits the transaction; see {@link Transaction#commit()}. The returned future fails with a
+     * {@link TransactionFailedException} if the commit failed.
+     */
+    CompletableFuture<Void> commitAsync();
+}
@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.transaction.api;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface TransactionManager extends AutoCloseable {
     /**
      * Runs the given {@link TransactionTask}. If the task completes successfully
@@ -46,6 +48,19 @@ public interface TransactionManager extends AutoCloseable {
      */
     <T, E extends Exception> T runTaskWithRetry(TransactionTask<T, E> task) throws E;
 
+    /**
+     * Runs the given {@link AsyncTransactionTask} with the same commit, abort and retry semantics as
+     * {@link #runTaskWithRetry(TransactionTask)}, without blocking the calling thread.
+     * <p>
+     * No thread is held while the task is waiting on its own futures or between retries; threads are only
+     * occupied while a remote call of the transaction is in progress.
+     *
+     * @param task task to run
+     *
+     * @return a future holding the value returned by the task, or the exception that made it fail
+     */
+    <T> CompletableFuture<T> runTaskWithRetryAsync(AsyncTransactionTask<T> task);
+
     /**
      * {@link #runTaskWithRetry(TransactionTask)} should be preferred over
      * {@link #runTaskThrowOnConflict(TransactionTask)}.
@@ -48,4 +48,17 @@ public interface TransactionService {
      */
     void putUnlessExists(long startTimestamp, long commitTimestamp)
             throws KeyAlreadyExistsException;
+
+    /**
+     * Sets the commit timestamps of several transactions, with the same guarantees as
+     * {@link #putUnlessExists(long, long)} for each entry. This is not atomic across entries: if an
+     * exception is thrown, any subset of the entries may have been set.
+     * @throws KeyAlreadyExistsException If any of the values were already set.
+     */
+    default void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp)
+            throws KeyAlreadyExistsException {
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            putUnlessExists(entry.getKey(), entry.getValue());
+        }
+    }
 }
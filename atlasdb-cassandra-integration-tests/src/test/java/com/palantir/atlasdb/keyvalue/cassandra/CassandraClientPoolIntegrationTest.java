@@ -218,6 +218,31 @@ public class CassandraClientPoolIntegrationTest {
         }
     }
 
+    @Test
+    public void testWeightedHostsScalesWeightsByHostWeight() {
+        InetSocketAddress slowHost = new InetSocketAddress(2);
+        Map<InetSocketAddress, CassandraClientPoolingContainer> pools = ImmutableMap.of(
+                new InetSocketAddress(0), createMockClientPoolingContainerWithUtilization(10),
+                new InetSocketAddress(1), createMockClientPoolingContainerWithUtilization(10),
+                slowHost, createMockClientPoolingContainerWithUtilization(10));
+        Map<InetSocketAddress, Integer> hostWeights = ImmutableMap.of(
+                new InetSocketAddress(0), 10,
+                new InetSocketAddress(1), 10,
+                slowHost, 1);
+
+        NavigableMap<Integer, InetSocketAddress> result = CassandraClientPool.WeightedHosts.create(
+                pools, hostWeights).hosts;
+
+        Map<InetSocketAddress, Integer> weights = new HashMap<>();
+        int prevKey = 0;
+        for (Map.Entry<Integer, InetSocketAddress> entry : result.entrySet()) {
+            weights.put(entry.getValue(), entry.getKey() - prevKey);
+            prevKey = entry.getKey();
+        }
+        assertEquals(21, (int) weights.get(slowHost));
+        assertEquals(210, (int) weights.get(new InetSocketAddress(0)));
+    }
+
     // Covers a bug where we used ceilingEntry instead of higherEntry
     @Test
     public void testSelectingHostFromWeightedHostsMatchesWeight() {
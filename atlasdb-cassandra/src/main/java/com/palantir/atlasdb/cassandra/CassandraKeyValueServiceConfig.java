@@ -89,6 +89,15 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 2 * 60;
     }
 
+    /**
+     * Whether to pick hosts less often the slower they have recently been to respond, and the more often their
+     * requests have recently failed, in addition to picking hosts with fewer active connections.
+     */
+    @Value.Default
+    public boolean latencyAwareHostSelection() {
+        return true;
+    }
+
     public abstract String keyspace();
 
     public abstract Optional<CassandraCredentialsConfig> credentials();
@@ -180,6 +189,23 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         return 64;
     }
 
+    /**
+     * The number of pages of a range scan that are fetched ahead of the consumer, so that reading the next page
+     * overlaps with processing the current one. 0 disables prefetching.
+     */
+    @Value.Default
+    public int rangePrefetchPages() {
+        return 0;
+    }
+
+    /**
+     * The approximate number of bytes of prefetched pages that each range scan may hold ahead of the consumer.
+     */
+    @Value.Default
+    public long rangePrefetchMaxBytes() {
+        return 32 * 1024 * 1024;
+    }
+
     @Value.Default
     public boolean scyllaDb() {
         return false;
@@ -210,5 +236,7 @@ public abstract class CassandraKeyValueServiceConfig implements KeyValueServiceC
         double evictionCheckProportion = proportionConnectionsToCheckPerEvictionRun();
         Preconditions.checkArgument(evictionCheckProportion > 0.01 && evictionCheckProportion <= 1,
                 "'proportionConnectionsToCheckPerEvictionRun' must be between 0.01 and 1");
+        Preconditions.checkArgument(rangePrefetchPages() >= 0, "'rangePrefetchPages' must not be negative");
+        Preconditions.checkArgument(rangePrefetchMaxBytes() > 0, "'rangePrefetchMaxBytes' must be positive");
     }
 }
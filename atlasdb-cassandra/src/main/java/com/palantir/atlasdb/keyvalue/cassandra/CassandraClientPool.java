@@ -51,6 +51,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableRangeMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -64,6 +65,7 @@ import com.google.common.primitives.UnsignedBytes;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraClientFactory.ClientCreationFailedException;
 import com.palantir.atlasdb.util.MetricsManager;
@@ -99,6 +101,11 @@ public class CassandraClientPool {
     static final int MAX_TRIES_SAME_HOST = 3;
     @VisibleForTesting
     static final int MAX_TRIES_TOTAL = 6;
+    /**
+     * The weight given to the host with the best latency score relative to the others. Worse hosts get
+     * proportionally less, down to a weight of 1, so that they still receive enough requests to recover.
+     */
+    private static final int MAX_LATENCY_WEIGHT = 100;
 
     volatile RangeMap<LightweightOppToken, List<InetSocketAddress>> tokenMap = ImmutableRangeMap.of();
     Map<InetSocketAddress, Long> blacklistedHosts = Maps.newConcurrentMap();
@@ -109,6 +116,7 @@ public class CassandraClientPool {
     private final MetricsManager metricsManager = new MetricsManager();
     private final RequestMetrics aggregateMetrics = new RequestMetrics();
     private final Map<InetSocketAddress, RequestMetrics> metricsByHost = new HashMap<>();
+    private final CassandraHostScores hostScores = new CassandraHostScores();
 
     public static class LightweightOppToken implements Comparable<LightweightOppToken> {
         final byte[] bytes;
@@ -231,6 +239,8 @@ public class CassandraClientPool {
 
     private synchronized void refreshPool() {
         checkAndUpdateBlacklist();
+        // forget old latencies so that hosts that were slow for a while get a fresh chance
+        hostScores.reset();
 
         Set<InetSocketAddress> serversToAdd = Sets.newHashSet(config.servers());
         Set<InetSocketAddress> serversToRemove = ImmutableSet.of();
@@ -277,6 +287,7 @@ public class CassandraClientPool {
     private void removePool(InetSocketAddress removedServerAddress) {
         deregisterMetricsForHost(removedServerAddress);
         blacklistedHosts.remove(removedServerAddress);
+        hostScores.remove(removedServerAddress);
         try {
             currentPools.get(removedServerAddress).shutdownPooling();
         } catch (Exception e) {
@@ -296,6 +307,14 @@ public class CassandraClientPool {
                 CassandraClientPool.class,
                 server.getHostString(), "requestConnectionExceptionProportion",
                 requestMetrics::getConnectionExceptionProportion);
+        metricsManager.registerMetric(
+                CassandraClientPool.class,
+                server.getHostString(), "recentRequestLatencyMillis",
+                () -> hostScores.getLatencyMillis(server));
+        metricsManager.registerMetric(
+                CassandraClientPool.class,
+                server.getHostString(), "recentRequestFailureProportion",
+                () -> hostScores.getErrorRate(server));
         metricsByHost.put(server, requestMetrics);
     }
 
@@ -381,7 +400,7 @@ public class CassandraClientPool {
             livingHosts = filteredHosts;
         }
 
-        InetSocketAddress randomLivingHost = getRandomHostByActiveConnections(
+        InetSocketAddress randomLivingHost = getRandomWeightedHost(
                 Maps.filterKeys(currentPools, livingHosts::contains));
         return Optional.ofNullable(pools.get(randomLivingHost));
     }
@@ -407,13 +426,31 @@ public class CassandraClientPool {
             log.debug("Current ring view is: {} and our current host blacklist is {}", tokenMap, blacklistedHosts);
             return getRandomGoodHost().getHost();
         } else {
-            return getRandomHostByActiveConnections(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
+            return getRandomWeightedHost(Maps.filterKeys(currentPools, liveOwnerHosts::contains));
         }
     }
 
-    private static InetSocketAddress getRandomHostByActiveConnections(
-            Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
-        return WeightedHosts.create(pools).getRandomHost();
+    /**
+     * Returns the first row key of every token range in the current view of the ring except the lowest one, in
+     * ascending order. Splitting a range of rows at these keys gives pieces that are each owned by a single set
+     * of hosts. Returns an empty list if the ring has not been read yet.
+     */
+    public List<byte[]> getTokenRangeStartKeys() {
+        return tokenMap.asMapOfRanges().keySet().stream()
+                .filter(Range::hasUpperBound)
+                .map(range -> range.upperEndpoint().bytes)
+                .filter(endToken -> !RangeRequests.isLastRowName(endToken))
+                .map(RangeRequests::nextLexicographicName)
+                .collect(Collectors.toList());
+    }
+
+    private InetSocketAddress getRandomWeightedHost(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+        if (!config.latencyAwareHostSelection()) {
+            return WeightedHosts.create(pools).getRandomHost();
+        }
+        Map<InetSocketAddress, Integer> latencyWeights = hostScores.getRelativeWeights(
+                ImmutableSet.copyOf(pools.keySet()), MAX_LATENCY_WEIGHT);
+        return WeightedHosts.create(pools, latencyWeights).getRandomHost();
     }
 
     public void runOneTimeStartupChecks() {
@@ -617,13 +654,22 @@ public class CassandraClientPool {
             FunctionCheckedException<Cassandra.Client, V, K> fn) throws K {
 
         recordRequestOnHost(hostPool);
+        long startNanos = System.nanoTime();
         try {
-            return hostPool.runWithPooledResource(fn);
+            V result = hostPool.runWithPooledResource(fn);
+            hostScores.recordSuccess(hostPool.getHost(), System.nanoTime() - startNanos);
+            return result;
         } catch (Exception e) {
             recordExceptionOnHost(hostPool);
             if (isConnectionException(e)) {
                 recordConnectionExceptionOnHost(hostPool);
             }
+            if (isRetriableException(e) || isRetriableWithBackoffException(e)) {
+                hostScores.recordFailure(hostPool.getHost());
+            } else {
+                // the host answered, it just did not like the request
+                hostScores.recordSuccess(hostPool.getHost(), System.nanoTime() - startNanos);
+            }
             throw e;
         }
     }
@@ -778,8 +824,8 @@ public class CassandraClientPool {
             };
 
     /**
-     * Weights hosts inversely by the number of active connections. {@link #getRandomHost()} should then be used to
-     * pick a random host
+     * Weights hosts inversely by the number of active connections, scaled by an optional per-host weight such as one
+     * derived from recent latencies. {@link #getRandomHost()} should then be used to pick a random host
      */
     @VisibleForTesting
     static final class WeightedHosts {
@@ -790,8 +836,16 @@ public class CassandraClientPool {
         }
 
         static WeightedHosts create(Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+            return create(pools, ImmutableMap.of());
+        }
+
+        /**
+         * Hosts missing from {@code hostWeights} are given a weight of 1.
+         */
+        static WeightedHosts create(Map<InetSocketAddress, CassandraClientPoolingContainer> pools,
+                                    Map<InetSocketAddress, Integer> hostWeights) {
             Preconditions.checkArgument(!pools.isEmpty(), "pools should be non-empty");
-            return new WeightedHosts(buildHostsWeightedByActiveConnections(pools));
+            return new WeightedHosts(buildHostsWeightedByActiveConnections(pools, hostWeights));
         }
 
         /**
@@ -804,7 +858,8 @@ public class CassandraClientPool {
          * than the previous key.
          */
         private static NavigableMap<Integer, InetSocketAddress> buildHostsWeightedByActiveConnections(
-                Map<InetSocketAddress, CassandraClientPoolingContainer> pools) {
+                Map<InetSocketAddress, CassandraClientPoolingContainer> pools,
+                Map<InetSocketAddress, Integer> hostWeights) {
 
             Map<InetSocketAddress, Integer> openRequestsByHost = new HashMap<>(pools.size());
             int totalOpenRequests = 0;
@@ -819,7 +874,7 @@ public class CassandraClientPool {
             for (Entry<InetSocketAddress, Integer> entry : openRequestsByHost.entrySet()) {
                 // We want the weight to be inversely proportional to the number of open requests so that we pick
                 // less-active hosts. We add 1 to make sure that all ranges are non-empty
-                int weight = totalOpenRequests - entry.getValue() + 1;
+                int weight = (totalOpenRequests - entry.getValue() + 1) * hostWeights.getOrDefault(entry.getKey(), 1);
                 weightedHosts.put(lowerBoundInclusive + weight, entry.getKey());
                 lowerBoundInclusive += weight;
             }
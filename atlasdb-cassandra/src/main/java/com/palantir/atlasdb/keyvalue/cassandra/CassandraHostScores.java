@@ -0,0 +1,157 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps an exponentially weighted moving average of the latency and the error rate of requests to each Cassandra
+ * host, in the manner of Cassandra's dynamic snitch, so that hosts that are slow or failing can be picked less often.
+ * <p>
+ * Failed requests only count towards the error rate: a host that fails fast must not look fast. Scores are only
+ * meaningful relative to each other. Hosts without latency samples are treated as having the average latency, and
+ * {@link #reset()} forgets all samples so that a host that was slow for a while is not demoted forever.
+ */
+final class CassandraHostScores {
+    // Weight given to each new sample, so roughly the last 20 requests to a host dominate its average.
+    private static final double ALPHA = 0.05;
+    // A host that fails every request scores as if it were this many times slower than it responds.
+    private static final double ERROR_PENALTY = 10.0;
+
+    private final ConcurrentMap<InetSocketAddress, HostScore> scores = new ConcurrentHashMap<>();
+
+    void recordSuccess(InetSocketAddress host, long latencyNanos) {
+        scoreFor(host).recordSuccess(latencyNanos);
+    }
+
+    void recordFailure(InetSocketAddress host) {
+        scoreFor(host).recordFailure();
+    }
+
+    /**
+     * Returns the average latency of recent requests to the host in milliseconds, or NaN if there are no samples.
+     */
+    double getLatencyMillis(InetSocketAddress host) {
+        HostScore score = scores.get(host);
+        return score == null ? Double.NaN : score.getLatencyNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Returns the error rate of recent requests to the host, between 0 and 1.
+     */
+    double getErrorRate(InetSocketAddress host) {
+        HostScore score = scores.get(host);
+        return score == null ? 0.0 : score.getErrorRate();
+    }
+
+    /**
+     * Returns a weight between 1 and {@code maxWeight} for each of the given hosts that is inversely proportional to
+     * its score, so that the best host gets {@code maxWeight}. All hosts get {@code maxWeight} if none have latency
+     * samples.
+     */
+    Map<InetSocketAddress, Integer> getRelativeWeights(Collection<InetSocketAddress> hosts, int maxWeight) {
+        Preconditions.checkArgument(maxWeight > 0, "maxWeight must be positive but was %s", maxWeight);
+        double totalLatencyNanos = 0.0;
+        int hostsWithLatency = 0;
+        for (InetSocketAddress host : hosts) {
+            HostScore hostScore = scores.get(host);
+            if (hostScore != null && hostScore.hasLatencySamples()) {
+                totalLatencyNanos += hostScore.getLatencyNanos();
+                hostsWithLatency++;
+            }
+        }
+
+        Map<InetSocketAddress, Integer> weights = Maps.newHashMapWithExpectedSize(hosts.size());
+        if (hostsWithLatency == 0) {
+            hosts.forEach(host -> weights.put(host, maxWeight));
+            return weights;
+        }
+        double averageLatencyNanos = totalLatencyNanos / hostsWithLatency;
+        Map<InetSocketAddress, Double> hostScores = Maps.newHashMapWithExpectedSize(hosts.size());
+        double bestScore = Double.MAX_VALUE;
+        for (InetSocketAddress host : hosts) {
+            HostScore hostScore = scores.get(host);
+            double score = hostScore == null ? averageLatencyNanos : hostScore.getScore(averageLatencyNanos);
+            hostScores.put(host, score);
+            bestScore = Math.min(bestScore, score);
+        }
+        for (InetSocketAddress host : hosts) {
+            int weight = (int) Math.round(maxWeight * bestScore / hostScores.get(host));
+            weights.put(host, Math.max(1, weight));
+        }
+        return weights;
+    }
+
+    void remove(InetSocketAddress host) {
+        scores.remove(host);
+    }
+
+    void reset() {
+        scores.clear();
+    }
+
+    private HostScore scoreFor(InetSocketAddress host) {
+        return scores.computeIfAbsent(host, unused -> new HostScore());
+    }
+
+    private static final class HostScore {
+        private double latencyNanos = Double.NaN;
+        private double errorRate = Double.NaN;
+
+        synchronized void recordSuccess(long sampleLatencyNanos) {
+            // a latency of zero would make the host infinitely better than all others
+            double sample = Math.max(1, sampleLatencyNanos);
+            latencyNanos = Double.isNaN(latencyNanos) ? sample : latencyNanos + ALPHA * (sample - latencyNanos);
+            recordErrorRate(0.0);
+        }
+
+        synchronized void recordFailure() {
+            recordErrorRate(1.0);
+        }
+
+        private void recordErrorRate(double sampleErrorRate) {
+            errorRate = Double.isNaN(errorRate) ? sampleErrorRate : errorRate + ALPHA * (sampleErrorRate - errorRate);
+        }
+
+        synchronized boolean hasLatencySamples() {
+            return !Double.isNaN(latencyNanos);
+        }
+
+        synchronized double getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        synchronized double getErrorRate() {
+            return Double.isNaN(errorRate) ? 0.0 : errorRate;
+        }
+
+        /**
+         * Returns the score of the host, taking it to have the given latency if it has only failed so far.
+         */
+        synchronized double getScore(double defaultLatencyNanos) {
+            double latency = Double.isNaN(latencyNanos) ? defaultLatencyNanos : latencyNanos;
+            return latency * (1 + ERROR_PENALTY * getErrorRate());
+        }
+    }
+}
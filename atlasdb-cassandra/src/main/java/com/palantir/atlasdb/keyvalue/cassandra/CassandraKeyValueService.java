@@ -95,6 +95,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueServices.AllTimestampsCollector;
@@ -1388,6 +1389,48 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    /**
+     * Gets the timestamps of each cell in the range that are &lt; given_ts, and whether the value written at the
+     * greatest of them is empty. Thrift returns the values with the timestamps, so both come from a single scan,
+     * unless timestampsGetterBatchSize is set, in which case the timestamps are read in batches without their
+     * values and the latest values need a second scan.
+     * <p>
+     * Like {@link #getRangeOfTimestamps(TableReference, RangeRequest, long)}, this throws an
+     * InsufficientConsistencyException unless all nodes are up and available.
+     *
+     * @param tableRef the name of the table to read from.
+     * @param rangeRequest the range to load.
+     * @param timestamp the maximum timestamp to load.
+     *
+     * @throws InsufficientConsistencyException if not all hosts respond successfully.
+     */
+    @Override
+    @Idempotent
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (configManager.getConfig().timestampsGetterBatchSize().isPresent()) {
+            return super.getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+        }
+        return getRangeWithPageCreator(
+                tableRef,
+                rangeRequest,
+                timestamp,
+                deleteConsistency,
+                SweepTimestampsExtractor.SUPPLIER);
+    }
+
+    /**
+     * Splits the range at the boundaries of the token ranges of the ring, so that each split is owned by a single
+     * set of hosts and its pages are routed to one of them.
+     */
+    @Override
+    @Idempotent
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return KeyValueServices.splitRangeAtRowNames(rangeRequest, clientPool.getTokenRangeStartKeys(), desiredSplits);
+    }
+
     private ClosableIterator<RowResult<Set<Long>>> getTimestampsInBatchesWithPageCreator(
             TableReference tableRef,
             RangeRequest rangeRequest,
@@ -1435,7 +1478,8 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
                 timestamp
         );
 
-        return ClosableIterators.wrap(rowResults.iterator());
+        CassandraKeyValueServiceConfig config = configManager.getConfig();
+        return pagingRangeIterator(rowResults, config.rangePrefetchPages(), config.rangePrefetchMaxBytes());
     }
 
     /**
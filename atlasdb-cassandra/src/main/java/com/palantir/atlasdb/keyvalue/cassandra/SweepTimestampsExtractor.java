@@ -0,0 +1,72 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
+
+/**
+ * Collects the timestamps of each cell like {@link TimestampExtractor}, and also notes whether the value with the
+ * greatest of those timestamps is empty, so that sweep learns both from the same slice of columns.
+ */
+class SweepTimestampsExtractor extends ResultsExtractor<Map<Cell, Set<Long>>, SweepCellTimestamps> {
+
+    static final Supplier<ResultsExtractor<Map<Cell, Set<Long>>, SweepCellTimestamps>> SUPPLIER =
+            () -> new SweepTimestampsExtractor(Maps.newHashMap());
+
+    private final Map<Cell, Long> latestTimestamps = Maps.newHashMap();
+    private final Set<Cell> cellsWithEmptyLatestValue = Sets.newHashSet();
+
+    SweepTimestampsExtractor(Map<Cell, Set<Long>> collector) {
+        super(collector);
+    }
+
+    @Override
+    public void internalExtractResult(long startTs,
+                                      ColumnSelection selection,
+                                      byte[] row,
+                                      byte[] col,
+                                      byte[] val,
+                                      long ts) {
+        if (ts < startTs && selection.contains(col)) {
+            Cell cell = Cell.create(row, col);
+            collector.computeIfAbsent(cell, unused -> Sets.newHashSet()).add(ts);
+            Long latestTimestamp = latestTimestamps.get(cell);
+            if (latestTimestamp == null || latestTimestamp < ts) {
+                latestTimestamps.put(cell, ts);
+                if (val.length == 0) {
+                    cellsWithEmptyLatestValue.add(cell);
+                } else {
+                    cellsWithEmptyLatestValue.remove(cell);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<Cell, SweepCellTimestamps> asMap() {
+        return Maps.transformEntries(collector, (cell, timestamps) -> SweepCellTimestamps.of(
+                timestamps,
+                cellsWithEmptyLatestValue.contains(cell)));
+    }
+}
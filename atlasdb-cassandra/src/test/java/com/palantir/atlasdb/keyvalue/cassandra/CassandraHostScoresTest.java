@@ -0,0 +1,136 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.cassandra;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class CassandraHostScoresTest {
+    private static final InetSocketAddress HOST_1 = new InetSocketAddress(1);
+    private static final InetSocketAddress HOST_2 = new InetSocketAddress(2);
+    private static final InetSocketAddress HOST_3 = new InetSocketAddress(3);
+    private static final ImmutableList<InetSocketAddress> HOSTS = ImmutableList.of(HOST_1, HOST_2, HOST_3);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int MAX_WEIGHT = 100;
+
+    private final CassandraHostScores scores = new CassandraHostScores();
+
+    @Test
+    public void allHostsGetTheMaximumWeightWithoutSamples() {
+        assertThat(scores.getRelativeWeights(HOSTS, MAX_WEIGHT),
+                is(ImmutableMap.of(HOST_1, MAX_WEIGHT, HOST_2, MAX_WEIGHT, HOST_3, MAX_WEIGHT)));
+    }
+
+    @Test
+    public void slowHostsGetProportionallyLessWeight() {
+        scores.recordSuccess(HOST_1, FAST);
+        scores.recordSuccess(HOST_2, SLOW);
+
+        Map<InetSocketAddress, Integer> weights = scores.getRelativeWeights(HOSTS, MAX_WEIGHT);
+
+        assertThat(weights.get(HOST_1), is(MAX_WEIGHT));
+        assertThat(weights.get(HOST_2), is(MAX_WEIGHT / 10));
+        // hosts without samples are treated as average
+        assertThat(weights.get(HOST_3), is(18));
+    }
+
+    @Test
+    public void failingHostsGetLessWeightThanEquallyFastHosts() {
+        scores.recordSuccess(HOST_1, FAST);
+        scores.recordSuccess(HOST_2, FAST);
+        scores.recordFailure(HOST_2);
+
+        Map<InetSocketAddress, Integer> weights = scores.getRelativeWeights(HOSTS, MAX_WEIGHT);
+
+        assertThat(weights.get(HOST_2), lessThan(weights.get(HOST_1)));
+    }
+
+    @Test
+    public void failuresDoNotAffectTheLatency() {
+        scores.recordSuccess(HOST_1, SLOW);
+        for (int i = 0; i < 200; i++) {
+            scores.recordFailure(HOST_1);
+        }
+
+        assertThat(scores.getLatencyMillis(HOST_1), closeTo(20.0, 0.01));
+        assertThat(scores.getErrorRate(HOST_1), closeTo(1.0, 0.01));
+    }
+
+    @Test
+    public void hostsThatOnlyFailGetLessWeightThanHostsWithoutSamples() {
+        scores.recordSuccess(HOST_1, FAST);
+        scores.recordSuccess(HOST_2, SLOW);
+        scores.recordFailure(HOST_3);
+
+        Map<InetSocketAddress, Integer> weights = scores.getRelativeWeights(HOSTS, MAX_WEIGHT);
+
+        assertThat(weights.get(HOST_1), is(MAX_WEIGHT));
+        assertThat(weights.get(HOST_3), lessThan(18));
+    }
+
+    @Test
+    public void weightsNeverDropBelowOne() {
+        scores.recordSuccess(HOST_1, 1);
+        scores.recordSuccess(HOST_2, TimeUnit.SECONDS.toNanos(60));
+        scores.recordFailure(HOST_2);
+
+        assertThat(scores.getRelativeWeights(HOSTS, MAX_WEIGHT).get(HOST_2), is(1));
+    }
+
+    @Test
+    public void latencyIsAMovingAverage() {
+        scores.recordSuccess(HOST_1, SLOW);
+        for (int i = 0; i < 200; i++) {
+            scores.recordSuccess(HOST_1, FAST);
+        }
+
+        assertThat(scores.getLatencyMillis(HOST_1), closeTo(2.0, 0.01));
+        assertThat(scores.getErrorRate(HOST_1), is(0.0));
+    }
+
+    @Test
+    public void errorRateRecoversAfterSuccesses() {
+        scores.recordFailure(HOST_1);
+        assertThat(scores.getErrorRate(HOST_1), is(1.0));
+
+        scores.recordSuccess(HOST_1, FAST);
+        assertThat(scores.getErrorRate(HOST_1), lessThan(1.0));
+        assertThat(scores.getErrorRate(HOST_1), greaterThan(0.0));
+    }
+
+    @Test
+    public void resetForgetsAllSamples() {
+        scores.recordSuccess(HOST_1, FAST);
+        scores.recordSuccess(HOST_2, SLOW);
+        scores.reset();
+
+        assertThat(scores.getLatencyMillis(HOST_1), is(Double.NaN));
+        assertThat(scores.getRelativeWeights(HOSTS, MAX_WEIGHT).get(HOST_2), is(MAX_WEIGHT));
+    }
+}
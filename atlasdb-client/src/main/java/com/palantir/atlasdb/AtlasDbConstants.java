@@ -26,6 +26,7 @@ import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 public class AtlasDbConstants {
     public static final TableReference PUNCH_TABLE = TableReference.createWithEmptyNamespace("_punch");
     public static final TableReference SCRUB_TABLE = TableReference.createWithEmptyNamespace("_scrub");
+    public static final TableReference SWEEP_QUEUE_TABLE = TableReference.createWithEmptyNamespace("_sweep_queue");
     public static final TableReference NAMESPACE_TABLE = TableReference.createWithEmptyNamespace("_namespace");
     public static final TableReference TIMESTAMP_TABLE = TableReference.createWithEmptyNamespace("_timestamp");
 
@@ -55,6 +56,7 @@ public class AtlasDbConstants {
             TransactionConstants.TRANSACTION_TABLE,
             PUNCH_TABLE,
             SCRUB_TABLE,
+            SWEEP_QUEUE_TABLE,
             NAMESPACE_TABLE,
             PARTITION_MAP_TABLE);
 
@@ -69,6 +71,11 @@ public class AtlasDbConstants {
 
     public static final long DEFAULT_TRANSACTION_READ_TIMEOUT = 60 * 60 * 1000; // one hour
     public static final long DEFAULT_PUNCH_INTERVAL_MILLIS = 60 * 1000; // one minute
+    public static final boolean DEFAULT_ENABLE_PIPELINED_COMMIT = false;
+    public static final boolean DEFAULT_ENABLE_GROUP_COMMIT = false;
+    public static final int DEFAULT_LOCK_ESCALATION_THRESHOLD = 0; // disabled
+    public static final boolean DEFAULT_ENABLE_LOCK_WIRE_FORMAT = false;
+    public static final boolean DEFAULT_COALESCE_TIMELOCK_REQUESTS = false;
 
     public static final boolean DEFAULT_BACKGROUND_SCRUB_AGGRESSIVELY = false;
     public static final int DEFAULT_BACKGROUND_SCRUB_THREADS = 8;
@@ -82,6 +89,11 @@ public class AtlasDbConstants {
     public static final long DEFAULT_SWEEP_PAUSE_MILLIS = 5 * 1000;
     public static final int DEFAULT_SWEEP_BATCH_SIZE = 1000;
     public static final int DEFAULT_SWEEP_CELL_BATCH_SIZE = 10_000;
+    public static final int DEFAULT_SWEEP_THREADS = 1;
+    public static final long DEFAULT_SWEEP_TARGET_BATCH_MILLIS = 0;
+    public static final long DEFAULT_SWEEP_MAX_FOREGROUND_READ_LATENCY_MILLIS = 0;
+    public static final boolean DEFAULT_ENABLE_TARGETED_SWEEP = false;
+    public static final int SWEEP_QUEUE_SHARDS = 16;
 
     public static final int DEFAULT_STREAM_IN_MEMORY_THRESHOLD = 4 * 1024 * 1024;
 
@@ -0,0 +1,281 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bounded long to long map stored in primitive arrays, using linear probing for lookups and the CLOCK
+ * algorithm to pick a victim once a segment is full.
+ * <p>
+ * The table is split into independently locked segments so that concurrent readers rarely contend.
+ * Segments start small and double as entries are added, so the byte budget is only allocated once the
+ * cache actually holds that many entries.
+ * Keys must not be {@link #EMPTY_KEY}; attempts to store it are ignored.
+ */
+final class LongLongClockCache {
+    static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    // key + value + reference bit
+    static final int BYTES_PER_SLOT = Long.BYTES + Long.BYTES + 1;
+
+    private static final int NUM_SEGMENTS = 16;
+    private static final int MIN_SLOTS_PER_SEGMENT = 16;
+    private static final int MAX_SLOTS_PER_SEGMENT = 1 << 30;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final Segment[] segments;
+    private final int maxEntriesPerSegment;
+
+    LongLongClockCache(long maxSizeInBytes) {
+        Preconditions.checkArgument(maxSizeInBytes > 0, "maxSizeInBytes must be positive but was %s", maxSizeInBytes);
+        long slotsPerSegment = maxSizeInBytes / NUM_SEGMENTS / BYTES_PER_SLOT;
+        int maxCapacity = floorPowerOfTwo(Math.max(MIN_SLOTS_PER_SEGMENT,
+                Math.min(MAX_SLOTS_PER_SEGMENT, slotsPerSegment)));
+        maxEntriesPerSegment = maxEntries(maxCapacity);
+        segments = new Segment[NUM_SEGMENTS];
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new Segment(maxCapacity);
+        }
+    }
+
+    /**
+     * Returns the value associated with the key, or {@code defaultValue} if it is not present. Callers should
+     * choose a default that is never stored as a value.
+     */
+    long get(long key, long defaultValue) {
+        if (key == EMPTY_KEY) {
+            return defaultValue;
+        }
+        long hash = mix(key);
+        return segmentFor(hash).get(key, hash, defaultValue);
+    }
+
+    /**
+     * Associates the value with the key, evicting another entry if the key's segment is full.
+     *
+     * @return true if an entry was evicted to make room for this one
+     */
+    boolean put(long key, long value) {
+        if (key == EMPTY_KEY) {
+            return false;
+        }
+        long hash = mix(key);
+        return segmentFor(hash).put(key, hash, value);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long maxSize() {
+        return (long) segments.length * maxEntriesPerSegment;
+    }
+
+    /**
+     * Returns the number of slots currently allocated across all segments.
+     */
+    long allocatedSlots() {
+        long slots = 0;
+        for (Segment segment : segments) {
+            slots += segment.capacity();
+        }
+        return slots;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 40) & (NUM_SEGMENTS - 1)];
+    }
+
+    private static int maxEntries(int capacity) {
+        return (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    private static int floorPowerOfTwo(long value) {
+        return (int) Long.highestOneBit(value);
+    }
+
+    // Timestamps are sequential, so spread them with the murmur3 finalizer before masking.
+    private static long mix(long key) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Segment {
+        private final int maxCapacity;
+        private long[] keys;
+        private long[] values;
+        private boolean[] referenced;
+        private int mask;
+        private int maxEntries;
+        private int size = 0;
+        private int clockHand = 0;
+
+        Segment(int maxCapacity) {
+            this.maxCapacity = maxCapacity;
+            allocate(MIN_SLOTS_PER_SEGMENT);
+        }
+
+        synchronized long get(long key, long hash, long defaultValue) {
+            int slot = findSlot(key, hash);
+            if (keys[slot] == EMPTY_KEY) {
+                return defaultValue;
+            }
+            referenced[slot] = true;
+            return values[slot];
+        }
+
+        synchronized boolean put(long key, long hash, long value) {
+            int slot = findSlot(key, hash);
+            if (keys[slot] == key) {
+                values[slot] = value;
+                referenced[slot] = true;
+                return false;
+            }
+            boolean evicted = false;
+            if (size >= maxEntries) {
+                if (keys.length < maxCapacity) {
+                    grow();
+                } else {
+                    evict();
+                    evicted = true;
+                }
+                slot = findSlot(key, hash);
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            referenced[slot] = false;
+            size++;
+            return evicted;
+        }
+
+        synchronized void clear() {
+            allocate(MIN_SLOTS_PER_SEGMENT);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int capacity() {
+            return keys.length;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            referenced = new boolean[capacity];
+            mask = capacity - 1;
+            maxEntries = maxEntries(capacity);
+            size = 0;
+            clockHand = 0;
+            Arrays.fill(keys, EMPTY_KEY);
+        }
+
+        /**
+         * Doubles the table and reinserts every entry, keeping its reference bit.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldReferenced = referenced;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                long key = oldKeys[i];
+                if (key != EMPTY_KEY) {
+                    int slot = findSlot(key, mix(key));
+                    keys[slot] = key;
+                    values[slot] = oldValues[i];
+                    referenced[slot] = oldReferenced[i];
+                    size++;
+                }
+            }
+        }
+
+        /**
+         * Returns the slot holding the key, or the empty slot where it would be inserted.
+         */
+        private int findSlot(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Sweeps the clock hand forward, giving referenced entries a second chance, and removes the first
+         * entry that has not been read since the hand last passed it.
+         */
+        private void evict() {
+            while (true) {
+                int slot = clockHand;
+                if (keys[slot] != EMPTY_KEY) {
+                    if (!referenced[slot]) {
+                        // removal may shift a later entry into this slot, so leave the hand where it is
+                        removeAt(slot);
+                        return;
+                    }
+                    referenced[slot] = false;
+                }
+                clockHand = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Removes the entry at the given slot, shifting back any later entries in the probe chain so that
+         * lookups never need tombstones.
+         */
+        private void removeAt(int slot) {
+            int gap = slot;
+            int current = slot;
+            while (true) {
+                current = (current + 1) & mask;
+                long key = keys[current];
+                if (key == EMPTY_KEY) {
+                    break;
+                }
+                int ideal = (int) mix(key) & mask;
+                if (((current - ideal) & mask) >= ((current - gap) & mask)) {
+                    keys[gap] = key;
+                    values[gap] = values[current];
+                    referenced[gap] = referenced[current];
+                    gap = current;
+                }
+            }
+            keys[gap] = EMPTY_KEY;
+            referenced[gap] = false;
+            size--;
+        }
+    }
+}
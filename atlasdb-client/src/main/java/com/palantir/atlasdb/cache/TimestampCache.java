@@ -15,26 +15,58 @@
  */
 package com.palantir.atlasdb.cache;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
 
 /**
- * This class just here for readability and not directly leaking / tying us down to a Guava class in our API
+ * Caches start timestamp to commit timestamp mappings for transactions known to have committed.
+ * <p>
+ * Entries are held in primitive arrays rather than boxed Longs, so the cache stays within
+ * the given byte budget and generates no garbage on lookup.
  */
 public class TimestampCache {
-    final Cache<Long, Long> timestampCache;
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 40 * 1024 * 1024; // ~1.5M entries
+
+    // Commit timestamps are never negative apart from the failed commit marker (-1)
+    private static final long NOT_PRESENT = Long.MIN_VALUE;
+
+    private final LongLongClockCache timestampCache;
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
 
     public TimestampCache() {
-        timestampCache = CacheBuilder.newBuilder()
-                .maximumSize(1_000_000) // up to ~72MB with java Long object bloat
-                .build();
+        this(DEFAULT_MAX_SIZE_IN_BYTES);
+    }
+
+    public TimestampCache(long maxSizeInBytes) {
+        this(maxSizeInBytes, MetricRegistry.name(TimestampCache.class));
+    }
+
+    /**
+     * Creates a cache whose hit, miss and eviction meters are reported under the given name as
+     * {@code <metricName>.hits} etc., so that caches used for different purposes can be told apart.
+     */
+    public TimestampCache(long maxSizeInBytes, String metricName) {
+        timestampCache = new LongLongClockCache(maxSizeInBytes);
+        MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+        hits = metricRegistry.meter(MetricRegistry.name(metricName, "hits"));
+        misses = metricRegistry.meter(MetricRegistry.name(metricName, "misses"));
+        evictions = metricRegistry.meter(MetricRegistry.name(metricName, "evictions"));
     }
 
     /**
      * Returns null if not present
      */
-    public Long getCommitTimestampIfPresent(Long startTimestamp) {
-        return timestampCache.getIfPresent(startTimestamp);
+    public Long getCommitTimestampIfPresent(long startTimestamp) {
+        long commitTimestamp = timestampCache.get(startTimestamp, NOT_PRESENT);
+        if (commitTimestamp == NOT_PRESENT) {
+            misses.mark();
+            return null;
+        }
+        hits.mark();
+        return commitTimestamp;
     }
 
 
@@ -42,14 +74,16 @@ public class TimestampCache {
      * Be very careful to only insert timestamps here that are already present in the backing store,
      * effectively using the timestamp table as existing concurrency control for who wins a commit
      */
-    public void putAlreadyCommittedTransaction(Long startTimestamp, Long commitTimestamp) {
-        timestampCache.put(startTimestamp, commitTimestamp);
+    public void putAlreadyCommittedTransaction(long startTimestamp, long commitTimestamp) {
+        if (timestampCache.put(startTimestamp, commitTimestamp)) {
+            evictions.mark();
+        }
     }
 
     /**
      * Clear all values from the cache.
      */
     public void clear() {
-        timestampCache.invalidateAll();
+        timestampCache.clear();
     }
 }
@@ -52,13 +52,20 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.Maps2;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.util.paging.AbstractPagingIterable;
+import com.palantir.util.paging.BasicResultsPage;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -70,6 +77,7 @@ public abstract class AbstractKeyValueService implements KeyValueService {
 
     protected final TracingPrefsConfig tracingPrefs;
     private final ScheduledExecutorService scheduledExecutor;
+    private ExecutorService rangePrefetchExecutor = null;
 
     /**
      * Note: This takes ownership of the given executor. It will be shutdown when the key
@@ -270,10 +278,61 @@ public abstract class AbstractKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Returns an iterator over the given pages of a range scan, fetching up to {@code prefetchPages} pages
+     * ahead of the consumer on a separate thread. Prefetching is disabled if {@code prefetchPages} is 0.
+     */
+    protected <T> ClosableIterator<RowResult<T>> pagingRangeIterator(
+            AbstractPagingIterable<RowResult<T>, ? extends BasicResultsPage<RowResult<T>>> pages,
+            int prefetchPages,
+            long prefetchMaxBytes) {
+        if (prefetchPages == 0) {
+            return ClosableIterators.wrap(pages.iterator());
+        }
+        return pages.prefetchingIterator(
+                getRangePrefetchExecutor(),
+                prefetchPages,
+                prefetchMaxBytes,
+                AbstractKeyValueService::approximateSizeInBytes);
+    }
+
+    // Prefetches wait on the database rather than on each other, so they get their own unbounded pool: queueing
+    // them behind the fixed size executor could deadlock range scans run from that executor.
+    private synchronized ExecutorService getRangePrefetchExecutor() {
+        if (rangePrefetchExecutor == null) {
+            rangePrefetchExecutor = PTExecutors.newCachedThreadPool(
+                    new NamedThreadFactory(getClass().getSimpleName() + "-range-prefetch", true));
+        }
+        return rangePrefetchExecutor;
+    }
+
+    private static long approximateSizeInBytes(RowResult<?> row) {
+        long size = row.getRowName().length;
+        for (Map.Entry<byte[], ?> column : row.getColumns().entrySet()) {
+            size += column.getKey().length;
+            Object value = column.getValue();
+            if (value instanceof Value) {
+                size += ((Value) value).getContents().length + Long.BYTES;
+            } else if (value instanceof Collection) {
+                size += (long) Long.BYTES * ((Collection<?>) value).size();
+            } else if (value instanceof SweepCellTimestamps) {
+                size += (long) Long.BYTES * ((SweepCellTimestamps) value).timestamps().size() + 1;
+            } else {
+                size += Long.BYTES;
+            }
+        }
+        return size;
+    }
+
     @Override
     public void close() {
         scheduledExecutor.shutdown();
         executor.shutdown();
+        synchronized (this) {
+            if (rangePrefetchExecutor != null) {
+                rangePrefetchExecutor.shutdown();
+            }
+        }
     }
 
     @Override
@@ -334,4 +393,17 @@ public abstract class AbstractKeyValueService implements KeyValueService {
                                                                           cellBatchHint,
                                                                           timestamp);
     }
+
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return KeyValueServices.getRangeOfTimestampsForSweepingUsingTwoScans(this, tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return ImmutableList.of(rangeRequest);
+    }
 }
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,6 +32,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -196,6 +198,19 @@ public class DualWriteKeyValueService implements KeyValueService {
         return delegate1.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return delegate1.getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return delegate1.getRangeSplits(tableRef, rangeRequest, desiredSplits);
+    }
+
     @Override
     public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
         delegate1.createTables(tableRefToTableMetadata);
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +33,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -123,6 +125,19 @@ public abstract class ForwardingKeyValueService extends ForwardingObject impleme
         return delegate().getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return delegate().getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return delegate().getRangeSplits(tableRef, rangeRequest, desiredSplits);
+    }
+
     @Override
     public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(TableReference tableRef,
                                                                                                            Iterable<RangeRequest> rangeRequests,
@@ -59,6 +59,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.annotation.Output;
@@ -209,6 +210,33 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         });
     }
 
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            final RangeRequest range,
+            final long timestamp) {
+        return getRangeInternal(tableRef, range, new ResultProducer<SweepCellTimestamps>() {
+            @Override
+            public SweepCellTimestamps apply(Iterator<Entry<Key, byte[]>> entries) {
+                Set<Long> timestamps = Sets.newTreeSet();
+                Entry<Key, byte[]> lastEntry = null;
+                while (entries.hasNext()) {
+                    Entry<Key, byte[]> entry = entries.next();
+                    if (entry.getKey().ts >= timestamp) {
+                        break;
+                    }
+                    timestamps.add(entry.getKey().ts);
+                    lastEntry = entry;
+                }
+                if (lastEntry != null) {
+                    return SweepCellTimestamps.of(timestamps, lastEntry.getValue().length == 0);
+                } else {
+                    return null;
+                }
+            }
+        });
+    }
+
     private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
                                                                 final RangeRequest range,
                                                                 final ResultProducer<T> resultProducer) {
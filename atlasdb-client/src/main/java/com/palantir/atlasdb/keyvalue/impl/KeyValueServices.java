@@ -18,7 +18,9 @@ package com.palantir.atlasdb.keyvalue.impl;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -29,12 +31,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -45,11 +50,13 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.BlockingWorkerPool;
 import com.palantir.util.crypto.Sha256Hash;
@@ -218,4 +225,100 @@ public class KeyValueServices {
         Iterable<RowColumnRangeIterator> orderedRanges = Iterables.transform(rows, rowsColumnRanges::get);
         return new LocalRowColumnRangeIterator(Iterators.concat(orderedRanges.iterator()));
     }
+
+    /**
+     * Implements {@link KeyValueService#getRangeOfTimestampsForSweeping(TableReference, RangeRequest, long)} with
+     * one scan of the range for the timestamps and a second one for the latest values. Only use this in key value
+     * services that cannot read both in a single scan.
+     */
+    public static ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweepingUsingTwoScans(
+            KeyValueService kvs,
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        ClosableIterator<RowResult<Set<Long>>> timestamps = kvs.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        ClosableIterator<RowResult<Value>> values;
+        try {
+            values = kvs.getRange(tableRef, rangeRequest, timestamp);
+        } catch (RuntimeException e) {
+            timestamps.close();
+            throw e;
+        }
+        Comparator<byte[]> rowOrder = rangeRequest.isReverse()
+                ? UnsignedBytes.lexicographicalComparator().reversed()
+                : UnsignedBytes.lexicographicalComparator();
+        PeekingIterator<RowResult<Value>> peekingValues = Iterators.peekingIterator(values);
+        Iterator<RowResult<SweepCellTimestamps>> merged = Iterators.transform(timestamps, row -> {
+            Map<byte[], Value> latestValues = Collections.emptyMap();
+            while (peekingValues.hasNext()) {
+                int comparison = rowOrder.compare(row.getRowName(), peekingValues.peek().getRowName());
+                if (comparison > 0) {
+                    peekingValues.next();
+                } else {
+                    if (comparison == 0) {
+                        latestValues = peekingValues.next().getColumns();
+                    }
+                    break;
+                }
+            }
+            ImmutableSortedMap.Builder<byte[], SweepCellTimestamps> columns =
+                    ImmutableSortedMap.orderedBy(UnsignedBytes.lexicographicalComparator());
+            for (Map.Entry<byte[], Set<Long>> column : row.getColumns().entrySet()) {
+                Value latestValue = latestValues.get(column.getKey());
+                columns.put(column.getKey(), SweepCellTimestamps.of(
+                        column.getValue(),
+                        latestValue != null && latestValue.getContents().length == 0));
+            }
+            return RowResult.create(row.getRowName(), columns.build());
+        });
+        return ClosableIterators.wrap(merged, () -> {
+            try {
+                timestamps.close();
+            } finally {
+                values.close();
+            }
+        });
+    }
+
+    /**
+     * Splits a range at the given row names, which must be in ascending order, into at most {@code desiredSplits}
+     * consecutive ranges. Names that fall outside the range are ignored, and if there are too many of them an evenly
+     * spaced subset is used. Reverse ranges are returned unchanged.
+     */
+    public static List<RangeRequest> splitRangeAtRowNames(RangeRequest rangeRequest,
+                                                          List<byte[]> ascendingRowNames,
+                                                          int desiredSplits) {
+        Preconditions.checkArgument(desiredSplits > 0, "desiredSplits must be positive but was %s", desiredSplits);
+        if (rangeRequest.isReverse() || desiredSplits == 1) {
+            return ImmutableList.of(rangeRequest);
+        }
+        Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+        byte[] start = rangeRequest.getStartInclusive();
+        byte[] end = rangeRequest.getEndExclusive();
+        List<byte[]> boundaries = Lists.newArrayList();
+        for (byte[] name : ascendingRowNames) {
+            boolean afterStart = comparator.compare(name, start) > 0;
+            boolean beforeEnd = end.length == 0 || comparator.compare(name, end) < 0;
+            boolean afterPrevious = boundaries.isEmpty()
+                    || comparator.compare(name, boundaries.get(boundaries.size() - 1)) > 0;
+            if (afterStart && beforeEnd && afterPrevious) {
+                boundaries.add(name);
+            }
+        }
+        if (boundaries.size() >= desiredSplits) {
+            List<byte[]> subset = Lists.newArrayListWithCapacity(desiredSplits - 1);
+            for (int i = 1; i < desiredSplits; i++) {
+                subset.add(boundaries.get((int) ((long) i * boundaries.size() / desiredSplits)));
+            }
+            boundaries = subset;
+        }
+        ImmutableList.Builder<RangeRequest> splits = ImmutableList.builder();
+        byte[] splitStart = start;
+        for (byte[] boundary : boundaries) {
+            splits.add(rangeRequest.getBuilder().startRowInclusive(splitStart).endRowExclusive(boundary).build());
+            splitStart = boundary;
+        }
+        splits.add(rangeRequest.getBuilder().startRowInclusive(splitStart).endRowExclusive(end).build());
+        return splits.build();
+    }
 }
@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.keyvalue.impl;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -39,6 +40,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -283,6 +285,34 @@ public class ProfilingKeyValueService implements KeyValueService {
         }
     }
 
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        if (log.isTraceEnabled()) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            ClosableIterator<RowResult<SweepCellTimestamps>> result =
+                    delegate.getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+            logTimeAndTable("getRangeOfTimestampsForSweeping", tableRef.getQualifiedName(), stopwatch);
+            return result;
+        } else {
+            return delegate.getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+        }
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        if (log.isTraceEnabled()) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            List<RangeRequest> result = delegate.getRangeSplits(tableRef, rangeRequest, desiredSplits);
+            logTimeAndTable("getRangeSplits", tableRef.getQualifiedName(), stopwatch);
+            return result;
+        } else {
+            return delegate.getRangeSplits(tableRef, rangeRequest, desiredSplits);
+        }
+    }
+
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows, ColumnSelection columnSelection, long timestamp) {
         if (log.isTraceEnabled()) {
@@ -41,11 +41,11 @@ public enum SweepSchema implements AtlasSchema {
                 SweepSchema.class.getPackage().getName() + ".generated",
                 NAMESPACE);
 
-        // This table tracks progress on a sweep job of a single table.
+        // This table tracks progress on sweep jobs, each of which sweeps a range of rows of a single table.
         schema.addTableDefinition("progress", new TableDefinition() {{
             javaTableName("SweepProgress");
             rowName();
-                // This table has at most one row.
+                // This table has one row per background sweep worker.
                 rowComponent("dummy", ValueType.VAR_LONG);
             columns();
                 // The name of the table being swept.
@@ -56,6 +56,9 @@ public enum SweepSchema implements AtlasSchema {
                 // The row to start sweeping from if sweeping
                 // is paused and resumed.
                 column("start_row", "s", ValueType.BLOB);
+                // The row to stop sweeping at, if only part of the
+                // table is being swept. Absent means the end of the table.
+                column("end_row", "r", ValueType.BLOB);
                 // The number of cells deleted so far.
                 column("cells_deleted", "d", ValueType.VAR_LONG);
                 // The number of cells examined so far.
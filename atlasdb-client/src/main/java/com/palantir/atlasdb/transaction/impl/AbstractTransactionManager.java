@@ -15,22 +15,34 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.atlasdb.cache.TimestampCache;
+import com.palantir.atlasdb.transaction.api.AsyncTransaction;
+import com.palantir.atlasdb.transaction.api.AsyncTransactionTask;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionFailedException;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 
 public abstract class AbstractTransactionManager implements TransactionManager {
     public static final Logger log = LoggerFactory.getLogger(AbstractTransactionManager.class);
+    private static final int DEFAULT_ASYNC_THREADS = 4 * Runtime.getRuntime().availableProcessors();
+
     protected final TimestampCache timestampValidationReadCache = new TimestampCache();
     private volatile boolean closed = false;
+    private volatile ExecutorService asyncExecutor;
 
     @Override
     public <T, E extends Exception> T runTaskWithRetry(TransactionTask<T, E> task) throws E {
@@ -58,6 +70,136 @@ public abstract class AbstractTransactionManager implements TransactionManager {
         }
     }
 
+    @Override
+    public <T> CompletableFuture<T> runTaskWithRetryAsync(AsyncTransactionTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        runTaskWithRetryAsync(task, 0, result);
+        return result;
+    }
+
+    private <T> void runTaskWithRetryAsync(
+            AsyncTransactionTask<T> task,
+            int failureCount,
+            CompletableFuture<T> result) {
+        CompletableFuture<T> attempt;
+        try {
+            checkOpen();
+            attempt = runTaskThrowOnConflictAsync(task);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        attempt.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrapCompletionException(error);
+            if (!(cause instanceof TransactionFailedException)) {
+                log.warn("Exception while processing transaction.", cause);
+                result.completeExceptionally(cause);
+                return;
+            }
+            TransactionFailedException failure = (TransactionFailedException) cause;
+            if (!failure.canTransactionBeRetried()) {
+                log.warn("Non-retriable exception while processing transaction.", failure);
+                result.completeExceptionally(failure);
+                return;
+            }
+            int newFailureCount = failureCount + 1;
+            if (shouldStopRetrying(newFailureCount)) {
+                log.warn("Failing after {} tries.", newFailureCount, failure);
+                result.completeExceptionally(
+                        Throwables.rewrap(String.format("Failing after %d tries.", newFailureCount), failure));
+                return;
+            }
+            log.info("retrying transaction", failure);
+            try {
+                getAsyncExecutor().execute(() -> {
+                    sleepForBackoff(newFailureCount);
+                    runTaskWithRetryAsync(task, newFailureCount, result);
+                });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Runs a single attempt of the given task. The default implementation holds a thread from
+     * {@link #getAsyncExecutor()} for the whole transaction; transaction managers that can open a transaction
+     * without running a synchronous task should override this so that no thread is held between remote calls.
+     */
+    protected <T> CompletableFuture<T> runTaskThrowOnConflictAsync(AsyncTransactionTask<T> task) {
+        return CompletableFuture.supplyAsync(
+                () -> runTaskThrowOnConflict((TransactionTask<T, RuntimeException>) txn -> {
+                    AsyncTransaction asyncTxn = new ExecutorBackedAsyncTransaction(txn, MoreExecutors.directExecutor());
+                    try {
+                        return task.execute(asyncTxn).join();
+                    } catch (CompletionException e) {
+                        throw Throwables.throwUncheckedException(unwrapCompletionException(e));
+                    }
+                }),
+                getAsyncExecutor());
+    }
+
+    /**
+     * Runs the given task against an already open transaction, committing it if the task completes normally
+     * and leaves it uncommitted, and aborting it otherwise.
+     */
+    protected final <T> CompletableFuture<T> runTaskThrowOnConflictAsync(
+            AsyncTransactionTask<T> task,
+            AsyncTransaction txn) {
+        CompletableFuture<T> taskResult;
+        try {
+            checkOpen();
+            taskResult = task.execute(txn);
+        } catch (RuntimeException e) {
+            taskResult = failedFuture(e);
+        }
+        return taskResult
+                .thenCompose(value -> txn.getTransaction().isUncommitted()
+                        ? txn.commitAsync().thenApply(ignored -> value)
+                        : CompletableFuture.completedFuture(value))
+                .whenComplete((value, error) -> {
+                    // Make sure that anyone trying to retain a reference to this transaction
+                    // will not be able to use it.
+                    if (txn.getTransaction().isUncommitted()) {
+                        txn.getTransaction().abort();
+                    }
+                });
+    }
+
+    /**
+     * The executor on which asynchronous transactions perform their blocking remote calls.
+     */
+    protected Executor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            synchronized (this) {
+                if (asyncExecutor == null) {
+                    checkOpen();
+                    asyncExecutor = PTExecutors.newFixedThreadPool(DEFAULT_ASYNC_THREADS,
+                            new NamedThreadFactory(getClass().getSimpleName() + "-async", true));
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+
+    protected static <T> CompletableFuture<T> failedFuture(Throwable throwable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
+    protected static Throwable unwrapCompletionException(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
     protected void sleepForBackoff(@SuppressWarnings("unused") int numTimesFailed) {
         // no-op
     }
@@ -87,6 +229,11 @@ public abstract class AbstractTransactionManager implements TransactionManager {
     @Override
     public void close() {
         this.closed = true;
+        synchronized (this) {
+            if (asyncExecutor != null) {
+                asyncExecutor.shutdown();
+            }
+        }
     }
 
     /**
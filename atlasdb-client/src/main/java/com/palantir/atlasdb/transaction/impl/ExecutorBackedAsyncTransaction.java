@@ -0,0 +1,84 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.transaction.api.AsyncTransaction;
+import com.palantir.atlasdb.transaction.api.Transaction;
+
+/**
+ * Runs the blocking operations of a {@link Transaction} on an executor, so that the caller only holds a thread
+ * for the duration of each remote call rather than for the lifetime of the transaction.
+ */
+public class ExecutorBackedAsyncTransaction implements AsyncTransaction {
+    private final Transaction delegate;
+    private final Executor executor;
+
+    public ExecutorBackedAsyncTransaction(Transaction delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate;
+    }
+
+    @Override
+    public Executor executor() {
+        return executor;
+    }
+
+    @Override
+    public CompletableFuture<SortedMap<byte[], RowResult<byte[]>>> getRowsAsync(
+            TableReference tableRef,
+            Iterable<byte[]> rows,
+            ColumnSelection columnSelection) {
+        return supplyAsync(() -> delegate.getRows(tableRef, rows, columnSelection));
+    }
+
+    @Override
+    public CompletableFuture<Map<Cell, byte[]>> getAsync(TableReference tableRef, Set<Cell> cells) {
+        return supplyAsync(() -> delegate.get(tableRef, cells));
+    }
+
+    @Override
+    public CompletableFuture<Void> commitAsync() {
+        return supplyAsync(() -> {
+            delegate.commit();
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RuntimeException e) {
+            // e.g. the executor rejected the task because the transaction manager was closed
+            return AbstractTransactionManager.failedFuture(e);
+        }
+    }
+}
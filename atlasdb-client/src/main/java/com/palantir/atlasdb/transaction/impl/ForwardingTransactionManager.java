@@ -15,7 +15,10 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.google.common.collect.ForwardingObject;
+import com.palantir.atlasdb.transaction.api.AsyncTransactionTask;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
@@ -30,6 +33,11 @@ public abstract class ForwardingTransactionManager extends ForwardingObject impl
         return delegate().runTaskWithRetry(task);
     }
 
+    @Override
+    public <T> CompletableFuture<T> runTaskWithRetryAsync(AsyncTransactionTask<T> task) {
+        return delegate().runTaskWithRetryAsync(task);
+    }
+
     @Override
     public <T, E extends Exception> T runTaskThrowOnConflict(TransactionTask<T, E> task)
             throws E, TransactionFailedRetriableException {
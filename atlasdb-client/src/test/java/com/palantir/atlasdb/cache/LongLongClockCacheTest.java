@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cache;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LongLongClockCacheTest {
+    private static final long MISSING = -42L;
+    private static final long SMALL_BUDGET = 16 * 64 * LongLongClockCache.BYTES_PER_SLOT;
+
+    @Test
+    public void returnsDefaultForAbsentKey() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        assertThat(cache.get(1L, MISSING), is(MISSING));
+    }
+
+    @Test
+    public void returnsStoredValues() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        cache.put(1L, 2L);
+        cache.put(3L, -1L);
+        assertThat(cache.get(1L, MISSING), is(2L));
+        assertThat(cache.get(3L, MISSING), is(-1L));
+    }
+
+    @Test
+    public void overwritesExistingValueWithoutGrowing() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        cache.put(1L, 2L);
+        cache.put(1L, 5L);
+        assertThat(cache.get(1L, MISSING), is(5L));
+        assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void ignoresEmptyKeySentinel() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        cache.put(LongLongClockCache.EMPTY_KEY, 1L);
+        assertThat(cache.get(LongLongClockCache.EMPTY_KEY, MISSING), is(MISSING));
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void staysWithinBoundsAndKeepsRemainingEntriesReadable() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        long numEntries = cache.maxSize() * 10;
+        for (long key = 0; key < numEntries; key++) {
+            cache.put(key, key * 2);
+        }
+        assertThat(cache.size(), is(lessThanOrEqualTo(cache.maxSize())));
+
+        long found = 0;
+        for (long key = 0; key < numEntries; key++) {
+            long value = cache.get(key, MISSING);
+            if (value != MISSING) {
+                assertThat(value, is(key * 2));
+                found++;
+            }
+        }
+        assertThat(found, is(equalTo(cache.size())));
+    }
+
+    @Test
+    public void referencedEntriesSurviveEviction() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        long hotKey = -7L;
+        cache.put(hotKey, 1L);
+        for (long key = 0; key < cache.maxSize() * 10; key++) {
+            assertThat(cache.get(hotKey, MISSING), is(1L));
+            cache.put(key, key);
+        }
+        assertThat(cache.get(hotKey, MISSING), is(1L));
+    }
+
+    @Test
+    public void allocatesLazilyAndGrowsToTheBudget() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        long initialSlots = cache.allocatedSlots();
+        assertThat(initialSlots, is(lessThan(cache.maxSize())));
+
+        for (long key = 0; key < cache.maxSize() * 10; key++) {
+            cache.put(key, key);
+        }
+        assertThat(cache.allocatedSlots(), is(16L * 64));
+        assertThat(cache.size(), is(greaterThan(initialSlots)));
+    }
+
+    @Test
+    public void keepsEntriesWhenGrowing() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        long numEntries = cache.maxSize() / 2;
+        for (long key = 0; key < numEntries; key++) {
+            cache.put(key, key * 3);
+        }
+        assertThat(cache.size(), is(numEntries));
+        for (long key = 0; key < numEntries; key++) {
+            assertThat(cache.get(key, MISSING), is(key * 3));
+        }
+    }
+
+    @Test
+    public void clearRemovesAllEntries() {
+        LongLongClockCache cache = new LongLongClockCache(SMALL_BUDGET);
+        cache.put(1L, 2L);
+        cache.clear();
+        assertThat(cache.get(1L, MISSING), is(MISSING));
+        assertThat(cache.size(), is(0L));
+        assertThat(cache.allocatedSlots(), is(16L * 16));
+    }
+}
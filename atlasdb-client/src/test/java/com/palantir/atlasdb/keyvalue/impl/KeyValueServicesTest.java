@@ -0,0 +1,88 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+
+public class KeyValueServicesTest {
+    private static final byte[] A = PtBytes.toBytes("a");
+    private static final byte[] B = PtBytes.toBytes("b");
+    private static final byte[] C = PtBytes.toBytes("c");
+    private static final byte[] D = PtBytes.toBytes("d");
+    private static final byte[] E = PtBytes.toBytes("e");
+    private static final List<byte[]> ROW_NAMES = ImmutableList.of(A, B, C, D);
+
+    @Test
+    public void splitsAtEveryRowNameWhenEnoughSplitsAreDesired() {
+        List<RangeRequest> splits = KeyValueServices.splitRangeAtRowNames(RangeRequest.all(), ROW_NAMES, 10);
+        assertThat(splits, contains(
+                range(PtBytes.EMPTY_BYTE_ARRAY, A),
+                range(A, B),
+                range(B, C),
+                range(C, D),
+                range(D, PtBytes.EMPTY_BYTE_ARRAY)));
+    }
+
+    @Test
+    public void usesEvenlySpacedRowNamesWhenTooFewSplitsAreDesired() {
+        List<RangeRequest> splits = KeyValueServices.splitRangeAtRowNames(RangeRequest.all(), ROW_NAMES, 2);
+        assertThat(splits, contains(
+                range(PtBytes.EMPTY_BYTE_ARRAY, C),
+                range(C, PtBytes.EMPTY_BYTE_ARRAY)));
+    }
+
+    @Test
+    public void ignoresRowNamesOutsideTheRange() {
+        RangeRequest range = range(B, D);
+        List<RangeRequest> splits = KeyValueServices.splitRangeAtRowNames(range, ROW_NAMES, 10);
+        assertThat(splits, contains(range(B, C), range(C, D)));
+    }
+
+    @Test
+    public void keepsColumnsAndBatchHint() {
+        RangeRequest range = RangeRequest.builder().retainColumns(ImmutableList.of(E)).batchHint(7).build();
+        List<RangeRequest> splits = KeyValueServices.splitRangeAtRowNames(range, ImmutableList.of(C), 2);
+        assertThat(splits, contains(
+                range.getBuilder().endRowExclusive(C).build(),
+                range.getBuilder().startRowInclusive(C).build()));
+    }
+
+    @Test
+    public void doesNotSplitReverseRanges() {
+        RangeRequest range = RangeRequest.reverseBuilder().build();
+        assertThat(KeyValueServices.splitRangeAtRowNames(range, ROW_NAMES, 10), contains(range));
+    }
+
+    @Test
+    public void doesNotSplitWhenOneSplitIsDesired() {
+        assertThat(KeyValueServices.splitRangeAtRowNames(RangeRequest.all(), ROW_NAMES, 1),
+                is(ImmutableList.of(RangeRequest.all())));
+    }
+
+    private static RangeRequest range(byte[] start, byte[] end) {
+        return RangeRequest.builder().startRowInclusive(start).endRowExclusive(end).build();
+    }
+}
@@ -16,7 +16,9 @@
 package com.palantir.util.paging;
 
 import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import com.palantir.common.base.Throwables;
@@ -36,6 +38,20 @@ public abstract class AbstractPagingIterable<T, P extends BasicResultsPage<T>> i
         return new PagingIterator<T, P>(this);
     }
 
+    /**
+     * Returns an iterator that fetches up to {@code maxPagesAhead} pages, weighing less than about
+     * {@code maxBytesAhead} in total as measured by {@code weigher}, on the given executor ahead of the consumer.
+     * The returned iterator must be closed if it is not exhausted.
+     *
+     * @see PrefetchingPagingIterator
+     */
+    public PrefetchingPagingIterator<T, P> prefetchingIterator(ExecutorService executor,
+                                                               int maxPagesAhead,
+                                                               long maxBytesAhead,
+                                                               Function<? super T, Long> weigher) {
+        return new PrefetchingPagingIterator<T, P>(this, executor, maxPagesAhead, maxBytesAhead, weigher);
+    }
+
     /**
      *
      * @author manthony
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.paging;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Iterates over the pages of an {@link AbstractPagingIterable} like {@link AbstractPagingIterable.PagingIterator},
+ * but fetches the following pages on the given executor while the current one is being consumed, so that the
+ * time spent waiting on each page overlaps with processing the previous one.
+ * <p>
+ * At most {@code maxPagesAhead} pages are buffered ahead of the consumer, and no new page is requested once the
+ * buffered pages weigh {@code maxBytesAhead} or more, so the buffer may exceed that bound by at most one page.
+ * If fetching a page fails, the exception is thrown once the pages fetched before it have been consumed.
+ * <p>
+ * {@link #close()} discards the buffered pages and stops any further page from being requested. A fetch that has
+ * already started is allowed to finish, as interrupting it could leave a pooled connection in a bad state.
+ *
+ * @param <T> data type
+ * @param <P> page type
+ */
+public final class PrefetchingPagingIterator<T, P extends BasicResultsPage<T>> extends AbstractIterator<T>
+        implements ClosableIterator<T> {
+    private final AbstractPagingIterable<T, P> iterable;
+    private final ExecutorService executor;
+    private final int maxPagesAhead;
+    private final long maxBytesAhead;
+    private final Function<? super T, Long> weigher;
+
+    // guarded by this
+    private final Deque<WeighedPage<P>> bufferedPages = new ArrayDeque<WeighedPage<P>>();
+    private long bufferedBytes = 0;
+    private P lastFetchedPage = null;
+    private boolean fetchedLastPage = false;
+    private long fetchesRequested = 0;
+    private boolean fetchInFlight = false;
+    private Future<?> inFlightFetch = null;
+    private Throwable fetchFailure = null;
+    private boolean closed = false;
+
+    // only accessed by the consumer
+    private P currentPage = null;
+    private Iterator<T> currentIterator = null;
+
+    PrefetchingPagingIterator(
+            AbstractPagingIterable<T, P> iterable,
+            ExecutorService executor,
+            int maxPagesAhead,
+            long maxBytesAhead,
+            Function<? super T, Long> weigher) {
+        Preconditions.checkArgument(maxPagesAhead > 0, "maxPagesAhead must be positive but was %s", maxPagesAhead);
+        Preconditions.checkArgument(maxBytesAhead > 0, "maxBytesAhead must be positive but was %s", maxBytesAhead);
+        this.iterable = iterable;
+        this.executor = executor;
+        this.maxPagesAhead = maxPagesAhead;
+        this.maxBytesAhead = maxBytesAhead;
+        this.weigher = weigher;
+    }
+
+    @Override
+    protected T computeNext() {
+        while (true) {
+            if (currentIterator != null && currentIterator.hasNext()) {
+                return currentIterator.next();
+            }
+            if (currentPage != null && !currentPage.moreResultsAvailable()) {
+                return endOfData();
+            }
+            currentPage = takeNextPage();
+            currentIterator = currentPage.getResults().iterator();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        bufferedPages.clear();
+        bufferedBytes = 0;
+        if (inFlightFetch != null) {
+            inFlightFetch.cancel(false);
+        }
+        notifyAll();
+    }
+
+    private synchronized P takeNextPage() {
+        Preconditions.checkState(!closed, "Cannot iterate over a closed iterator");
+        maybeFetchNextPage();
+        try {
+            while (bufferedPages.isEmpty()) {
+                if (fetchFailure != null) {
+                    throw Throwables.rewrapAndThrowUncheckedException(fetchFailure);
+                }
+                wait();
+                Preconditions.checkState(!closed, "Iterator was closed while waiting for the next page");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+        WeighedPage<P> next = bufferedPages.poll();
+        bufferedBytes -= next.weight;
+        maybeFetchNextPage();
+        return next.page;
+    }
+
+    private synchronized void maybeFetchNextPage() {
+        if (closed
+                || fetchedLastPage
+                || fetchFailure != null
+                || fetchInFlight
+                || bufferedPages.size() >= maxPagesAhead
+                || bufferedBytes >= maxBytesAhead) {
+            return;
+        }
+        final P previous = lastFetchedPage;
+        long fetchId = ++fetchesRequested;
+        fetchInFlight = true;
+        Future<?> future;
+        try {
+            future = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    fetchPage(previous);
+                }
+            });
+        } catch (RuntimeException e) {
+            fetchInFlight = false;
+            throw e;
+        }
+        // an executor that runs tasks on the submitting thread will already have completed this fetch
+        if (fetchInFlight && fetchesRequested == fetchId) {
+            inFlightFetch = future;
+        }
+    }
+
+    private void fetchPage(P previous) {
+        P page;
+        long weight = 0;
+        try {
+            page = Preconditions.checkNotNull(
+                    previous == null ? iterable.getFirstPage() : iterable.getNextPage(previous));
+            for (T item : page.getResults()) {
+                weight += weigher.apply(item);
+            }
+        } catch (Throwable t) {
+            synchronized (this) {
+                fetchInFlight = false;
+                inFlightFetch = null;
+                fetchFailure = t;
+                notifyAll();
+            }
+            return;
+        }
+        synchronized (this) {
+            fetchInFlight = false;
+            inFlightFetch = null;
+            if (closed) {
+                return;
+            }
+            lastFetchedPage = page;
+            fetchedLastPage = !page.moreResultsAvailable();
+            bufferedPages.add(new WeighedPage<P>(page, weight));
+            bufferedBytes += weight;
+            notifyAll();
+            maybeFetchNextPage();
+        }
+    }
+
+    private static final class WeighedPage<P> {
+        private final P page;
+        private final long weight;
+
+        WeighedPage(P page, long weight) {
+            this.page = page;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.util.paging;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class PrefetchingPagingIteratorTest {
+    private static final int PAGE_SIZE = 5;
+    private static final int NUM_PAGES = 10;
+    private static final Function<Integer, Long> TEN_BYTES_EACH = new Function<Integer, Long>() {
+        @Override
+        public Long apply(Integer input) {
+            return 10L;
+        }
+    };
+
+    private final ExecutorService directExecutor = MoreExecutors.newDirectExecutorService();
+    private final ExecutorService asyncExecutor = Executors.newSingleThreadExecutor();
+    private final CountingPages pages = new CountingPages(NUM_PAGES, -1);
+
+    @After
+    public void tearDown() {
+        asyncExecutor.shutdownNow();
+    }
+
+    @Test
+    public void returnsAllItemsInOrder() {
+        PrefetchingPagingIterator<Integer, SimpleResultsPage<Integer>> iterator =
+                pages.prefetchingIterator(asyncExecutor, 2, Long.MAX_VALUE, TEN_BYTES_EACH);
+
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 0; i < PAGE_SIZE * NUM_PAGES; i++) {
+            expected.add(i);
+        }
+        assertThat(Lists.newArrayList(iterator), is(expected));
+    }
+
+    @Test
+    public void fetchesAtMostMaxPagesAheadOfTheConsumer() {
+        PrefetchingPagingIterator<Integer, SimpleResultsPage<Integer>> iterator =
+                pages.prefetchingIterator(directExecutor, 3, Long.MAX_VALUE, TEN_BYTES_EACH);
+
+        iterator.next();
+
+        assertThat(pages.fetched.get(), is(1 + 3));
+    }
+
+    @Test
+    public void stopsFetchingOnceBufferedPagesReachMaxBytes() {
+        PrefetchingPagingIterator<Integer, SimpleResultsPage<Integer>> iterator =
+                pages.prefetchingIterator(directExecutor, NUM_PAGES, PAGE_SIZE * 10 + 1, TEN_BYTES_EACH);
+
+        iterator.next();
+
+        assertThat(pages.fetched.get(), is(1 + 2));
+    }
+
+    @Test
+    public void closeStopsFetching() {
+        PrefetchingPagingIterator<Integer, SimpleResultsPage<Integer>> iterator =
+                pages.prefetchingIterator(directExecutor, 1, Long.MAX_VALUE, TEN_BYTES_EACH);
+
+        iterator.next();
+        iterator.close();
+        int fetchedBeforeClose = pages.fetched.get();
+
+        // the rest of the current page is still available, but nothing after it
+        for (int i = 1; i < PAGE_SIZE; i++) {
+            iterator.next();
+        }
+        try {
+            iterator.hasNext();
+            throw new AssertionError("Expected a closed iterator to stop after its current page");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertThat(pages.fetched.get(), is(fetchedBeforeClose));
+    }
+
+    @Test
+    public void throwsFetchFailureAfterReturningEarlierPages() {
+        CountingPages failingPages = new CountingPages(NUM_PAGES, 1);
+        PrefetchingPagingIterator<Integer, SimpleResultsPage<Integer>> iterator =
+                failingPages.prefetchingIterator(directExecutor, 2, Long.MAX_VALUE, TEN_BYTES_EACH);
+
+        List<Integer> items = Lists.newArrayList();
+        try {
+            while (iterator.hasNext()) {
+                items.add(iterator.next());
+            }
+            throw new AssertionError("Expected the failure of the second page to be thrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("failed to fetch page 1"));
+        }
+        assertThat(items, contains(0, 1, 2, 3, 4));
+    }
+
+    private static class CountingPages extends AbstractPagingIterable<Integer, SimpleResultsPage<Integer>> {
+        private final int numPages;
+        private final int failingPage;
+        private final AtomicInteger fetched = new AtomicInteger();
+
+        CountingPages(int numPages, int failingPage) {
+            this.numPages = numPages;
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        protected SimpleResultsPage<Integer> getFirstPage() {
+            return getPage(0);
+        }
+
+        @Override
+        protected SimpleResultsPage<Integer> getNextPage(SimpleResultsPage<Integer> previous) {
+            return getPage(previous.getResults().get(0) / PAGE_SIZE + 1);
+        }
+
+        private SimpleResultsPage<Integer> getPage(int pageNumber) {
+            fetched.incrementAndGet();
+            if (pageNumber == failingPage) {
+                throw new IllegalStateException("failed to fetch page " + pageNumber);
+            }
+            ImmutableList.Builder<Integer> results = ImmutableList.builder();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                results.add(pageNumber * PAGE_SIZE + i);
+            }
+            return new SimpleResultsPage<Integer>(results.build(), pageNumber < numPages - 1);
+        }
+    }
+}
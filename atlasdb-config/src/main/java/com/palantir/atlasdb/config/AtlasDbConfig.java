@@ -68,6 +68,28 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_PUNCH_INTERVAL_MILLIS;
     }
 
+    /**
+     * If true, commits issue the stages of the commit protocol that do not depend on each other
+     * concurrently: punching is done in the background, lock validation overlaps the serializable
+     * read check, and commit locks are refreshed and released after the commit timestamp is written
+     * without the committing thread waiting for them.
+     */
+    @Value.Default
+    public boolean enablePipelinedCommit() {
+        return AtlasDbConstants.DEFAULT_ENABLE_PIPELINED_COMMIT;
+    }
+
+    /**
+     * If true, the commit timestamps of concurrently committing transactions are written to the transactions table
+     * together. This only helps with key value services that write a multi-cell putUnlessExists as a single batch,
+     * such as the relational ones; Cassandra writes each cell with its own compare-and-set, so group commit only
+     * queues commits behind one another there.
+     */
+    @Value.Default
+    public boolean enableGroupCommit() {
+        return AtlasDbConstants.DEFAULT_ENABLE_GROUP_COMMIT;
+    }
+
     /**
      * Scrubbing is the process of removing overwritten or deleted
      * cells from the underlying key value store after a hard-delete
@@ -162,6 +184,67 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_SWEEP_CELL_BATCH_SIZE;
     }
 
+    /**
+     * The number of background sweep workers to run. Workers sweep different tables at the same time, and split
+     * the rows of a large table between them when there is nothing else to sweep.
+     */
+    @Value.Default
+    public int getSweepThreads() {
+        return AtlasDbConstants.DEFAULT_SWEEP_THREADS;
+    }
+
+    /**
+     * If positive, the background sweeper adapts its batch sizes and pause so that each batch takes about this
+     * many milliseconds, treating {@link #getSweepBatchSize()} and {@link #getSweepCellBatchSize()} as maxima and
+     * {@link #getSweepPauseMillis()} as a minimum. If not positive, the configured values are used as they are.
+     */
+    @Value.Default
+    public long getSweepTargetBatchMillis() {
+        return AtlasDbConstants.DEFAULT_SWEEP_TARGET_BATCH_MILLIS;
+    }
+
+    /**
+     * If positive, and {@link #getSweepTargetBatchMillis()} is also positive, the background sweeper also backs off
+     * while the 99th percentile latency of transactional reads in this process is above this many milliseconds.
+     */
+    @Value.Default
+    public long getSweepMaxForegroundReadLatencyMillis() {
+        return AtlasDbConstants.DEFAULT_SWEEP_MAX_FOREGROUND_READ_LATENCY_MILLIS;
+    }
+
+    /**
+     * If true, transactions record the cells they write in a sweep queue, and a background thread deletes the
+     * versions those writes overwrite once they can no longer be read. Unlike the background sweeper enabled by
+     * {@link #enableSweep()}, this does not scan tables, so its cost follows the number of writes rather than the
+     * size of the data. Cells written while this was disabled are only cleaned up by the background sweeper.
+     */
+    @Value.Default
+    public boolean enableTargetedSweep() {
+        return AtlasDbConstants.DEFAULT_ENABLE_TARGETED_SWEEP;
+    }
+
+    /**
+     * If positive, a transaction that writes more than this many rows (or cells, for tables with cell level
+     * conflict handling) to a table takes a single write lock on the whole table when it commits, instead of one
+     * lock per row or cell. To still conflict with such a transaction, every committing transaction also takes a
+     * read lock on each table it writes to, so this must be enabled on all clients writing to the same tables.
+     * Zero disables escalation.
+     */
+    @Value.Default
+    public int getLockEscalationThreshold() {
+        return AtlasDbConstants.DEFAULT_LOCK_ESCALATION_THRESHOLD;
+    }
+
+    /**
+     * If true, lock requests are sent to remote lock services in a compact binary format instead of JSON, and held
+     * locks tokens are received in it. This saves serialization time and bandwidth for transactions that lock many
+     * rows or cells, but requires all lock servers to run a version that understands the format.
+     */
+    @Value.Default
+    public boolean enableLockWireFormat() {
+        return AtlasDbConstants.DEFAULT_ENABLE_LOCK_WIRE_FORMAT;
+    }
+
     @Value.Check
     protected final void check() {
         if (leader().isPresent()) {
@@ -178,6 +261,9 @@ public abstract class AtlasDbConfig {
 
         Preconditions.checkState(lock().isPresent() == timestamp().isPresent(),
                 "Lock and timestamp server blocks must either both be present or both be absent.");
+
+        Preconditions.checkState(getLockEscalationThreshold() >= 0,
+                "Lock escalation threshold must not be negative.");
     }
 
     private boolean areTimeAndLockConfigsAbsent() {
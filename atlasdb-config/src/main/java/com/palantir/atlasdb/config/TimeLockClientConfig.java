@@ -19,6 +19,7 @@ import org.immutables.value.Value;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.palantir.atlasdb.AtlasDbConstants;
 
 @JsonSerialize(as = ImmutableTimeLockClientConfig.class)
 @JsonDeserialize(as = ImmutableTimeLockClientConfig.class)
@@ -27,4 +28,13 @@ public abstract class TimeLockClientConfig {
     public abstract String client();
 
     public abstract ServerListConfig serversList();
+
+    /**
+     * If true, timestamp requests and lock refreshes are batched together with those of the other clients of the
+     * same TimeLock cluster in this process, using the batch endpoints of the TimeLock server.
+     */
+    @Value.Default
+    public boolean coalesceRequests() {
+        return AtlasDbConstants.DEFAULT_COALESCE_TIMELOCK_REQUESTS;
+    }
 }
@@ -86,7 +86,8 @@ public final class Leaders {
                 ImmutableList.copyOf(acceptors),
                 ImmutableList.copyOf(learners),
                 config.quorumSize(),
-                executor);
+                executor,
+                config.multiPaxos());
 
         PaxosLeaderElectionService leader = new PaxosLeaderElectionService(
                 proposer,
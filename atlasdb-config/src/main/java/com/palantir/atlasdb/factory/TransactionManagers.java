@@ -32,6 +32,7 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.CleanupFollower;
 import com.palantir.atlasdb.cleaner.DefaultCleanerBuilder;
@@ -52,9 +53,14 @@ import com.palantir.atlasdb.spi.AtlasDbFactory;
 import com.palantir.atlasdb.sweep.BackgroundSweeper;
 import com.palantir.atlasdb.sweep.BackgroundSweeperImpl;
 import com.palantir.atlasdb.sweep.CellsSweeper;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.atlasdb.sweep.NoOpBackgroundSweeperPerformanceLogger;
+import com.palantir.atlasdb.sweep.SweepBatchThrottle;
 import com.palantir.atlasdb.sweep.SweepTaskRunner;
 import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
+import com.palantir.atlasdb.sweep.queue.KeyValueServiceSweepQueue;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
+import com.palantir.atlasdb.sweep.queue.TargetedSweeper;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
@@ -64,6 +70,7 @@ import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionManagerOptions;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
@@ -71,6 +78,7 @@ import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockServerOptions;
+import com.palantir.lock.LockWireFormatProvider;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.client.LockRefreshingRemoteLockService;
 import com.palantir.lock.impl.LockServiceImpl;
@@ -140,7 +148,7 @@ public final class TransactionManagers {
 
         TransactionTables.createTables(kvs);
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        TransactionService transactionService = TransactionServices.createTransactionService(kvs, config.enableGroupCommit());
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.createDefault(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
 
@@ -153,6 +161,7 @@ public final class TransactionManagers {
         }
 
         CleanupFollower follower = CleanupFollower.create(schemas);
+        CommitTsCache commitTsCache = CommitTsCache.create(transactionService);
 
         Cleaner cleaner = new DefaultCleanerBuilder(
                 kvs,
@@ -160,7 +169,7 @@ public final class TransactionManagers {
                 lts.time(),
                 LOCK_CLIENT,
                 ImmutableList.of(follower),
-                transactionService)
+                commitTsCache)
                 .setBackgroundScrubAggressively(config.backgroundScrubAggressively())
                 .setBackgroundScrubBatchSize(config.getBackgroundScrubBatchSize())
                 .setBackgroundScrubFrequencyMillis(config.getBackgroundScrubFrequencyMillis())
@@ -169,6 +178,10 @@ public final class TransactionManagers {
                 .setTransactionReadTimeout(config.getTransactionReadTimeoutMillis())
                 .buildCleaner();
 
+        KeyValueServiceSweepQueue sweepQueue = config.enableTargetedSweep()
+                ? KeyValueServiceSweepQueue.create(kvs, sweepStrategyManager, AtlasDbConstants.SWEEP_QUEUE_SHARDS)
+                : null;
+
         SerializableTransactionManager transactionManager = new SerializableTransactionManager(kvs,
                 lts.time(),
                 LOCK_CLIENT,
@@ -178,13 +191,18 @@ public final class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                TransactionManagerOptions.builder()
+                        .pipelineCommits(config.enablePipelinedCommit())
+                        .sweepQueueWriter(sweepQueue != null ? sweepQueue : SweepQueueWriter.NO_OP)
+                        .lockEscalationThreshold(config.getLockEscalationThreshold())
+                        .build());
 
         SweepTaskRunner sweepRunner = new SweepTaskRunnerImpl(
                 kvs,
                 getUnreadableTsSupplier(transactionManager),
                 getImmutableTsSupplier(transactionManager),
-                transactionService,
+                commitTsCache,
                 sweepStrategyManager,
                 new CellsSweeper(transactionManager, kvs, ImmutableList.of(follower)));
         BackgroundSweeper backgroundSweeper = new BackgroundSweeperImpl(
@@ -192,13 +210,30 @@ public final class TransactionManagers {
                 kvs,
                 sweepRunner,
                 Suppliers.ofInstance(config.enableSweep()),
-                Suppliers.ofInstance(config.getSweepPauseMillis()),
-                Suppliers.ofInstance(config.getSweepBatchSize()),
-                Suppliers.ofInstance(config.getSweepCellBatchSize()),
+                () -> new SweepBatchThrottle(
+                        Suppliers.ofInstance(config.getSweepBatchSize()),
+                        Suppliers.ofInstance(config.getSweepCellBatchSize()),
+                        Suppliers.ofInstance(config.getSweepPauseMillis()),
+                        config.getSweepTargetBatchMillis(),
+                        SweepBatchThrottle.transactionReadLatencyMillis(),
+                        config.getSweepMaxForegroundReadLatencyMillis()),
                 SweepTableFactory.of(),
-                new NoOpBackgroundSweeperPerformanceLogger());
+                new NoOpBackgroundSweeperPerformanceLogger(),
+                config.getSweepThreads());
         backgroundSweeper.runInBackground();
 
+        if (sweepQueue != null) {
+            BackgroundSweeper targetedSweeper = new TargetedSweeper(
+                    transactionManager,
+                    sweepQueue,
+                    sweepRunner,
+                    commitTsCache,
+                    Suppliers.ofInstance(config.enableTargetedSweep()),
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(config.getSweepBatchSize()));
+            targetedSweeper.runInBackground();
+        }
+
         return transactionManager;
     }
 
@@ -234,19 +269,34 @@ public final class TransactionManagers {
             Supplier<RemoteLockService> lock,
             Supplier<TimestampService> time) {
         if (config.leader().isPresent()) {
-            return createRawLeaderServices(config.leader().get(), env, lock, time);
+            return createRawLeaderServices(config.leader().get(), env, lock, time, config.enableLockWireFormat());
         } else if (config.timestamp().isPresent() && config.lock().isPresent()) {
             return createRawRemoteServices(config);
         } else if (config.timelock().isPresent()) {
-            return createNamespacedRawRemoteServices(config.timelock().get());
+            return createNamespacedRawRemoteServices(config.timelock().get(), config.enableLockWireFormat());
         } else {
             return createRawEmbeddedServices(env, lock, time);
         }
     }
 
-    private static LockAndTimestampServices createNamespacedRawRemoteServices(TimeLockClientConfig config) {
+    private static LockAndTimestampServices createNamespacedRawRemoteServices(
+            TimeLockClientConfig config,
+            boolean useLockWireFormat) {
         ServerListConfig namespacedServerListConfig = getNamespacedServerListConfig(config);
-        return getLockAndTimestampServices(namespacedServerListConfig);
+        LockAndTimestampServices clientServices =
+                getLockAndTimestampServices(namespacedServerListConfig, useLockWireFormat);
+        if (!config.coalesceRequests()) {
+            return clientServices;
+        }
+
+        Optional<SSLSocketFactory> sslSocketFactory = createSslSocketFactory(config.serversList().sslConfiguration());
+        Set<String> timeLockUris = config.serversList().servers();
+        return ImmutableLockAndTimestampServices.builder()
+                .lock(AtlasDbHttpClients.createCoalescingLockService(
+                        sslSocketFactory, timeLockUris, config.client(), clientServices.lock()))
+                .time(AtlasDbHttpClients.createCoalescingTimestampService(
+                        sslSocketFactory, timeLockUris, config.client(), clientServices.time()))
+                .build();
     }
 
     @VisibleForTesting
@@ -259,8 +309,10 @@ public final class TransactionManagers {
                         .collect(Collectors.toSet()));
     }
 
-    private static LockAndTimestampServices getLockAndTimestampServices(ServerListConfig timelockServerListConfig) {
-        RemoteLockService lockService = new ServiceCreator<>(RemoteLockService.class).apply(timelockServerListConfig);
+    private static LockAndTimestampServices getLockAndTimestampServices(
+            ServerListConfig timelockServerListConfig,
+            boolean useLockWireFormat) {
+        RemoteLockService lockService = createLockService(timelockServerListConfig, useLockWireFormat);
         TimestampService timeService = new ServiceCreator<>(TimestampService.class).apply(timelockServerListConfig);
 
         return ImmutableLockAndTimestampServices.builder()
@@ -273,22 +325,25 @@ public final class TransactionManagers {
             LeaderConfig leaderConfig,
             Environment env,
             Supplier<RemoteLockService> lock,
-            Supplier<TimestampService> time) {
+            Supplier<TimestampService> time,
+            boolean useLockWireFormat) {
         LeaderElectionService leader = Leaders.create(env, leaderConfig);
 
         env.register(AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class, lock, leader));
         env.register(AwaitingLeadershipProxy.newProxyInstance(TimestampService.class, time, leader));
+        env.register(new LockWireFormatProvider());
 
         Optional<SSLSocketFactory> sslSocketFactory = createSslSocketFactory(leaderConfig.sslConfiguration());
 
         return ImmutableLockAndTimestampServices.builder()
-                .lock(createService(sslSocketFactory, leaderConfig.leaders(), RemoteLockService.class))
+                .lock(AtlasDbHttpClients.createLockServiceProxyWithFailover(
+                        sslSocketFactory, leaderConfig.leaders(), useLockWireFormat))
                 .time(createService(sslSocketFactory, leaderConfig.leaders(), TimestampService.class))
                 .build();
     }
 
     private static LockAndTimestampServices createRawRemoteServices(AtlasDbConfig config) {
-        RemoteLockService lockService = new ServiceCreator<>(RemoteLockService.class).apply(config.lock().get());
+        RemoteLockService lockService = createLockService(config.lock().get(), config.enableLockWireFormat());
         TimestampService timeService = new ServiceCreator<>(TimestampService.class).apply(config.timestamp().get());
 
         return ImmutableLockAndTimestampServices.builder()
@@ -306,6 +361,7 @@ public final class TransactionManagers {
 
         env.register(lockService);
         env.register(timeService);
+        env.register(new LockWireFormatProvider());
 
         return ImmutableLockAndTimestampServices.builder()
                 .lock(lockService)
@@ -320,6 +376,12 @@ public final class TransactionManagers {
         return sslConfiguration.transform(config -> SslSocketFactories.createSslSocketFactory(config));
     }
 
+    private static RemoteLockService createLockService(ServerListConfig serverListConfig, boolean useLockWireFormat) {
+        Optional<SSLSocketFactory> sslSocketFactory = createSslSocketFactory(serverListConfig.sslConfiguration());
+        return AtlasDbHttpClients.createLockServiceProxyWithFailover(
+                sslSocketFactory, serverListConfig.servers(), useLockWireFormat);
+    }
+
     private static <T> T createService(
             Optional<SSLSocketFactory> sslSocketFactory,
             Set<String> uris,
@@ -38,9 +38,16 @@ public class AtlasDbErrorDecoder implements ErrorDecoder {
         if (response503ButExceptionIsNotRetryable(response, exception)) {
             return new RetryableException(exception.getMessage(), exception, null);
         }
+        if (isUnsupportedEndpointResponse(response)) {
+            return new UnsupportedEndpointException(exception.getMessage(), exception);
+        }
         return exception;
     }
 
+    private boolean isUnsupportedEndpointResponse(Response response) {
+        return response.status() == 404 || response.status() == 405;
+    }
+
     private boolean response503ButExceptionIsNotRetryable(Response response, Exception exception) {
         boolean responseIs503 = response.status() == 503;
         boolean isRetryableException = exception instanceof RetryableException;
@@ -17,7 +17,11 @@ package com.palantir.atlasdb.http;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -25,7 +29,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.palantir.lock.LockWireFormat;
+import com.palantir.lock.MultiClientLockRefreshService;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.MultiClientTimestampService;
+import com.palantir.timestamp.TimestampService;
 import com.squareup.okhttp.CipherSuite;
 import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.ConnectionSpec;
@@ -54,7 +64,9 @@ public final class AtlasDbHttpClients {
     private static final ObjectMapper mapper = new ObjectMapper();
     private static final Contract contract = new JAXRSContract();
     private static final Encoder encoder = new JacksonEncoder(mapper);
-    private static final Decoder decoder = new TextDelegateDecoder(new JacksonDecoder(mapper));
+    private static final Encoder lockWireFormatEncoder = new LockWireFormatEncoder(encoder);
+    private static final Decoder decoder =
+            new LockWireFormatDecoder(new TextDelegateDecoder(new JacksonDecoder(mapper)));
     private static final ErrorDecoder errorDecoder = new AtlasDbErrorDecoder();
 
     private static final ImmutableList<ConnectionSpec> CONNECTION_SPEC_WITH_CYPHER_SUITES = ImmutableList.of(
@@ -89,6 +101,9 @@ public final class AtlasDbHttpClients {
                     .build(),
             ConnectionSpec.CLEARTEXT);
 
+    private static final ConcurrentMap<Set<String>, TimeLockRequestCoalescer> timeLockRequestCoalescers =
+            new ConcurrentHashMap<>();
+
     private AtlasDbHttpClients() {
         // Utility class
     }
@@ -134,22 +149,40 @@ public final class AtlasDbHttpClients {
                 endpointUris,
                 DEFAULT_FEIGN_OPTIONS,
                 FailoverFeignTarget.DEFAULT_MAX_BACKOFF_MILLIS,
+                encoder,
                 type);
     }
 
+    /**
+     * Constructs a lock service proxy like {@link #createProxyWithFailover(Optional, Collection, Class)}, which sends
+     * lock requests and receives held locks tokens in the compact {@link LockWireFormat} if {@code useLockWireFormat}
+     * is set. The servers must be running a version that understands the format.
+     */
+    public static RemoteLockService createLockServiceProxyWithFailover(
+            Optional<SSLSocketFactory> sslSocketFactory, Collection<String> endpointUris, boolean useLockWireFormat) {
+        return createProxyWithFailover(
+                sslSocketFactory,
+                endpointUris,
+                DEFAULT_FEIGN_OPTIONS,
+                FailoverFeignTarget.DEFAULT_MAX_BACKOFF_MILLIS,
+                useLockWireFormat ? lockWireFormatEncoder : encoder,
+                RemoteLockService.class);
+    }
+
     /**
      * @param feignOptions      Options to configure Feign timeouts.
      * @param maxBackoffMillis  Passed through to the FailoverFeignTarget, this configures the maximum time that a
      *                          backoff will be for.
+     * @param requestEncoder    Encoder for request bodies.
      */
     private static <T> T createProxyWithFailover(
             Optional<SSLSocketFactory> sslSocketFactory, Collection<String> endpointUris,
-            Request.Options feignOptions, int maxBackoffMillis, Class<T> type) {
+            Request.Options feignOptions, int maxBackoffMillis, Encoder requestEncoder, Class<T> type) {
         FailoverFeignTarget<T> failoverFeignTarget = new FailoverFeignTarget<>(endpointUris, maxBackoffMillis, type);
         Client client = failoverFeignTarget.wrapClient(newOkHttpClient(sslSocketFactory));
         return Feign.builder()
                 .contract(contract)
-                .encoder(encoder)
+                .encoder(requestEncoder)
                 .decoder(decoder)
                 .errorDecoder(errorDecoder)
                 .client(client)
@@ -158,6 +191,48 @@ public final class AtlasDbHttpClients {
                 .target(failoverFeignTarget);
     }
 
+    /**
+     * Wraps the {@link TimestampService} of a TimeLock client so that its requests are batched together with those
+     * of any other clients of the same TimeLock cluster in this process.
+     *
+     * @param timeLockUris the URIs of the TimeLock servers, without the client namespace
+     */
+    public static TimestampService createCoalescingTimestampService(
+            Optional<SSLSocketFactory> sslSocketFactory,
+            Collection<String> timeLockUris,
+            String client,
+            TimestampService clientTimestampService) {
+        return getTimeLockRequestCoalescer(sslSocketFactory, timeLockUris).coalesce(client, clientTimestampService);
+    }
+
+    /**
+     * Wraps the {@link RemoteLockService} of a TimeLock client so that its lock refreshes are batched together with
+     * those of any other clients of the same TimeLock cluster in this process.
+     *
+     * @param timeLockUris the URIs of the TimeLock servers, without the client namespace
+     */
+    public static RemoteLockService createCoalescingLockService(
+            Optional<SSLSocketFactory> sslSocketFactory,
+            Collection<String> timeLockUris,
+            String client,
+            RemoteLockService clientLockService) {
+        return getTimeLockRequestCoalescer(sslSocketFactory, timeLockUris).coalesce(client, clientLockService);
+    }
+
+    /**
+     * Clients are coalesced by the set of TimeLock servers they talk to; the SSL factory of the first client of
+     * each cluster is used for its batched requests.
+     */
+    private static TimeLockRequestCoalescer getTimeLockRequestCoalescer(
+            Optional<SSLSocketFactory> sslSocketFactory, Collection<String> timeLockUris) {
+        Set<String> normalisedUris = timeLockUris.stream()
+                .map(uri -> uri.replaceAll("/$", ""))
+                .collect(Collectors.collectingAndThen(Collectors.toSet(), ImmutableSet::copyOf));
+        return timeLockRequestCoalescers.computeIfAbsent(normalisedUris, uris -> new TimeLockRequestCoalescer(
+                createProxyWithFailover(sslSocketFactory, uris, MultiClientTimestampService.class),
+                createProxyWithFailover(sslSocketFactory, uris, MultiClientLockRefreshService.class)));
+    }
+
     @VisibleForTesting
     static <T> T createProxyWithQuickFailoverForTesting(
             Optional<SSLSocketFactory> sslSocketFactory, Collection<String> endpointUris, Class<T> type) {
@@ -167,6 +242,7 @@ public final class AtlasDbHttpClients {
                 endpointUris,
                 options,
                 QUICK_MAX_BACKOFF_MILLIS,
+                encoder,
                 type);
     }
 
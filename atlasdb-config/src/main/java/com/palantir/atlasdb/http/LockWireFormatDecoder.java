@@ -0,0 +1,63 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import com.google.common.collect.Iterables;
+import com.google.common.net.HttpHeaders;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockWireFormat;
+
+import feign.FeignException;
+import feign.Response;
+import feign.codec.DecodeException;
+import feign.codec.Decoder;
+
+/**
+ * If the response has the content type of the {@link LockWireFormat}, then this decoder reads it in that format.
+ * Otherwise, it falls back to the delegate.
+ */
+public class LockWireFormatDecoder implements Decoder {
+    private final Decoder delegate;
+
+    public LockWireFormatDecoder(Decoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object decode(Response response, Type type) throws IOException, DecodeException, FeignException {
+        Collection<String> contentTypes = response.headers().get(HttpHeaders.CONTENT_TYPE);
+        if (contentTypes == null
+                || contentTypes.size() != 1
+                || !Iterables.getOnlyElement(contentTypes, "").startsWith(LockWireFormat.MEDIA_TYPE)) {
+            return delegate.decode(response, type);
+        }
+
+        if (type != HeldLocksToken.class) {
+            throw new DecodeException("Cannot read " + type + " from a " + LockWireFormat.MEDIA_TYPE + " response");
+        }
+        if (response.body() == null) {
+            return null;
+        }
+        try (InputStream body = response.body().asInputStream()) {
+            return LockWireFormat.readHeldLocksToken(body);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.lang.reflect.Type;
+
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.net.HttpHeaders;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockWireFormat;
+
+import feign.RequestTemplate;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+
+/**
+ * Sends {@link LockRequest}s in the {@link LockWireFormat}, and asks for responses in it where the server can give
+ * them, falling back to JSON otherwise. All other bodies are encoded by the delegate.
+ */
+public class LockWireFormatEncoder implements Encoder {
+    private static final String ACCEPT_WIRE_FORMAT_OR_JSON = LockWireFormat.MEDIA_TYPE + ", "
+            + MediaType.APPLICATION_JSON + ";q=0.5";
+
+    private final Encoder delegate;
+
+    public LockWireFormatEncoder(Encoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
+        if (!(object instanceof LockRequest)) {
+            delegate.encode(object, bodyType, template);
+            return;
+        }
+        template.body(LockWireFormat.encode((LockRequest) object), null);
+        template.header(HttpHeaders.CONTENT_TYPE, LockWireFormat.MEDIA_TYPE);
+        template.header(HttpHeaders.ACCEPT, ACCEPT_WIRE_FORMAT_OR_JSON);
+    }
+}
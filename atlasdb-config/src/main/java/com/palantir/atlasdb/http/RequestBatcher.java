@@ -0,0 +1,210 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Coalesces concurrent keyed requests into calls of a batch function, without a timer: the first caller sends
+ * its own request immediately, and requests arriving while that call is in flight are sent together as the next
+ * batch. Requests for the same key in a batch are merged into one by the {@link RequestMerger}.
+ * <p>
+ * No lock is held during the call of the batch function. At most one batch is in flight at a time; when it
+ * returns, the caller that sent it hands the sending of the next batch over to the caller of the oldest pending
+ * request, so that no caller keeps sending batches on behalf of others.
+ */
+@ThreadSafe
+final class RequestBatcher<K, V, R> {
+    private final Function<Map<K, V>, Map<K, R>> batchFunction;
+    private final RequestMerger<V, R> merger;
+    private final Queue<PendingRequest<K, V, R>> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    RequestBatcher(Function<Map<K, V>, Map<K, R>> batchFunction, RequestMerger<V, R> merger) {
+        this.batchFunction = batchFunction;
+        this.merger = merger;
+    }
+
+    /**
+     * Merges the requests for a key into the one sent in a batch, and splits the result of the batch back up.
+     */
+    interface RequestMerger<V, R> {
+        V merge(List<V> values);
+
+        /**
+         * Returns the results of the given requests, in order; a result is null if the merged result had nothing
+         * left for its request.
+         */
+        List<R> split(R result, List<V> values);
+    }
+
+    /**
+     * Sends the request as part of a batch and returns its result, rethrowing any exception thrown by the batch
+     * function. Returns null if the batch function returned no result for the key, or the result for the key had
+     * nothing left for this request.
+     */
+    @Nullable
+    R submit(K key, V value) {
+        PendingRequest<K, V, R> pendingRequest = new PendingRequest<>(key, value);
+        pendingRequests.add(pendingRequest);
+        boolean mustFlush = flushing.compareAndSet(false, true);
+        while (true) {
+            if (mustFlush) {
+                // Our request is still pending, as only the holder of the flushing flag sends requests
+                try {
+                    flushPendingRequests();
+                } finally {
+                    handOverFlushing();
+                }
+            }
+            if (pendingRequest.isDone()) {
+                return pendingRequest.getResult();
+            }
+            mustFlush = pendingRequest.awaitCompletionOrFlushingTurn();
+        }
+    }
+
+    private void flushPendingRequests() {
+        Map<K, List<PendingRequest<K, V, R>>> requestsByKey = Maps.newLinkedHashMap();
+        PendingRequest<K, V, R> next;
+        while ((next = pendingRequests.poll()) != null) {
+            requestsByKey.computeIfAbsent(next.key, unused -> Lists.newArrayList()).add(next);
+        }
+
+        try {
+            sendBatch(requestsByKey);
+        } catch (RuntimeException e) {
+            // fails the requests that were not completed before the exception
+            requestsByKey.values().forEach(requestsForKey -> requestsForKey.forEach(request -> request.fail(e)));
+        }
+    }
+
+    private void sendBatch(Map<K, List<PendingRequest<K, V, R>>> requestsByKey) {
+        Map<K, V> requests = Maps.newHashMapWithExpectedSize(requestsByKey.size());
+        for (Map.Entry<K, List<PendingRequest<K, V, R>>> entry : requestsByKey.entrySet()) {
+            requests.put(entry.getKey(), merger.merge(Lists.transform(entry.getValue(), request -> request.value)));
+        }
+        Map<K, R> results = batchFunction.apply(requests);
+        for (Map.Entry<K, List<PendingRequest<K, V, R>>> entry : requestsByKey.entrySet()) {
+            List<PendingRequest<K, V, R>> requestsForKey = entry.getValue();
+            R result = results.get(entry.getKey());
+            if (result == null) {
+                requestsForKey.forEach(request -> request.succeed(null));
+                continue;
+            }
+            List<R> splitResults = merger.split(result, Lists.transform(requestsForKey, request -> request.value));
+            for (int i = 0; i < requestsForKey.size(); i++) {
+                requestsForKey.get(i).succeed(splitResults.get(i));
+            }
+        }
+    }
+
+    /**
+     * Gives up the flushing flag, passing it on to the oldest pending request if there is one. A request added
+     * after we find the queue empty either takes the flag itself or is seen by us, as it is added before the
+     * flag is tried.
+     */
+    private void handOverFlushing() {
+        flushing.set(false);
+        while (!pendingRequests.isEmpty() && flushing.compareAndSet(false, true)) {
+            // While we hold the flag nobody else removes from the queue, so the peeked request stays pending
+            PendingRequest<K, V, R> oldest = pendingRequests.peek();
+            if (oldest != null) {
+                oldest.takeFlushingTurn();
+                return;
+            }
+            flushing.set(false);
+        }
+    }
+
+    private static final class PendingRequest<K, V, R> {
+        private final K key;
+        private final V value;
+        private boolean done = false;
+        private boolean flushingTurn = false;
+        private R result = null;
+        private RuntimeException failure = null;
+
+        PendingRequest(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        synchronized boolean isDone() {
+            return done;
+        }
+
+        synchronized void succeed(@Nullable R newResult) {
+            if (!done) {
+                result = newResult;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        synchronized void fail(RuntimeException exception) {
+            if (!done) {
+                failure = exception;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        synchronized void takeFlushingTurn() {
+            flushingTurn = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the request is done or it is our turn to send the next batch, and returns whether it is.
+         */
+        synchronized boolean awaitCompletionOrFlushingTurn() {
+            boolean interrupted = false;
+            while (!done && !flushingTurn) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // the batch may already contain our request, so we wait for it like the caller of a direct call
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            boolean turn = flushingTurn;
+            flushingTurn = false;
+            return turn;
+        }
+
+        synchronized R getResult() {
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+}
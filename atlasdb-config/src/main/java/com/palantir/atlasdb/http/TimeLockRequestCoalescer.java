@@ -0,0 +1,222 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.palantir.lock.ForwardingRemoteLockService;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.MultiClientLockRefreshService;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.MultiClientTimestampService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Coalesces timestamp requests and lock refreshes made by the clients of a single TimeLock cluster into calls of
+ * its batch endpoints, so that a process using many clients makes one round trip instead of one per client.
+ * <p>
+ * Concurrent requests of the same client are merged into one entry of the batch: timestamp requests ask for the
+ * sum of their timestamps and split the returned range, and lock refreshes send the union of their tokens. A request
+ * the batched response has nothing for (for example, because the server does not know its client) is sent to the
+ * client's own service instead.
+ * <p>
+ * Servers that predate the batch endpoints answer 404 or 405. Requests are then sent straight to the clients'
+ * services for {@link #BATCHING_REPROBE_INTERVAL}, after which the batch endpoints are tried again, in case the
+ * servers have been upgraded. Other failures of a batched call, such as a 503 during leader election, are thrown to
+ * the caller just like failures of a direct call.
+ */
+final class TimeLockRequestCoalescer {
+    private static final Logger log = LoggerFactory.getLogger(TimeLockRequestCoalescer.class);
+
+    @VisibleForTesting
+    static final Duration BATCHING_REPROBE_INTERVAL = Duration.ofMinutes(1);
+
+    // TimeLock hands out at most this many timestamps per request
+    @VisibleForTesting
+    static final int MAX_TIMESTAMPS_PER_CLIENT = 10_000;
+
+    private final RequestBatcher<String, Integer, TimestampRange> timestampBatcher;
+    private final RequestBatcher<String, List<LockRefreshToken>, Set<LockRefreshToken>> lockRefreshBatcher;
+    private final LongSupplier nanoTime;
+    private volatile boolean batchingEnabled = true;
+    private volatile long batchingReprobeNanos;
+
+    TimeLockRequestCoalescer(
+            MultiClientTimestampService timestampService,
+            MultiClientLockRefreshService lockRefreshService) {
+        this(timestampService, lockRefreshService, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    TimeLockRequestCoalescer(
+            MultiClientTimestampService timestampService,
+            MultiClientLockRefreshService lockRefreshService,
+            LongSupplier nanoTime) {
+        this.timestampBatcher = new RequestBatcher<>(
+                timestampService::getFreshTimestampsForClients, new TimestampRequestMerger());
+        this.lockRefreshBatcher = new RequestBatcher<>(
+                lockRefreshService::refreshLockRefreshTokensForClients, new LockRefreshRequestMerger());
+        this.nanoTime = nanoTime;
+    }
+
+    TimestampService coalesce(String client, TimestampService clientTimestampService) {
+        return new CoalescingTimestampService(client, clientTimestampService);
+    }
+
+    RemoteLockService coalesce(String client, RemoteLockService clientLockService) {
+        return new CoalescingRemoteLockService(client, clientLockService);
+    }
+
+    private <T> T callBatchedOrDirectly(Supplier<T> batchedCall, Supplier<T> directCall) {
+        if (!shouldBatch()) {
+            return directCall.get();
+        }
+        T result;
+        try {
+            result = batchedCall.get();
+        } catch (UnsupportedEndpointException e) {
+            log.warn("The TimeLock servers do not support batched requests."
+                    + " Sending requests to TimeLock without batching for the next {} seconds.",
+                    BATCHING_REPROBE_INTERVAL.getSeconds(), e);
+            batchingReprobeNanos = nanoTime.getAsLong() + BATCHING_REPROBE_INTERVAL.toNanos();
+            batchingEnabled = false;
+            return directCall.get();
+        }
+        // The batch endpoint serves only the clients it knows; the others are answered by their own services
+        return result != null ? result : directCall.get();
+    }
+
+    private boolean shouldBatch() {
+        if (batchingEnabled) {
+            return true;
+        }
+        if (nanoTime.getAsLong() - batchingReprobeNanos >= 0) {
+            batchingEnabled = true;
+            return true;
+        }
+        return false;
+    }
+
+    private final class CoalescingTimestampService implements TimestampService {
+        private final String client;
+        private final TimestampService delegate;
+
+        CoalescingTimestampService(String client, TimestampService delegate) {
+            this.client = client;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long getFreshTimestamp() {
+            return getFreshTimestamps(1).getLowerBound();
+        }
+
+        @Override
+        public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+            return callBatchedOrDirectly(
+                    () -> timestampBatcher.submit(client, numTimestampsRequested),
+                    () -> delegate.getFreshTimestamps(numTimestampsRequested));
+        }
+    }
+
+    private final class CoalescingRemoteLockService extends ForwardingRemoteLockService {
+        private final String client;
+        private final RemoteLockService delegate;
+
+        CoalescingRemoteLockService(String client, RemoteLockService delegate) {
+            this.client = client;
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected RemoteLockService delegate() {
+            return delegate;
+        }
+
+        @Override
+        public Set<LockRefreshToken> refreshLockRefreshTokens(Iterable<LockRefreshToken> tokens) {
+            List<LockRefreshToken> tokenList = ImmutableList.copyOf(tokens);
+            return callBatchedOrDirectly(
+                    () -> lockRefreshBatcher.submit(client, tokenList),
+                    () -> delegate.refreshLockRefreshTokens(tokenList));
+        }
+    }
+
+    private static final class TimestampRequestMerger
+            implements RequestBatcher.RequestMerger<Integer, TimestampRange> {
+        @Override
+        public Integer merge(List<Integer> numTimestampsRequested) {
+            long total = 0;
+            for (int numTimestamps : numTimestampsRequested) {
+                total += numTimestamps;
+            }
+            return (int) Math.min(total, MAX_TIMESTAMPS_PER_CLIENT);
+        }
+
+        /**
+         * Hands out the range in request order; like a {@link TimestampService}, it may give a request fewer
+         * timestamps than it asked for.
+         */
+        @Override
+        public List<TimestampRange> split(TimestampRange range, List<Integer> numTimestampsRequested) {
+            List<TimestampRange> ranges = Lists.newArrayListWithCapacity(numTimestampsRequested.size());
+            long next = range.getLowerBound();
+            for (int numTimestamps : numTimestampsRequested) {
+                if (next > range.getUpperBound()) {
+                    ranges.add(null);
+                    continue;
+                }
+                long upperBound = Math.min(next + numTimestamps - 1, range.getUpperBound());
+                ranges.add(TimestampRange.createInclusiveRange(next, upperBound));
+                next = upperBound + 1;
+            }
+            return ranges;
+        }
+    }
+
+    private static final class LockRefreshRequestMerger
+            implements RequestBatcher.RequestMerger<List<LockRefreshToken>, Set<LockRefreshToken>> {
+        @Override
+        public List<LockRefreshToken> merge(List<List<LockRefreshToken>> tokenLists) {
+            Set<LockRefreshToken> tokens = Sets.newLinkedHashSet();
+            tokenLists.forEach(tokens::addAll);
+            return ImmutableList.copyOf(tokens);
+        }
+
+        @Override
+        public List<Set<LockRefreshToken>> split(Set<LockRefreshToken> refreshed,
+                List<List<LockRefreshToken>> tokenLists) {
+            List<Set<LockRefreshToken>> refreshedByRequest = Lists.newArrayListWithCapacity(tokenLists.size());
+            for (List<LockRefreshToken> tokens : tokenLists) {
+                refreshedByRequest.add(Sets.intersection(ImmutableSet.copyOf(tokens), refreshed).immutableCopy());
+            }
+            return refreshedByRequest;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.http;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNull;
@@ -46,6 +47,8 @@ public class AtlasDbErrorDecoderTest {
 
     private static final int STATUS_503 = 503;
     private static final int STATUS_NOT_503 = 511;
+    private static final int STATUS_404 = 404;
+    private static final int STATUS_405 = 405;
 
     ErrorDecoder defaultDecoder;
     AtlasDbErrorDecoder atlasDbDecoder;
@@ -84,6 +87,16 @@ public class AtlasDbErrorDecoderTest {
         assertThat(exception, is(sameInstance(RETRYABLE_EXCEPTION)));
     }
 
+    @Test
+    public void shouldCreateUnsupportedEndpointExceptionWhen404Or405() {
+        for (int status : new int[] {STATUS_404, STATUS_405}) {
+            Response response = makeDefaultDecoderReplyWhenReceivingResponse(status, NON_RETRYABLE_EXCEPTION);
+            Exception exception = atlasDbDecoder.decode(EMPTY_METHOD_KEY, response);
+            assertThat(exception, instanceOf(UnsupportedEndpointException.class));
+            assertThat(exception.getCause(), is(sameInstance(NON_RETRYABLE_EXCEPTION)));
+        }
+    }
+
     private Response makeDefaultDecoderReplyWhenReceivingResponse(int status, Exception exception) {
         Response response = createResponse(status);
         when(defaultDecoder.decode(EMPTY_METHOD_KEY, response)).thenReturn(exception);
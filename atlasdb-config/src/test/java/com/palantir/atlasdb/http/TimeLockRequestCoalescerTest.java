@@ -0,0 +1,265 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.http;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.MultiClientLockRefreshService;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.MultiClientTimestampService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+import feign.RetryableException;
+
+public class TimeLockRequestCoalescerTest {
+    private static final String CLIENT_1 = "client1";
+    private static final String CLIENT_2 = "client2";
+    private static final String CLIENT_3 = "client3";
+    private static final TimestampRange RANGE = TimestampRange.createInclusiveRange(1L, 10L);
+    private static final LockRefreshToken TOKEN = new LockRefreshToken(BigInteger.ONE, 1L);
+
+    private final MultiClientTimestampService batchTimestampService = mock(MultiClientTimestampService.class);
+    private final MultiClientLockRefreshService batchLockRefreshService = mock(MultiClientLockRefreshService.class);
+    private final TimestampService clientTimestampService = mock(TimestampService.class);
+    private final RemoteLockService clientLockService = mock(RemoteLockService.class);
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final TimeLockRequestCoalescer coalescer = new TimeLockRequestCoalescer(
+            batchTimestampService, batchLockRefreshService, nanoTime::get);
+
+    @Test
+    public void sendsTimestampRequestsThroughTheBatchEndpoint() {
+        when(batchTimestampService.getFreshTimestampsForClients(ImmutableMap.of(CLIENT_1, 10)))
+                .thenReturn(ImmutableMap.of(CLIENT_1, RANGE));
+
+        TimestampRange range = coalescer.coalesce(CLIENT_1, clientTimestampService).getFreshTimestamps(10);
+
+        assertThat(range.getUpperBound(), is(RANGE.getUpperBound()));
+        verify(clientTimestampService, never()).getFreshTimestamps(anyInt());
+    }
+
+    @Test
+    public void sendsLockRefreshesThroughTheBatchEndpoint() {
+        when(batchLockRefreshService.refreshLockRefreshTokensForClients(
+                ImmutableMap.of(CLIENT_1, ImmutableList.of(TOKEN))))
+                .thenReturn(ImmutableMap.of(CLIENT_1, ImmutableSet.of(TOKEN)));
+
+        Set<LockRefreshToken> refreshed = coalescer.coalesce(CLIENT_1, clientLockService)
+                .refreshLockRefreshTokens(ImmutableList.of(TOKEN));
+
+        assertThat(refreshed, contains(TOKEN));
+        verify(clientLockService, never()).refreshLockRefreshTokens(any());
+    }
+
+    @Test
+    public void stopsBatchingIfTheBatchEndpointIsNotSupported() {
+        when(batchTimestampService.getFreshTimestampsForClients(any()))
+                .thenThrow(new UnsupportedEndpointException("batch endpoint missing", null));
+        when(clientTimestampService.getFreshTimestamps(10)).thenReturn(RANGE);
+        TimestampService timestampService = coalescer.coalesce(CLIENT_1, clientTimestampService);
+
+        timestampService.getFreshTimestamps(10);
+        timestampService.getFreshTimestamps(10);
+
+        verify(batchTimestampService, times(1)).getFreshTimestampsForClients(any());
+        verify(clientTimestampService, times(2)).getFreshTimestamps(10);
+    }
+
+    @Test
+    public void triesTheBatchEndpointAgainAfterTheReprobeInterval() {
+        when(batchTimestampService.getFreshTimestampsForClients(any()))
+                .thenThrow(new UnsupportedEndpointException("batch endpoint missing", null))
+                .thenReturn(ImmutableMap.of(CLIENT_1, RANGE));
+        when(clientTimestampService.getFreshTimestamps(10)).thenReturn(RANGE);
+        TimestampService timestampService = coalescer.coalesce(CLIENT_1, clientTimestampService);
+
+        timestampService.getFreshTimestamps(10);
+        nanoTime.addAndGet(TimeLockRequestCoalescer.BATCHING_REPROBE_INTERVAL.toNanos());
+        timestampService.getFreshTimestamps(10);
+        timestampService.getFreshTimestamps(10);
+
+        verify(batchTimestampService, times(3)).getFreshTimestampsForClients(any());
+        verify(clientTimestampService, times(1)).getFreshTimestamps(10);
+    }
+
+    @Test
+    public void throwsOtherFailuresOfTheBatchEndpointWithoutStoppingBatching() {
+        when(batchTimestampService.getFreshTimestampsForClients(any()))
+                .thenThrow(new RetryableException("leader election in progress", (Date) null))
+                .thenReturn(ImmutableMap.of(CLIENT_1, RANGE));
+        TimestampService timestampService = coalescer.coalesce(CLIENT_1, clientTimestampService);
+
+        try {
+            timestampService.getFreshTimestamps(10);
+            fail();
+        } catch (RetryableException e) {
+            // expected
+        }
+        timestampService.getFreshTimestamps(10);
+
+        verify(batchTimestampService, times(2)).getFreshTimestampsForClients(any());
+        verify(clientTimestampService, never()).getFreshTimestamps(anyInt());
+    }
+
+    @Test
+    public void sendsRequestsOfClientsMissingFromTheBatchedResponseToTheirOwnService() {
+        when(batchTimestampService.getFreshTimestampsForClients(any())).thenReturn(ImmutableMap.of());
+        when(clientTimestampService.getFreshTimestamps(10)).thenReturn(RANGE);
+        TimestampService timestampService = coalescer.coalesce(CLIENT_1, clientTimestampService);
+
+        TimestampRange range = timestampService.getFreshTimestamps(10);
+        timestampService.getFreshTimestamps(10);
+
+        assertThat(range.getUpperBound(), is(RANGE.getUpperBound()));
+        verify(batchTimestampService, times(2)).getFreshTimestampsForClients(any());
+        verify(clientTimestampService, times(2)).getFreshTimestamps(10);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked") // mock answer argument
+    public void coalescesRequestsFromDifferentClientsMadeWhileABatchIsInFlight() throws InterruptedException {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Map<String, Integer>> batches = new CopyOnWriteArrayList<>();
+        when(batchTimestampService.getFreshTimestampsForClients(any())).thenAnswer(invocation -> {
+            Map<String, Integer> batch = ImmutableMap.copyOf((Map<String, Integer>) invocation.getArguments()[0]);
+            batches.add(batch);
+            if (batches.size() == 1) {
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await();
+            }
+            return Maps.transformValues(batch, numTimestamps -> RANGE);
+        });
+
+        Thread first = requestTimestampsInBackground(CLIENT_1);
+        firstBatchStarted.await();
+        Thread second = requestTimestampsInBackground(CLIENT_2);
+        Thread third = requestTimestampsInBackground(CLIENT_3);
+        waitUntilParked(second);
+        waitUntilParked(third);
+        releaseFirstBatch.countDown();
+        first.join();
+        second.join();
+        third.join();
+
+        assertThat(batches.size(), is(2));
+        assertThat(batches.get(1).keySet(), is(ImmutableSet.of(CLIENT_2, CLIENT_3)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked") // mock answer argument
+    public void mergesConcurrentRequestsOfTheSameClientIntoOneEntryOfTheBatch() throws InterruptedException {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Map<String, Integer>> batches = new CopyOnWriteArrayList<>();
+        AtomicLong nextTimestamp = new AtomicLong(1L);
+        when(batchTimestampService.getFreshTimestampsForClients(any())).thenAnswer(invocation -> {
+            Map<String, Integer> batch = ImmutableMap.copyOf((Map<String, Integer>) invocation.getArguments()[0]);
+            batches.add(batch);
+            if (batches.size() == 1) {
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await();
+            }
+            return ImmutableMap.copyOf(Maps.transformValues(batch, numTimestamps -> {
+                long lowerBound = nextTimestamp.getAndAdd(numTimestamps);
+                return TimestampRange.createInclusiveRange(lowerBound, lowerBound + numTimestamps - 1);
+            }));
+        });
+        List<TimestampRange> ranges = new CopyOnWriteArrayList<>();
+
+        Thread first = requestTimestampsInBackground(CLIENT_1, 1, ranges);
+        firstBatchStarted.await();
+        Thread second = requestTimestampsInBackground(CLIENT_1, 2, ranges);
+        Thread third = requestTimestampsInBackground(CLIENT_1, 3, ranges);
+        waitUntilParked(second);
+        waitUntilParked(third);
+        releaseFirstBatch.countDown();
+        first.join();
+        second.join();
+        third.join();
+
+        assertThat(batches.size(), is(2));
+        assertThat(batches.get(1), is(ImmutableMap.of(CLIENT_1, 5)));
+        Set<Long> timestamps = Sets.newHashSet();
+        for (TimestampRange range : ranges) {
+            for (long timestamp = range.getLowerBound(); timestamp <= range.getUpperBound(); timestamp++) {
+                timestamps.add(timestamp);
+            }
+        }
+        assertThat(timestamps, is(ContiguousSet.create(Range.closed(1L, 6L), DiscreteDomain.longs())));
+        verify(clientTimestampService, never()).getFreshTimestamps(anyInt());
+    }
+
+    @Test
+    public void splitsRefreshedTokensBetweenMergedRequests() {
+        LockRefreshToken otherToken = new LockRefreshToken(BigInteger.TEN, 1L);
+        when(batchLockRefreshService.refreshLockRefreshTokensForClients(
+                ImmutableMap.of(CLIENT_1, ImmutableList.of(TOKEN, otherToken))))
+                .thenReturn(ImmutableMap.of(CLIENT_1, ImmutableSet.of(TOKEN)));
+
+        Set<LockRefreshToken> refreshed = coalescer.coalesce(CLIENT_1, clientLockService)
+                .refreshLockRefreshTokens(ImmutableList.of(TOKEN, otherToken));
+
+        assertThat(refreshed, is(ImmutableSet.of(TOKEN)));
+    }
+
+    private Thread requestTimestampsInBackground(String client) {
+        return requestTimestampsInBackground(client, 1, new CopyOnWriteArrayList<>());
+    }
+
+    private Thread requestTimestampsInBackground(String client, int numTimestamps, List<TimestampRange> ranges) {
+        Thread thread = new Thread(() -> ranges.add(
+                coalescer.coalesce(client, clientTimestampService).getFreshTimestamps(numTimestamps)));
+        thread.start();
+        return thread;
+    }
+
+    private static void waitUntilParked(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ValidatingQueryRewritingKeyValueService;
 import com.palantir.atlasdb.schema.SweepSchema;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
@@ -65,8 +66,14 @@ public class KeyValueServiceModule {
 
     @Provides
     @Singleton
-    public TransactionService provideTransactionService(@Named("kvs") KeyValueService kvs) {
-        return TransactionServices.createTransactionService(kvs);
+    public TransactionService provideTransactionService(@Named("kvs") KeyValueService kvs, ServicesConfig config) {
+        return TransactionServices.createTransactionService(kvs, config.atlasDbConfig().enableGroupCommit());
+    }
+
+    @Provides
+    @Singleton
+    public CommitTsCache provideCommitTsCache(TransactionService transactionService) {
+        return CommitTsCache.create(transactionService);
     }
 
     @Provides
@@ -27,6 +27,7 @@ import com.palantir.atlasdb.cleaner.Follower;
 import com.palantir.atlasdb.config.AtlasDbConfig;
 import com.palantir.atlasdb.factory.TransactionManagers;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
@@ -62,7 +63,7 @@ public class TransactionManagerModule {
                                   TimestampService tss,
                                   LockClient lockClient,
                                   Follower follower,
-                                  TransactionService transactionService) {
+                                  CommitTsCache commitTsCache) {
         AtlasDbConfig atlasDbConfig = config.atlasDbConfig();
         return new DefaultCleanerBuilder(
                 kvs,
@@ -70,7 +71,7 @@ public class TransactionManagerModule {
                 tss,
                 lockClient,
                 ImmutableList.of(follower),
-                transactionService)
+                commitTsCache)
                 .setBackgroundScrubAggressively(atlasDbConfig.backgroundScrubAggressively())
                 .setBackgroundScrubBatchSize(atlasDbConfig.getBackgroundScrubBatchSize())
                 .setBackgroundScrubFrequencyMillis(atlasDbConfig.getBackgroundScrubFrequencyMillis())
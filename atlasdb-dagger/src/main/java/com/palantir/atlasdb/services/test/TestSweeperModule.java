@@ -24,11 +24,11 @@ import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.cleaner.Follower;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.sweep.CellsSweeper;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.atlasdb.sweep.SweepTaskRunner;
 import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
-import com.palantir.atlasdb.transaction.service.TransactionService;
 
 import dagger.Module;
 import dagger.Provides;
@@ -61,7 +61,7 @@ public class TestSweeperModule {
     @Singleton
     public SweepTaskRunner provideSweepTaskRunner(SerializableTransactionManager txm,
                                                   @Named("kvs") KeyValueService kvs,
-                                                  TransactionService transactionService,
+                                                  CommitTsCache commitTsCache,
                                                   SweepStrategyManager sweepStrategyManager,
                                                   Follower follower) {
         Supplier<Long> unreadable = unreadableTs.isPresent() ? unreadableTs.get() : txm::getUnreadableTimestamp;
@@ -70,7 +70,7 @@ public class TestSweeperModule {
                 kvs,
                 unreadable,
                 immutable,
-                transactionService,
+                commitTsCache,
                 sweepStrategyManager,
                 new CellsSweeper(txm, kvs, ImmutableList.of(follower)));
     }
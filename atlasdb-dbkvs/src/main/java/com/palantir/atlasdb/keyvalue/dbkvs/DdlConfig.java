@@ -61,10 +61,29 @@ public abstract class DdlConfig {
         return 2 * 1024 * 1024;
     }
 
+    /**
+     * The number of pages of a range scan that are fetched ahead of the consumer, so that reading the next page
+     * overlaps with processing the current one. 0 disables prefetching.
+     */
+    @Value.Default
+    public int rangePrefetchPages() {
+        return 0;
+    }
+
+    /**
+     * The approximate number of bytes of prefetched pages that each range scan may hold ahead of the consumer.
+     */
+    @Value.Default
+    public long rangePrefetchMaxBytes() {
+        return 32 * 1024 * 1024;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkState(
                 metadataTable().getNamespace().isEmptyNamespace(),
                 "'metadataTable' should have empty namespace'");
+        Preconditions.checkState(rangePrefetchPages() >= 0, "'rangePrefetchPages' must not be negative");
+        Preconditions.checkState(rangePrefetchMaxBytes() > 0, "'rangePrefetchMaxBytes' must be positive");
     }
 }
@@ -44,6 +44,15 @@ public abstract class PostgresDdlConfig extends DdlConfig {
         return AtlasDbConstants.DEFAULT_METADATA_TABLE;
     }
 
+    /**
+     * Batches of at least this many cells are written with the binary COPY protocol instead of batched INSERT
+     * statements. A value of 0 or less always uses INSERT.
+     */
+    @Value.Default
+    public int copyMinimumBatchSize() {
+        return 100;
+    }
+
     @Override
     public final String type() {
         return TYPE;
@@ -73,7 +73,10 @@ public abstract class AbstractDbWriteTable implements DbWriteTable {
         put(args);
     }
 
-    private void put(List<Object[]> args) {
+    /**
+     * Inserts rows of (row name, column name, timestamp, value).
+     */
+    protected void put(List<Object[]> args) {
         try {
             String prefixedTableName = prefixedTableNames.get(tableRef);
             conns.get().insertManyUnregisteredQuery("/* INSERT_ONE (" + prefixedTableName + ") */"
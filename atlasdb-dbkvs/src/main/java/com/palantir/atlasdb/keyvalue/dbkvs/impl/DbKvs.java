@@ -79,6 +79,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.dbkvs.DbKeyValueServiceConfig;
@@ -472,7 +473,7 @@ public class DbKvs extends AbstractKeyValueService {
             TableReference tableRef,
             RangeRequest rangeRequest,
             long timestamp) {
-        Iterable<RowResult<Value>> rows =
+        AbstractPagingIterable<RowResult<Value>, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> rows =
                 new AbstractPagingIterable<RowResult<Value>, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>>() {
                     @Override
                     protected TokenBackedBasicResultsPage<RowResult<Value>, byte[]> getFirstPage() {
@@ -487,7 +488,7 @@ public class DbKvs extends AbstractKeyValueService {
                         return getPage(tableRef, newRange, timestamp);
                     }
                 };
-        return ClosableIterators.wrap(rows.iterator());
+        return pagingRangeIterator(rows, config.rangePrefetchPages(), config.rangePrefetchMaxBytes());
     }
 
     private TokenBackedBasicResultsPage<RowResult<Value>, byte[]> getPage(
@@ -563,32 +564,53 @@ public class DbKvs extends AbstractKeyValueService {
             TableReference tableRef,
             RangeRequest rangeRequest,
             long timestamp) {
-        Iterable<RowResult<Set<Long>>> rows = new AbstractPagingIterable<
-                RowResult<Set<Long>>,
-                TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]>>() {
-            @Override
-            protected TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]> getFirstPage() {
-                return getTimestampsPage(tableRef, rangeRequest, timestamp);
-            }
+        return getRangeOfCells(tableRef, rangeRequest, timestamp, this::getTimestampsByCell);
+    }
 
-            @Override
-            protected TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]> getNextPage(
-                    TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]> previous) {
-                byte[] newStartRow = previous.getTokenForNextPage();
-                RangeRequest newRange = rangeRequest.getBuilder().startRowInclusive(newStartRow).build();
-                return getTimestampsPage(tableRef, newRange, timestamp);
-            }
-        };
-        return ClosableIterators.wrap(rows.iterator());
+    /**
+     * Reads the timestamps and whether the latest value is empty page by page from a single scan of the range. For
+     * each page of rows the timestamps are selected without their values, and only the latest value of each cell is
+     * then read to check whether it is empty, so historical values are never transferred.
+     */
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return getRangeOfCells(tableRef, rangeRequest, timestamp, this::getSweepTimestampsByCell);
+    }
+
+    private <T> ClosableIterator<RowResult<T>> getRangeOfCells(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp,
+            CellLoader<T> cellLoader) {
+        AbstractPagingIterable<RowResult<T>, TokenBackedBasicResultsPage<RowResult<T>, byte[]>> rows =
+                new AbstractPagingIterable<RowResult<T>, TokenBackedBasicResultsPage<RowResult<T>, byte[]>>() {
+                    @Override
+                    protected TokenBackedBasicResultsPage<RowResult<T>, byte[]> getFirstPage() {
+                        return getTimestampsPage(tableRef, rangeRequest, timestamp, cellLoader);
+                    }
+
+                    @Override
+                    protected TokenBackedBasicResultsPage<RowResult<T>, byte[]> getNextPage(
+                            TokenBackedBasicResultsPage<RowResult<T>, byte[]> previous) {
+                        byte[] newStartRow = previous.getTokenForNextPage();
+                        RangeRequest newRange = rangeRequest.getBuilder().startRowInclusive(newStartRow).build();
+                        return getTimestampsPage(tableRef, newRange, timestamp, cellLoader);
+                    }
+                };
+        return pagingRangeIterator(rows, config.rangePrefetchPages(), config.rangePrefetchMaxBytes());
     }
 
-    private TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]> getTimestampsPage(
+    private <T> TokenBackedBasicResultsPage<RowResult<T>, byte[]> getTimestampsPage(
             TableReference tableRef,
             RangeRequest range,
-            long timestamp) {
+            long timestamp,
+            CellLoader<T> cellLoader) {
         Stopwatch watch = Stopwatch.createStarted();
         try {
-            return runRead(tableRef, table -> getTimestampsPageInternal(table, range, timestamp));
+            return runRead(tableRef, table -> getTimestampsPageInternal(table, range, timestamp, cellLoader));
         } finally {
             log.debug("Call to KVS.getTimestampsPage on table {} took {} ms.",
                     tableRef, watch.elapsed(TimeUnit.MILLISECONDS));
@@ -596,9 +618,11 @@ public class DbKvs extends AbstractKeyValueService {
     }
 
     @SuppressWarnings("deprecation")
-    private TokenBackedBasicResultsPage<RowResult<Set<Long>>, byte[]> getTimestampsPageInternal(DbReadTable table,
-                                                                                                RangeRequest range,
-                                                                                                long timestamp) {
+    private <T> TokenBackedBasicResultsPage<RowResult<T>, byte[]> getTimestampsPageInternal(
+            DbReadTable table,
+            RangeRequest range,
+            long timestamp,
+            CellLoader<T> cellLoader) {
         Comparator<byte[]> comp = UnsignedBytes.lexicographicalComparator();
         SortedSet<byte[]> rows = Sets.newTreeSet(comp);
         int maxRows = getMaxRowsFromBatchHint(range.getBatchHint());
@@ -612,7 +636,7 @@ public class DbKvs extends AbstractKeyValueService {
                 }
             }
             if (rows.isEmpty()) {
-                return SimpleTokenBackedResultsPage.create(null, ImmutableList.<RowResult<Set<Long>>>of(), false);
+                return SimpleTokenBackedResultsPage.create(null, ImmutableList.<RowResult<T>>of(), false);
             }
         }
 
@@ -621,15 +645,14 @@ public class DbKvs extends AbstractKeyValueService {
             columns = ColumnSelection.create(range.getColumnNames());
         }
 
-        SetMultimap<Cell, Long> results = getTimestampsByCell(table, rows, columns, timestamp);
+        Map<Cell, T> results = cellLoader.load(table, rows, columns, timestamp);
 
-        NavigableMap<byte[], SortedMap<byte[], Set<Long>>> cellsByRow =
-                Cells.breakCellsUpByRow(Multimaps.asMap(results));
+        NavigableMap<byte[], SortedMap<byte[], T>> cellsByRow = Cells.breakCellsUpByRow(results);
         if (range.isReverse()) {
             cellsByRow = cellsByRow.descendingMap();
         }
-        List<RowResult<Set<Long>>> finalResults = Lists.newArrayListWithCapacity(results.size());
-        for (Entry<byte[], SortedMap<byte[], Set<Long>>> entry : cellsByRow.entrySet()) {
+        List<RowResult<T>> finalResults = Lists.newArrayListWithCapacity(results.size());
+        for (Entry<byte[], SortedMap<byte[], T>> entry : cellsByRow.entrySet()) {
             finalResults.add(RowResult.create(entry.getKey(), entry.getValue()));
         }
         byte[] nextRow = null;
@@ -642,10 +665,10 @@ public class DbKvs extends AbstractKeyValueService {
         return SimpleTokenBackedResultsPage.create(nextRow, finalResults, mayHaveMoreResults);
     }
 
-    private SetMultimap<Cell, Long> getTimestampsByCell(DbReadTable table,
-                                                        Iterable<byte[]> rows,
-                                                        ColumnSelection columns,
-                                                        long timestamp) {
+    private Map<Cell, Set<Long>> getTimestampsByCell(DbReadTable table,
+                                                     Iterable<byte[]> rows,
+                                                     ColumnSelection columns,
+                                                     long timestamp) {
         SetMultimap<Cell, Long> results = HashMultimap.create();
         try (ClosableIterator<AgnosticLightResultRow> rowResults = table.getAllRows(rows, columns, timestamp, false)) {
             while (rowResults.hasNext()) {
@@ -655,7 +678,38 @@ public class DbKvs extends AbstractKeyValueService {
                 results.put(cell, ts);
             }
         }
-        return results;
+        return Multimaps.asMap(results);
+    }
+
+    @SuppressWarnings("deprecation")
+    private Map<Cell, SweepCellTimestamps> getSweepTimestampsByCell(DbReadTable table,
+                                                                   Iterable<byte[]> rows,
+                                                                   ColumnSelection columns,
+                                                                   long timestamp) {
+        Map<Cell, Set<Long>> timestampsByCell = getTimestampsByCell(table, rows, columns, timestamp);
+        if (timestampsByCell.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        Set<Cell> cellsWithEmptyLatestValue = Sets.newHashSet();
+        try (ClosableIterator<AgnosticLightResultRow> rowResults =
+                     table.getLatestRows(rows, columns, timestamp, true)) {
+            boolean hasOverflow = table.hasOverflowValues();
+            while (rowResults.hasNext()) {
+                AgnosticLightResultRow row = rowResults.next();
+                // Only values too large to store inline go to the overflow table, so those are never empty.
+                Long overflowId = hasOverflow ? row.getLongObject("overflow") : null;
+                byte[] val = row.getBytes("val");
+                if (overflowId == null && (val == null || val.length == 0)) {
+                    cellsWithEmptyLatestValue.add(Cell.create(row.getBytes("row_name"), row.getBytes("col_name")));
+                }
+            }
+        }
+        return Maps.transformEntries(timestampsByCell, (cell, timestamps) ->
+                SweepCellTimestamps.of(timestamps, cellsWithEmptyLatestValue.contains(cell)));
+    }
+
+    private interface CellLoader<T> {
+        Map<Cell, T> load(DbReadTable table, Iterable<byte[]> rows, ColumnSelection columns, long timestamp);
     }
 
     @Override
@@ -19,9 +19,11 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map.Entry;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
@@ -52,11 +54,11 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -67,14 +69,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        FullQuery fullQuery = withPaddedArgs(new FullQuery(query), rows).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : withPaddedArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -84,15 +86,15 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_ROWS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "     (VALUES " + paddedGroupOfParams(2, rows.size()) + ") t(row_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())))
+                    "    AND m.col_name IN " + paddedParams(Iterables.size(columns.getSelectedColumns())))
                 + " GROUP BY m.row_name, m.col_name ";
         query = wrapQueryWithIncludeValue("GET_LATEST_ROW", query, includeValue);
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -106,9 +108,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
                 + "  WHERE m.row_name = ? "
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name IN " + paddedParams(Iterables.size(columns.getSelectedColumns())));
         FullQuery fullQuery = new FullQuery(query).withArgs(row, ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -119,12 +121,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+                    "    AND m.col_name IN " + paddedParams(Iterables.size(columns.getSelectedColumns())));
+        FullQuery fullQuery = withPaddedArgs(new FullQuery(query), rows).withArg(ts);
+        return columns.allColumnsSelected() ? fullQuery : withPaddedArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -134,13 +136,13 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_ROWS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, rows.size()) + ") t(row_name, ts) "
+                + "     (VALUES " + paddedGroupOfParams(2, rows.size()) + ") t(row_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.ts < t.ts "
                 + (columns.allColumnsSelected() ? "" :
-                    "    AND m.col_name IN " + numParams(Iterables.size(columns.getSelectedColumns())));
+                    "    AND m.col_name IN " + paddedParams(Iterables.size(columns.getSelectedColumns())));
         FullQuery fullQuery = addRowTsArgs(new FullQuery(query), rows);
-        return columns.allColumnsSelected() ? fullQuery : fullQuery.withArgs(columns.getSelectedColumns());
+        return columns.allColumnsSelected() ? fullQuery : withPaddedArgs(fullQuery, columns.getSelectedColumns());
     }
 
     @Override
@@ -162,7 +164,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "    (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "    (VALUES " + paddedGroupOfParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? "
@@ -176,7 +178,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_LATEST_CELLS_INNER (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts "
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "     (VALUES " + paddedGroupOfParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts "
@@ -201,7 +203,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
+                + "     (VALUES " + paddedGroupOfParams(2, Iterables.size(cells)) + ") t(row_name, col_name) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < ? ";
@@ -213,7 +215,7 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ALL_CELLS (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, m.ts" + (includeValue ? ", m.val " : " ")
                 + "   FROM " + prefixedTableName() + " m,"
-                + "     (VALUES " + groupOfNumParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
+                + "     (VALUES " + paddedGroupOfParams(3, Iterables.size(cells)) + ") t(row_name, col_name, ts) "
                 + "  WHERE m.row_name = t.row_name "
                 + "    AND m.col_name = t.col_name "
                 + "    AND m.ts < t.ts ";
@@ -264,6 +266,33 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         return Joiner.on(',').join(Iterables.limit(Iterables.cycle(params), numEntries));
     }
 
+    /**
+     * Lists of parameters are padded up to the next power of two, so that batches of different sizes share a small
+     * number of SQL texts that Postgres and the driver can cache prepared statements and plans for. The padding
+     * entries are bound to an empty name, which no row or column can have.
+     */
+    @VisibleForTesting
+    static int paddedSize(int numEntries) {
+        return numEntries <= 1 ? numEntries : Integer.highestOneBit(numEntries - 1) << 1;
+    }
+
+    private String paddedParams(int numEntries) {
+        return numParams(paddedSize(numEntries));
+    }
+
+    private String paddedGroupOfParams(int numParams, int numEntries) {
+        return groupOfNumParams(numParams, paddedSize(numEntries));
+    }
+
+    private FullQuery withPaddedArgs(FullQuery fullQuery, Iterable<byte[]> names) {
+        int numEntries = Iterables.size(names);
+        fullQuery.withArgs(names);
+        for (int i = numEntries; i < paddedSize(numEntries); i++) {
+            fullQuery.withArg(PtBytes.EMPTY_BYTE_ARRAY);
+        }
+        return fullQuery;
+    }
+
     private String wrapQueryWithIncludeValue(String wrappedName, String query, boolean includeValue) {
         if (!includeValue) {
             return query;
@@ -277,15 +306,25 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
     }
 
     private FullQuery addRowTsArgs(FullQuery fullQuery, Iterable<Entry<byte[], Long>> rows) {
+        int numEntries = 0;
         for (Entry<byte[], Long> entry : rows) {
             fullQuery.withArgs(entry.getKey(), entry.getValue());
+            numEntries++;
+        }
+        for (int i = numEntries; i < paddedSize(numEntries); i++) {
+            fullQuery.withArgs(PtBytes.EMPTY_BYTE_ARRAY, 0L);
         }
         return fullQuery;
     }
 
     private FullQuery addCellArgs(FullQuery fullQuery, Iterable<Cell> cells) {
+        int numEntries = 0;
         for (Cell cell : cells) {
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName());
+            numEntries++;
+        }
+        for (int i = numEntries; i < paddedSize(numEntries); i++) {
+            fullQuery.withArgs(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY);
         }
         return fullQuery;
     }
@@ -295,6 +334,9 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
             Cell cell = entry.getKey();
             fullQuery.withArgs(cell.getRowName(), cell.getColumnName(), entry.getValue());
         }
+        for (int i = cells.size(); i < paddedSize(cells.size()); i++) {
+            fullQuery.withArgs(PtBytes.EMPTY_BYTE_ARRAY, PtBytes.EMPTY_BYTE_ARRAY, 0L);
+        }
         return fullQuery;
     }
 
@@ -310,12 +352,12 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_COUNT(" + tableName + ") */"
                 + " SELECT m.row_name, COUNT(m.col_name) AS column_count "
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name";
-        FullQuery fullQuery = new FullQuery(query).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = withPaddedArgs(new FullQuery(query), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
@@ -359,14 +401,14 @@ public class PostgresQueryFactory extends AbstractDbQueryFactory {
         String query = " /* GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW (" + tableName + ") */ "
                 + " SELECT m.row_name, m.col_name, max(m.ts) as ts"
                 + "   FROM " + prefixedTableName() + " m "
-                + "  WHERE m.row_name IN " + numParams(Iterables.size(rows))
+                + "  WHERE m.row_name IN " + paddedParams(Iterables.size(rows))
                 + "    AND m.ts < ? "
                 + (columnRangeSelection.getStartCol().length > 0 ? " AND m.col_name >= ?" : "")
                 + (columnRangeSelection.getEndCol().length > 0 ? " AND m.col_name < ?" : "")
                 + " GROUP BY m.row_name, m.col_name"
                 + " ORDER BY m.row_name ASC, m.col_name ASC";
         String wrappedQuery = wrapQueryWithIncludeValue("GET_ROWS_COLUMN_RANGE_FULLY_LOADED_ROW", query, true);
-        FullQuery fullQuery = new FullQuery(wrappedQuery).withArgs(rows).withArg(ts);
+        FullQuery fullQuery = withPaddedArgs(new FullQuery(wrappedQuery), rows).withArg(ts);
         if (columnRangeSelection.getStartCol().length > 0) {
             fullQuery = fullQuery.withArg(columnRangeSelection.getStartCol());
         }
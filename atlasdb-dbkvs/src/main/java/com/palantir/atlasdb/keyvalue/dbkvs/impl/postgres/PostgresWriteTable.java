@@ -15,18 +15,115 @@
  */
 package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.dbkvs.DdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.AbstractDbWriteTable;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.ConnectionSupplier;
 import com.palantir.atlasdb.keyvalue.dbkvs.impl.PrefixedTableNames;
+import com.palantir.common.base.Throwables;
+import com.palantir.exception.PalantirSqlException;
+import com.palantir.nexus.db.sql.ExceptionCheck;
 
 public class PostgresWriteTable extends AbstractDbWriteTable {
+    // See "Binary Format" in the documentation of COPY.
+    private static final byte[] BINARY_COPY_SIGNATURE =
+            {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+    private static final int COLUMNS_PER_ROW = 4;
+
+    private final PostgresDdlConfig postgresConfig;
+    private final PrefixedTableNames prefixedTableNames;
+
     public PostgresWriteTable(
-            DdlConfig config,
+            PostgresDdlConfig config,
             ConnectionSupplier conns,
             TableReference tableRef,
             PrefixedTableNames prefixedTableNames) {
         super(config, conns, tableRef, prefixedTableNames);
+        this.postgresConfig = config;
+        this.prefixedTableNames = prefixedTableNames;
+    }
+
+    @Override
+    protected void put(List<Object[]> args) {
+        int copyMinimumBatchSize = postgresConfig.copyMinimumBatchSize();
+        if (copyMinimumBatchSize <= 0 || args.size() < copyMinimumBatchSize) {
+            super.put(args);
+            return;
+        }
+        try {
+            Connection connection = conns.get().getUnderlyingConnection();
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                super.put(args);
+                return;
+            }
+            // Like the INSERT, this fails as a whole if any of the cells already exist.
+            String prefixedTableName = prefixedTableNames.get(tableRef);
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + prefixedTableName + " (row_name, col_name, ts, val) FROM STDIN WITH (FORMAT binary)",
+                    new ByteArrayInputStream(encodeBinaryCopy(args)));
+        } catch (SQLException e) {
+            if (ExceptionCheck.isUniqueConstraintViolation(e)) {
+                throw new KeyAlreadyExistsException("primary key violation", e);
+            }
+            throw PalantirSqlException.create(e);
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
+    /**
+     * Encodes rows of (row name, column name, timestamp, value) in the binary format of COPY.
+     */
+    @VisibleForTesting
+    static byte[] encodeBinaryCopy(List<Object[]> args) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(estimateBinaryCopySize(args));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(BINARY_COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+            for (Object[] row : args) {
+                out.writeShort(COLUMNS_PER_ROW);
+                writeBytea(out, (byte[]) row[0]);
+                writeBytea(out, (byte[]) row[1]);
+                out.writeInt(Long.BYTES);
+                out.writeLong((Long) row[2]);
+                writeBytea(out, (byte[]) row[3]);
+            }
+            out.writeShort(-1); // trailer
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytea(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static int estimateBinaryCopySize(List<Object[]> args) {
+        long size = BINARY_COPY_SIGNATURE.length + 2 * Integer.BYTES + Short.BYTES;
+        for (Object[] row : args) {
+            size += Short.BYTES + COLUMNS_PER_ROW * Integer.BYTES + Long.BYTES;
+            size += ((byte[]) row[0]).length + ((byte[]) row[1]).length;
+            size += row[3] == null ? 0 : ((byte[]) row[3]).length;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
     }
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.dbkvs.PostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.dbkvs.impl.FullQuery;
+
+public class PostgresQueryFactoryTest {
+    private static final long TS = 100L;
+    private static final byte[] ROW_1 = PtBytes.toBytes("row1");
+    private static final byte[] ROW_2 = PtBytes.toBytes("row2");
+    private static final byte[] ROW_3 = PtBytes.toBytes("row3");
+    private static final byte[] ROW_4 = PtBytes.toBytes("row4");
+    private static final byte[] COL = PtBytes.toBytes("col");
+
+    private final PostgresQueryFactory queryFactory = createQueryFactory();
+
+    @Test
+    public void padsSizesToPowersOfTwo() {
+        assertThat(PostgresQueryFactory.paddedSize(1), is(1));
+        assertThat(PostgresQueryFactory.paddedSize(2), is(2));
+        assertThat(PostgresQueryFactory.paddedSize(3), is(4));
+        assertThat(PostgresQueryFactory.paddedSize(4), is(4));
+        assertThat(PostgresQueryFactory.paddedSize(5), is(8));
+        assertThat(PostgresQueryFactory.paddedSize(1000), is(1024));
+    }
+
+    @Test
+    public void batchesInTheSameBucketShareTheirQueryText() {
+        FullQuery threeRows = queryFactory.getLatestRowsQuery(
+                ImmutableList.of(ROW_1, ROW_2, ROW_3), TS, ColumnSelection.all(), true);
+        FullQuery fourRows = queryFactory.getLatestRowsQuery(
+                ImmutableList.of(ROW_1, ROW_2, ROW_3, ROW_4), TS, ColumnSelection.all(), true);
+
+        assertThat(threeRows.getQuery(), is(fourRows.getQuery()));
+    }
+
+    @Test
+    public void padsRowListsWithEmptyNames() {
+        FullQuery query = queryFactory.getLatestRowsQuery(
+                ImmutableList.of(ROW_1, ROW_2, ROW_3), TS, ColumnSelection.all(), false);
+
+        assertThat(query.getArgs(), arrayContaining(ROW_1, ROW_2, ROW_3, PtBytes.EMPTY_BYTE_ARRAY, TS));
+        assertParametersMatchArguments(query);
+    }
+
+    @Test
+    public void padsSelectedColumnsWithEmptyNames() {
+        ColumnSelection columns = ColumnSelection.create(ImmutableList.of(COL, ROW_1, ROW_2));
+        FullQuery query = queryFactory.getAllRowsQuery(ImmutableList.of(ROW_1), TS, columns, false);
+
+        assertThat(query.getArgs().length, is(1 + 1 + 4));
+        assertThat(query.getArgs()[5], is(PtBytes.EMPTY_BYTE_ARRAY));
+        assertParametersMatchArguments(query);
+    }
+
+    @Test
+    public void padsCellValuesListsWithEmptyNames() {
+        List<Cell> cells = ImmutableList.of(
+                Cell.create(ROW_1, COL),
+                Cell.create(ROW_2, COL),
+                Cell.create(ROW_3, COL));
+        FullQuery query = queryFactory.getLatestCellsQuery(cells, TS, false);
+
+        assertThat(query.getArgs().length, is(2 * 4 + 1));
+        assertThat(query.getArgs()[6], is(PtBytes.EMPTY_BYTE_ARRAY));
+        assertThat(query.getArgs()[7], is(PtBytes.EMPTY_BYTE_ARRAY));
+        assertParametersMatchArguments(query);
+    }
+
+    private static void assertParametersMatchArguments(FullQuery query) {
+        assertThat(CharMatcher.is('?').countIn(query.getQuery()), is(query.getArgs().length));
+    }
+
+    private static PostgresQueryFactory createQueryFactory() {
+        PostgresDdlConfig config = mock(PostgresDdlConfig.class);
+        when(config.tablePrefix()).thenReturn("a_");
+        return new PostgresQueryFactory("test_table", config);
+    }
+}
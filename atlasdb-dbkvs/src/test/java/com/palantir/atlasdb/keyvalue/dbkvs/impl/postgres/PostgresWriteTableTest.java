@@ -0,0 +1,70 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.dbkvs.impl.postgres;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.encoding.PtBytes;
+
+public class PostgresWriteTableTest {
+    private static final byte[] ROW = PtBytes.toBytes("row");
+    private static final byte[] COLUMN = PtBytes.toBytes("column");
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long TIMESTAMP = 12345L;
+
+    @Test
+    public void encodesRowsInBinaryCopyFormat() throws IOException {
+        byte[] encoded = PostgresWriteTable.encodeBinaryCopy(ImmutableList.of(
+                new Object[] {ROW, COLUMN, TIMESTAMP, VALUE},
+                new Object[] {ROW, COLUMN, TIMESTAMP + 1, PtBytes.EMPTY_BYTE_ARRAY}));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+
+        byte[] signature = new byte[11];
+        in.readFully(signature);
+        assertThat(signature, is(new byte[] {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0}));
+        assertThat(in.readInt(), is(0));
+        assertThat(in.readInt(), is(0));
+
+        assertRow(in, TIMESTAMP, VALUE);
+        assertRow(in, TIMESTAMP + 1, PtBytes.EMPTY_BYTE_ARRAY);
+
+        assertThat(in.readShort(), is((short) -1));
+        assertThat(in.read(), is(-1));
+    }
+
+    private static void assertRow(DataInputStream in, long timestamp, byte[] value) throws IOException {
+        assertThat(in.readShort(), is((short) 4));
+        assertThat(readBytea(in), is(ROW));
+        assertThat(readBytea(in), is(COLUMN));
+        assertThat(in.readInt(), is(8));
+        assertThat(in.readLong(), is(timestamp));
+        assertThat(readBytea(in), is(value));
+    }
+
+    private static byte[] readBytea(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -22,7 +22,7 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
-import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.common.time.Clock;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.RemoteLockService;
@@ -34,7 +34,7 @@ public class DefaultCleanerBuilder {
     private final TimestampService timestampService;
     private final LockClient lockClient;
     private final List<Follower> followerList;
-    private final TransactionService transactionService;
+    private final CommitTsCache commitTsCache;
 
     private long transactionReadTimeout = AtlasDbConstants.DEFAULT_TRANSACTION_READ_TIMEOUT;
     private long punchIntervalMillis = AtlasDbConstants.DEFAULT_PUNCH_INTERVAL_MILLIS;
@@ -49,13 +49,13 @@ public class DefaultCleanerBuilder {
                                  TimestampService timestampService,
                                  LockClient lockClient,
                                  List<? extends Follower> followerList,
-                                 TransactionService transactionService) {
+                                 CommitTsCache commitTsCache) {
         this.keyValueService = keyValueService;
         this.lockService = lockService;
         this.timestampService = timestampService;
         this.lockClient = lockClient;
         this.followerList = ImmutableList.copyOf(followerList);
-        this.transactionService = transactionService;
+        this.commitTsCache = commitTsCache;
     }
 
     public DefaultCleanerBuilder setTransactionReadTimeout(long transactionReadTimeout) {
@@ -116,7 +116,7 @@ public class DefaultCleanerBuilder {
                 Suppliers.ofInstance(true),
                 unreadableTimestampSupplier,
                 immutableTimestampSupplier,
-                transactionService,
+                commitTsCache,
                 backgroundScrubAggressively,
                 Suppliers.ofInstance(backgroundScrubBatchSize),
                 backgroundScrubThreads,
@@ -54,18 +54,16 @@ import com.google.common.util.concurrent.Futures;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
-import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.atlasdb.table.description.UniformRowNamePartitioner;
 import com.palantir.atlasdb.table.description.ValueType;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.Transaction.TransactionType;
-import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
-import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitableView;
 import com.palantir.common.base.Throwables;
@@ -99,7 +97,7 @@ public final class Scrubber {
 
     private final Supplier<Long> immutableTimestampSupplier;
     private final Supplier<Long> unreadableTimestampSupplier;
-    private final TransactionService transactionService;
+    private final CommitTsCache commitTsCache;
     private final Collection<Follower> followers;
     private final boolean aggressiveScrub;
     private final Supplier<Integer> batchSizeSupplier;
@@ -125,7 +123,7 @@ public final class Scrubber {
                                   Supplier<Boolean> isScrubEnabled,
                                   Supplier<Long> unreadableTimestampSupplier,
                                   Supplier<Long> immutableTimestampSupplier,
-                                  TransactionService transactionService,
+                                  CommitTsCache commitTsCache,
                                   boolean aggressiveScrub,
                                   Supplier<Integer> batchSizeSupplier,
                                   int threadCount,
@@ -138,7 +136,7 @@ public final class Scrubber {
                 isScrubEnabled,
                 unreadableTimestampSupplier,
                 immutableTimestampSupplier,
-                transactionService,
+                commitTsCache,
                 aggressiveScrub,
                 batchSizeSupplier,
                 threadCount,
@@ -153,7 +151,7 @@ public final class Scrubber {
                      Supplier<Boolean> isScrubEnabled,
                      Supplier<Long> unreadableTimestampSupplier,
                      Supplier<Long> immutableTimestampSupplier,
-                     TransactionService transactionService,
+                     CommitTsCache commitTsCache,
                      final boolean aggressiveScrub,
                      Supplier<Integer> batchSizeSupplier,
                      int threadCount,
@@ -165,7 +163,7 @@ public final class Scrubber {
         this.isScrubEnabled = isScrubEnabled;
         this.immutableTimestampSupplier = immutableTimestampSupplier;
         this.unreadableTimestampSupplier = unreadableTimestampSupplier;
-        this.transactionService = transactionService;
+        this.commitTsCache = commitTsCache;
         this.aggressiveScrub = aggressiveScrub;
         this.batchSizeSupplier = batchSizeSupplier;
         this.threadCount = threadCount;
@@ -376,24 +374,7 @@ public final class Scrubber {
 
     private long getCommitTimestampRollBackIfNecessary(long startTimestamp,
                                                        Multimap<TableReference, Cell> tableNameToCell) {
-        Long commitTimestamp = transactionService.get(startTimestamp);
-        if (commitTimestamp == null) {
-            // Roll back this transaction (note that rolling back arbitrary transactions
-            // can never cause correctness issues, only liveness issues)
-            try {
-                transactionService.putUnlessExists(startTimestamp, TransactionConstants.FAILED_COMMIT_TS);
-            } catch (KeyAlreadyExistsException e) {
-                String msg = "Could not roll back transaction with start timestamp " + startTimestamp + "; either"
-                        + " it was already rolled back (by a different transaction), or it committed successfully"
-                        + " before we could roll it back.";
-                log.error("This isn't a bug but it should be very infrequent. {}", msg,
-                        new TransactionFailedRetriableException(msg, e));
-            }
-            commitTimestamp = transactionService.get(startTimestamp);
-        }
-        if (commitTimestamp == null) {
-            throw new RuntimeException("expected commit timestamp to be non-null for startTs: " + startTimestamp);
-        }
+        long commitTimestamp = commitTsCache.load(startTimestamp);
         if (commitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
             for (TableReference table : tableNameToCell.keySet()) {
                 Map<Cell, Long> toDelete = Maps2.createConstantValueMap(tableNameToCell.get(table), startTimestamp);
@@ -42,6 +42,7 @@ import com.palantir.atlasdb.keyvalue.api.Namespace;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -241,6 +242,19 @@ public final class TableSplittingKeyValueService implements KeyValueService {
         return getDelegate(tableRef).getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        return getDelegate(tableRef).getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return getDelegate(tableRef).getRangeSplits(tableRef, rangeRequest, desiredSplits);
+    }
+
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef,
                                     Iterable<byte[]> rows,
@@ -51,6 +51,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -375,6 +376,25 @@ public final class TieredKeyValueService implements KeyValueService {
                 request -> secondary.getRangeOfTimestamps(tableRef, request, timestamp));
     }
 
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            final TableReference tableRef,
+            final RangeRequest rangeRequest,
+            final long timestamp) {
+        if (isNotTiered(tableRef)) {
+            return primary.getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+        }
+        ClosableIterator<RowResult<SweepCellTimestamps>> primaryIter =
+                primary.getRangeOfTimestampsForSweeping(tableRef, rangeRequest, timestamp);
+        return new ClosableMergedIterator<>(rangeRequest, primaryIter,
+                request -> secondary.getRangeOfTimestampsForSweeping(tableRef, request, timestamp));
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return primary.getRangeSplits(tableRef, rangeRequest, desiredSplits);
+    }
+
     @Override
     public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>>
             getFirstBatchForRanges(final TableReference tableRef,
@@ -33,6 +33,7 @@ import com.palantir.atlasdb.keyvalue.impl.TableRemappingKeyValueService;
 import com.palantir.atlasdb.schema.AtlasSchema;
 import com.palantir.atlasdb.spi.AtlasDbFactory;
 import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+import com.palantir.atlasdb.sweep.CommitTsCache;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
@@ -114,7 +115,7 @@ public class InMemoryAtlasDbFactory implements AtlasDbFactory {
                 ts,
                 client,
                 ImmutableList.of(follower),
-                transactionService).buildCleaner();
+                CommitTsCache.create(transactionService)).buildCleaner();
         SerializableTransactionManager ret = new SerializableTransactionManager(
                 keyValueService,
                 ts,
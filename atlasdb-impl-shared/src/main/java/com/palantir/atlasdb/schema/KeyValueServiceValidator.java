@@ -26,6 +26,7 @@ import java.util.concurrent.Future;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.Futures;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -98,58 +99,73 @@ public class KeyValueServiceValidator {
 
     private void validateTables(Set<TableReference> tables) {
         ExecutorService executor = PTExecutors.newFixedThreadPool(threads);
-        List<Future<Void>> futures = Lists.newArrayList();
-        for (final TableReference table : tables) {
-            Future<Void> future = executor.submit(new Callable<Void>() {
-                @Override
-                public Void call() {
-                    try {
-                        validateTable(table);
-                    } catch (RuntimeException e) {
-                        Throwables.rewrapAndThrowUncheckedException("Exception while validating "
-                                + table, e);
-                    }
-                    return null;
+        try {
+            // Each table is split so that large tables are validated by all threads rather than just one.
+            Map<TableReference, List<Future<Void>>> futuresByTable = Maps.newLinkedHashMap();
+            for (final TableReference table : tables) {
+                List<Future<Void>> futures = Lists.newArrayList();
+                for (final RangeRequest split : validationFromKvs.getRangeSplits(table, RangeRequest.all(), threads)) {
+                    Future<Void> future = executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            try {
+                                validateRange(table, split);
+                            } catch (RuntimeException e) {
+                                Throwables.rewrapAndThrowUncheckedException("Exception while validating "
+                                        + table, e);
+                            }
+                            return null;
+                        }
+                    });
+                    futures.add(future);
                 }
-            });
-            futures.add(future);
-        }
+                futuresByTable.put(table, futures);
+            }
 
-        futures.forEach(future -> Futures.getUnchecked(future));
+            for (Map.Entry<TableReference, List<Future<Void>>> entry : futuresByTable.entrySet()) {
+                entry.getValue().forEach(future -> Futures.getUnchecked(future));
+                KeyValueServiceMigrators.processMessage(messageProcessor,
+                        "Validated " + entry.getKey(), KvsMigrationMessageLevel.INFO);
+            }
+        } finally {
+            executor.shutdown();
+        }
     }
 
-    private void validateTable(final TableReference table) {
+    private void validateRange(final TableReference table, final RangeRequest range) {
         final int limit = getBatchSize(table);
         // read only, but need to use a write tx in case the source table has SweepStrategy.THOROUGH
         validationFromTransactionManager.runTaskWithRetry(
                 new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
                     @Override
                     public Map<Cell, byte[]> execute(Transaction t1) {
-                        validateTable(table, limit, t1);
+                        validateRange(table, range, limit, t1);
                         return null;
                     }
                 });
-        KeyValueServiceMigrators.processMessage(messageProcessor, "Validated " + table, KvsMigrationMessageLevel.INFO);
     }
 
-    private void validateTable(final TableReference table, final int limit, final Transaction t1) {
+    private void validateRange(final TableReference table,
+                               final RangeRequest range,
+                               final int limit,
+                               final Transaction t1) {
         // read only, but need to use a write tx in case the source table has SweepStrategy.THOROUGH
         validationToTransactionManager.runTaskWithRetry(
                 new TransactionTask<Map<Cell, byte[]>, RuntimeException>() {
                     @Override
                     public Map<Cell, byte[]> execute(Transaction t2) {
-                        validateTable(table, limit, t1, t2);
+                        validateRange(table, range, limit, t1, t2);
                         return null;
                     }
                 });
     }
 
-    private void validateTable(TableReference table, int limit, Transaction t1, Transaction t2) {
-        RangeRequest.Builder builder = RangeRequest.builder().batchHint(limit);
-        byte[] nextRowName = new byte[0];
+    private void validateRange(TableReference table, RangeRequest range, int limit, Transaction t1, Transaction t2) {
+        RangeRequest.Builder builder = range.getBuilder().batchHint(limit);
+        byte[] nextRowName = range.getStartInclusive();
         while (nextRowName != null) {
-            RangeRequest range = builder.startRowInclusive(nextRowName).build();
-            nextRowName = validateAndGetNextRowName(table, limit, t1, t2, range);
+            RangeRequest batchRange = builder.startRowInclusive(nextRowName).build();
+            nextRowName = validateAndGetNextRowName(table, limit, t1, t2, batchRange);
         }
     }
 
@@ -178,7 +194,8 @@ public class KeyValueServiceValidator {
         if (RangeRequests.isLastRowName(lastRow)) {
             return null;
         }
-        return RangeRequests.nextLexicographicName(lastRow);
+        byte[] nextRowName = RangeRequests.nextLexicographicName(lastRow);
+        return range.inRange(nextRowName) ? nextRowName : null;
     }
 
     private void validateEquality(Map<Cell, byte[]> cells1, Map<Cell, byte[]> cells2) {
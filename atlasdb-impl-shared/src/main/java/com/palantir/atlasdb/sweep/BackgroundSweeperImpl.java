@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -31,6 +32,8 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
@@ -40,10 +43,12 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -54,14 +59,18 @@ import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRowResult;
 import com.palantir.atlasdb.schema.generated.SweepProgressTable;
+import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressNamedColumn;
 import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRow;
 import com.palantir.atlasdb.schema.generated.SweepProgressTable.SweepProgressRowResult;
 import com.palantir.atlasdb.schema.generated.SweepTableFactory;
+import com.palantir.atlasdb.table.description.UniformRowNamePartitioner;
+import com.palantir.atlasdb.table.description.ValueType;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
 import com.palantir.atlasdb.transaction.api.Transaction;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.atlasdb.transaction.impl.UnmodifiableTransaction;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
 import com.palantir.common.base.Throwables;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
@@ -70,24 +79,34 @@ import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.StringLockDescriptor;
 
+/**
+ * Sweeps tables in the background with one or more workers. Each worker holds its own lock and its own row of the
+ * sweep progress table, so workers on any number of hosts sweep different tables at the same time. A worker that
+ * finds no table worth sweeping instead takes over the upper half of the row range that another worker still has
+ * left to sweep, so a single large table is also swept in parallel.
+ */
 public class BackgroundSweeperImpl implements BackgroundSweeper {
     private static final Logger log = LoggerFactory.getLogger(BackgroundSweeperImpl.class);
     private final LockAwareTransactionManager txManager;
     private final KeyValueService kvs;
     private final SweepTaskRunner sweepRunner;
     private final Supplier<Boolean> isSweepEnabled;
-    private final Supplier<Long> sweepPauseMillis;
-    private final Supplier<Integer> sweepRowBatchSize;
-    private final Supplier<Integer> sweepCellBatchSize;
     private final SweepTableFactory tableFactory;
     private final BackgroundSweeperPerformanceLogger sweepPerfLogger;
-    private volatile float batchSizeMultiplier = 1.0f;
-    private Thread daemon;
+    private final List<SweepWorker> workers;
+    private List<Thread> daemons;
 
     // weights one month of no sweeping with the same priority as about 100000 expected cells to sweep.
     private static final double MILLIS_SINCE_SWEEP_PRIORITY_WEIGHT =
             100_000.0 / TimeUnit.MILLISECONDS.convert(30, TimeUnit.DAYS);
 
+    // The candidate rows at which a range being swept may be split between workers. Row names are arbitrary bytes,
+    // so these are spread uniformly over the first twelve bits of the row name.
+    private static final List<byte[]> SPLIT_ROWS = new UniformRowNamePartitioner(ValueType.BLOB)
+            .getPartitions(1 << 12).stream()
+            .sorted(UnsignedBytes.lexicographicalComparator())
+            .collect(Collectors.toList());
+
     public BackgroundSweeperImpl(
             LockAwareTransactionManager txManager,
             KeyValueService kvs,
@@ -98,129 +117,441 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             Supplier<Integer> sweepCellBatchSize,
             SweepTableFactory tableFactory,
             BackgroundSweeperPerformanceLogger sweepPerfLogger) {
+        this(txManager, kvs, sweepRunner, isSweepEnabled, sweepPauseMillis, sweepBatchSize, sweepCellBatchSize,
+                tableFactory, sweepPerfLogger, 1);
+    }
+
+    public BackgroundSweeperImpl(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize,
+            Supplier<Integer> sweepCellBatchSize,
+            SweepTableFactory tableFactory,
+            BackgroundSweeperPerformanceLogger sweepPerfLogger,
+            int sweepThreads) {
+        this(txManager, kvs, sweepRunner, isSweepEnabled,
+                () -> new SweepBatchThrottle(sweepBatchSize, sweepCellBatchSize, sweepPauseMillis),
+                tableFactory, sweepPerfLogger, sweepThreads);
+    }
+
+    /**
+     * @param throttles creates the {@link SweepBatchThrottle} that sizes the batches and pauses of each worker
+     */
+    public BackgroundSweeperImpl(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<SweepBatchThrottle> throttles,
+            SweepTableFactory tableFactory,
+            BackgroundSweeperPerformanceLogger sweepPerfLogger,
+            int sweepThreads) {
+        Preconditions.checkArgument(sweepThreads > 0, "sweepThreads must be positive but was %s", sweepThreads);
         this.txManager = txManager;
         this.kvs = kvs;
         this.sweepRunner = sweepRunner;
         this.isSweepEnabled = isSweepEnabled;
-        this.sweepPauseMillis = sweepPauseMillis;
-        this.sweepRowBatchSize = sweepBatchSize;
-        this.sweepCellBatchSize = sweepCellBatchSize;
         this.tableFactory = tableFactory;
         this.sweepPerfLogger = sweepPerfLogger;
+        ImmutableList.Builder<SweepWorker> workersBuilder = ImmutableList.builder();
+        for (int workerId = 0; workerId < sweepThreads; workerId++) {
+            workersBuilder.add(new SweepWorker(workerId, throttles.get()));
+        }
+        this.workers = workersBuilder.build();
     }
 
     @Override
     public synchronized void runInBackground() {
-        Preconditions.checkState(daemon == null);
-        daemon = new Thread(this);
-        daemon.setDaemon(true);
-        daemon.setName("BackgroundSweeper");
-        daemon.start();
+        Preconditions.checkState(daemons == null);
+        ImmutableList.Builder<Thread> threads = ImmutableList.builder();
+        for (SweepWorker worker : workers) {
+            Thread daemon = new Thread(worker);
+            daemon.setDaemon(true);
+            daemon.setName(workers.size() == 1 ? "BackgroundSweeper" : "BackgroundSweeper-" + worker.workerId);
+            daemon.start();
+            threads.add(daemon);
+        }
+        daemons = threads.build();
     }
 
+    /**
+     * Runs the first sweep worker on the calling thread.
+     */
     @Override
     public void run() {
-        Optional<LockRefreshToken> locks = Optional.absent();
+        workers.get(0).run();
+    }
+
+    @VisibleForTesting
+    boolean runOnce() {
+        return runOnce(0);
+    }
+
+    @VisibleForTesting
+    boolean runOnce(int workerId) {
+        return workers.get(workerId).runOnce();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (daemons == null) {
+            return;
+        }
+        log.debug("Signalling background sweeper to shut down.");
+        daemons.forEach(Thread::interrupt);
         try {
-            // Wait a while before starting so short lived clis don't try to sweep.
-            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
-            log.debug("Starting background sweeper.");
-            while (true) {
-                boolean sweptSuccessfully = false;
-                try {
-                    if (isSweepEnabled.get()) {
-                        locks = lockOrRefresh(locks);
-                        if (locks.isPresent()) {
-                            sweptSuccessfully = runOnce();
+            for (Thread daemon : daemons) {
+                daemon.join();
+            }
+            daemons = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
+    private class SweepWorker implements Runnable {
+        private final int workerId;
+        private final SweepProgressRow progressRow;
+        private final Meter cellsExamined;
+        private final Meter cellsDeleted;
+        private final Meter failures;
+        private final SweepBatchThrottle throttle;
+
+        SweepWorker(int workerId, SweepBatchThrottle throttle) {
+            this.workerId = workerId;
+            this.throttle = throttle;
+            this.progressRow = SweepProgressRow.of(workerId);
+            MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+            String metricPrefix = "worker" + workerId;
+            this.cellsExamined = metricRegistry.meter(
+                    MetricRegistry.name(BackgroundSweeperImpl.class, metricPrefix, "cellsExamined"));
+            this.cellsDeleted = metricRegistry.meter(
+                    MetricRegistry.name(BackgroundSweeperImpl.class, metricPrefix, "cellsDeleted"));
+            this.failures = metricRegistry.meter(
+                    MetricRegistry.name(BackgroundSweeperImpl.class, metricPrefix, "failures"));
+        }
+
+        @Override
+        public void run() {
+            Optional<LockRefreshToken> locks = Optional.absent();
+            try {
+                // Wait a while before starting so short lived clis don't try to sweep.
+                Thread.sleep(20 * (1000 + throttle.getPauseMillis()));
+                log.debug("Starting background sweep worker {}.", workerId);
+                while (true) {
+                    boolean sweptSuccessfully = false;
+                    try {
+                        if (isSweepEnabled.get()) {
+                            locks = lockOrRefresh(locks);
+                            if (locks.isPresent()) {
+                                sweptSuccessfully = runOnce();
+                            } else {
+                                log.debug("Skipping sweep because sweep is running elsewhere.");
+                            }
                         } else {
-                            log.debug("Skipping sweep because sweep is running elsewhere.");
+                            log.debug("Skipping sweep because it is currently disabled.");
                         }
+                    } catch (InsufficientConsistencyException e) {
+                        log.warn("Could not sweep because not all nodes of the database are online.", e);
+                    } catch (RuntimeException e) {
+                        failures.mark();
+                        if (checkAndRepairTableDrop()) {
+                            log.error("The table being swept by the background sweeper was dropped, moving on...");
+                        } else {
+                            log.error("The background sweep job failed unexpectedly with a batch size of {}"
+                                    + ". Attempting to continue with a lower batch size...",
+                                    throttle.getRowBatchSize(), e);
+                            throttle.batchFailed();
+                        }
+                    }
+                    if (sweptSuccessfully) {
+                        Thread.sleep(throttle.getPauseMillis());
                     } else {
-                        log.debug("Skipping sweep because it is currently disabled.");
+                        Thread.sleep(20 * (1000 + throttle.getPauseMillis()));
                     }
-                } catch (InsufficientConsistencyException e) {
-                    log.warn("Could not sweep because not all nodes of the database are online.", e);
-                } catch (RuntimeException e) {
-                    if (checkAndRepairTableDrop()) {
-                        log.error("The table being swept by the background sweeper was dropped, moving on...");
+                }
+            } catch (InterruptedException e) {
+                log.debug("Shutting down background sweep worker {}.", workerId);
+            } finally {
+                if (locks.isPresent()) {
+                    txManager.getLockService().unlock(locks.get());
+                }
+            }
+        }
+
+        boolean runOnce() {
+            SweepProgressRowResult progress = txManager.runTaskWithRetry(tx -> {
+                SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+                List<SweepProgressRowResult> otherProgress = Lists.newArrayList();
+                for (SweepProgressRowResult result : progressTable.getAllRowsUnordered().immutableCopy()) {
+                    // A row without a table name is what is left of a range that finished while it was being split.
+                    if (!result.hasFullTableName()) {
+                        continue;
+                    }
+                    if (result.getRowName().equals(progressRow)) {
+                        return result;
+                    }
+                    otherProgress.add(result);
+                }
+                SweepProgressRowResult result = chooseNextTableToSweep(
+                        new SweepTransaction(tx, sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE)),
+                        progressRow,
+                        otherProgress.stream()
+                                .map(other -> TableReference.createUnsafe(other.getFullTableName()))
+                                .collect(Collectors.toSet()));
+                if (result == null) {
+                    result = splitRangeOfAnotherWorker(progressTable, progressRow, otherProgress);
+                }
+                return result;
+            });
+            if (progress == null) {
+                // Don't change this log statement. It's parsed by test automation code.
+                log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
+                return false;
+            }
+            if (isEmptyRange(progress.getStartRow(), progress.getEndRow())) {
+                // The rest of this range was taken over by another worker before we swept any of it.
+                saveSweepResults(progress, SweepResults.createEmptySweepResult(
+                        fromNullable(progress.getMinimumSweptTimestamp())));
+                return true;
+            }
+            int rowBatchSize = throttle.getRowBatchSize();
+            int cellBatchSize = throttle.getCellBatchSize();
+            Stopwatch watch = Stopwatch.createStarted();
+            try {
+                SweepResults results = sweepRunner.run(TableReference.createUnsafe(
+                        progress.getFullTableName()),
+                        rowBatchSize,
+                        cellBatchSize,
+                        progress.getStartRow(),
+                        progress.getEndRow());
+                long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
+                throttle.batchSucceeded(elapsedMillis);
+                log.debug("Swept {} unique cells from {} starting at {}"
+                        + " and performed {} deletions in {} ms"
+                        + " up to timestamp {} on worker {}.",
+                        results.getCellsExamined(), progress.getFullTableName(),
+                        progress.getStartRow() == null ? "0" : PtBytes.encodeHexString(progress.getStartRow()),
+                        results.getCellsDeleted(), elapsedMillis, results.getSweptTimestamp(), workerId);
+                cellsExamined.mark(results.getCellsExamined());
+                cellsDeleted.mark(results.getCellsDeleted());
+                sweepPerfLogger.logSweepResults(
+                        SweepPerformanceResults.builder()
+                                .sweepResults(results)
+                                .tableName(progress.getFullTableName())
+                                .elapsedMillis(elapsedMillis)
+                                .build());
+                saveSweepResults(progress, results);
+                return true;
+            } catch (RuntimeException e) {
+                // Error logged at a higher log level above.
+                log.debug("Failed to sweep {} with row batch size {} and cell batch size {} starting from row {}",
+                        progress.getFullTableName(),
+                        rowBatchSize,
+                        cellBatchSize,
+                        progress.getStartRow() == null ? "0" : PtBytes.encodeHexString(progress.getStartRow()));
+                throw e;
+            }
+        }
+
+        private void saveSweepResults(final SweepProgressRowResult progress,
+                                      final SweepResults results) {
+            final long cellsDeleted = fromNullable(progress.getCellsDeleted()) + results.getCellsDeleted();
+            final long cellsExamined = fromNullable(progress.getCellsExamined()) + results.getCellsExamined();
+            final long minimumSweptTimestamp = results.getSweptTimestamp();
+            if (results.getNextStartRow().isPresent()) {
+                saveIntermediateSweepResults(
+                        progress,
+                        results.getNextStartRow().get(),
+                        cellsDeleted,
+                        cellsExamined,
+                        minimumSweptTimestamp);
+                return;
+            }
+
+            SweepPriorityRowResult tableResults =
+                    saveFinalSweepResults(progress, cellsDeleted, cellsExamined, minimumSweptTimestamp);
+            if (tableResults == null) {
+                log.debug("Worker {} finished sweeping its range of {}, examined {} unique cells, deleted {} cells."
+                        + " Other workers are still sweeping the rest of the table.",
+                        workerId, progress.getFullTableName(), cellsExamined, cellsDeleted);
+                return;
+            }
+            long tableCellsDeleted = fromNullable(tableResults.getCellsDeleted());
+            long tableCellsExamined = fromNullable(tableResults.getCellsExamined());
+
+            log.debug("Finished sweeping {}, examined {} unique cells, deleted {} cells.",
+                    progress.getFullTableName(), tableCellsExamined, tableCellsDeleted);
+
+            if (tableCellsDeleted > 0) {
+                Stopwatch watch = Stopwatch.createStarted();
+                kvs.compactInternally(TableReference.createUnsafe(progress.getFullTableName()));
+                long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
+                log.debug("Finished performing compactInternally on {} in {} ms.",
+                        progress.getFullTableName(), elapsedMillis);
+                sweepPerfLogger.logInternalCompaction(
+                        SweepCompactionPerformanceResults.builder()
+                                .tableName(progress.getFullTableName())
+                                .cellsDeleted(tableCellsDeleted)
+                                .cellsExamined(tableCellsExamined)
+                                .elapsedMillis(elapsedMillis)
+                                .build());
+            }
+        }
+
+        private void saveIntermediateSweepResults(final SweepProgressRowResult progress,
+                                                  final byte[] nextStartRow,
+                                                  final long cellsDeleted,
+                                                  final long cellsExamined,
+                                                  final long minimumSweptTimestamp) {
+            txManager.runTaskWithRetry(new TxTask() {
+                @Override
+                public Void execute(Transaction tx) {
+                    SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+                    progressTable.putFullTableName(progressRow, progress.getFullTableName());
+                    progressTable.putStartRow(progressRow, nextStartRow);
+                    progressTable.putCellsDeleted(progressRow, cellsDeleted);
+                    progressTable.putCellsExamined(progressRow, cellsExamined);
+                    if (!progress.hasStartRow()) {
+                        // This is the first set of results being written for this table.
+                        progressTable.putMinimumSweptTimestamp(progressRow, minimumSweptTimestamp);
+                        progressTable.deleteEndRow(progressRow);
+
+                        // Each range of the table adds its counts here when it is done.
+                        SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
+                        SweepPriorityRow priorityRow = SweepPriorityRow.of(progress.getFullTableName());
+                        priorityTable.putWriteCount(priorityRow, 0L);
+                        priorityTable.putCellsDeleted(priorityRow, 0L);
+                        priorityTable.putCellsExamined(priorityRow, 0L);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        /**
+         * Adds the results of this worker's range to those of the table, and records that the table was swept if
+         * no other worker is still sweeping part of it.
+         *
+         * @return the results for the whole table, or null if other ranges of it are still being swept
+         */
+        @Nullable
+        private SweepPriorityRowResult saveFinalSweepResults(final SweepProgressRowResult progress,
+                                                            final long cellsDeleted,
+                                                            final long cellsExamined,
+                                                            final long minimumSweptTimestamp) {
+            final SweepPriorityRow row = SweepPriorityRow.of(progress.getFullTableName());
+            txManager.runTaskWithRetry(new TxTask() {
+                @Override
+                public Void execute(Transaction tx) {
+                    SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
+                    if (!progress.hasStartRow()) {
+                        // This is the first (and only) set of results being written for this table.
+                        priorityTable.putCellsDeleted(row, cellsDeleted);
+                        priorityTable.putCellsExamined(row, cellsExamined);
+                        priorityTable.putWriteCount(row, 0L);
                     } else {
-                        int sweepBatchSize = (int) (batchSizeMultiplier * sweepRowBatchSize.get());
-                        log.error("The background sweep job failed unexpectedly with a batch size of {}"
-                                + ". Attempting to continue with a lower batch size...", sweepBatchSize, e);
-                        // Cut batch size in half, always sweep at least one row (we round down).
-                        batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, 1.5f / sweepRowBatchSize.get());
+                        SweepPriorityRowResult tableResults = priorityTable.getRow(row).orNull();
+                        priorityTable.putCellsDeleted(row, cellsDeleted
+                                + (tableResults == null ? 0L : fromNullable(tableResults.getCellsDeleted())));
+                        priorityTable.putCellsExamined(row, cellsExamined
+                                + (tableResults == null ? 0L : fromNullable(tableResults.getCellsExamined())));
                     }
+                    return null;
                 }
-                if (sweptSuccessfully) {
-                    batchSizeMultiplier = Math.min(1.0f, batchSizeMultiplier * 1.01f);
-                    Thread.sleep(sweepPauseMillis.get());
+            });
+
+            // Clear our progress before checking for other workers, so that of two workers finishing the last two
+            // ranges of a table at the same time, at least one sees that the whole table is done.
+            clearProgress();
+
+            return txManager.runTaskWithRetry(tx -> {
+                SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+                boolean isTableStillBeingSwept = progressTable.getAllRowsUnordered().immutableCopy().stream()
+                        .anyMatch(other -> progress.getFullTableName().equals(other.getFullTableName()));
+                if (isTableStillBeingSwept) {
+                    return null;
+                }
+                SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
+                priorityTable.putLastSweepTime(row, System.currentTimeMillis());
+                if (!progress.hasStartRow()) {
+                    priorityTable.putMinimumSweptTimestamp(row, minimumSweptTimestamp);
                 } else {
-                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                    priorityTable.putMinimumSweptTimestamp(row, fromNullable(progress.getMinimumSweptTimestamp()));
                 }
-            }
-        } catch (InterruptedException e) {
-            log.debug("Shutting down background sweeper.");
-        } finally {
-            if (locks.isPresent()) {
-                txManager.getLockService().unlock(locks.get());
+                return priorityTable.getRow(row).orNull();
+            });
+        }
+
+        /**
+         * Deletes every version of this worker's progress row. Unlike a transactional delete, this leaves nothing
+         * behind for the many overwrites the row has accumulated, and unlike truncating the table, it leaves the
+         * progress of other workers alone.
+         */
+        private void clearProgress() {
+            TableReference progressTableRef = tableFactory.getSweepProgressTable(null).getTableRef();
+            Set<Cell> cells = Arrays.stream(SweepProgressNamedColumn.values())
+                    .map(column -> Cell.create(progressRow.persistToBytes(), column.getShortName()))
+                    .collect(Collectors.toSet());
+            Multimap<Cell, Long> versions = kvs.getAllTimestamps(progressTableRef, cells, Long.MAX_VALUE);
+            if (!versions.isEmpty()) {
+                kvs.delete(progressTableRef, versions);
             }
         }
-    }
 
-    @VisibleForTesting
-    boolean runOnce() {
-        SweepProgressRowResult progress = txManager.runTaskWithRetry(tx -> {
-            SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
-            SweepProgressRowResult result = progressTable.getRow(SweepProgressRow.of(0)).orNull();
-            if (result == null) {
-                result = chooseNextTableToSweep(new SweepTransaction(
-                        tx,
-                        sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE)));
+        /**
+         * Check whether the table being swept was dropped. If so, stop sweeping it and move on.
+         * @return Whether the table being swept was dropped
+         */
+        private boolean checkAndRepairTableDrop() {
+            try {
+                Set<String> tables = kvs.getAllTableNames().stream()
+                        .map(tableRef -> tableRef.getQualifiedName()).collect(Collectors.toSet());
+                SweepProgressRowResult result = txManager.runTaskReadOnly(t ->
+                        tableFactory.getSweepProgressTable(t).getRow(progressRow).orNull());
+                if (result == null || tables.contains(result.getFullTableName())) {
+                    return false;
+                }
+                clearProgress();
+                return true;
+            } catch (RuntimeException e) {
+                log.error("Failed to check whether the table being swept was dropped."
+                        + " Continuing under the assumption that it wasn't...", e);
+                return false;
             }
-            return result;
-        });
-        if (progress == null) {
-            // Don't change this log statement. It's parsed by test automation code.
-            log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
-            return false;
         }
-        int rowBatchSize = Math.max(1, (int) (sweepRowBatchSize.get() * batchSizeMultiplier));
-        int cellBatchSize = sweepCellBatchSize.get();
-        Stopwatch watch = Stopwatch.createStarted();
-        try {
-            SweepResults results = sweepRunner.run(TableReference.createUnsafe(
-                    progress.getFullTableName()),
-                    rowBatchSize,
-                    cellBatchSize,
-                    progress.getStartRow());
-            long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
-            log.debug("Swept {} unique cells from {} starting at {}"
-                    + " and performed {} deletions in {} ms"
-                    + " up to timestamp {}.",
-                    results.getCellsExamined(), progress.getFullTableName(),
-                    progress.getStartRow() == null ? "0" : PtBytes.encodeHexString(progress.getStartRow()),
-                    results.getCellsDeleted(), elapsedMillis, results.getSweptTimestamp());
-            sweepPerfLogger.logSweepResults(
-                    SweepPerformanceResults.builder()
-                            .sweepResults(results)
-                            .tableName(progress.getFullTableName())
-                            .elapsedMillis(elapsedMillis)
-                            .build());
-            saveSweepResults(progress, results);
-            return true;
-        } catch (RuntimeException e) {
-            // Error logged at a higher log level above.
-            log.debug("Failed to sweep {} with row batch size {} and cell batch size {} starting from row {}",
-                    progress.getFullTableName(),
-                    rowBatchSize,
-                    cellBatchSize,
-                    progress.getStartRow() == null ? "0" : PtBytes.encodeHexString(progress.getStartRow()));
-            throw e;
+
+        private Optional<LockRefreshToken> lockOrRefresh(Optional<LockRefreshToken> previousLocks)
+                throws InterruptedException {
+            if (previousLocks.isPresent()) {
+                LockRefreshToken refreshToken = previousLocks.get();
+                Set<LockRefreshToken> refreshedTokens = txManager.getLockService()
+                        .refreshLockRefreshTokens(ImmutableList.of(refreshToken));
+                if (refreshedTokens.isEmpty()) {
+                    return Optional.absent();
+                } else {
+                    return previousLocks;
+                }
+            } else {
+                // The first worker keeps the original lock name, so it excludes sweepers on older versions.
+                String lockName = workerId == 0 ? "atlas sweep" : "atlas sweep " + workerId;
+                LockDescriptor lock = StringLockDescriptor.of(lockName);
+                LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE))
+                        .doNotBlock()
+                        .build();
+                LockRefreshToken token = txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request);
+                return Optional.fromNullable(token);
+            }
         }
     }
 
     @Nullable
-    private SweepProgressRowResult chooseNextTableToSweep(SweepTransaction tx) {
+    private SweepProgressRowResult chooseNextTableToSweep(SweepTransaction tx,
+                                                          SweepProgressRow progressRow,
+                                                          Set<TableReference> tablesBeingSwept) {
         Set<TableReference> allTables = Sets.difference(kvs.getAllTableNames(), AtlasDbConstants.hiddenTables);
         SweepPriorityTable oldPriorityTable = tableFactory.getSweepPriorityTable(tx);
         SweepPriorityTable newPriorityTable = tableFactory.getSweepPriorityTable(tx.delegate());
@@ -237,11 +568,12 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
                                 Function.identity()
                         )
                 );
-        TableReference tableRef = getTableToSweep(tx, allTables, oldPriorities, newPrioritiesByTableName);
+        TableReference tableRef = getTableToSweep(
+                tx, allTables, tablesBeingSwept, oldPriorities, newPrioritiesByTableName);
         if (tableRef == null) {
             return null;
         }
-        RowResult<byte[]> rawResult = RowResult.create(SweepProgressRow.of(0).persistToBytes(),
+        RowResult<byte[]> rawResult = RowResult.create(progressRow.persistToBytes(),
                 ImmutableSortedMap.<byte[], byte[]>orderedBy(UnsignedBytes.lexicographicalComparator())
                     .put(SweepProgressTable.SweepProgressNamedColumn.FULL_TABLE_NAME.getShortName(),
                          SweepProgressTable.FullTableName.of(tableRef.getQualifiedName()).persistValue())
@@ -254,11 +586,15 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
     @Nullable
     private TableReference getTableToSweep(SweepTransaction tx,
                                    Set<TableReference> allTables,
+                                   Set<TableReference> tablesBeingSwept,
                                    List<SweepPriorityRowResult> oldPriorities,
                                    Map<TableReference, SweepPriorityRowResult> newPrioritiesByTableName) {
         // Arbitrarily pick the first table alphabetically from the never-before-swept tables
         List<TableReference> unsweptTables = Sets.difference(allTables, newPrioritiesByTableName.keySet())
-                .stream().sorted(Comparator.comparing(TableReference::getTablename)).collect(Collectors.toList());
+                .stream()
+                .filter(tableRef -> !tablesBeingSwept.contains(tableRef))
+                .sorted(Comparator.comparing(TableReference::getTablename))
+                .collect(Collectors.toList());
         if (!unsweptTables.isEmpty()) {
             return Iterables.get(unsweptTables, 0);
         }
@@ -267,6 +603,9 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         Collection<SweepPriorityRow> toDelete = Lists.newArrayList();
         for (SweepPriorityRowResult oldPriority : oldPriorities) {
             TableReference tableRef = TableReference.createUnsafe(oldPriority.getRowName().getFullTableName());
+            if (tablesBeingSwept.contains(tableRef)) {
+                continue;
+            }
             if (allTables.contains(tableRef)) {
                 SweepPriorityRowResult newPriority = newPrioritiesByTableName.get(tableRef);
                 double priority = getSweepPriority(oldPriority, newPriority);
@@ -285,6 +624,74 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         return toSweep;
     }
 
+    /**
+     * Takes over the upper half of the widest range that another worker still has left to sweep.
+     *
+     * @return the progress of the range taken over, or null if no range is wide enough to split
+     */
+    @Nullable
+    private SweepProgressRowResult splitRangeOfAnotherWorker(SweepProgressTable progressTable,
+                                                             SweepProgressRow progressRow,
+                                                             List<SweepProgressRowResult> otherProgress) {
+        SweepProgressRowResult toSplit = null;
+        List<byte[]> splitRows = ImmutableList.of();
+        for (SweepProgressRowResult other : otherProgress) {
+            // Only split ranges whose first batch has been saved, as that resets the table's results.
+            if (!other.hasStartRow()) {
+                continue;
+            }
+            List<byte[]> candidates = getSplitRows(other.getStartRow(), other.getEndRow());
+            if (candidates.size() > splitRows.size()) {
+                toSplit = other;
+                splitRows = candidates;
+            }
+        }
+        if (toSplit == null) {
+            return null;
+        }
+
+        byte[] splitRow = splitRows.get(splitRows.size() / 2);
+        progressTable.putEndRow(toSplit.getRowName(), splitRow);
+
+        ImmutableSortedMap.Builder<byte[], byte[]> columns =
+                ImmutableSortedMap.<byte[], byte[]>orderedBy(UnsignedBytes.lexicographicalComparator())
+                    .put(SweepProgressNamedColumn.FULL_TABLE_NAME.getShortName(),
+                         SweepProgressTable.FullTableName.of(toSplit.getFullTableName()).persistValue())
+                    .put(SweepProgressNamedColumn.START_ROW.getShortName(),
+                         SweepProgressTable.StartRow.of(splitRow).persistValue())
+                    .put(SweepProgressNamedColumn.MINIMUM_SWEPT_TIMESTAMP.getShortName(),
+                         SweepProgressTable.MinimumSweptTimestamp.of(
+                                 fromNullable(toSplit.getMinimumSweptTimestamp())).persistValue());
+        progressTable.putFullTableName(progressRow, toSplit.getFullTableName());
+        progressTable.putStartRow(progressRow, splitRow);
+        progressTable.putMinimumSweptTimestamp(progressRow, fromNullable(toSplit.getMinimumSweptTimestamp()));
+        progressTable.deleteCellsDeleted(progressRow);
+        progressTable.deleteCellsExamined(progressRow);
+        if (toSplit.hasEndRow()) {
+            progressTable.putEndRow(progressRow, toSplit.getEndRow());
+            columns.put(SweepProgressNamedColumn.END_ROW.getShortName(),
+                    SweepProgressTable.EndRow.of(toSplit.getEndRow()).persistValue());
+        } else {
+            progressTable.deleteEndRow(progressRow);
+        }
+
+        log.debug("Now sweeping {} from row {}, taken over from sweep worker {}.",
+                toSplit.getFullTableName(), PtBytes.encodeHexString(splitRow), toSplit.getRowName().getDummy());
+        return SweepProgressRowResult.of(RowResult.create(progressRow.persistToBytes(), columns.build()));
+    }
+
+    private static List<byte[]> getSplitRows(byte[] startRow, @Nullable byte[] endRow) {
+        return SPLIT_ROWS.stream()
+                .filter(row -> UnsignedBytes.lexicographicalComparator().compare(row, startRow) > 0)
+                .filter(row -> endRow == null || UnsignedBytes.lexicographicalComparator().compare(row, endRow) < 0)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isEmptyRange(@Nullable byte[] startRow, @Nullable byte[] endRow) {
+        return startRow != null && endRow != null
+                && UnsignedBytes.lexicographicalComparator().compare(startRow, endRow) >= 0;
+    }
+
     private double getSweepPriority(SweepPriorityRowResult oldPriority, SweepPriorityRowResult newPriority) {
         Stream<String> hiddenTableFullNames = AtlasDbConstants.hiddenTables.stream()
                 .map(tableRef -> tableRef.getQualifiedName());
@@ -318,157 +725,10 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         return estimatedCellsToSweep + millisSinceSweep * MILLIS_SINCE_SWEEP_PRIORITY_WEIGHT;
     }
 
-    private void saveSweepResults(final SweepProgressRowResult progress,
-                                  final SweepResults results) {
-        final long cellsDeleted = fromNullable(progress.getCellsDeleted()) + results.getCellsDeleted();
-        final long cellsExamined = fromNullable(progress.getCellsExamined()) + results.getCellsExamined();
-        final long minimumSweptTimestamp = results.getSweptTimestamp();
-        if (results.getNextStartRow().isPresent()) {
-            saveIntermediateSweepResults(
-                    progress,
-                    results.getNextStartRow().get(),
-                    cellsDeleted,
-                    cellsExamined,
-                    minimumSweptTimestamp);
-            return;
-        }
-
-        saveFinalSweepResults(progress, cellsDeleted, cellsExamined, minimumSweptTimestamp);
-
-        log.debug("Finished sweeping {}, examined {} unique cells, deleted {} cells.",
-                progress.getFullTableName(), cellsExamined, cellsDeleted);
-
-        if (cellsDeleted > 0) {
-            Stopwatch watch = Stopwatch.createStarted();
-            kvs.compactInternally(TableReference.createUnsafe(progress.getFullTableName()));
-            long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
-            log.debug("Finished performing compactInternally on {} in {} ms.",
-                    progress.getFullTableName(), elapsedMillis);
-            sweepPerfLogger.logInternalCompaction(
-                    SweepCompactionPerformanceResults.builder()
-                            .tableName(progress.getFullTableName())
-                            .cellsDeleted(cellsDeleted)
-                            .cellsExamined(cellsExamined)
-                            .elapsedMillis(elapsedMillis)
-                            .build());
-        }
-
-        // Truncate instead of delete because the progress table contains only
-        // a single row that has accumulated many overwrites.
-        kvs.truncateTable(tableFactory.getSweepProgressTable(null).getTableRef());
-    }
-
-    private void saveIntermediateSweepResults(final SweepProgressRowResult progress,
-                                              final byte[] nextStartRow,
-                                              final long cellsDeleted,
-                                              final long cellsExamined,
-                                              final long minimumSweptTimestamp) {
-        txManager.runTaskWithRetry(new TxTask() {
-            @Override
-            public Void execute(Transaction tx) {
-                SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
-                SweepProgressRow row = SweepProgressRow.of(0);
-                progressTable.putFullTableName(row, progress.getFullTableName());
-                progressTable.putStartRow(row, nextStartRow);
-                progressTable.putCellsDeleted(row, cellsDeleted);
-                progressTable.putCellsExamined(row, cellsExamined);
-                if (!progress.hasStartRow()) {
-                    // This is the first set of results being written for this table.
-                    progressTable.putMinimumSweptTimestamp(row, minimumSweptTimestamp);
-
-                    SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
-                    SweepPriorityRow priorityRow = SweepPriorityRow.of(progress.getFullTableName());
-                    priorityTable.putWriteCount(priorityRow, 0L);
-                }
-                return null;
-            }
-        });
-    }
-
-    private void saveFinalSweepResults(final SweepProgressRowResult progress,
-                                       final long cellsDeleted,
-                                       final long cellsExamined,
-                                       final long minimumSweptTimestamp) {
-        txManager.runTaskWithRetry(new TxTask() {
-            @Override
-            public Void execute(Transaction tx) {
-                SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
-                SweepPriorityRow row = SweepPriorityRow.of(progress.getFullTableName());
-                priorityTable.putCellsDeleted(row, cellsDeleted);
-                priorityTable.putCellsExamined(row, cellsExamined);
-                priorityTable.putLastSweepTime(row, System.currentTimeMillis());
-                if (!progress.hasStartRow()) {
-                    // This is the first (and only) set of results being written for this table.
-                    priorityTable.putWriteCount(row, 0L);
-                    priorityTable.putMinimumSweptTimestamp(row, minimumSweptTimestamp);
-                } else {
-                    priorityTable.putMinimumSweptTimestamp(row, fromNullable(progress.getMinimumSweptTimestamp()));
-                }
-                return null;
-            }
-        });
-    }
-
-    /**
-     * Check whether the table being swept was dropped. If so, stop sweeping it and move on.
-     * @return Whether the table being swept was dropped
-     */
-    private boolean checkAndRepairTableDrop() {
-        try {
-            Set<String> tables = kvs.getAllTableNames().stream()
-                    .map(tableRef -> tableRef.getQualifiedName()).collect(Collectors.toSet());
-            SweepProgressRowResult result = txManager.runTaskReadOnly(t ->
-                    tableFactory.getSweepProgressTable(t).getRow(SweepProgressRow.of(0L)).orNull());
-            if (result == null || tables.contains(result.getFullTableName())) {
-                return false;
-            }
-            kvs.truncateTable(tableFactory.getSweepProgressTable(null).getTableRef());
-            return true;
-        } catch (RuntimeException e) {
-            log.error("Failed to check whether the table being swept was dropped."
-                    + " Continuing under the assumption that it wasn't...", e);
-            return false;
-        }
-    }
-
     private long fromNullable(Long num) {
         return num == null ? 0L : num.longValue();
     }
 
-    private Optional<LockRefreshToken> lockOrRefresh(Optional<LockRefreshToken> previousLocks)
-            throws InterruptedException {
-        if (previousLocks.isPresent()) {
-            LockRefreshToken refreshToken = previousLocks.get();
-            Set<LockRefreshToken> refreshedTokens = txManager.getLockService()
-                    .refreshLockRefreshTokens(ImmutableList.of(refreshToken));
-            if (refreshedTokens.isEmpty()) {
-                return Optional.absent();
-            } else {
-                return previousLocks;
-            }
-        } else {
-            LockDescriptor lock = StringLockDescriptor.of("atlas sweep");
-            LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
-            LockRefreshToken token = txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request);
-            return Optional.fromNullable(token);
-        }
-    }
-
-    @Override
-    public synchronized void shutdown() {
-        if (daemon == null) {
-            return;
-        }
-        log.debug("Signalling background sweeper to shut down.");
-        daemon.interrupt();
-        try {
-            daemon.join();
-            daemon = null;
-        } catch (InterruptedException e) {
-            throw Throwables.rewrapAndThrowUncheckedException(e);
-        }
-    }
-
     private static class SweepTransaction extends UnmodifiableTransaction {
         private final long sweepTimestamp;
 
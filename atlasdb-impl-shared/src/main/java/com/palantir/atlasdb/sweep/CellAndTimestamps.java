@@ -26,7 +26,23 @@ public abstract class CellAndTimestamps {
     public abstract Cell cell();
     public abstract Set<Long> timestamps();
 
+    /**
+     * Whether the value written at the greatest of {@link #timestamps()} is empty, i.e. the cell was deleted.
+     */
+    @Value.Default
+    public boolean isLatestValueEmpty() {
+        return false;
+    }
+
     public static CellAndTimestamps of(Cell cell, Set<Long> timestamps) {
         return ImmutableCellAndTimestamps.builder().cell(cell).timestamps(timestamps).build();
     }
+
+    public static CellAndTimestamps of(Cell cell, Set<Long> timestamps, boolean isLatestValueEmpty) {
+        return ImmutableCellAndTimestamps.builder()
+                .cell(cell)
+                .timestamps(timestamps)
+                .isLatestValueEmpty(isLatestValueEmpty)
+                .build();
+    }
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.cache.TimestampCache;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+
+/**
+ * Resolves start timestamps to commit timestamps for sweep and scrub, rolling back transactions that have not
+ * committed, and remembers the answers in a bounded {@link TimestampCache}.
+ * <p>
+ * Entries of the transactions table never change once written, so a single instance can be shared across
+ * batches, tables and threads for the lifetime of the transaction service. Its memory grows with the number of
+ * cached entries, up to the given budget.
+ */
+public final class CommitTsCache {
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 16 * 1024 * 1024;
+
+    private final TransactionService transactionService;
+    private final StartTsToCommitTsCacheLoader loader;
+    private final TimestampCache cache;
+
+    private CommitTsCache(TransactionService transactionService, TimestampCache cache) {
+        this.transactionService = transactionService;
+        this.loader = new StartTsToCommitTsCacheLoader(transactionService);
+        this.cache = cache;
+    }
+
+    public static CommitTsCache create(TransactionService transactionService) {
+        return create(transactionService, DEFAULT_MAX_SIZE_IN_BYTES);
+    }
+
+    public static CommitTsCache create(TransactionService transactionService, long maxSizeInBytes) {
+        return new CommitTsCache(
+                transactionService,
+                new TimestampCache(maxSizeInBytes, CommitTsCache.class.getName()));
+    }
+
+    /**
+     * Returns the commit timestamps of all the given start timestamps. Those that are not already cached are
+     * fetched in a single call to the transaction service, and any that turn out not to have committed are
+     * rolled back.
+     */
+    public Map<Long, Long> loadBatch(Set<Long> startTimestamps) {
+        Map<Long, Long> commitTimestamps = Maps.newHashMapWithExpectedSize(startTimestamps.size());
+        Set<Long> missing = Sets.newHashSet();
+        for (long startTs : startTimestamps) {
+            Long commitTs = cache.getCommitTimestampIfPresent(startTs);
+            if (commitTs != null) {
+                commitTimestamps.put(startTs, commitTs);
+            } else {
+                missing.add(startTs);
+            }
+        }
+        // Needed because calling transactionService.get(<EMPTY>) is weird (it logs that it is empty too).
+        if (missing.isEmpty()) {
+            return commitTimestamps;
+        }
+        Map<Long, Long> fetched = transactionService.get(missing);
+        for (long startTs : missing) {
+            Long commitTs = fetched.get(startTs);
+            if (commitTs == null) {
+                commitTs = loader.load(startTs);
+            }
+            cache.putAlreadyCommittedTransaction(startTs, commitTs);
+            commitTimestamps.put(startTs, commitTs);
+        }
+        return commitTimestamps;
+    }
+
+    /**
+     * Returns the commit timestamp of the given start timestamp, rolling the transaction back first if it has
+     * not committed.
+     */
+    public long load(long startTs) {
+        Long commitTs = cache.getCommitTimestampIfPresent(startTs);
+        if (commitTs != null) {
+            return commitTs;
+        }
+        commitTs = loader.load(startTs);
+        cache.putAlreadyCommittedTransaction(startTs, commitTs);
+        return commitTs;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
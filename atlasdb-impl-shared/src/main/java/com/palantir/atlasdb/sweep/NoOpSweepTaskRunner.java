@@ -15,6 +15,9 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Set;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
@@ -22,6 +25,17 @@ import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrat
 public class NoOpSweepTaskRunner implements SweepTaskRunner {
     @Override
     public SweepResults run(TableReference tableRef, int rowBatchSize, int cellBatchSize, byte[] startRow) {
+        return run(tableRef, rowBatchSize, cellBatchSize, startRow, null);
+    }
+
+    @Override
+    public SweepResults run(
+            TableReference tableRef, int rowBatchSize, int cellBatchSize, byte[] startRow, byte[] endRow) {
+        return SweepResults.createEmptySweepResult(getSweepTimestamp(SweepStrategy.NOTHING));
+    }
+
+    @Override
+    public SweepResults runForCells(TableReference tableRef, Set<Cell> cells) {
         return SweepResults.createEmptySweepResult(getSweepTimestamp(SweepStrategy.NOTHING));
     }
 
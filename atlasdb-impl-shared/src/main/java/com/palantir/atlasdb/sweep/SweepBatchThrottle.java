@@ -0,0 +1,164 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.palantir.atlasdb.transaction.impl.SnapshotTransaction;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+/**
+ * Chooses the row batch size, cell batch size and pause of a background sweep worker.
+ * <p>
+ * Without a target batch duration, the batch sizes are the configured ones, halved after each failed batch and
+ * grown back by 1% after each successful one, and the pause is the configured one.
+ * <p>
+ * With a target batch duration, the configured batch sizes become maxima and the configured pause a minimum.
+ * A batch that takes longer than the target, or that finishes while the 99th percentile latency of transactional
+ * reads is above its budget, shrinks both batch sizes in proportion to the overrun and doubles the pause. Batches
+ * that stay within budget grow the batch sizes back by 10% and halve the extra pause, so the sweeper converges on
+ * the largest batches the backing store can serve without slowing down foreground reads.
+ */
+public class SweepBatchThrottle {
+    private static final double LEGACY_GROWTH_FACTOR = 1.01;
+    private static final double ADAPTIVE_GROWTH_FACTOR = 1.1;
+    // Never shrink by more than half on one batch, so that a single slow batch does not stall sweep.
+    private static final double MIN_SHRINK_FACTOR = 0.5;
+    private static final long MIN_BACKOFF_PAUSE_MILLIS = 100;
+    private static final long MAX_PAUSE_MULTIPLIER = 8;
+
+    private final Supplier<Integer> maxRowBatchSize;
+    private final Supplier<Integer> maxCellBatchSize;
+    private final Supplier<Long> minPauseMillis;
+    private final long targetBatchMillis;
+    private final Supplier<Double> foregroundReadLatencyMillis;
+    private final long maxForegroundReadLatencyMillis;
+
+    private double batchSizeMultiplier = 1.0;
+    private long extraPauseMillis = 0;
+
+    /**
+     * Creates a throttle that keeps the configured pause and only reduces the batch sizes after failures.
+     */
+    public SweepBatchThrottle(
+            Supplier<Integer> rowBatchSize,
+            Supplier<Integer> cellBatchSize,
+            Supplier<Long> pauseMillis) {
+        this(rowBatchSize, cellBatchSize, pauseMillis, 0L, () -> 0.0, 0L);
+    }
+
+    /**
+     * @param targetBatchMillis how long a batch should take; if not positive, the pause and batch sizes are only
+     *        adjusted after failures
+     * @param foregroundReadLatencyMillis supplies the current 99th percentile latency of foreground reads
+     * @param maxForegroundReadLatencyMillis the foreground read latency above which sweep backs off; if not
+     *        positive, the foreground read latency is ignored
+     */
+    public SweepBatchThrottle(
+            Supplier<Integer> maxRowBatchSize,
+            Supplier<Integer> maxCellBatchSize,
+            Supplier<Long> minPauseMillis,
+            long targetBatchMillis,
+            Supplier<Double> foregroundReadLatencyMillis,
+            long maxForegroundReadLatencyMillis) {
+        this.maxRowBatchSize = maxRowBatchSize;
+        this.maxCellBatchSize = maxCellBatchSize;
+        this.minPauseMillis = minPauseMillis;
+        this.targetBatchMillis = targetBatchMillis;
+        this.foregroundReadLatencyMillis = foregroundReadLatencyMillis;
+        this.maxForegroundReadLatencyMillis = maxForegroundReadLatencyMillis;
+    }
+
+    /**
+     * Returns the larger of the 99th percentile latencies of {@link SnapshotTransaction} gets and row reads in
+     * this process, as recorded in the AtlasDB metric registry.
+     */
+    public static Supplier<Double> transactionReadLatencyMillis() {
+        MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+        Timer getTimer = metricRegistry.timer(MetricRegistry.name(SnapshotTransaction.class, "get"));
+        Timer getRowsTimer = metricRegistry.timer(MetricRegistry.name(SnapshotTransaction.class, "getRows"));
+        double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+        return () -> Math.max(
+                getTimer.getSnapshot().get99thPercentile(),
+                getRowsTimer.getSnapshot().get99thPercentile()) / nanosPerMilli;
+    }
+
+    public synchronized int getRowBatchSize() {
+        return Math.max(1, (int) (maxRowBatchSize.get() * batchSizeMultiplier));
+    }
+
+    public synchronized int getCellBatchSize() {
+        if (!isAdaptive()) {
+            return maxCellBatchSize.get();
+        }
+        return Math.max(1, (int) (maxCellBatchSize.get() * batchSizeMultiplier));
+    }
+
+    public synchronized long getPauseMillis() {
+        return minPauseMillis.get() + extraPauseMillis;
+    }
+
+    public synchronized void batchSucceeded(long elapsedMillis) {
+        if (!isAdaptive()) {
+            batchSizeMultiplier = Math.min(1.0, batchSizeMultiplier * LEGACY_GROWTH_FACTOR);
+            return;
+        }
+        double shrinkFactor = 1.0;
+        if (elapsedMillis > targetBatchMillis) {
+            shrinkFactor = (double) targetBatchMillis / elapsedMillis;
+        }
+        if (maxForegroundReadLatencyMillis > 0) {
+            double foregroundLatency = foregroundReadLatencyMillis.get();
+            if (foregroundLatency > maxForegroundReadLatencyMillis) {
+                shrinkFactor = Math.min(shrinkFactor, maxForegroundReadLatencyMillis / foregroundLatency);
+            }
+        }
+        if (shrinkFactor < 1.0) {
+            batchSizeMultiplier = Math.max(
+                    minBatchSizeMultiplier(),
+                    batchSizeMultiplier * Math.max(MIN_SHRINK_FACTOR, shrinkFactor));
+            long minPause = minPauseMillis.get();
+            long maxExtraPause = (MAX_PAUSE_MULTIPLIER - 1) * Math.max(minPause, MIN_BACKOFF_PAUSE_MILLIS);
+            extraPauseMillis = Math.min(maxExtraPause,
+                    Math.max(MIN_BACKOFF_PAUSE_MILLIS, 2 * (minPause + extraPauseMillis) - minPause));
+        } else {
+            batchSizeMultiplier = Math.min(1.0, batchSizeMultiplier * ADAPTIVE_GROWTH_FACTOR);
+            extraPauseMillis /= 2;
+        }
+    }
+
+    public synchronized void batchFailed() {
+        // Cut batch size in half, always sweep at least one row (we round down).
+        batchSizeMultiplier = Math.max(batchSizeMultiplier / 2, minBatchSizeMultiplier());
+    }
+
+    @VisibleForTesting
+    synchronized double getBatchSizeMultiplier() {
+        return batchSizeMultiplier;
+    }
+
+    private boolean isAdaptive() {
+        return targetBatchMillis > 0;
+    }
+
+    private double minBatchSizeMultiplier() {
+        return 1.5 / maxRowBatchSize.get();
+    }
+}
@@ -15,13 +15,31 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Set;
+
 import javax.annotation.Nullable;
 
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 
 public interface SweepTaskRunner {
     SweepResults run(TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] startRow);
+
+    /**
+     * Sweeps one batch of the rows from {@code startRow} (inclusive) up to {@code endRow} (exclusive). A null
+     * {@code endRow} means the end of the table. The returned next start row is absent once the range is done.
+     */
+    SweepResults run(TableReference tableRef,
+            int rowBatchSize,
+            int cellBatchSize,
+            @Nullable byte[] startRow,
+            @Nullable byte[] endRow);
+
+    /**
+     * Sweeps only the given cells of the table, rather than scanning a range of rows for them.
+     */
+    SweepResults runForCells(TableReference tableRef, Set<Cell> cells);
     long getSweepTimestamp(SweepStrategy sweepStrategy);
 }
@@ -15,9 +15,11 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
@@ -36,14 +38,10 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -51,6 +49,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
@@ -61,7 +60,6 @@ import com.palantir.atlasdb.sweep.sweepers.Sweeper;
 import com.palantir.atlasdb.sweep.sweepers.ThoroughSweeper;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
-import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.base.BatchingVisitableFromIterable;
 import com.palantir.common.base.ClosableIterator;
@@ -77,7 +75,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     private final KeyValueService keyValueService;
     private final Supplier<Long> unreadableTimestampSupplier;
     private final Supplier<Long> immutableTimestampSupplier;
-    private final TransactionService transactionService;
+    private final CommitTsCache commitTsCache;
     private final SweepStrategyManager sweepStrategyManager;
     private final CellsSweeper cellsSweeper;
 
@@ -85,13 +83,13 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             KeyValueService keyValueService,
             Supplier<Long> unreadableTimestampSupplier,
             Supplier<Long> immutableTimestampSupplier,
-            TransactionService transactionService,
+            CommitTsCache commitTsCache,
             SweepStrategyManager sweepStrategyManager,
             CellsSweeper cellsSweeper) {
         this.keyValueService = keyValueService;
         this.unreadableTimestampSupplier = unreadableTimestampSupplier;
         this.immutableTimestampSupplier = immutableTimestampSupplier;
-        this.transactionService = transactionService;
+        this.commitTsCache = commitTsCache;
         this.sweepStrategyManager = sweepStrategyManager;
         this.cellsSweeper = cellsSweeper;
     }
@@ -99,6 +97,16 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     @Override
     public SweepResults run(
             TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] nullableStartRow) {
+        return run(tableRef, rowBatchSize, cellBatchSize, nullableStartRow, null);
+    }
+
+    @Override
+    public SweepResults run(
+            TableReference tableRef,
+            int rowBatchSize,
+            int cellBatchSize,
+            @Nullable byte[] nullableStartRow,
+            @Nullable byte[] nullableEndRow) {
         Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
         Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
 
@@ -131,6 +139,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         byte[] startRow = MoreObjects.firstNonNull(nullableStartRow, PtBytes.EMPTY_BYTE_ARRAY);
         RangeRequest range = RangeRequest.builder()
                 .startRowInclusive(startRow)
+                .endRowExclusive(MoreObjects.firstNonNull(nullableEndRow, PtBytes.EMPTY_BYTE_ARRAY))
                 .batchHint(rowBatchSize)
                 .build();
 
@@ -138,11 +147,10 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
 
         long sweepTs = sweeper.getSweepTimestamp();
 
-        try (ClosableIterator<RowResult<Value>> valueResults = sweeper.getValues(tableRef, range, sweepTs);
-             ClosableIterator<RowResult<Set<Long>>> rowResults = sweeper.getCellTimestamps(tableRef, range, sweepTs)) {
-            CountingIterator<RowResult<Set<Long>>> rowResultTimestamps =
+        try (ClosableIterator<RowResult<SweepCellTimestamps>> rowResults =
+                     sweeper.getCellTimestamps(tableRef, range, sweepTs)) {
+            CountingIterator<RowResult<SweepCellTimestamps>> rowResultTimestamps =
                     new CountingIterator<>(Iterators.limit(rowResults, rowBatchSize));
-            PeekingIterator<RowResult<Value>> peekingValues = Iterators.peekingIterator(valueResults);
 
             BatchingVisitable<CellAndTimestamps> cellsAndTimestamps = BatchingVisitableFromIterable
                     .create(getTimestampsFromRowResultsIterator(() -> rowResultTimestamps));
@@ -152,7 +160,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
                     cellBatchSize,
                     thisBatch -> {
                         CellsAndTimestamps thisBatchCells = CellsAndTimestamps.fromCellAndTimestampsList(thisBatch);
-                        int cellsSwept = sweepForCells(thisBatchCells, tableRef, sweeper, sweepTs, peekingValues);
+                        int cellsSwept = sweepForCells(thisBatchCells, tableRef, sweeper, sweepTs);
                         totalCellsSwept.addAndGet(cellsSwept);
                         return true;
                     });
@@ -169,6 +177,43 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         }
     }
 
+    @Override
+    public SweepResults runForCells(TableReference tableRef, Set<Cell> cells) {
+        Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
+        Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
+
+        if (keyValueService.getMetadataForTable(tableRef).length == 0) {
+            log.warn("The sweeper tried to sweep table '{}', but the table does not exist. Skipping table.", tableRef);
+            return SweepResults.createEmptySweepResult(0L);
+        }
+
+        SweepStrategy sweepStrategy = sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE);
+        Sweeper sweeper = getSweeperFor(sweepStrategy);
+        long sweepTs = sweeper.getSweepTimestamp();
+        if (cells.isEmpty() || sweepStrategy == SweepStrategy.NOTHING) {
+            return SweepResults.createEmptySweepResult(sweepTs);
+        }
+
+        Multimap<Cell, Long> timestampsByCell = keyValueService.getAllTimestamps(tableRef, cells, sweepTs);
+        Map<Cell, Value> values = sweeper.getValues(tableRef, timestampsByCell.keySet(), sweepTs);
+        List<CellAndTimestamps> cellsAndTimestamps = new ArrayList<>(timestampsByCell.keySet().size());
+        for (Cell cell : timestampsByCell.keySet()) {
+            Value latestValue = values.get(cell);
+            cellsAndTimestamps.add(CellAndTimestamps.of(
+                    cell,
+                    ImmutableSet.copyOf(timestampsByCell.get(cell)),
+                    latestValue != null && latestValue.getContents().length == 0));
+        }
+
+        int cellsSwept = sweepForCells(
+                CellsAndTimestamps.fromCellAndTimestampsList(cellsAndTimestamps), tableRef, sweeper, sweepTs);
+        return SweepResults.builder()
+                .cellsExamined(cellsAndTimestamps.size())
+                .cellsDeleted(cellsSwept)
+                .sweptTimestamp(sweepTs)
+                .build();
+    }
+
     private Sweeper getSweeperFor(SweepStrategy sweepStrategy) {
         switch (sweepStrategy) {
             case NOTHING:
@@ -191,13 +236,12 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             CellsAndTimestamps currentBatch,
             TableReference tableRef,
             Sweeper sweeper,
-            long sweepTs,
-            PeekingIterator<RowResult<Value>> peekingValues) {
+            long sweepTs) {
         CellsAndTimestamps currentBatchWithoutIgnoredTimestamps =
                 currentBatch.withoutIgnoredTimestamps(sweeper.getTimestampsToIgnore());
 
         CellsToSweep cellsToSweep = getStartTimestampsPerRowToSweep(
-                currentBatchWithoutIgnoredTimestamps, peekingValues, sweepTs, sweeper);
+                currentBatchWithoutIgnoredTimestamps, sweepTs, sweeper);
 
         Multimap<Cell, Long> startTimestampsToSweepPerCell = cellsToSweep.timestampsAsMultimap();
         cellsSweeper.sweepCells(tableRef, startTimestampsToSweepPerCell, cellsToSweep.allSentinels());
@@ -206,21 +250,24 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     }
 
     private static Iterator<CellAndTimestamps> getTimestampsFromRowResultsIterator(
-            Iterable<RowResult<Set<Long>>> cellsToSweep) {
+            Iterable<RowResult<SweepCellTimestamps>> cellsToSweep) {
         return StreamSupport.stream(cellsToSweep.spliterator(), false)
                 .flatMap(SweepTaskRunnerImpl::rowToCellAndTimestampStream)
                 .iterator();
     }
 
-    private static Stream<CellAndTimestamps> rowToCellAndTimestampStream(RowResult<Set<Long>> rowResult) {
-        Set<Map.Entry<Cell, Set<Long>>> cellsInRow = ImmutableSet.copyOf(rowResult.getCells());
+    private static Stream<CellAndTimestamps> rowToCellAndTimestampStream(RowResult<SweepCellTimestamps> rowResult) {
+        Set<Map.Entry<Cell, SweepCellTimestamps>> cellsInRow = ImmutableSet.copyOf(rowResult.getCells());
         return cellsInRow.stream()
                 .map(SweepTaskRunnerImpl::convertToCellAndTimestamps);
     }
 
     private static CellAndTimestamps convertToCellAndTimestamps(
-            Map.Entry<Cell, Set<Long>> entry) {
-        return CellAndTimestamps.of(entry.getKey(), entry.getValue());
+            Map.Entry<Cell, SweepCellTimestamps> entry) {
+        return CellAndTimestamps.of(
+                entry.getKey(),
+                entry.getValue().timestamps(),
+                entry.getValue().isLatestValueEmpty());
     }
 
     @Override
@@ -231,24 +278,16 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     @VisibleForTesting
     CellsToSweep getStartTimestampsPerRowToSweep(
             CellsAndTimestamps startTimestampsPerCell,
-            PeekingIterator<RowResult<Value>> values,
             long sweepTimestamp,
             Sweeper sweeper) {
 
-        LoadingCache<Long, Long> startTsToCommitTs = CacheBuilder.newBuilder()
-                .build(new StartTsToCommitTsCacheLoader(transactionService));
-
-        // Needed because calling transactionService.get(<EMPTY>) is weird (it logs that it is empty too).
-        Set<Long> allStartTimestamps = startTimestampsPerCell.getAllTimestampValues();
-        if (!allStartTimestamps.isEmpty()) {
-            startTsToCommitTs.putAll(transactionService.get(allStartTimestamps));
-        }
+        Map<Long, Long> startTsToCommitTs = commitTsCache.loadBatch(startTimestampsPerCell.getAllTimestampValues());
 
         ImmutableCellsToSweep.Builder builder = ImmutableCellsToSweep.builder();
         for (CellAndTimestamps cellAndTimestamps : startTimestampsPerCell.cellAndTimestampsList()) {
             Cell cell = cellAndTimestamps.cell();
             Collection<Long> timestamps = cellAndTimestamps.timestamps();
-            boolean sweepLastCommitted = isLatestValueEmpty(cell, values);
+            boolean sweepLastCommitted = cellAndTimestamps.isLatestValueEmpty();
             CellToSweep cellToSweep = getTimestampsToSweep(
                     cell,
                     timestamps,
@@ -261,26 +300,10 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         return builder.build();
     }
 
-    private boolean isLatestValueEmpty(Cell cell, PeekingIterator<RowResult<Value>> values) {
-        while (values.hasNext()) {
-            RowResult<Value> result = values.peek();
-            int comparison = UnsignedBytes.lexicographicalComparator().compare(cell.getRowName(), result.getRowName());
-            if (comparison == 0) {
-                Value matchingValue = result.getColumns().get(cell.getColumnName());
-                return matchingValue != null && matchingValue.getContents().length == 0;
-            } else if (comparison < 0) {
-                return false;
-            } else {
-                values.next();
-            }
-        }
-        return false;
-    }
-
     private CellToSweep getTimestampsToSweep(
             Cell cell,
             Collection<Long> startTimestamps,
-            LoadingCache<Long, Long> startTsToCommitTs,
+            Map<Long, Long> startTsToCommitTs,
             long sweepTimestamp,
             boolean sweepLastCommitted,
             Sweeper sweeper) {
@@ -289,7 +312,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         long maxStartTs = TransactionConstants.FAILED_COMMIT_TS;
         boolean maxStartTsIsCommitted = false;
         for (long startTs : startTimestamps) {
-            long commitTs = startTsToCommitTs.getUnchecked(startTs);
+            long commitTs = startTsToCommitTs.get(startTs);
 
             if (startTs > maxStartTs && commitTs < sweepTimestamp) {
                 maxStartTs = startTs;
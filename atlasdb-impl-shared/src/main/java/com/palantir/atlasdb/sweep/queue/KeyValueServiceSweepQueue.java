@@ -0,0 +1,202 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.ColumnValueDescription;
+import com.palantir.atlasdb.table.description.DynamicColumnDescription;
+import com.palantir.atlasdb.table.description.NameComponentDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * A sweep queue stored as a table in the KeyValueService.
+ * <p>
+ * Each row holds the cells one transaction wrote to one table in one shard, keyed by the shard, then the
+ * transaction's start timestamp and then the table, so that each shard can be read in start timestamp order. Cells
+ * are assigned to shards by hash, which spreads the entries of large transactions over several rows.
+ * <p>
+ * Cells whose names are too long to be stored in the queue are not queued; they are left to the background sweeper.
+ */
+public final class KeyValueServiceSweepQueue implements SweepQueueWriter {
+    private static final Logger log = LoggerFactory.getLogger(KeyValueServiceSweepQueue.class);
+
+    private static final byte[] ENTRY_VALUE = {1};
+    private static final int MAX_SHARDS = 256;
+    // one byte of shard and eight of start timestamp
+    private static final int ROW_PREFIX_SIZE = 1 + 8;
+
+    private final KeyValueService keyValueService;
+    private final SweepStrategyManager sweepStrategyManager;
+    private final int numShards;
+
+    public static KeyValueServiceSweepQueue create(
+            KeyValueService keyValueService,
+            SweepStrategyManager sweepStrategyManager,
+            int numShards) {
+        Preconditions.checkArgument(numShards > 0 && numShards <= MAX_SHARDS,
+                "The number of sweep queue shards must be between 1 and %s but was %s", MAX_SHARDS, numShards);
+        keyValueService.createTable(AtlasDbConstants.SWEEP_QUEUE_TABLE, new TableMetadata(
+                NameMetadataDescription.create(ImmutableList.of(
+                        new NameComponentDescription("shard_start_ts_and_table", ValueType.BLOB))),
+                new ColumnMetadataDescription(new DynamicColumnDescription(
+                        NameMetadataDescription.create(ImmutableList.of(
+                                new NameComponentDescription("cell", ValueType.BLOB))),
+                        ColumnValueDescription.forType(ValueType.BLOB))),
+                ConflictHandler.IGNORE_ALL).persistToBytes());
+        return new KeyValueServiceSweepQueue(keyValueService, sweepStrategyManager, numShards);
+    }
+
+    private KeyValueServiceSweepQueue(
+            KeyValueService keyValueService,
+            SweepStrategyManager sweepStrategyManager,
+            int numShards) {
+        this.keyValueService = keyValueService;
+        this.sweepStrategyManager = sweepStrategyManager;
+        this.numShards = numShards;
+    }
+
+    public int getNumShards() {
+        return numShards;
+    }
+
+    @Override
+    public void enqueue(Map<TableReference, ? extends Map<Cell, byte[]>> writes, long startTimestamp) {
+        Map<Cell, byte[]> entries = Maps.newHashMap();
+        for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> entry : writes.entrySet()) {
+            TableReference tableRef = entry.getKey();
+            if (!isSwept(tableRef)) {
+                continue;
+            }
+            for (Cell cell : entry.getValue().keySet()) {
+                int shard = Math.floorMod(31 * tableRef.hashCode() + cell.hashCode(), numShards);
+                byte[] column = getColumn(cell);
+                if (Cell.isNameValid(column)) {
+                    entries.put(Cell.create(getRow(shard, startTimestamp, tableRef), column), ENTRY_VALUE);
+                } else {
+                    log.debug("Not queueing cell {} of table {} for sweep as its name is too long.", cell, tableRef);
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            keyValueService.put(AtlasDbConstants.SWEEP_QUEUE_TABLE, entries, startTimestamp);
+        }
+    }
+
+    private boolean isSwept(TableReference tableRef) {
+        return !AtlasDbConstants.hiddenTables.contains(tableRef)
+                && sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE)
+                        != SweepStrategy.NOTHING;
+    }
+
+    /**
+     * Returns the entries of the given shard written by transactions that started in the given range, in start
+     * timestamp order. Roughly {@code batchSizeHint} rows are read, but the entries of the last start timestamp
+     * read are always returned in full.
+     */
+    public List<SweepQueueEntry> getEntries(
+            int shard,
+            long minStartTimestamp /* inclusive */,
+            long maxStartTimestamp /* exclusive */,
+            int batchSizeHint) {
+        if (minStartTimestamp >= maxStartTimestamp) {
+            return ImmutableList.of();
+        }
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(getRowPrefix(shard, minStartTimestamp))
+                .endRowExclusive(getRowPrefix(shard, maxStartTimestamp))
+                .batchHint(batchSizeHint)
+                .build();
+        List<SweepQueueEntry> entries = new ArrayList<>();
+        try (ClosableIterator<RowResult<Value>> rows =
+                     keyValueService.getRange(AtlasDbConstants.SWEEP_QUEUE_TABLE, range, Long.MAX_VALUE)) {
+            long lastStartTimestamp = minStartTimestamp;
+            for (int numRows = 0; rows.hasNext(); numRows++) {
+                RowResult<Value> row = rows.next();
+                long startTimestamp = PtBytes.toLong(row.getRowName(), 1);
+                if (numRows >= batchSizeHint && startTimestamp != lastStartTimestamp) {
+                    break;
+                }
+                lastStartTimestamp = startTimestamp;
+                TableReference tableRef = TableReference.createUnsafe(
+                        PtBytes.toString(EncodingUtils.getBytesFromOffsetToEnd(row.getRowName(), ROW_PREFIX_SIZE)));
+                for (byte[] column : row.getColumns().keySet()) {
+                    entries.add(SweepQueueEntry.of(shard, tableRef, toCell(column), startTimestamp));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the given entries from the queue once the cells they refer to have been swept.
+     */
+    public void remove(Collection<SweepQueueEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Multimap<Cell, Long> cells = HashMultimap.create();
+        for (SweepQueueEntry entry : entries) {
+            byte[] row = getRow(entry.shard(), entry.startTimestamp(), entry.tableRef());
+            cells.put(Cell.create(row, getColumn(entry.cell())), entry.startTimestamp());
+        }
+        keyValueService.delete(AtlasDbConstants.SWEEP_QUEUE_TABLE, cells);
+    }
+
+    private static byte[] getRowPrefix(int shard, long startTimestamp) {
+        return EncodingUtils.add(new byte[] {(byte) shard}, PtBytes.toBytes(startTimestamp));
+    }
+
+    private static byte[] getRow(int shard, long startTimestamp, TableReference tableRef) {
+        return EncodingUtils.add(getRowPrefix(shard, startTimestamp), PtBytes.toBytes(tableRef.getQualifiedName()));
+    }
+
+    private static byte[] getColumn(Cell cell) {
+        return EncodingUtils.add(EncodingUtils.encodeSizedBytes(cell.getRowName()), cell.getColumnName());
+    }
+
+    private static Cell toCell(byte[] column) {
+        byte[] row = EncodingUtils.decodeSizedBytes(column, 0);
+        return Cell.create(row, EncodingUtils.getBytesFromOffsetToEnd(column, EncodingUtils.sizeOfSizedBytes(row)));
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import org.immutables.value.Value;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * A cell written by the transaction with the given start timestamp, as recorded in the given shard of the sweep queue.
+ */
+@Value.Immutable
+public abstract class SweepQueueEntry {
+    public abstract int shard();
+    public abstract TableReference tableRef();
+    public abstract Cell cell();
+    public abstract long startTimestamp();
+
+    public static SweepQueueEntry of(int shard, TableReference tableRef, Cell cell, long startTimestamp) {
+        return ImmutableSweepQueueEntry.builder()
+                .shard(shard)
+                .tableRef(tableRef)
+                .cell(cell)
+                .startTimestamp(startTimestamp)
+                .build();
+    }
+}
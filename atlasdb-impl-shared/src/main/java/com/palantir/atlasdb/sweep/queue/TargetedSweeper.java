@@ -0,0 +1,225 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.sweep.BackgroundSweeper;
+import com.palantir.atlasdb.sweep.CommitTsCache;
+import com.palantir.atlasdb.sweep.SweepTaskRunner;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+
+/**
+ * Sweeps the cells recorded in the sweep queue, rather than scanning whole tables for cells to sweep, so that the
+ * cost of sweeping follows the number of writes instead of the size of the tables.
+ * <p>
+ * An entry is swept once the transaction that wrote it has committed before the sweep timestamp (or was rolled
+ * back), at which point every earlier version of its cell can be swept as usual for its table's sweep strategy.
+ */
+public class TargetedSweeper implements BackgroundSweeper {
+    private static final Logger log = LoggerFactory.getLogger(TargetedSweeper.class);
+
+    private final LockAwareTransactionManager txManager;
+    private final KeyValueServiceSweepQueue queue;
+    private final SweepTaskRunner sweepRunner;
+    private final CommitTsCache commitTsCache;
+    private final Supplier<Boolean> isSweepEnabled;
+    private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<Integer> sweepBatchSize;
+    // The start timestamp below which each shard has no entries left to sweep. Transactions that have not yet
+    // enqueued their writes always start after the sweep timestamp, so this only moves forward.
+    private final long[] shardProgress;
+    private Thread daemon;
+
+    public TargetedSweeper(
+            LockAwareTransactionManager txManager,
+            KeyValueServiceSweepQueue queue,
+            SweepTaskRunner sweepRunner,
+            CommitTsCache commitTsCache,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize) {
+        this.txManager = txManager;
+        this.queue = queue;
+        this.sweepRunner = sweepRunner;
+        this.commitTsCache = commitTsCache;
+        this.isSweepEnabled = isSweepEnabled;
+        this.sweepPauseMillis = sweepPauseMillis;
+        this.sweepBatchSize = sweepBatchSize;
+        this.shardProgress = new long[queue.getNumShards()];
+    }
+
+    @Override
+    public synchronized void runInBackground() {
+        Preconditions.checkState(daemon == null);
+        daemon = new Thread(this);
+        daemon.setDaemon(true);
+        daemon.setName("TargetedSweeper");
+        daemon.start();
+    }
+
+    @Override
+    public void run() {
+        Optional<LockRefreshToken> locks = Optional.absent();
+        try {
+            // Wait a while before starting so short lived clis don't try to sweep.
+            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+            log.debug("Starting targeted sweeper.");
+            while (true) {
+                int entriesSwept = 0;
+                try {
+                    if (isSweepEnabled.get()) {
+                        locks = lockOrRefresh(locks);
+                        if (locks.isPresent()) {
+                            entriesSwept = runOnce();
+                        } else {
+                            log.debug("Skipping targeted sweep because it is running elsewhere.");
+                        }
+                    } else {
+                        log.debug("Skipping targeted sweep because it is currently disabled.");
+                    }
+                } catch (InsufficientConsistencyException e) {
+                    log.warn("Could not sweep because not all nodes of the database are online.", e);
+                } catch (RuntimeException e) {
+                    log.error("The targeted sweep job failed unexpectedly. Attempting to continue...", e);
+                }
+                if (entriesSwept > 0) {
+                    Thread.sleep(sweepPauseMillis.get());
+                } else {
+                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Shutting down targeted sweeper.");
+        } finally {
+            if (locks.isPresent()) {
+                txManager.getLockService().unlock(locks.get());
+            }
+        }
+    }
+
+    /**
+     * Sweeps one batch of entries from each shard of the queue.
+     *
+     * @return the number of queue entries swept
+     */
+    @VisibleForTesting
+    int runOnce() {
+        long sweepTimestamp = sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE);
+        int entriesSwept = 0;
+        for (int shard = 0; shard < shardProgress.length; shard++) {
+            entriesSwept += sweepShard(shard, sweepTimestamp);
+        }
+        return entriesSwept;
+    }
+
+    private int sweepShard(int shard, long sweepTimestamp) {
+        List<SweepQueueEntry> entries = queue.getEntries(
+                shard, shardProgress[shard], sweepTimestamp, sweepBatchSize.get());
+        if (entries.isEmpty()) {
+            shardProgress[shard] = Math.max(shardProgress[shard], sweepTimestamp);
+            return 0;
+        }
+
+        Set<Long> startTimestamps = entries.stream()
+                .map(SweepQueueEntry::startTimestamp)
+                .collect(Collectors.toSet());
+        Map<Long, Long> startTsToCommitTs = commitTsCache.loadBatch(startTimestamps);
+
+        // Entries whose transactions committed after the sweep timestamp must wait, as they do not yet hide
+        // the versions they overwrote from every open transaction.
+        List<SweepQueueEntry> sweepableEntries = new ArrayList<>(entries.size());
+        long firstUnsweepableStartTs = Long.MAX_VALUE;
+        for (SweepQueueEntry entry : entries) {
+            // failed transactions have a commit timestamp of -1, so are always sweepable
+            if (startTsToCommitTs.get(entry.startTimestamp()) < sweepTimestamp) {
+                sweepableEntries.add(entry);
+            } else {
+                firstUnsweepableStartTs = Math.min(firstUnsweepableStartTs, entry.startTimestamp());
+            }
+        }
+
+        Map<TableReference, Set<Cell>> cellsByTable = sweepableEntries.stream()
+                .collect(Collectors.groupingBy(
+                        SweepQueueEntry::tableRef,
+                        Collectors.mapping(SweepQueueEntry::cell, Collectors.toSet())));
+        for (Map.Entry<TableReference, Set<Cell>> tableAndCells : cellsByTable.entrySet()) {
+            SweepResults results = sweepRunner.runForCells(tableAndCells.getKey(), tableAndCells.getValue());
+            log.debug("Targeted sweep examined {} cells of {} and performed {} deletions up to timestamp {}.",
+                    results.getCellsExamined(), tableAndCells.getKey(), results.getCellsDeleted(),
+                    results.getSweptTimestamp());
+        }
+        queue.remove(sweepableEntries);
+
+        long lastStartTs = entries.get(entries.size() - 1).startTimestamp();
+        shardProgress[shard] = Math.min(firstUnsweepableStartTs, lastStartTs + 1);
+        return sweepableEntries.size();
+    }
+
+    private Optional<LockRefreshToken> lockOrRefresh(Optional<LockRefreshToken> previousLocks)
+            throws InterruptedException {
+        if (previousLocks.isPresent()) {
+            Set<LockRefreshToken> refreshedTokens = txManager.getLockService()
+                    .refreshLockRefreshTokens(ImmutableList.of(previousLocks.get()));
+            return refreshedTokens.isEmpty() ? Optional.absent() : previousLocks;
+        } else {
+            LockDescriptor lock = StringLockDescriptor.of("atlas targeted sweep");
+            LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
+            LockRefreshToken token = txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request);
+            return Optional.fromNullable(token);
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (daemon == null) {
+            return;
+        }
+        log.debug("Signalling targeted sweeper to shut down.");
+        daemon.interrupt();
+        try {
+            daemon.join();
+            daemon = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+}
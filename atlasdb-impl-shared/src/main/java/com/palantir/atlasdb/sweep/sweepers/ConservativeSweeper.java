@@ -15,13 +15,19 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -47,16 +53,23 @@ public class ConservativeSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return ClosableIterators.emptyImmutableClosableIterator();
+    public Map<Cell, Value> getValues(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        return ImmutableMap.of();
     }
 
     @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
-        return keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        // Conservative sweep always keeps the latest value, so there is no need to read whether it is empty.
+        ClosableIterator<RowResult<Set<Long>>> timestamps =
+                keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        return ClosableIterators.wrap(
+                Iterators.transform(timestamps, row -> RowResult.create(
+                        row.getRowName(),
+                        Maps.transformValues(row.getColumns(), ts -> SweepCellTimestamps.of(ts, false)))),
+                timestamps);
     }
 
     @Override
@@ -15,11 +15,15 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -32,12 +36,12 @@ public class NothingSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return ClosableIterators.emptyImmutableClosableIterator();
+    public Map<Cell, Value> getValues(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        return ImmutableMap.of();
     }
 
     @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
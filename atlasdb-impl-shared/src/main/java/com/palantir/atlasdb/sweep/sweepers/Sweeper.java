@@ -15,10 +15,13 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -26,9 +29,9 @@ import com.palantir.common.base.ClosableIterator;
 public interface Sweeper {
     long getSweepTimestamp();
 
-    ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp);
+    Map<Cell, Value> getValues(TableReference table, Set<Cell> cells, long maxTimestamp);
 
-    ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    ClosableIterator<RowResult<SweepCellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp);
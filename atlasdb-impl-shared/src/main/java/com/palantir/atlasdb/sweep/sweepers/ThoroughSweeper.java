@@ -15,13 +15,17 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -41,16 +45,16 @@ public class ThoroughSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return keyValueService.getRange(table, range, maxTimestamp);
+    public Map<Cell, Value> getValues(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        return keyValueService.get(table, Maps.asMap(cells, cell -> maxTimestamp));
     }
 
     @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
-        return keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        return keyValueService.getRangeOfTimestampsForSweeping(table, range, maxTimestamp);
     }
 
     @Override
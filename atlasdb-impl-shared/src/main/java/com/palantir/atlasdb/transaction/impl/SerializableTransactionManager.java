@@ -60,6 +60,30 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                                           SweepStrategyManager sweepStrategyManager,
                                           Cleaner cleaner,
                                           boolean allowHiddenTableAccess) {
+        this(keyValueService,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                constraintModeSupplier,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                cleaner,
+                allowHiddenTableAccess,
+                TransactionManagerOptions.defaults());
+    }
+
+    public SerializableTransactionManager(KeyValueService keyValueService,
+                                          TimestampService timestampService,
+                                          LockClient lockClient,
+                                          RemoteLockService lockService,
+                                          TransactionService transactionService,
+                                          Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+                                          ConflictDetectionManager conflictDetectionManager,
+                                          SweepStrategyManager sweepStrategyManager,
+                                          Cleaner cleaner,
+                                          boolean allowHiddenTableAccess,
+                                          TransactionManagerOptions options) {
         super(
                 keyValueService,
                 timestampService,
@@ -70,7 +94,8 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                 conflictDetectionManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                options);
     }
 
     @Override
@@ -25,9 +25,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -91,6 +95,7 @@ import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.impl.RowResults;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
 import com.palantir.atlasdb.table.description.exceptions.AtlasDbConstraintException;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
@@ -120,6 +125,7 @@ import com.palantir.common.collect.IteratorUtils;
 import com.palantir.common.collect.MapEntries;
 import com.palantir.lock.AtlasCellLockDescriptor;
 import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.AtlasTableLockDescriptor;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockMode;
@@ -193,6 +199,12 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     protected final boolean allowHiddenTableAccess;
     protected final Stopwatch transactionTimer = Stopwatch.createStarted();
     protected final TimestampCache timestampValidationReadCache;
+    // If set, commit stages that the protocol does not need to run in sequence are issued concurrently on it
+    @Nullable
+    private volatile Executor commitStageExecutor = null;
+    private volatile SweepQueueWriter sweepQueueWriter = SweepQueueWriter.NO_OP;
+    // If positive, tables with more rows or cells to lock than this are locked as a whole
+    private volatile int lockEscalationThreshold = 0;
 
     private final MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
     private final Timer.Context transactionTimerContext = getTimer("transactionMillis").time();
@@ -1234,19 +1246,55 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
     }
 
+    /**
+     * Enables pipelined commits: punching, the serializable read check and lock validation, and the
+     * post-commit lock refresh and unlock are issued on the given executor instead of one after another.
+     * <p>
+     * Stages whose order the protocol depends on are unchanged: locks are acquired before checking for
+     * conflicts, all writes complete before the commit timestamp is fetched, and locks are verified before the
+     * commit timestamp is written.
+     */
+    /* package */ void pipelineCommitStages(Executor executor) {
+        this.commitStageExecutor = executor;
+    }
+
+    /**
+     * Enables targeted sweep: the cells written by this transaction are recorded with the given writer when it
+     * commits, so that the versions they overwrite can be swept without scanning their tables.
+     */
+    /* package */ void enqueueWritesForSweep(SweepQueueWriter writer) {
+        this.sweepQueueWriter = writer;
+    }
+
+    /**
+     * Enables lock escalation: at commit, a table with more than {@code threshold} rows or cells to lock is
+     * locked with a single write lock on the table instead. Every other table written is also read locked as a
+     * whole, so that an escalated lock conflicts with fine-grained locks taken by other transactions that have
+     * escalation enabled.
+     */
+    /* package */ void escalateLocksAbove(int threshold) {
+        Preconditions.checkArgument(threshold > 0, "threshold must be positive");
+        this.lockEscalationThreshold = threshold;
+    }
+
     private void commitWrites(TransactionService transactionService) {
         if (!hasWrites()) {
             return;
         }
 
+        Executor pipelineExecutor = commitStageExecutor;
         Timer.Context acquireLocksTimer = getTimer("commitAcquireLocks").time();
         LockRefreshToken commitLocksToken = acquireLocksForCommit();
         long millisForLocks = TimeUnit.NANOSECONDS.toMillis(acquireLocksTimer.stop());
+        boolean unlockingAsynchronously = false;
         try {
             Timer.Context conflictsTimer = getTimer("commitCheckingForConflicts").time();
             throwIfConflictOnCommit(commitLocksToken, transactionService);
             long millisCheckingForConflicts = TimeUnit.NANOSECONDS.toMillis(conflictsTimer.stop());
             Timer.Context writesTimer = getTimer("commitWrite").time();
+            // This must be done BEFORE we write (otherwise if the system goes down after we write but
+            // before we enqueue, then nothing will sweep the versions that these writes overwrite)
+            sweepQueueWriter.enqueue(writesByTable, getStartTimestamp());
             keyValueService.multiPut(writesByTable, getStartTimestamp());
             long millisForWrites = TimeUnit.NANOSECONDS.toMillis(writesTimer.stop());
 
@@ -1260,27 +1308,33 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             // punch on commit so that if hard delete is the only thing happening on a system,
             // we won't block forever waiting for the unreadable timestamp to advance past the
             // scrub timestamp (same as the hard delete transaction's start timestamp)
-            Timer.Context punchTimer = getTimer("millisForPunch").time();
-            cleaner.punch(commitTimestamp);
-            long millisForPunch = TimeUnit.NANOSECONDS.toMillis(punchTimer.stop());
+            long millisForPunch = 0;
+            if (pipelineExecutor == null) {
+                Timer.Context punchTimer = getTimer("millisForPunch").time();
+                cleaner.punch(commitTimestamp);
+                millisForPunch = TimeUnit.NANOSECONDS.toMillis(punchTimer.stop());
+            } else {
+                punchAsync(commitTimestamp, pipelineExecutor);
+            }
 
-            throwIfReadWriteConflictForSerializable(commitTimestamp);
+            if (pipelineExecutor == null) {
+                throwIfReadWriteConflictForSerializable(commitTimestamp);
 
-            // Verify that our locks are still valid before we actually commit;
-            // this check is required by the transaction protocol for correctness
-            throwIfExternalAndCommitLocksNotValid(commitLocksToken);
+                // Verify that our locks are still valid before we actually commit;
+                // this check is required by the transaction protocol for correctness
+                throwIfExternalAndCommitLocksNotValid(commitLocksToken);
+            } else {
+                throwIfReadWriteConflictOrCommitLocksNotValid(commitTimestamp, commitLocksToken, pipelineExecutor);
+            }
 
             Timer.Context commitTsTimer = getTimer("commitPutCommitTs").time();
             putCommitTimestamp(commitTimestamp, commitLocksToken, transactionService);
             long millisForCommitTs = TimeUnit.NANOSECONDS.toMillis(commitTsTimer.stop());
 
-            Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
-            if (!expiredLocks.isEmpty()) {
-                String errorMessage =
-                        "This isn't a bug but it should happen very infrequently. Required locks are no longer"
-                        + " valid but we have already committed successfully. "
-                        + getExpiredLocksErrorString(commitLocksToken, expiredLocks);
-                log.error(errorMessage, new TransactionFailedRetriableException(errorMessage));
+            if (pipelineExecutor == null) {
+                logIfLocksExpiredAfterCommit(commitLocksToken);
+            } else {
+                unlockingAsynchronously = refreshAndUnlockAsync(commitLocksToken, pipelineExecutor);
             }
             long millisSinceCreation = System.currentTimeMillis() - timeCreated;
             getTimer("commitTotalTimeSinceTxCreation").update(millisSinceCreation, TimeUnit.MILLISECONDS);
@@ -1296,7 +1350,85 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                         millisForPunch, millisForCommitTs, millisSinceCreation, writesByTable.keySet());
             }
         } finally {
-            lockService.unlock(commitLocksToken);
+            if (!unlockingAsynchronously) {
+                lockService.unlock(commitLocksToken);
+            }
+        }
+    }
+
+    private void punchAsync(long commitTimestamp, Executor executor) {
+        try {
+            executor.execute(() -> {
+                Timer.Context punchTimer = getTimer("millisForPunch").time();
+                try {
+                    cleaner.punch(commitTimestamp);
+                } catch (Throwable t) {
+                    log.warn("Failed to punch commit timestamp {}", commitTimestamp, t);
+                } finally {
+                    punchTimer.stop();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            cleaner.punch(commitTimestamp);
+        }
+    }
+
+    /**
+     * Runs the serializable read check on this thread while the lock server verifies our locks.
+     */
+    private void throwIfReadWriteConflictOrCommitLocksNotValid(
+            long commitTimestamp,
+            @Nullable LockRefreshToken commitLocksToken,
+            Executor executor) {
+        CompletableFuture<Void> locksValid;
+        try {
+            locksValid = CompletableFuture.runAsync(
+                    () -> throwIfExternalAndCommitLocksNotValid(commitLocksToken), executor);
+        } catch (RejectedExecutionException e) {
+            throwIfReadWriteConflictForSerializable(commitTimestamp);
+            throwIfExternalAndCommitLocksNotValid(commitLocksToken);
+            return;
+        }
+        try {
+            throwIfReadWriteConflictForSerializable(commitTimestamp);
+        } finally {
+            try {
+                locksValid.join();
+            } catch (CompletionException e) {
+                throw Throwables.throwUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Hands the post-commit lock refresh and unlock to the executor, as nothing waits on their outcome.
+     *
+     * @return true if the executor accepted the task and is now responsible for unlocking
+     */
+    private boolean refreshAndUnlockAsync(@Nullable LockRefreshToken commitLocksToken, Executor executor) {
+        try {
+            executor.execute(() -> {
+                try {
+                    logIfLocksExpiredAfterCommit(commitLocksToken);
+                } finally {
+                    lockService.unlock(commitLocksToken);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            logIfLocksExpiredAfterCommit(commitLocksToken);
+            return false;
+        }
+    }
+
+    private void logIfLocksExpiredAfterCommit(@Nullable LockRefreshToken commitLocksToken) {
+        Set<LockRefreshToken> expiredLocks = refreshExternalAndCommitLocks(commitLocksToken);
+        if (!expiredLocks.isEmpty()) {
+            String errorMessage =
+                    "This isn't a bug but it should happen very infrequently. Required locks are no longer"
+                    + " valid but we have already committed successfully. "
+                    + getExpiredLocksErrorString(commitLocksToken, expiredLocks);
+            log.error(errorMessage, new TransactionFailedRetriableException(errorMessage));
         }
     }
 
@@ -1623,6 +1755,16 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 continue;
             }
             ConflictHandler conflictHandler = getConflictHandlerForTable(tableRef);
+            int escalationThreshold = lockEscalationThreshold;
+            if (escalationThreshold > 0 && conflictHandler != ConflictHandler.IGNORE_ALL) {
+                LockMode tableLockMode = exceedsLockEscalationThreshold(tableRef, conflictHandler, escalationThreshold)
+                        ? LockMode.WRITE
+                        : LockMode.READ;
+                builder.put(AtlasTableLockDescriptor.of(tableRef.getQualifiedName()), tableLockMode);
+                if (tableLockMode == LockMode.WRITE) {
+                    continue;
+                }
+            }
             if (conflictHandler == ConflictHandler.RETRY_ON_WRITE_WRITE_CELL) {
                 for (Cell cell : getLocalWrites(tableRef).keySet()) {
                     builder.put(
@@ -1647,6 +1789,27 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return builder.build();
     }
 
+    private boolean exceedsLockEscalationThreshold(TableReference tableRef,
+                                                   ConflictHandler conflictHandler,
+                                                   int threshold) {
+        SortedMap<Cell, byte[]> writes = getLocalWrites(tableRef);
+        int numCells = writes.size();
+        if (conflictHandler == ConflictHandler.RETRY_ON_WRITE_WRITE_CELL || numCells <= threshold) {
+            return numCells > threshold;
+        }
+        int rows = 0;
+        Cell lastCell = null;
+        for (Cell cell : writes.keySet()) {
+            if (lastCell == null || !Arrays.equals(lastCell.getRowName(), cell.getRowName())) {
+                if (++rows > threshold) {
+                    return true;
+                }
+            }
+            lastCell = cell;
+        }
+        return false;
+    }
+
     /**
      * We will block here until the passed transactions have released their lock.  This means that
      * the committing transaction is either complete or it has failed and we are allowed to roll
@@ -16,6 +16,9 @@
 package com.palantir.atlasdb.transaction.impl;
 
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
@@ -30,6 +33,8 @@ import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
+import com.palantir.atlasdb.transaction.api.AsyncTransactionTask;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTask;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTasks;
@@ -39,6 +44,8 @@ import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.AtlasTimestampLockDescriptor;
 import com.palantir.lock.HeldLocksToken;
 import com.palantir.lock.LockClient;
@@ -63,6 +70,11 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final boolean pipelineCommits;
+    final SweepQueueWriter sweepQueueWriter;
+    final int lockEscalationThreshold;
+    // Commit stages get their own threads: the async executor runs whole commits, which block on their stages
+    private volatile ExecutorService commitStageExecutor;
 
     protected SnapshotTransactionManager(
             KeyValueService keyValueService,
@@ -89,6 +101,23 @@ import com.palantir.timestamp.TimestampService;
             SweepStrategyManager sweepStrategyManager,
             Cleaner cleaner,
             boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, TransactionManagerOptions.defaults());
+    }
+
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            TransactionManagerOptions options) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -100,6 +129,9 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.pipelineCommits = options.pipelineCommits();
+        this.sweepQueueWriter = options.sweepQueueWriter();
+        this.lockEscalationThreshold = options.lockEscalationThreshold();
     }
 
     @Override
@@ -143,6 +175,13 @@ import com.palantir.timestamp.TimestampService;
                     .addAll(lockTokens)
                     .build();
             SnapshotTransaction transaction = createTransaction(immutableLockTs, startTimestampSupplier, allTokens);
+            if (pipelineCommits) {
+                transaction.pipelineCommitStages(getCommitStageExecutor());
+            }
+            transaction.enqueueWritesForSweep(sweepQueueWriter);
+            if (lockEscalationThreshold > 0) {
+                transaction.escalateLocksAbove(lockEscalationThreshold);
+            }
             return new RawTransaction(transaction, lock);
         } catch (Throwable e) {
             if (lock != null) {
@@ -171,6 +210,36 @@ import com.palantir.timestamp.TimestampService;
         return result;
     }
 
+    /**
+     * Unlike the synchronous path, a thread is only used while opening the transaction, while the task is
+     * running one of the transaction's remote calls, and while committing and releasing the immutable
+     * timestamp lock.
+     */
+    @Override
+    protected <T> CompletableFuture<T> runTaskThrowOnConflictAsync(AsyncTransactionTask<T> task) {
+        Executor executor = getAsyncExecutor();
+        return CompletableFuture
+                .supplyAsync(() -> setupRunTaskWithLocksThrowOnConflict(ImmutableList.<LockRefreshToken>of()), executor)
+                .thenCompose(tx -> finishRunTaskWithLockThrowOnConflictAsync(tx, task, executor));
+    }
+
+    private <T> CompletableFuture<T> finishRunTaskWithLockThrowOnConflictAsync(
+            RawTransaction tx,
+            AsyncTransactionTask<T> task,
+            Executor executor) {
+        return runTaskThrowOnConflictAsync(task, new ExecutorBackedAsyncTransaction(tx, executor))
+                .whenCompleteAsync((result, error) -> lockService.unlock(tx.getImmutableTsLock()), executor)
+                .thenApplyAsync(result -> {
+                    if ((tx.getTransactionType() == TransactionType.AGGRESSIVE_HARD_DELETE) && !tx.isAborted()) {
+                        cleaner.scrubImmediately(this,
+                                tx.delegate().getCellsToScrubImmediately(),
+                                tx.delegate().getTimestamp(),
+                                tx.delegate().getCommitTimestamp());
+                    }
+                    return result;
+                }, executor);
+    }
+
     protected SnapshotTransaction createTransaction(
             long immutableLockTs,
             Supplier<Long> startTimestampSupplier,
@@ -219,10 +288,33 @@ import com.palantir.timestamp.TimestampService;
     @Override
     public void close() {
         super.close();
+        synchronized (this) {
+            if (commitStageExecutor != null) {
+                commitStageExecutor.shutdown();
+            }
+        }
         cleaner.close();
         keyValueService.close();
     }
 
+    /**
+     * The executor on which pipelined commits run their concurrent stages. It must not be the async executor:
+     * commits running there wait for their stages, so with every async thread committing, no stage could run.
+     * It never queues tasks for the same reason, as commits running on its own threads also wait for stages.
+     */
+    private Executor getCommitStageExecutor() {
+        if (commitStageExecutor == null) {
+            synchronized (this) {
+                if (commitStageExecutor == null) {
+                    checkOpen();
+                    commitStageExecutor = PTExecutors.newCachedThreadPool(
+                            new NamedThreadFactory(getClass().getSimpleName() + "-commit-stages", true));
+                }
+            }
+        }
+        return commitStageExecutor;
+    }
+
     private Supplier<Long> getStartTimestampSupplier() {
         return Suppliers.memoize(new Supplier<Long>() {
             @Override
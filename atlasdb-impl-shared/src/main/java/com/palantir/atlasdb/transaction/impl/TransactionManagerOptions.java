@@ -0,0 +1,69 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import org.immutables.value.Value;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.sweep.queue.SweepQueueWriter;
+
+/**
+ * Optional features of a {@link SnapshotTransactionManager}. Every option defaults to the feature being disabled,
+ * so new options can be added here without another constructor parameter.
+ */
+@Value.Immutable
+public abstract class TransactionManagerOptions {
+    /**
+     * If true, punching runs in the background and the later commit stages overlap with each other instead of
+     * running one after the other on the committing thread.
+     */
+    @Value.Default
+    public boolean pipelineCommits() {
+        return AtlasDbConstants.DEFAULT_ENABLE_PIPELINED_COMMIT;
+    }
+
+    /**
+     * Records the cells written by each committed transaction for targeted sweep.
+     */
+    @Value.Default
+    public SweepQueueWriter sweepQueueWriter() {
+        return SweepQueueWriter.NO_OP;
+    }
+
+    /**
+     * If positive, a transaction writing more than this many rows or cells to a table locks the whole table when
+     * it commits. Zero disables escalation.
+     */
+    @Value.Default
+    public int lockEscalationThreshold() {
+        return AtlasDbConstants.DEFAULT_LOCK_ESCALATION_THRESHOLD;
+    }
+
+    @Value.Check
+    protected void check() {
+        Preconditions.checkState(lockEscalationThreshold() >= 0,
+                "lockEscalationThreshold must not be negative but was %s", lockEscalationThreshold());
+    }
+
+    public static TransactionManagerOptions defaults() {
+        return builder().build();
+    }
+
+    public static ImmutableTransactionManagerOptions.Builder builder() {
+        return ImmutableTransactionManagerOptions.builder();
+    }
+}
@@ -15,7 +15,10 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.google.common.base.Supplier;
+import com.palantir.atlasdb.transaction.api.AsyncTransactionTask;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionTask;
 import com.palantir.atlasdb.transaction.api.Transaction;
@@ -44,6 +47,11 @@ public abstract class WrappingTransactionManager extends ForwardingLockAwareTran
         return delegate().runTaskWithRetry(wrapTask(task));
     }
 
+    @Override
+    public <T> CompletableFuture<T> runTaskWithRetryAsync(AsyncTransactionTask<T> task) {
+        return delegate().runTaskWithRetryAsync(wrapTask(task));
+    }
+
     @Override
     public <T, E extends Exception> T runTaskThrowOnConflict(TransactionTask<T, E> task) throws E,
             TransactionConflictException {
@@ -69,6 +77,11 @@ public abstract class WrappingTransactionManager extends ForwardingLockAwareTran
         return transaction -> task.execute(wrap(transaction));
     }
 
+    private <T> AsyncTransactionTask<T> wrapTask(AsyncTransactionTask<T> task) {
+        return transaction -> task.execute(
+                new ExecutorBackedAsyncTransaction(wrap(transaction.getTransaction()), transaction.executor()));
+    }
+
     private <T, E extends Exception> LockAwareTransactionTask<T, E> wrapTask(LockAwareTransactionTask<T, E> task) {
         return (transaction, locks) -> task.execute(wrap(transaction), locks);
     }
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.util.AtlasDbMetrics;
+
+/**
+ * Group commit for commit timestamps: concurrent calls to {@link #putUnlessExists(long, long)} are coalesced
+ * into a single {@link TransactionService#putUnlessExists(Map)} on the delegate.
+ * <p>
+ * As in smart batching, there is no timer: the first caller writes its own commit timestamp immediately, and
+ * callers arriving while that write is in flight are written together as the next batch. An uncontended commit
+ * therefore pays no extra latency.
+ * <p>
+ * Batched writes are not atomic, so if a batch fails with {@link KeyAlreadyExistsException} each of its
+ * entries is retried on its own to find out which transactions actually conflicted.
+ */
+@ThreadSafe
+public final class BatchingTransactionService implements TransactionService {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final TransactionService delegate;
+    private final int maxBatchSize;
+    private final Queue<PendingCommit> pendingCommits = new ConcurrentLinkedQueue<>();
+    private final Lock flushLock = new ReentrantLock();
+    private final Histogram batchSizes;
+    private final Timer waitTimes;
+
+    private BatchingTransactionService(TransactionService delegate, int maxBatchSize) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        MetricRegistry metricRegistry = AtlasDbMetrics.getMetricRegistry();
+        this.batchSizes = metricRegistry.histogram(MetricRegistry.name(BatchingTransactionService.class, "batchSize"));
+        this.waitTimes = metricRegistry.timer(MetricRegistry.name(BatchingTransactionService.class, "waitTime"));
+    }
+
+    public static BatchingTransactionService create(TransactionService delegate) {
+        return create(delegate, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static BatchingTransactionService create(TransactionService delegate, int maxBatchSize) {
+        return new BatchingTransactionService(delegate, maxBatchSize);
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return delegate.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return delegate.get(startTimestamps);
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        PendingCommit pendingCommit = new PendingCommit(startTimestamp, commitTimestamp);
+        long startNanos = System.nanoTime();
+        pendingCommits.add(pendingCommit);
+        flushLock.lock();
+        try {
+            // If a previous holder of the lock wrote our commit timestamp, we are done
+            while (!pendingCommit.isDone()) {
+                flushPendingCommits();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        waitTimes.update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        pendingCommit.throwIfFailed();
+    }
+
+    @Override
+    public void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+        delegate.putUnlessExists(startTimestampToCommitTimestamp);
+    }
+
+    private void flushPendingCommits() {
+        List<PendingCommit> batch = drainBatch();
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.update(batch.size());
+        if (batch.size() == 1) {
+            writeIndividually(batch.get(0));
+            return;
+        }
+
+        Map<Long, Long> commitTimestamps = Maps.newHashMapWithExpectedSize(batch.size());
+        for (PendingCommit pendingCommit : batch) {
+            commitTimestamps.put(pendingCommit.startTimestamp, pendingCommit.commitTimestamp);
+        }
+        try {
+            delegate.putUnlessExists(commitTimestamps);
+        } catch (KeyAlreadyExistsException e) {
+            for (PendingCommit pendingCommit : batch) {
+                retryIndividually(pendingCommit);
+            }
+            return;
+        } catch (RuntimeException e) {
+            for (PendingCommit pendingCommit : batch) {
+                pendingCommit.fail(e);
+            }
+            return;
+        }
+        for (PendingCommit pendingCommit : batch) {
+            pendingCommit.succeed();
+        }
+    }
+
+    private List<PendingCommit> drainBatch() {
+        List<PendingCommit> batch = Lists.newArrayList();
+        Set<Long> startTimestamps = Sets.newHashSet();
+        PendingCommit next = pendingCommits.peek();
+        // Only the holder of flushLock removes from the queue, so the polled element is the one we peeked
+        while (next != null && batch.size() < maxBatchSize && startTimestamps.add(next.startTimestamp)) {
+            pendingCommits.poll();
+            batch.add(next);
+            next = pendingCommits.peek();
+        }
+        return batch;
+    }
+
+    private void writeIndividually(PendingCommit pendingCommit) {
+        try {
+            delegate.putUnlessExists(pendingCommit.startTimestamp, pendingCommit.commitTimestamp);
+            pendingCommit.succeed();
+        } catch (RuntimeException e) {
+            pendingCommit.fail(e);
+        }
+    }
+
+    /**
+     * Part of the failed batch may have been written, so a conflict here only fails the transaction if the
+     * stored commit timestamp is not its own.
+     */
+    private void retryIndividually(PendingCommit pendingCommit) {
+        try {
+            delegate.putUnlessExists(pendingCommit.startTimestamp, pendingCommit.commitTimestamp);
+            pendingCommit.succeed();
+        } catch (KeyAlreadyExistsException e) {
+            Long storedCommitTimestamp = delegate.get(pendingCommit.startTimestamp);
+            if (storedCommitTimestamp != null && storedCommitTimestamp == pendingCommit.commitTimestamp) {
+                pendingCommit.succeed();
+            } else {
+                pendingCommit.fail(e);
+            }
+        } catch (RuntimeException e) {
+            pendingCommit.fail(e);
+        }
+    }
+
+    @VisibleForTesting
+    int getQueueSize() {
+        return pendingCommits.size();
+    }
+
+    private static final class PendingCommit {
+        private final long startTimestamp;
+        private final long commitTimestamp;
+        private volatile boolean done = false;
+        private volatile RuntimeException failure = null;
+
+        PendingCommit(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        void succeed() {
+            done = true;
+        }
+
+        void fail(RuntimeException exception) {
+            failure = exception;
+            done = true;
+        }
+
+        void throwIfFailed() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -24,6 +24,17 @@ public final class TransactionServices {
 
     public static TransactionService createTransactionService(
             KeyValueService keyValueService) {
-        return new SimpleTransactionService(keyValueService);
+        return createTransactionService(keyValueService, false);
+    }
+
+    /**
+     * @param groupCommit whether to write the commit timestamps of concurrent transactions together. This only
+     *                    helps if the key value service writes a multi-cell putUnlessExists as one batch.
+     */
+    public static TransactionService createTransactionService(
+            KeyValueService keyValueService,
+            boolean groupCommit) {
+        TransactionService transactionService = new SimpleTransactionService(keyValueService);
+        return groupCommit ? BatchingTransactionService.create(transactionService) : transactionService;
     }
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+
+public class CommitTsCacheTest {
+    private static final long COMMITTED_START_TS = 100L;
+    private static final long COMMIT_TS = 200L;
+    private static final long UNCOMMITTED_START_TS = 300L;
+
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final CommitTsCache cache = CommitTsCache.create(transactionService, 1024);
+
+    @Test
+    public void loadBatchFetchesMissingTimestampsInOneCallAndRollsBackUncommittedOnes() {
+        when(transactionService.get(ImmutableSet.of(COMMITTED_START_TS, UNCOMMITTED_START_TS)))
+                .thenReturn(ImmutableMap.of(COMMITTED_START_TS, COMMIT_TS));
+        when(transactionService.get(UNCOMMITTED_START_TS))
+                .thenReturn(null, TransactionConstants.FAILED_COMMIT_TS);
+
+        assertThat(cache.loadBatch(ImmutableSet.of(COMMITTED_START_TS, UNCOMMITTED_START_TS))).isEqualTo(
+                ImmutableMap.of(
+                        COMMITTED_START_TS, COMMIT_TS,
+                        UNCOMMITTED_START_TS, TransactionConstants.FAILED_COMMIT_TS));
+
+        verify(transactionService).get(ImmutableSet.of(COMMITTED_START_TS, UNCOMMITTED_START_TS));
+        verify(transactionService).putUnlessExists(UNCOMMITTED_START_TS, TransactionConstants.FAILED_COMMIT_TS);
+    }
+
+    @Test
+    public void loadBatchDoesNotRefetchCachedTimestamps() {
+        when(transactionService.get(ImmutableSet.of(COMMITTED_START_TS)))
+                .thenReturn(ImmutableMap.of(COMMITTED_START_TS, COMMIT_TS));
+
+        cache.loadBatch(ImmutableSet.of(COMMITTED_START_TS));
+        assertThat(cache.loadBatch(ImmutableSet.of(COMMITTED_START_TS)))
+                .isEqualTo(ImmutableMap.of(COMMITTED_START_TS, COMMIT_TS));
+        assertThat(cache.load(COMMITTED_START_TS)).isEqualTo(COMMIT_TS);
+
+        verify(transactionService, times(1)).get(ImmutableSet.of(COMMITTED_START_TS));
+        verifyNoMoreInteractions(transactionService);
+    }
+
+    @Test
+    public void loadCachesTheResult() {
+        when(transactionService.get(COMMITTED_START_TS)).thenReturn(COMMIT_TS);
+
+        assertThat(cache.load(COMMITTED_START_TS)).isEqualTo(COMMIT_TS);
+        assertThat(cache.load(COMMITTED_START_TS)).isEqualTo(COMMIT_TS);
+
+        verify(transactionService, times(1)).get(COMMITTED_START_TS);
+    }
+
+    @Test
+    public void clearForgetsCachedTimestamps() {
+        when(transactionService.get(COMMITTED_START_TS)).thenReturn(COMMIT_TS);
+
+        cache.load(COMMITTED_START_TS);
+        cache.clear();
+        cache.load(COMMITTED_START_TS);
+
+        verify(transactionService, times(2)).get(COMMITTED_START_TS);
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+
+public class SweepBatchThrottleTest {
+    private static final int ROW_BATCH_SIZE = 1000;
+    private static final int CELL_BATCH_SIZE = 10_000;
+    private static final long PAUSE_MILLIS = 1000;
+    private static final long TARGET_BATCH_MILLIS = 500;
+    private static final long MAX_FOREGROUND_LATENCY_MILLIS = 20;
+
+    private final AtomicReference<Double> foregroundLatency = new AtomicReference<>(1.0);
+    private final SweepBatchThrottle adaptive = new SweepBatchThrottle(
+            Suppliers.ofInstance(ROW_BATCH_SIZE),
+            Suppliers.ofInstance(CELL_BATCH_SIZE),
+            Suppliers.ofInstance(PAUSE_MILLIS),
+            TARGET_BATCH_MILLIS,
+            foregroundLatency::get,
+            MAX_FOREGROUND_LATENCY_MILLIS);
+
+    @Test
+    public void fixedThrottleOnlyShrinksRowBatchAfterFailures() {
+        SweepBatchThrottle fixed = new SweepBatchThrottle(
+                Suppliers.ofInstance(ROW_BATCH_SIZE),
+                Suppliers.ofInstance(CELL_BATCH_SIZE),
+                Suppliers.ofInstance(PAUSE_MILLIS));
+
+        fixed.batchSucceeded(10 * TARGET_BATCH_MILLIS);
+        assertThat(fixed.getRowBatchSize()).isEqualTo(ROW_BATCH_SIZE);
+        assertThat(fixed.getPauseMillis()).isEqualTo(PAUSE_MILLIS);
+
+        fixed.batchFailed();
+        assertThat(fixed.getRowBatchSize()).isEqualTo(ROW_BATCH_SIZE / 2);
+        assertThat(fixed.getCellBatchSize()).isEqualTo(CELL_BATCH_SIZE);
+        assertThat(fixed.getPauseMillis()).isEqualTo(PAUSE_MILLIS);
+    }
+
+    @Test
+    public void slowBatchShrinksBatchesInProportionAndBacksOff() {
+        adaptive.batchSucceeded(TARGET_BATCH_MILLIS * 5 / 4);
+
+        assertThat(adaptive.getRowBatchSize()).isEqualTo(ROW_BATCH_SIZE * 4 / 5);
+        assertThat(adaptive.getCellBatchSize()).isEqualTo(CELL_BATCH_SIZE * 4 / 5);
+        assertThat(adaptive.getPauseMillis()).isEqualTo(2 * PAUSE_MILLIS);
+    }
+
+    @Test
+    public void verySlowBatchShrinksBatchesByAtMostHalf() {
+        adaptive.batchSucceeded(100 * TARGET_BATCH_MILLIS);
+
+        assertThat(adaptive.getRowBatchSize()).isEqualTo(ROW_BATCH_SIZE / 2);
+    }
+
+    @Test
+    public void highForegroundLatencyShrinksBatchesEvenIfSweepIsFast() {
+        foregroundLatency.set(2.0 * MAX_FOREGROUND_LATENCY_MILLIS);
+
+        adaptive.batchSucceeded(1);
+
+        assertThat(adaptive.getRowBatchSize()).isEqualTo(ROW_BATCH_SIZE / 2);
+        assertThat(adaptive.getPauseMillis()).isGreaterThan(PAUSE_MILLIS);
+    }
+
+    @Test
+    public void pauseIsBounded() {
+        for (int i = 0; i < 100; i++) {
+            adaptive.batchSucceeded(10 * TARGET_BATCH_MILLIS);
+        }
+
+        assertThat(adaptive.getRowBatchSize()).isEqualTo(1);
+        assertThat(adaptive.getPauseMillis()).isEqualTo(8 * PAUSE_MILLIS);
+    }
+
+    @Test
+    public void fastBatchesRecoverToConfiguredValues() {
+        adaptive.batchSucceeded(4 * TARGET_BATCH_MILLIS);
+        adaptive.batchFailed();
+        for (int i = 0; i < 100; i++) {
+            adaptive.batchSucceeded(TARGET_BATCH_MILLIS / 10);
+        }
+
+        assertThat(adaptive.getRowBatchSize()).isEqualTo(ROW_BATCH_SIZE);
+        assertThat(adaptive.getCellBatchSize()).isEqualTo(CELL_BATCH_SIZE);
+        assertThat(adaptive.getPauseMillis()).isEqualTo(PAUSE_MILLIS);
+    }
+}
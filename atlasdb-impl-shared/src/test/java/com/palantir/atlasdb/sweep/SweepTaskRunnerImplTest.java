@@ -29,7 +29,6 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.SortedMap;
@@ -43,7 +42,6 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -52,7 +50,6 @@ import com.palantir.atlasdb.keyvalue.api.Namespace;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.sweep.sweepers.ConservativeSweeper;
 import com.palantir.atlasdb.sweep.sweepers.Sweeper;
@@ -89,7 +86,7 @@ public class SweepTaskRunnerImplTest {
             mockKvs,
             mockUnreadableTimestampSupplier,
             mockImmutableTimestampSupplier,
-            mockTransactionService,
+            CommitTsCache.create(mockTransactionService),
             mockSweepStrategyManager,
             mockCellsSweeper);
     private final Sweeper thoroughSweeper = new ThoroughSweeper(mockKvs, mockImmutableTimestampSupplier);
@@ -133,7 +130,6 @@ public class SweepTaskRunnerImplTest {
     public void getTimestampsToSweep_noRowsMeansNoTransactionGets() {
         sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(ImmutableMultimap.of()),
-                Iterators.peekingIterator(Collections.emptyIterator()),
                 VALID_TIMESTAMP,
                 conservativeSweeper);
 
@@ -148,7 +144,6 @@ public class SweepTaskRunnerImplTest {
 
         Multimap<Cell, Long> startTimestampsPerRowToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(Collections.emptyIterator()),
                 sweepTimestampHigherThanCommitTimestamp,
                 conservativeSweeper).timestampsAsMultimap();
 
@@ -162,7 +157,6 @@ public class SweepTaskRunnerImplTest {
 
         Multimap<Cell, Long> startTimestampsPerRowToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(Collections.emptyIterator()),
                 sweepTimestampLowerThanCommitTimestamp,
                 conservativeSweeper).timestampsAsMultimap();
 
@@ -176,7 +170,6 @@ public class SweepTaskRunnerImplTest {
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.emptyImmutableClosableIterator()),
                 sweepTimestampHigherThanCommitTimestamp,
                 conservativeSweeper);
 
@@ -190,7 +183,6 @@ public class SweepTaskRunnerImplTest {
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.emptyImmutableClosableIterator()),
                 sweepTimestampHigherThanCommitTimestamp,
                 thoroughSweeper);
 
@@ -205,7 +197,6 @@ public class SweepTaskRunnerImplTest {
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.emptyImmutableClosableIterator()),
                 HIGH_START_TS,
                 conservativeSweeper);
         Multimap<Cell, Long> timestampsToSweep = cellsToSweep.timestampsAsMultimap();
@@ -215,14 +206,13 @@ public class SweepTaskRunnerImplTest {
 
     @Test
     public void thorough_getTimestampsToSweep_oneTransaction_emptyValue_returnsIt() {
-        Multimap<Cell, Long> timestampsPerRow = ImmutableMultimap.of(SINGLE_CELL, LOW_START_TS);
         when(mockTransactionService.get(anyCollection()))
                 .thenReturn(ImmutableMap.of(LOW_START_TS, LOW_COMMIT_TS));
-        RowResult<Value> rowResult = RowResult.of(SINGLE_CELL, Value.create(null, LOW_START_TS));
+        CellsAndTimestamps cellsAndTimestamps = CellsAndTimestamps.withSingleItem(
+                CellAndTimestamps.of(SINGLE_CELL, ImmutableSet.of(LOW_START_TS), true));
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
-                convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.wrap(ImmutableList.of(rowResult).iterator())),
+                cellsAndTimestamps,
                 HIGH_START_TS,
                 thoroughSweeper);
         Multimap<Cell, Long> timestampsToSweep = cellsToSweep.timestampsAsMultimap();
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+
+public class KeyValueServiceSweepQueueTest {
+    private static final int NUM_SHARDS = 4;
+    private static final TableReference TABLE = TableReference.create(Namespace.create("ns"), "table");
+    private static final TableReference OTHER_TABLE = TableReference.create(Namespace.create("ns"), "other");
+    private static final TableReference UNSWEPT_TABLE = TableReference.create(Namespace.create("ns"), "unswept");
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final KeyValueServiceSweepQueue queue = KeyValueServiceSweepQueue.create(
+            kvs,
+            SweepStrategyManagers.fromMap(ImmutableMap.of(UNSWEPT_TABLE, SweepStrategy.NOTHING)),
+            NUM_SHARDS);
+
+    @Test
+    public void entriesAreReadInStartTimestampOrder() {
+        enqueue(TABLE, 20L, cell("a"), cell("b"), cell("c"));
+        enqueue(TABLE, 10L, cell("a"), cell("d"));
+
+        List<SweepQueueEntry> entries = getAllEntries(0L, Long.MAX_VALUE);
+
+        assertThat(entries).hasSize(5);
+        assertThat(entries).extracting(SweepQueueEntry::startTimestamp).isSorted();
+        assertThat(entries).extracting(SweepQueueEntry::tableRef).containsOnly(TABLE);
+        assertThat(entries).filteredOn(entry -> entry.startTimestamp() == 10L)
+                .extracting(SweepQueueEntry::cell)
+                .containsOnly(cell("a"), cell("d"));
+    }
+
+    @Test
+    public void onlyEntriesInTheGivenRangeOfStartTimestampsAreRead() {
+        enqueue(TABLE, 10L, cell("a"));
+        enqueue(TABLE, 20L, cell("a"));
+        enqueue(TABLE, 30L, cell("a"));
+
+        assertThat(getAllEntries(15L, 30L)).extracting(SweepQueueEntry::startTimestamp).containsExactly(20L);
+    }
+
+    @Test
+    public void tablesThatAreNotSweptAreNotQueued() {
+        enqueue(UNSWEPT_TABLE, 10L, cell("a"));
+        enqueue(AtlasDbConstants.SCRUB_TABLE, 10L, cell("b"));
+
+        assertThat(getAllEntries(0L, Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    public void removedEntriesAreNotReadAgain() {
+        enqueue(TABLE, 10L, cell("a"), cell("b"));
+        List<SweepQueueEntry> entries = getAllEntries(0L, Long.MAX_VALUE);
+
+        queue.remove(entries.subList(0, 1));
+
+        assertThat(getAllEntries(0L, Long.MAX_VALUE)).containsExactlyElementsOf(entries.subList(1, 2));
+    }
+
+    @Test
+    public void batchesAlwaysIncludeEveryEntryOfTheLastStartTimestamp() {
+        KeyValueServiceSweepQueue singleShardQueue = KeyValueServiceSweepQueue.create(
+                new InMemoryKeyValueService(false),
+                SweepStrategyManagers.fromMap(ImmutableMap.of()),
+                1);
+        Map<Cell, byte[]> writes = ImmutableMap.of(cell("a"), VALUE);
+        singleShardQueue.enqueue(ImmutableMap.of(TABLE, writes, OTHER_TABLE, writes), 10L);
+        singleShardQueue.enqueue(ImmutableMap.of(TABLE, writes), 20L);
+
+        assertThat(singleShardQueue.getEntries(0, 0L, Long.MAX_VALUE, 1))
+                .extracting(SweepQueueEntry::tableRef)
+                .containsExactlyInAnyOrder(TABLE, OTHER_TABLE);
+    }
+
+    private void enqueue(TableReference tableRef, long startTimestamp, Cell... cells) {
+        ImmutableMap.Builder<Cell, byte[]> writes = ImmutableMap.builder();
+        for (Cell cell : cells) {
+            writes.put(cell, VALUE);
+        }
+        queue.enqueue(ImmutableMap.of(tableRef, writes.build()), startTimestamp);
+    }
+
+    private List<SweepQueueEntry> getAllEntries(long minStartTimestamp, long maxStartTimestamp) {
+        List<SweepQueueEntry> entries = new ArrayList<>();
+        for (int shard = 0; shard < NUM_SHARDS; shard++) {
+            entries.addAll(queue.getEntries(shard, minStartTimestamp, maxStartTimestamp, Integer.MAX_VALUE));
+        }
+        entries.sort((first, second) -> Long.compare(first.startTimestamp(), second.startTimestamp()));
+        return entries;
+    }
+
+    private static Cell cell(String row) {
+        return Cell.create(PtBytes.toBytes(row), PtBytes.toBytes("col"));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep.queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.Namespace;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.sweep.CommitTsCache;
+import com.palantir.atlasdb.sweep.SweepTaskRunner;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+
+public class TargetedSweeperTest {
+    private static final long SWEEP_TS = 100L;
+    private static final long COMMITTED_START_TS = 10L;
+    private static final long COMMITTED_LATE_START_TS = 30L;
+    private static final long UNCOMMITTED_START_TS = 40L;
+    private static final TableReference TABLE = TableReference.create(Namespace.create("ns"), "table");
+    private static final Cell CELL_1 = Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("col"));
+    private static final Cell CELL_2 = Cell.create(PtBytes.toBytes("row2"), PtBytes.toBytes("col"));
+    private static final Cell CELL_3 = Cell.create(PtBytes.toBytes("row3"), PtBytes.toBytes("col"));
+
+    private final KeyValueServiceSweepQueue queue = KeyValueServiceSweepQueue.create(
+            new InMemoryKeyValueService(false),
+            SweepStrategyManagers.fromMap(ImmutableMap.of()),
+            4);
+    private final SweepTaskRunner sweepRunner = mock(SweepTaskRunner.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final TargetedSweeper sweeper = new TargetedSweeper(
+            mock(LockAwareTransactionManager.class),
+            queue,
+            sweepRunner,
+            CommitTsCache.create(transactionService),
+            Suppliers.ofInstance(true),
+            Suppliers.ofInstance(0L),
+            Suppliers.ofInstance(1000));
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        when(sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE)).thenReturn(SWEEP_TS);
+        when(sweepRunner.runForCells(any(TableReference.class), anySetOf(Cell.class)))
+                .thenReturn(SweepResults.createEmptySweepResult(SWEEP_TS));
+        when(transactionService.get(any(Iterable.class))).thenReturn(ImmutableMap.of(
+                COMMITTED_START_TS, 20L,
+                COMMITTED_LATE_START_TS, SWEEP_TS + 50));
+        when(transactionService.get(UNCOMMITTED_START_TS)).thenReturn(null, TransactionConstants.FAILED_COMMIT_TS);
+    }
+
+    @Test
+    public void sweepsCellsWrittenByTransactionsThatCommittedOrFailedBeforeTheSweepTimestamp() {
+        queue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL_1, PtBytes.EMPTY_BYTE_ARRAY)), COMMITTED_START_TS);
+        queue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL_2, PtBytes.EMPTY_BYTE_ARRAY)), UNCOMMITTED_START_TS);
+
+        assertThat(sweeper.runOnce()).isEqualTo(2);
+
+        // the two cells may have been queued in different shards, and so swept in separate calls
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArgumentCaptor<Set<Cell>> cells = ArgumentCaptor.forClass((Class) Set.class);
+        verify(sweepRunner, atLeastOnce()).runForCells(eq(TABLE), cells.capture());
+        Set<Cell> sweptCells = new HashSet<>();
+        cells.getAllValues().forEach(sweptCells::addAll);
+        assertThat(sweptCells).isEqualTo(ImmutableSet.of(CELL_1, CELL_2));
+        assertThat(sweeper.runOnce()).isEqualTo(0);
+    }
+
+    @Test
+    public void leavesCellsWrittenByTransactionsThatCommittedAfterTheSweepTimestampInTheQueue() {
+        queue.enqueue(ImmutableMap.of(TABLE, ImmutableMap.of(CELL_3, PtBytes.EMPTY_BYTE_ARRAY)),
+                COMMITTED_LATE_START_TS);
+
+        assertThat(sweeper.runOnce()).isEqualTo(0);
+
+        verify(sweepRunner, never()).runForCells(eq(TABLE), anySetOf(Cell.class));
+        for (int shard = 0; shard < queue.getNumShards(); shard++) {
+            if (!queue.getEntries(shard, 0L, SWEEP_TS, 10).isEmpty()) {
+                return;
+            }
+        }
+        throw new AssertionError("the entry should still be queued");
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+
+public class BatchingTransactionServiceTest {
+    private final InMemoryTransactionService delegate = new InMemoryTransactionService();
+    private final BatchingTransactionService batchingService = BatchingTransactionService.create(delegate);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void uncontendedPutIsWrittenOnItsOwn() {
+        batchingService.putUnlessExists(1L, 2L);
+
+        assertThat(batchingService.get(1L)).isEqualTo(2L);
+        assertThat(delegate.batches).containsExactly(ImmutableMap.of(1L, 2L));
+    }
+
+    @Test
+    public void putsArrivingDuringAWriteAreCoalesced() throws Exception {
+        delegate.blockNextWrite();
+        Future<?> first = executor.submit(() -> batchingService.putUnlessExists(1L, 2L));
+        delegate.awaitBlockedWrite();
+
+        List<Future<?>> others = Lists.newArrayList();
+        for (long i = 10; i < 15; i++) {
+            long startTs = i;
+            others.add(executor.submit(() -> batchingService.putUnlessExists(startTs, startTs + 1)));
+        }
+        waitForQueuedPuts(5);
+        delegate.unblockWrite();
+
+        first.get(10, TimeUnit.SECONDS);
+        for (Future<?> other : others) {
+            other.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(delegate.batches).hasSize(2);
+        assertThat(delegate.batches.get(1)).containsOnlyKeys(10L, 11L, 12L, 13L, 14L);
+    }
+
+    @Test
+    public void onlyConflictingTransactionsFailWhenABatchConflicts() throws Exception {
+        delegate.putUnlessExists(11L, 99L);
+        delegate.batches.clear();
+
+        delegate.blockNextWrite();
+        Future<?> first = executor.submit(() -> batchingService.putUnlessExists(1L, 2L));
+        delegate.awaitBlockedWrite();
+        Future<?> nonConflicting = executor.submit(() -> batchingService.putUnlessExists(10L, 12L));
+        Future<?> conflicting = executor.submit(() -> batchingService.putUnlessExists(11L, 13L));
+        waitForQueuedPuts(2);
+        delegate.unblockWrite();
+
+        first.get(10, TimeUnit.SECONDS);
+        nonConflicting.get(10, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> conflicting.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(KeyAlreadyExistsException.class);
+        assertThat(delegate.get(10L)).isEqualTo(12L);
+        assertThat(delegate.get(11L)).isEqualTo(99L);
+    }
+
+    private void waitForQueuedPuts(int expected) throws InterruptedException {
+        // The puts cannot complete while the first write is blocked, so give them time to enqueue
+        while (batchingService.getQueueSize() < expected) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static class InMemoryTransactionService implements TransactionService {
+        private final Map<Long, Long> commitTimestamps = new ConcurrentHashMap<>();
+        private final List<Map<Long, Long>> batches = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blockedWrite = null;
+        private volatile CountDownLatch unblock = null;
+
+        void blockNextWrite() {
+            blockedWrite = new CountDownLatch(1);
+            unblock = new CountDownLatch(1);
+        }
+
+        void awaitBlockedWrite() throws InterruptedException {
+            blockedWrite.await();
+        }
+
+        void unblockWrite() {
+            unblock.countDown();
+        }
+
+        @Override
+        public Long get(long startTimestamp) {
+            return commitTimestamps.get(startTimestamp);
+        }
+
+        @Override
+        public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+            putUnlessExists(ImmutableMap.of(startTimestamp, commitTimestamp));
+        }
+
+        @Override
+        public synchronized void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) {
+            CountDownLatch latch = blockedWrite;
+            if (latch != null) {
+                blockedWrite = null;
+                latch.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            batches.add(startTimestampToCommitTimestamp);
+            boolean conflict = false;
+            for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+                conflict |= commitTimestamps.putIfAbsent(entry.getKey(), entry.getValue()) != null;
+            }
+            if (conflict) {
+                throw new KeyAlreadyExistsException("Commit timestamp already set");
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Performance benchmarks for the lock service's lock, unlock and refresh operations, which need no key value
+ * service. Run with {@code --threads} to measure how throughput scales with concurrent clients.
+ */
+@State(Scope.Benchmark)
+public class LockServiceBenchmarks {
+
+    private static final LockDescriptor SHARED_DESCRIPTOR = StringLockDescriptor.of("shared");
+
+    private LockServiceImpl lockService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lockService = LockServiceImpl.create();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        lockService.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private final LockClient client = LockClient.of(UUID.randomUUID().toString());
+        private long counter = 0;
+
+        LockRequest nextWriteRequest() {
+            counter++;
+            LockDescriptor descriptor = StringLockDescriptor.of(client.getClientId() + counter);
+            return LockRequest.builder(ImmutableSortedMap.of(descriptor, LockMode.WRITE))
+                    .withLockedInVersionId(counter)
+                    .doNotBlock()
+                    .build();
+        }
+
+        LockRequest nextSharedReadRequest() {
+            counter++;
+            return LockRequest.builder(ImmutableSortedMap.of(SHARED_DESCRIPTOR, LockMode.READ))
+                    .withLockedInVersionId(counter)
+                    .doNotBlock()
+                    .build();
+        }
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public boolean lockAndUnlock(Client client) throws InterruptedException {
+        LockRefreshToken token = lockService.lock(client.client.getClientId(), client.nextWriteRequest());
+        return lockService.unlock(token);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public boolean lockRefreshAndUnlock(Client client) throws InterruptedException {
+        LockRefreshToken token = lockService.lock(client.client.getClientId(), client.nextWriteRequest());
+        lockService.refreshLockRefreshTokens(ImmutableSet.of(token));
+        return lockService.unlock(token);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public boolean lockAndUnlockSharedReadLock(Client client) throws InterruptedException {
+        LockRefreshToken token = lockService.lock(client.client.getClientId(), client.nextSharedReadRequest());
+        return lockService.unlock(token);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Long lockAndGetMinLockedInVersionId(Client client) throws InterruptedException {
+        LockRefreshToken token = lockService.lock(client.client.getClientId(), client.nextWriteRequest());
+        Long minVersionId = lockService.getMinLockedInVersionId(client.client.getClientId());
+        lockService.unlock(token);
+        return minVersionId;
+    }
+}
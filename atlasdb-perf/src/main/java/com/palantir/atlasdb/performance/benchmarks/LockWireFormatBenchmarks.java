@@ -0,0 +1,108 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.lock.AtlasCellLockDescriptor;
+import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.AtlasTimestampLockDescriptor;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockWireFormat;
+
+/**
+ * Compares the cost of encoding and decoding lock requests as JSON, as the HTTP lock service clients do by default,
+ * with the compact {@link LockWireFormat}. The payload sizes of both encodings are logged when each trial starts.
+ */
+@State(Scope.Benchmark)
+public class LockWireFormatBenchmarks {
+    private static final Logger log = LoggerFactory.getLogger(LockWireFormatBenchmarks.class);
+
+    private static final int NUM_TABLES = 4;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Param({"10", "1000", "100000"})
+    private int numLocks;
+
+    private LockRequest request;
+    private byte[] json;
+    private byte[] wireFormat;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ImmutableSortedMap.Builder<LockDescriptor, LockMode> locks = ImmutableSortedMap.naturalOrder();
+        locks.put(AtlasTimestampLockDescriptor.of(System.currentTimeMillis()), LockMode.READ);
+        for (int i = 1; i < numLocks; i++) {
+            String table = "benchmarks.table" + (i % NUM_TABLES);
+            byte[] row = PtBytes.toBytes("row" + i);
+            locks.put(i % 2 == 0
+                    ? AtlasRowLockDescriptor.of(table, row)
+                    : AtlasCellLockDescriptor.of(table, row, PtBytes.toBytes("column")),
+                    LockMode.WRITE);
+        }
+        request = LockRequest.builder(locks.build()).withLockedInVersionId(System.currentTimeMillis()).build();
+        json = mapper.writeValueAsBytes(request);
+        wireFormat = LockWireFormat.encode(request);
+        log.info("A lock request for {} locks takes {} bytes as JSON and {} bytes in the lock wire format",
+                numLocks, json.length, wireFormat.length);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public byte[] encodeJson() throws IOException {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public LockRequest decodeJson() throws IOException {
+        return mapper.readValue(json, LockRequest.class);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public byte[] encodeWireFormat() {
+        return LockWireFormat.encode(request);
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public LockRequest decodeWireFormat() {
+        return LockWireFormat.decodeLockRequest(wireFormat);
+    }
+}
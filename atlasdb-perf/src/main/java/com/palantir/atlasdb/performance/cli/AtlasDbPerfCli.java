@@ -75,6 +75,10 @@ public class AtlasDbPerfCli {
     @Option(name = {"-l", "--list-tests"}, description = "Lists all available benchmarks.")
     private boolean listTests;
 
+    @Option(name = {"-t", "--threads"}, description = "The number of threads to run each benchmark with."
+            + " Defaults to 1.")
+    private int threads = 1;
+
     @Option(name = {"-o", "--output"},
             description = "The file in which to store the test results. "
                     + "Leave blank to only write results to the console.")
@@ -119,7 +123,7 @@ public class AtlasDbPerfCli {
     private static void runJmh(AtlasDbPerfCli cli, List<DockerizedDatabaseUri> uris) throws Exception {
         ChainedOptionsBuilder optBuilder = new OptionsBuilder()
                 .forks(1)
-                .threads(1)
+                .threads(cli.threads)
                 .warmupIterations(1)
                 .measurementIterations(1)
                 .mode(Mode.SampleTime)
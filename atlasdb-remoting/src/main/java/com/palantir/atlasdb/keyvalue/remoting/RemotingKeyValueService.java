@@ -38,6 +38,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
@@ -131,6 +132,16 @@ public final class RemotingKeyValueService extends ForwardingKeyValueService {
                 return withKvs(super.getRangeOfTimestamps(tableRef, rangeRequest, timestamp), ClosableIterator.class);
             }
 
+            @Override
+            public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+                    TableReference tableRef,
+                    RangeRequest rangeRequest,
+                    long timestamp) {
+                // Built from the two remotable range calls, so that no new iterator type has to be shipped.
+                return KeyValueServices.getRangeOfTimestampsForSweepingUsingTwoScans(
+                        this, tableRef, rangeRequest, timestamp);
+            }
+
             @Override
             public Map<byte[], RowColumnRangeIterator> getRowsColumnRange(
                     TableReference tableRef,
@@ -42,6 +42,14 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.common.base.ClosableIterator;
 
 public final class RocksDbKeyValueServiceTest {
@@ -274,6 +282,54 @@ public final class RocksDbKeyValueServiceTest {
     }
 
 
+    @Test
+    public void testPutUnlessExistsReportsOnlyExistingCells() {
+        db.createTable(TRANSACTION_TABLE, AtlasDbConstants.EMPTY_TABLE_METADATA);
+        final Cell cell = Cell.create("r1".getBytes(), COMMIT_TS_COLUMN);
+        final Cell cell2 = Cell.create("r2".getBytes(), COMMIT_TS_COLUMN);
+        db.putUnlessExists(TRANSACTION_TABLE, ImmutableMap.of(cell, "v1".getBytes()));
+        try {
+            db.putUnlessExists(TRANSACTION_TABLE, ImmutableMap.of(cell, "v2".getBytes(), cell2, "v2".getBytes()));
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            assertEquals(ImmutableList.of(cell), ImmutableList.copyOf(e.getExistingKeys()));
+        }
+        final Map<Cell, Value> res = db.get(TRANSACTION_TABLE, ImmutableMap.of(cell, 1L, cell2, 1L));
+        assertEquals("v1", new String(res.get(cell).getContents()));
+        assertEquals("v2", new String(res.get(cell2).getContents()));
+    }
+
+
+    @Test
+    public void testReopenWithTunedTables() {
+        final TableReference pointLookupTable = TableReference.createWithEmptyNamespace("points");
+        final TableReference rangeScanTable = TableReference.createWithEmptyNamespace("ranges");
+        db.createTables(ImmutableMap.of(
+                pointLookupTable, tableMetadata(false, true, true),
+                rangeScanTable, tableMetadata(true, false, false)));
+        final Cell cell = Cell.create("r1".getBytes(), "c1".getBytes());
+        final Cell cell2 = Cell.create("r2".getBytes(), "c1".getBytes());
+        for (TableReference table : ImmutableList.of(pointLookupTable, rangeScanTable)) {
+            db.put(table, ImmutableMap.of(cell2, "v2".getBytes(), cell, "v1".getBytes()), 2);
+        }
+        db.close();
+
+        db = RocksDbKeyValueService.create("testdb");
+        for (TableReference table : ImmutableList.of(pointLookupTable, rangeScanTable)) {
+            final Map<Cell, Value> res = db.get(table, ImmutableMap.of(cell2, 3L, cell, 3L));
+            assertEquals(2, res.size());
+            assertEquals("v1", new String(res.get(cell).getContents()));
+            assertEquals("v2", new String(res.get(cell2).getContents()));
+            final ClosableIterator<RowResult<Value>> it = db.getRange(table, RangeRequest.all(), 3);
+            try {
+                assertEquals(2, Iterators.size(it));
+            } finally {
+                it.close();
+            }
+        }
+    }
+
+
     @Test
     public void testMetadata() {
         db.putMetadataForTable(TABLE, "yoyo".getBytes());
@@ -299,6 +355,23 @@ public final class RocksDbKeyValueServiceTest {
         }
     }
 
+    private static byte[] tableMetadata(boolean rangeScanAllowed,
+                                        boolean negativeLookups,
+                                        boolean appendHeavyAndReadLight) {
+        return new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.WARM,
+                PartitionStrategy.ORDERED,
+                rangeScanAllowed,
+                0,
+                negativeLookups,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                appendHeavyAndReadLight).persistToBytes();
+    }
+
     private static <K, V> Map<K, V> putAll(Map<K, V> map, Iterable<? extends Map.Entry<? extends K, ? extends V>> it) {
         for (Map.Entry<? extends K, ? extends V> e : it) {
             map.put(e.getKey(), e.getValue());
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.util.Pair;
+
+public final class RocksKeyEncodingTest {
+    private static final Comparator<byte[]> BYTES = UnsignedBytes.lexicographicalComparator();
+
+    // the order of the V2 comparator: row, then column, then descending timestamp
+    private static final Comparator<Pair<Cell, Long>> CELL_ORDER = new Comparator<Pair<Cell, Long>>() {
+        @Override
+        public int compare(Pair<Cell, Long> a, Pair<Cell, Long> b) {
+            int comp = BYTES.compare(a.lhSide.getRowName(), b.lhSide.getRowName());
+            if (comp != 0) {
+                return comp;
+            }
+            comp = BYTES.compare(a.lhSide.getColumnName(), b.lhSide.getColumnName());
+            if (comp != 0) {
+                return comp;
+            }
+            return Longs.compare(b.rhSide, a.rhSide);
+        }
+    };
+
+    private final Random random = new Random(1);
+
+    @Test
+    public void bytewiseKeysRoundTrip() {
+        for (Pair<Cell, Long> cellAndTs : randomCellsAndTimestamps(1000)) {
+            byte[] key = RocksKeyEncoding.BYTEWISE.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+            Pair<Cell, Long> parsed = RocksKeyEncoding.BYTEWISE.parseCellAndTs(key);
+            assertEquals(cellAndTs.lhSide, parsed.lhSide);
+            assertEquals(cellAndTs.rhSide, parsed.rhSide);
+        }
+    }
+
+    @Test
+    public void bytewiseKeysSortLikeTheAtlasComparator() {
+        List<Pair<Cell, Long>> cellsAndTs = randomCellsAndTimestamps(2000);
+        List<Pair<Cell, Long>> expected = Ordering.from(CELL_ORDER).sortedCopy(cellsAndTs);
+
+        List<byte[]> keys = Lists.newArrayList();
+        for (Pair<Cell, Long> cellAndTs : cellsAndTs) {
+            keys.add(RocksKeyEncoding.BYTEWISE.getKey(cellAndTs.lhSide, cellAndTs.rhSide));
+        }
+        List<byte[]> sortedKeys = Ordering.from(BYTES).sortedCopy(keys);
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(0, CELL_ORDER.compare(expected.get(i),
+                    RocksKeyEncoding.BYTEWISE.parseCellAndTs(sortedKeys.get(i))));
+        }
+    }
+
+    @Test
+    public void bytewiseRowSeekKeySortsBeforeEveryKeyInTheRow() {
+        byte[] row = {1, 0, 2};
+        byte[] seekKey = RocksKeyEncoding.BYTEWISE.getRowSeekKey(row, 10L);
+
+        assertTrue(BYTES.compare(seekKey, RocksKeyEncoding.BYTEWISE.getKey(row, new byte[0], Long.MAX_VALUE)) < 0);
+        assertTrue(BYTES.compare(seekKey, RocksKeyEncoding.BYTEWISE.getKey(row, new byte[] {0}, 0L)) < 0);
+        assertTrue(BYTES.compare(seekKey, RocksKeyEncoding.BYTEWISE.getKey(new byte[] {1, 0}, new byte[] {3}, 0L)) > 0);
+        assertTrue(BYTES.compare(seekKey, RocksKeyEncoding.BYTEWISE.getKey(new byte[] {1, 0, 2, 0}, new byte[0], 0L))
+                < 0);
+    }
+
+    @Test
+    public void legacyKeysRoundTrip() {
+        for (Pair<Cell, Long> cellAndTs : randomCellsAndTimestamps(1000)) {
+            byte[] key = RocksKeyEncoding.LEGACY.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+            Pair<Cell, Long> parsed = RocksKeyEncoding.LEGACY.parseCellAndTs(key);
+            assertArrayEquals(cellAndTs.lhSide.getRowName(), parsed.lhSide.getRowName());
+            assertArrayEquals(cellAndTs.lhSide.getColumnName(), parsed.lhSide.getColumnName());
+            assertEquals(cellAndTs.rhSide, parsed.rhSide);
+        }
+    }
+
+    private List<Pair<Cell, Long>> randomCellsAndTimestamps(int count) {
+        List<Pair<Cell, Long>> cellsAndTs = Lists.newArrayListWithCapacity(count);
+        long[] timestamps = {Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE};
+        for (int i = 0; i < count; i++) {
+            long ts = random.nextBoolean() ? timestamps[random.nextInt(timestamps.length)] : random.nextLong();
+            cellsAndTs.add(Pair.create(Cell.create(randomName(), randomName()), ts));
+        }
+        return cellsAndTs;
+    }
+
+    // short names over a small alphabet, so that prefixes, zero bytes and 0xFF bytes are common
+    private byte[] randomName() {
+        byte[] alphabet = {0, 1, (byte) 0x7F, (byte) 0xFF};
+        byte[] name = new byte[1 + random.nextInt(4)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return name;
+    }
+}
@@ -64,15 +64,8 @@ public class ColumnFamilyMap {
         for (int i = 0; i < cfDescriptors.size(); i++) {
             String fullTableName = new String(cfDescriptors.get(i).columnFamilyName(), Charsets.UTF_8);
             int nameIndex = fullTableName.lastIndexOf("__");
-            String tableName;
-            long index;
-            if (nameIndex == -1) {
-                tableName = fullTableName;
-                index = 0;
-            } else {
-                tableName = fullTableName.substring(0, nameIndex);
-                index = Long.parseLong(fullTableName.substring(nameIndex + 2));
-            }
+            String tableName = getTableName(fullTableName);
+            long index = (nameIndex == -1) ? 0 : Long.parseLong(fullTableName.substring(nameIndex + 2));
             ColumnFamily cf = new ColumnFamily(index, cfHandles.get(i));
             ColumnFamily oldCf = cfs.put(tableName, cf);
             if (oldCf != null && !tableName.equals("default")) {
@@ -82,6 +75,15 @@ public class ColumnFamilyMap {
         }
     }
 
+    /**
+     * Returns the name of the table stored in the given column family, which may have been suffixed with the
+     * column family's index by {@link #truncate}.
+     */
+    static String getTableName(String columnFamilyName) {
+        int nameIndex = columnFamilyName.lastIndexOf("__");
+        return (nameIndex == -1) ? columnFamilyName : columnFamilyName.substring(0, nameIndex);
+    }
+
     public Set<String> getTableNames() {
         return cfs.keySet();
     }
@@ -37,7 +37,7 @@ public class RocksComparator extends Comparator {
         return RocksComparatorName.V2.getComparatorName();
     }
 
-    // This method is a hotspot, logic from RocksDbKeyValueServices.parseCellAndTs
+    // This method is a hotspot, logic from RocksKeyEncoding.LEGACY.parseCellAndTs
     // is duplicated and tuned for perf.
     @Override
     public int compare(Slice a, Slice b) {
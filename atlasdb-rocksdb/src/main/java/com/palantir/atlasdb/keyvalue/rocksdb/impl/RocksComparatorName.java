@@ -20,7 +20,12 @@ import com.fasterxml.jackson.annotation.JsonValue;
 
 public enum RocksComparatorName {
     V1("atlasdb"),
-    V2("atlasdb-v2");
+    V2("atlasdb-v2"),
+    /**
+     * RocksDB's native bytewise comparator, which avoids a JNI call for every key comparison. Keys are stored in
+     * an order-preserving encoding, so existing databases must be copied with {@link RocksDbUpgrader}.
+     */
+    V3("atlasdb-v3");
 
     private final String comparatorName;
 
@@ -23,11 +23,14 @@ import java.lang.reflect.Method;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 import javax.management.MBeanServer;
@@ -48,6 +51,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -56,6 +60,7 @@ import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -72,6 +77,7 @@ import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
@@ -89,6 +95,9 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
     final RocksDB db;
     final ColumnFamilyMap columnFamilies;
+    final RocksKeyEncoding keyEncoding;
+    /** The latest metadata of each table, used to pick the options of the table's column families. */
+    private final ConcurrentMap<String, byte[]> tableMetadata;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
     private final WriteOpts writeOptions;
@@ -107,24 +116,38 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 Map<String, String> dbOptions,
                                                 Map<String, String> cfOptions,
                                                 WriteOpts writeOpts,
-                                                String comparator) {
+                                                final String comparator) {
         DBOptions dbOpts = new DBOptions().setCreateIfMissing(true);
         setReflectionOpts(dbOpts, dbOptions);
         ColumnFamilyOptions cfMetadataOpts = new ColumnFamilyOptions();
         setReflectionOpts(cfMetadataOpts, cfOptions);
-        ColumnFamilyOptions cfCommonOpts;
+        // fail fast on unknown comparators
+        getComparatorOpts(comparator);
+        Function<byte[], ColumnFamilyOptions> cfTableOpts = new Function<byte[], ColumnFamilyOptions>() {
+            @Override
+            public ColumnFamilyOptions apply(@Nullable byte[] tableMetadata) {
+                ColumnFamilyOptions opts = RocksTableOptions.applyTableMetadata(
+                        getComparatorOpts(comparator), tableMetadata);
+                setReflectionOpts(opts, cfOptions);
+                return opts;
+            }
+        };
+        return create(dataDir, dbOpts, cfMetadataOpts, cfTableOpts, writeOpts,
+                RocksKeyEncoding.forComparator(comparator));
+    }
+
+    private static ColumnFamilyOptions getComparatorOpts(String comparator) {
         switch (comparator) {
         case "atlasdb-v2":
-            cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE);
-            break;
+            return new ColumnFamilyOptions().setComparator(RocksComparator.INSTANCE);
         case "atlasdb":
-            cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksOldComparator.INSTANCE);
-            break;
+            return new ColumnFamilyOptions().setComparator(RocksOldComparator.INSTANCE);
+        case "atlasdb-v3":
+            // keys are encoded to sort correctly under the default bytewise comparator
+            return new ColumnFamilyOptions();
         default:
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
-        setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
     }
 
     private static void setReflectionOpts(Object opts,
@@ -162,8 +185,19 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir, dbOptions, cfMetadataOptions, Functions.<ColumnFamilyOptions>constant(cfCommonOptions),
+                writeOptions, RocksKeyEncoding.LEGACY);
+    }
+
+    private static RocksDbKeyValueService create(String dataDir,
+                                                 DBOptions dbOptions,
+                                                 ColumnFamilyOptions cfMetadataOptions,
+                                                 Function<byte[], ColumnFamilyOptions> cfTableOptions,
+                                                 WriteOpts writeOptions,
+                                                 RocksKeyEncoding keyEncoding) {
         try {
-            RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
+            RocksDbKeyValueService kvs = lockAndCreateDb(
+                    new File(dataDir), dbOptions, cfMetadataOptions, cfTableOptions, writeOptions, keyEncoding);
             registerMBean(kvs);
             return kvs;
         } catch (Exception e) {
@@ -186,8 +220,10 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static RocksDbKeyValueService lockAndCreateDb(File dbDir,
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
-                                                          final ColumnFamilyOptions cfCommonOptions,
-                                                          final WriteOpts writeOpts) throws IOException, RocksDBException {
+                                                          final Function<byte[], ColumnFamilyOptions> cfTableOptions,
+                                                          final WriteOpts writeOpts,
+                                                          final RocksKeyEncoding keyEncoding)
+            throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
         final RandomAccessFile randomAccessFile =
@@ -214,23 +250,26 @@ public class RocksDbKeyValueService implements KeyValueService {
             }
             List<byte[]> initialCfs = MoreObjects.firstNonNull(
                     RocksDB.listColumnFamilies(new Options(dbOptions, cfMetadataOptions), dbDir.getAbsolutePath()), ImmutableList.<byte[]>of());
+            final ConcurrentMap<String, byte[]> tableMetadata =
+                    readTableMetadata(dbDir, dbOptions, cfMetadataOptions, initialCfs);
             List<ColumnFamilyDescriptor> cfDescriptors = Lists.newArrayListWithCapacity(initialCfs.size());
             List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(1 + initialCfs.size());
             cfDescriptors.add(new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY));
             for (byte[] cf : initialCfs) {
                 String tableName = new String(cf, Charsets.UTF_8);
-                cfDescriptors.add(getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions));
+                cfDescriptors.add(getCfDescriptor(tableName, cfMetadataOptions, cfTableOptions, tableMetadata));
             }
             RocksDB db = RocksDB.open(dbOptions, dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
             Preconditions.checkState(cfDescriptors.size() == cfHandles.size());
             ColumnFamilyMap columnFamilies = new ColumnFamilyMap(new Function<String, ColumnFamilyDescriptor>() {
                 @Override
                 public ColumnFamilyDescriptor apply(String tableName) {
-                    return getCfDescriptor(tableName, cfMetadataOptions, cfCommonOptions);
+                    return getCfDescriptor(tableName, cfMetadataOptions, cfTableOptions, tableMetadata);
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(
+                    db, columnFamilies, tableMetadata, lock, randomAccessFile, writeOpts, keyEncoding);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -243,26 +282,73 @@ public class RocksDbKeyValueService implements KeyValueService {
         }
     }
 
+    /**
+     * Reads the metadata of every table before the database is opened, so that each table's column family can be
+     * opened with options tuned for it. The metadata column family is read from a read-only instance, which may
+     * open a subset of the column families.
+     */
+    private static ConcurrentMap<String, byte[]> readTableMetadata(File dbDir,
+                                                                   DBOptions dbOptions,
+                                                                   ColumnFamilyOptions cfMetadataOptions,
+                                                                   List<byte[]> initialCfs) throws RocksDBException {
+        ConcurrentMap<String, byte[]> tableMetadata = Maps.newConcurrentMap();
+        byte[] metadataCf = METADATA_TABLE_NAME.getQualifiedName().getBytes(Charsets.UTF_8);
+        boolean hasMetadataCf = false;
+        for (byte[] cf : initialCfs) {
+            hasMetadataCf |= Arrays.equals(cf, metadataCf);
+        }
+        if (!hasMetadataCf) {
+            return tableMetadata;
+        }
+        List<ColumnFamilyDescriptor> cfDescriptors = ImmutableList.of(
+                new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY),
+                new ColumnFamilyDescriptor(metadataCf, cfMetadataOptions));
+        List<ColumnFamilyHandle> cfHandles = Lists.newArrayListWithCapacity(cfDescriptors.size());
+        RocksDB db = RocksDB.openReadOnly(dbOptions, dbDir.getAbsolutePath(), cfDescriptors, cfHandles);
+        try {
+            RocksIterator iter = db.newIterator(cfHandles.get(1));
+            try {
+                for (iter.seekToFirst(); iter.isValid(); iter.next()) {
+                    tableMetadata.put(new String(iter.key(), Charsets.UTF_8), iter.value());
+                }
+            } finally {
+                iter.dispose();
+            }
+        } finally {
+            for (ColumnFamilyHandle handle : cfHandles) {
+                handle.dispose();
+            }
+            db.close();
+        }
+        return tableMetadata;
+    }
+
     private static ColumnFamilyDescriptor getCfDescriptor(String tableName,
                                                           ColumnFamilyOptions cfMetadataOptions,
-                                                          ColumnFamilyOptions cfCommonOptions) {
+                                                          Function<byte[], ColumnFamilyOptions> cfTableOptions,
+                                                          Map<String, byte[]> tableMetadata) {
         if (tableName.equals(METADATA_TABLE_NAME.getQualifiedName())) {
             return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfMetadataOptions);
         } else {
-            return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfCommonOptions);
+            byte[] metadata = tableMetadata.get(ColumnFamilyMap.getTableName(tableName));
+            return new ColumnFamilyDescriptor(tableName.getBytes(Charsets.UTF_8), cfTableOptions.apply(metadata));
         }
     }
 
     private RocksDbKeyValueService(RocksDB db,
                                    ColumnFamilyMap columnFamilies,
+                                   ConcurrentMap<String, byte[]> tableMetadata,
                                    FileLock lock,
                                    RandomAccessFile file,
-                                   WriteOpts writeOptions) {
+                                   WriteOpts writeOptions,
+                                   RocksKeyEncoding keyEncoding) {
         this.db = db;
         this.columnFamilies = columnFamilies;
+        this.tableMetadata = tableMetadata;
         this.lock = lock;
         this.lockFile = file;
         this.writeOptions = writeOptions;
+        this.keyEncoding = keyEncoding;
     }
 
     @Override
@@ -295,7 +381,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             Map<Cell, Value> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (byte[] row : rows) {
-                RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
+                RocksDbKeyValueServices.getRow(keyEncoding, iter, row, columnSelection, timestamp, results);
             }
             return results;
         }
@@ -308,8 +394,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
             Map<Cell, Value> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
+            // visit cells in key order so that consecutive seeks move forward through the same blocks
+            for (Entry<Cell, Long> entry : ImmutableSortedMap.copyOf(timestampByCell).entrySet()) {
+                Value value = RocksDbKeyValueServices.getCell(keyEncoding, iter, entry.getKey(), entry.getValue());
                 if (value != null) {
                     results.put(entry.getKey(), value);
                 }
@@ -326,7 +413,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             Map<Cell, Long> results = Maps.newHashMap();
             RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
+                Long ts = RocksDbKeyValueServices.getTimestamp(keyEncoding, iter, entry.getKey(), entry.getValue());
                 if (ts != null) {
                     results.put(entry.getKey(), ts);
                 }
@@ -342,7 +429,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
+                byte[] key = keyEncoding.getKey(entry.getKey(), timestamp);
                 batch.put(table.getHandle(), key, entry.getValue());
             }
             getDb().write(options, batch);
@@ -364,7 +451,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
                     ColumnFamilyHandle table = cfs.get(entry.getKey().getQualifiedName()).getHandle();
                     for (Entry<Cell, byte[]> subEntry : entry.getValue().entrySet()) {
-                        byte[] key = RocksDbKeyValueServices.getKey(subEntry.getKey(), timestamp);
+                        byte[] key = keyEncoding.getKey(subEntry.getKey(), timestamp);
                         batch.put(table, key, subEntry.getValue());
                     }
                 }
@@ -387,7 +474,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Value> entry : cellValues.entries()) {
                 Value value = entry.getValue();
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), value.getTimestamp());
+                byte[] key = keyEncoding.getKey(entry.getKey(), value.getTimestamp());
                 batch.put(table.getHandle(), key, value.getContents());
             }
             getDb().write(options, batch);
@@ -405,10 +492,18 @@ public class RocksDbKeyValueService implements KeyValueService {
             Set<Cell> alreadyExists = Sets.newHashSetWithExpectedSize(0);
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncCommit()));
             WriteBatch batch = d.register(new WriteBatch());
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
+            // these are exact key lookups, so a single multiGet can use the bloom filters instead of seeking
+            List<ColumnFamilyHandle> handles = Collections.nCopies(values.size(), table.getHandle());
+            List<byte[]> keys = Lists.newArrayListWithCapacity(values.size());
+            for (Cell cell : values.keySet()) {
+                keys.add(keyEncoding.getKey(cell, PUT_UNLESS_EXISTS_TS));
+            }
+            // multiGet keys its results by the given arrays, which compare by identity
+            Map<byte[], byte[]> existing = getDb().multiGet(handles, keys);
+            int i = 0;
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
-                if (RocksDbKeyValueServices.keyExists(iter, key)) {
+                byte[] key = keys.get(i++);
+                if (existing.containsKey(key)) {
                     alreadyExists.add(entry.getKey());
                 } else {
                     batch.put(table.getHandle(), key, entry.getValue());
@@ -437,7 +532,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Long> entry : keys.entries()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), entry.getValue());
+                byte[] key = keyEncoding.getKey(entry.getKey(), entry.getValue());
                 batch.remove(table.getHandle(), key);
             }
             getDb().write(options, batch);
@@ -468,7 +563,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new ValueRangeIterator(table, iter, rangeRequest, timestamp);
+        return new ValueRangeIterator(table, keyEncoding, iter, rangeRequest, timestamp);
     }
 
     @Override
@@ -477,7 +572,22 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
+        return new TimestampRangeIterator(table, keyEncoding, iter, rangeRequest, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<SweepCellTimestamps>> getRangeOfTimestampsForSweeping(
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
+        RocksIterator iter = getDb().newIterator(table.getHandle());
+        return new SweepTimestampRangeIterator(table, keyEncoding, iter, rangeRequest, timestamp);
+    }
+
+    @Override
+    public List<RangeRequest> getRangeSplits(TableReference tableRef, RangeRequest rangeRequest, int desiredSplits) {
+        return ImmutableList.of(rangeRequest);
     }
 
     @Override
@@ -514,7 +624,9 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata)
             throws InsufficientConsistencyException {
-        for (TableReference tableRef : tableRefToTableMetadata.keySet()) {
+        for (Entry<TableReference, byte[]> entry : tableRefToTableMetadata.entrySet()) {
+            TableReference tableRef = entry.getKey();
+            tableMetadata.put(tableRef.getQualifiedName(), entry.getValue());
             try {
                 columnFamilies.create(tableRef.getQualifiedName());
             } catch (RocksDBException e) {
@@ -577,6 +689,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 ColumnFamily metadataTable = columnFamilies.get(METADATA_TABLE_NAME.getQualifiedName())) {
             WriteOptions options = d.register(new WriteOptions().setSync(true));
             getDb().put(metadataTable.getHandle(), options, tableRef.getQualifiedName().getBytes(Charsets.UTF_8), metadata);
+            tableMetadata.put(tableRef.getQualifiedName(), metadata);
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -592,6 +705,9 @@ public class RocksDbKeyValueService implements KeyValueService {
                 batch.put(metadataTable.getHandle(), entry.getKey().getQualifiedName().getBytes(Charsets.UTF_8), entry.getValue());
             }
             getDb().write(options, batch);
+            for (Entry<TableReference, byte[]> entry : tableRefToMetadata.entrySet()) {
+                tableMetadata.put(entry.getKey().getQualifiedName(), entry.getValue());
+            }
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         }
@@ -606,7 +722,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 WriteOptions options = d.register(new WriteOptions().setSync(true));
                 WriteBatch batch = d.register(new WriteBatch());
                 for (Cell cell : cells) {
-                    byte[] key = RocksDbKeyValueServices.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
+                    byte[] key = keyEncoding.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
                     batch.put(table.getHandle(), key, val);
                 }
                 getDb().write(options, batch);
@@ -625,7 +741,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             RocksIterator iter = getDb().newIterator(table.getHandle());
             try {
                 for (Cell cell : cells) {
-                    RocksDbKeyValueServices.getTimestamps(iter, cell, timestamp, results);
+                    RocksDbKeyValueServices.getTimestamps(keyEncoding, iter, cell, timestamp, results);
                 }
             } finally {
                 iter.dispose();
@@ -16,22 +16,32 @@
 package com.palantir.atlasdb.keyvalue.rocksdb.impl;
 
 import java.io.File;
+import java.util.Set;
 
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.WriteOptions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.config.LeaderConfig;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
 import com.palantir.atlasdb.rocksdb.RocksDbAtlasDbFactory;
 import com.palantir.atlasdb.rocksdb.RocksDbKeyValueServiceConfig;
+import com.palantir.util.Pair;
 
 public class RocksDbUpgrader {
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    // column families whose keys are not atlas cells
+    private static final Set<String> RAW_TABLES = ImmutableSet.of(
+            "_metadata",
+            new String(RocksDB.DEFAULT_COLUMN_FAMILY, Charsets.UTF_8));
 
     public static void main(String[] args) throws Exception {
         if (args.length != 2) {
@@ -69,9 +79,15 @@ public class RocksDbUpgrader {
             RocksIterator iter = oldKvs.db.newIterator(oldCf.getHandle());
             iter.seekToFirst();
             long count = 0;
+            boolean reencodeKeys = oldKvs.keyEncoding != newKvs.keyEncoding
+                    && !RAW_TABLES.contains(table);
             while (iter.isValid()) {
                 byte[] key = iter.key();
                 byte[] value = iter.value();
+                if (reencodeKeys) {
+                    Pair<Cell, Long> cellAndTs = oldKvs.keyEncoding.parseCellAndTs(key);
+                    key = newKvs.keyEncoding.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+                }
                 newKvs.db.put(newHandle, opts, key, value);
                 iter.next();
                 if (++count % 10000 == 0) {
@@ -91,6 +107,8 @@ public class RocksDbUpgrader {
         System.out.println();
         System.out.println("  Use this cli to copy your existing rocksdb database");
         System.out.println("  into a new database with possibly different settings.");
+        System.out.println("  Keys are re-encoded if the two configurations use");
+        System.out.println("  different comparators, e.g. to move to \"atlasdb-v3\".");
         System.out.println();
         System.out.println("Usage: RocksDbUpgrader old-settings.json new-settings.json");
         System.out.println();
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.apache.commons.lang.ArrayUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.util.Pair;
+
+/**
+ * The on-disk layout of the (row, column, timestamp) keys of atlas tables.
+ * <p>
+ * Keys always sort by row, then column, then descending timestamp, but only {@link #BYTEWISE} keys do so under
+ * RocksDB's built-in bytewise comparator; {@link #LEGACY} keys rely on a custom java comparator.
+ */
+enum RocksKeyEncoding {
+    /**
+     * Row, column, big-endian timestamp and then the reversed var-long length of the row. Used by the
+     * {@link RocksComparatorName#V1} and {@link RocksComparatorName#V2} comparators.
+     */
+    LEGACY {
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timestamp) {
+            Preconditions.checkArgument(EncodingUtils.sizeOfVarLong(row.length) <= 2);
+            byte[] rowSize = EncodingUtils.encodeVarLong(row.length);
+            ArrayUtils.reverse(rowSize);
+
+            byte[] key = new byte[row.length + col.length + 8 + rowSize.length];
+            ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN)
+                    .put(row)
+                    .put(col)
+                    .putLong(timestamp)
+                    .put(rowSize);
+            return key;
+        }
+
+        @Override
+        byte[] getRowSeekKey(byte[] row, long timestamp) {
+            return getKey(row, new byte[1], timestamp);
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            byte[] rowSizeBytes = new byte[2];
+            rowSizeBytes[0] = key[key.length - 1];
+            rowSizeBytes[1] = key[key.length - 2];
+
+            int rowSize = (int) EncodingUtils.decodeVarLong(rowSizeBytes);
+            int colEnd = key.length - 8 - EncodingUtils.sizeOfVarLong(rowSize);
+
+            byte[] rowName = Arrays.copyOf(key, rowSize);
+            byte[] colName = Arrays.copyOfRange(key, rowSize, colEnd);
+            long ts = Longs.fromBytes(
+                    key[colEnd + 0],
+                    key[colEnd + 1],
+                    key[colEnd + 2],
+                    key[colEnd + 3],
+                    key[colEnd + 4],
+                    key[colEnd + 5],
+                    key[colEnd + 6],
+                    key[colEnd + 7]);
+
+            return Pair.create(Cell.create(rowName, colName), ts);
+        }
+    },
+
+    /**
+     * Escaped row, escaped column and then the big-endian timestamp with every bit but the sign bit flipped. Row
+     * and column bytes of {@code 0x00} are written as {@code 0x00 0xFF} and each is terminated by
+     * {@code 0x00 0x01}, so a shorter name sorts before any longer name it is a prefix of, and the flipped
+     * timestamp sorts later timestamps first. Used by the {@link RocksComparatorName#V3} comparator, which is
+     * RocksDB's native bytewise comparator.
+     */
+    BYTEWISE {
+        private static final byte ESCAPE = 0x00;
+        private static final byte ESCAPED_ZERO = (byte) 0xFF;
+        private static final byte TERMINATOR = 0x01;
+
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timestamp) {
+            ByteArrayOutputStream key = new ByteArrayOutputStream(row.length + col.length + 4 + Longs.BYTES + 2);
+            writeEscaped(key, row);
+            writeEscaped(key, col);
+            byte[] ts = Longs.toByteArray(timestamp ^ Long.MAX_VALUE);
+            key.write(ts, 0, ts.length);
+            return key.toByteArray();
+        }
+
+        @Override
+        byte[] getRowSeekKey(byte[] row, long timestamp) {
+            // a prefix of every key in the row, so it sorts before all of them
+            ByteArrayOutputStream key = new ByteArrayOutputStream(row.length + 2);
+            writeEscaped(key, row);
+            return key.toByteArray();
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            ByteArrayOutputStream row = new ByteArrayOutputStream();
+            int colStart = readEscaped(key, 0, row);
+            ByteArrayOutputStream col = new ByteArrayOutputStream();
+            int tsStart = readEscaped(key, colStart, col);
+            Preconditions.checkArgument(key.length - tsStart == Longs.BYTES, "Malformed key");
+            long ts = Longs.fromBytes(
+                    key[tsStart + 0],
+                    key[tsStart + 1],
+                    key[tsStart + 2],
+                    key[tsStart + 3],
+                    key[tsStart + 4],
+                    key[tsStart + 5],
+                    key[tsStart + 6],
+                    key[tsStart + 7]) ^ Long.MAX_VALUE;
+            return Pair.create(Cell.create(row.toByteArray(), col.toByteArray()), ts);
+        }
+
+        private void writeEscaped(ByteArrayOutputStream out, byte[] bytes) {
+            for (byte b : bytes) {
+                out.write(b);
+                if (b == ESCAPE) {
+                    out.write(ESCAPED_ZERO);
+                }
+            }
+            out.write(ESCAPE);
+            out.write(TERMINATOR);
+        }
+
+        /**
+         * Unescapes the name starting at the given offset into {@code out} and returns the offset just past its
+         * terminator.
+         */
+        private int readEscaped(byte[] key, int offset, ByteArrayOutputStream out) {
+            int i = offset;
+            while (true) {
+                Preconditions.checkArgument(i + 1 < key.length, "Malformed key");
+                byte b = key[i];
+                if (b != ESCAPE) {
+                    out.write(b);
+                    i++;
+                } else if (key[i + 1] == ESCAPED_ZERO) {
+                    out.write(ESCAPE);
+                    i += 2;
+                } else {
+                    Preconditions.checkArgument(key[i + 1] == TERMINATOR, "Malformed key");
+                    return i + 2;
+                }
+            }
+        }
+    };
+
+    abstract byte[] getKey(byte[] row, byte[] col, long timestamp);
+
+    /**
+     * Returns a key to seek to in order to start reading the given row at the given timestamp.
+     */
+    abstract byte[] getRowSeekKey(byte[] row, long timestamp);
+
+    abstract Pair<Cell, Long> parseCellAndTs(byte[] key);
+
+    byte[] getKey(Cell cell, long timestamp) {
+        return getKey(cell.getRowName(), cell.getColumnName(), timestamp);
+    }
+
+    static RocksKeyEncoding forComparator(String comparatorName) {
+        if (RocksComparatorName.V3.getComparatorName().equals(comparatorName)) {
+            return BYTEWISE;
+        }
+        return LEGACY;
+    }
+}
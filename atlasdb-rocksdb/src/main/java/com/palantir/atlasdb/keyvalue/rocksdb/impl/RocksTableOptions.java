@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import javax.annotation.Nullable;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompactionStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.table.description.TableMetadata;
+
+/**
+ * Column family options for an atlas table, derived from its {@link TableMetadata} in the same way as the
+ * cassandra key value service derives its column family definitions.
+ * <p>
+ * Tables that are not range scanned get small blocks and bloom filters, so exact-key reads such as the existence
+ * checks of {@code putUnlessExists} can skip most files; range scanned tables get larger blocks, which compress
+ * better and need fewer index lookups per row scanned. Append heavy, read light tables use universal compaction.
+ */
+final class RocksTableOptions {
+    private static final Logger log = LoggerFactory.getLogger(RocksTableOptions.class);
+
+    private static final long POINT_LOOKUP_BLOCK_SIZE_BYTES = AtlasDbConstants.MINIMUM_COMPRESSION_BLOCK_SIZE_KB * 1024;
+    private static final long RANGE_SCAN_BLOCK_SIZE_BYTES = 64 * 1024;
+    private static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+    private static final int NEGATIVE_LOOKUPS_BLOOM_FILTER_BITS_PER_KEY = 16;
+
+    private RocksTableOptions() {
+        // cannot instantiate
+    }
+
+    /**
+     * Applies the tuning for a table with the given metadata to the options. Empty or missing metadata leaves
+     * the options unchanged.
+     */
+    static ColumnFamilyOptions applyTableMetadata(ColumnFamilyOptions options, @Nullable byte[] rawMetadata) {
+        if (rawMetadata == null || rawMetadata.length == 0) {
+            return options;
+        }
+        TableMetadata metadata;
+        try {
+            metadata = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(rawMetadata);
+        } catch (RuntimeException e) {
+            log.warn("Could not parse table metadata, using the common column family options.", e);
+            return options;
+        }
+
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        if (metadata.getExplicitCompressionBlockSizeKB() != 0) {
+            tableConfig.setBlockSize(metadata.getExplicitCompressionBlockSizeKB() * 1024L);
+        } else if (metadata.isRangeScanAllowed()) {
+            tableConfig.setBlockSize(RANGE_SCAN_BLOCK_SIZE_BYTES);
+        } else {
+            tableConfig.setBlockSize(POINT_LOOKUP_BLOCK_SIZE_BYTES);
+        }
+        if (metadata.hasNegativeLookups()) {
+            tableConfig.setFilter(new BloomFilter(NEGATIVE_LOOKUPS_BLOOM_FILTER_BITS_PER_KEY, false));
+        } else if (!metadata.isRangeScanAllowed()) {
+            tableConfig.setFilter(new BloomFilter(BLOOM_FILTER_BITS_PER_KEY, false));
+        }
+        options.setTableFormatConfig(tableConfig);
+
+        if (metadata.isAppendHeavyAndReadLight()) {
+            options.setCompactionStyle(CompactionStyle.UNIVERSAL);
+        }
+        return options;
+    }
+}
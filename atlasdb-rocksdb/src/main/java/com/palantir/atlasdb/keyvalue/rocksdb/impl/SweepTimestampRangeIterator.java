@@ -0,0 +1,63 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.util.Set;
+
+import org.rocksdb.RocksIterator;
+
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
+import com.palantir.util.Pair;
+
+public class SweepTimestampRangeIterator extends RangeIterator<SweepCellTimestamps> {
+
+    SweepTimestampRangeIterator(ColumnFamily table,
+                                RocksKeyEncoding encoding,
+                                RocksIterator it,
+                                RangeRequest range,
+                                long maxTimestamp) {
+        super(table, encoding, it, range, maxTimestamp);
+    }
+
+    @Override
+    protected SweepCellTimestamps processCell(Pair<Cell, Long> cellAndInitialTs) {
+        Cell cell = cellAndInitialTs.lhSide;
+        Set<Long> timestamps = Sets.newHashSet();
+        // Versions of a cell are stored newest first, so the first one below maxTimestamp is the latest.
+        boolean isLatestValueEmpty = false;
+        if (cellAndInitialTs.rhSide < maxTimestamp) {
+            timestamps.add(cellAndInitialTs.rhSide);
+            isLatestValueEmpty = it.value().length == 0;
+        }
+        for (it.next(); it.isValid(); it.next()) {
+            Pair<Cell, Long> cellAndTs = encoding.parseCellAndTs(it.key());
+            if (!cellAndTs.lhSide.equals(cell)) {
+                break;
+            }
+            if (cellAndTs.rhSide < maxTimestamp) {
+                if (timestamps.isEmpty()) {
+                    isLatestValueEmpty = it.value().length == 0;
+                }
+                timestamps.add(cellAndTs.rhSide);
+            }
+        }
+        return timestamps.isEmpty() ? null : SweepCellTimestamps.of(timestamps, isLatestValueEmpty);
+    }
+}
@@ -111,6 +111,7 @@ public class LeaderRemotingTest {
         accept.getLatestSequencePreparedOrAccepted();
         accept.prepare(0, id);
         accept.prepare(1, id);
+        accept.prepareFrom(2, id);
     }
 
 }
@@ -15,26 +15,76 @@
  */
 package com.palantir.atlasdb.transaction.service;
 
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
-import com.palantir.atlasdb.encoding.PtBytes;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.common.persist.Persistable;
 import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
 import com.palantir.paxos.PaxosRoundFailureException;
+import com.palantir.paxos.PaxosValue;
 
+/**
+ * Agrees on commit timestamps using paxos, and stores them in the key value service so that {@link #get(long)}
+ * does not need to consult the paxos quorum.
+ * <p>
+ * Each paxos round decides a batch of start timestamp to commit timestamp entries, and consecutive rounds form
+ * a log in which the first entry for a start timestamp wins. Every instance applies the batches it passes through
+ * to the key value service in log order, so that the stored value is always the winning one.
+ * <p>
+ * Concurrent commits share a round: calls of {@link #putUnlessExists(Map)} queue their entries, and whoever gets
+ * to propose next proposes the entries of every queued call, so that callers arriving while a round is in flight
+ * are decided together in the next one.
+ * <p>
+ * The paxos log is not compatible with the one-round-per-transaction log of earlier versions of this class, and
+ * needs acceptors and learners of its own. Every value of the log starts with a format version, and this service
+ * refuses to start on a log that holds values of another format.
+ */
 public class PaxosTransactionService implements TransactionService {
+    // Keeps paxos values, which every acceptor and learner writes to disk, to a few tens of kilobytes
+    private static final int MAX_ENTRIES_PER_ROUND = 1000;
+
     private final PaxosProposer proposer;
+    private final PaxosLearner learner;
     private final TransactionKVSWrapper kvStore;
+    private final Lock logLock = new ReentrantLock();
+    private final Queue<PendingCommit> pendingCommits = new ConcurrentLinkedQueue<>();
 
-    public static TransactionService create(PaxosProposer proposer, TransactionKVSWrapper kvStore) {
-        return new PaxosTransactionService(proposer, kvStore);
+    // All rounds before this one have been applied to the key value service.
+    @GuardedBy("logLock")
+    private long nextSeq;
+
+    /**
+     * @param proposer proposer for the commit timestamp log
+     * @param learner the local learner of the commit timestamp log, used to find where to resume after a restart
+     * @param kvStore where the decided commit timestamps are stored
+     * @throws IllegalStateException if the learner has learned values that are not in the format of this class
+     */
+    public static TransactionService create(PaxosProposer proposer,
+                                            PaxosLearner learner,
+                                            TransactionKVSWrapper kvStore) {
+        return new PaxosTransactionService(proposer, learner, kvStore);
     }
 
-    private PaxosTransactionService(PaxosProposer proposer, TransactionKVSWrapper kvStore) {
+    private PaxosTransactionService(PaxosProposer proposer, PaxosLearner learner, TransactionKVSWrapper kvStore) {
         this.proposer = proposer;
+        this.learner = learner;
         this.kvStore = kvStore;
+        this.nextSeq = recoverNextSeq();
     }
 
     @Override
@@ -49,21 +99,241 @@ public class PaxosTransactionService implements TransactionService {
 
     @Override
     public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        putUnlessExists(ImmutableMap.of(startTimestamp, commitTimestamp));
+    }
+
+    @Override
+    public void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) throws KeyAlreadyExistsException {
+        PendingCommit commit = new PendingCommit(startTimestampToCommitTimestamp);
+        pendingCommits.add(commit);
+        logLock.lock();
+        try {
+            // If a previous holder of the lock proposed our entries, we are done
+            while (!commit.isDone()) {
+                commitPendingEntries();
+            }
+        } finally {
+            logLock.unlock();
+        }
+
+        Map<Long, Long> finalCommitTimestamps = commit.getFinalCommitTimestamps();
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            Long finalCommitTs = finalCommitTimestamps.get(entry.getKey());
+            if (!entry.getValue().equals(finalCommitTs)) {
+                throw new KeyAlreadyExistsException("Key " + entry.getKey() + " already exists and is mapped to "
+                        + finalCommitTs);
+            }
+        }
+    }
+
+    @GuardedBy("logLock")
+    private void commitPendingEntries() {
+        List<PendingCommit> batch = Lists.newArrayList();
+        Map<Long, Long> entries = Maps.newHashMap();
+        PendingCommit next;
+        while ((next = pendingCommits.peek()) != null
+                && (batch.isEmpty() || entries.size() + next.entries.size() <= MAX_ENTRIES_PER_ROUND)) {
+            // Only the holder of logLock removes from the queue, so the polled commit is the one we peeked
+            pendingCommits.poll();
+            batch.add(next);
+            for (Map.Entry<Long, Long> entry : next.entries.entrySet()) {
+                // of two queued entries for the same start timestamp, the first one wins, as it would in the log
+                entries.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Long> finalCommitTimestamps;
         try {
-            byte[] finalValue = proposer.propose(startTimestamp, PtBytes.toBytes(commitTimestamp));
-            long finalCommitTs = PtBytes.toLong(finalValue);
+            finalCommitTimestamps = agreeOnCommitTimestamps(entries);
+        } catch (PaxosRoundFailureException e) {
+            ServiceNotAvailableException failure = new ServiceNotAvailableException("Could not store transaction", e);
+            batch.forEach(commit -> commit.fail(failure));
+            return;
+        } catch (RuntimeException e) {
+            batch.forEach(commit -> commit.fail(e));
+            return;
+        }
+        batch.forEach(commit -> commit.succeed(finalCommitTimestamps));
+    }
+
+    /**
+     * Proposes the entries at the end of the log until they have all been decided, applying every batch that is
+     * decided on the way. Rounds the local learner already knows are applied without proposing at them, so that
+     * only the first round it has not learned costs a paxos round trip.
+     *
+     * @return the winning commit timestamp of each of the given start timestamps
+     */
+    @GuardedBy("logLock")
+    private Map<Long, Long> agreeOnCommitTimestamps(Map<Long, Long> entries) throws PaxosRoundFailureException {
+        Map<Long, Long> undecided = Maps.newHashMap(entries);
+        Map<Long, Long> decided = Maps.newHashMapWithExpectedSize(entries.size());
+        catchUpWithLearner(undecided, decided);
+        while (!undecided.isEmpty()) {
+            CommitBatch proposal = new CommitBatch(nextSeq - 1, undecided);
+            byte[] value = proposer.propose(nextSeq, proposal.persistToBytes());
+            applyDecidedBatch(CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(value), undecided, decided);
+            // Entries are left only if the round was decided for someone else, who may have decided later rounds
+            if (!undecided.isEmpty()) {
+                catchUpWithLearner(undecided, decided);
+            }
+        }
+        return decided;
+    }
+
+    /**
+     * Applies the rounds from {@link #nextSeq} on that the local learner has learned, up to the first one it has
+     * not.
+     */
+    @GuardedBy("logLock")
+    private void catchUpWithLearner(Map<Long, Long> undecided, Map<Long, Long> decided) {
+        Map<Long, PaxosValue> learnedValues = Maps.newHashMap();
+        for (PaxosValue learnedValue : learner.getLearnedValuesSince(nextSeq)) {
+            learnedValues.put(learnedValue.getRound(), learnedValue);
+        }
+        PaxosValue learnedValue;
+        while ((learnedValue = learnedValues.get(nextSeq)) != null) {
+            applyDecidedBatch(CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(learnedValue.getData()), undecided, decided);
+        }
+    }
+
+    /**
+     * Applies the batch decided at {@link #nextSeq}, moves past it, and moves the entries it decides from
+     * {@code undecided} to {@code decided}.
+     */
+    @GuardedBy("logLock")
+    private void applyDecidedBatch(CommitBatch batch, Map<Long, Long> undecided, Map<Long, Long> decided) {
+        Map<Long, Long> winners = applyBatch(batch);
+        nextSeq++;
+        for (Map.Entry<Long, Long> winner : winners.entrySet()) {
+            if (undecided.remove(winner.getKey()) != null) {
+                decided.put(winner.getKey(), winner.getValue());
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of a batch whose start timestamps are not yet stored, which requires all earlier batches
+     * to have been applied. Other instances may apply the same batch concurrently, but they will write the same
+     * values.
+     *
+     * @return the winning commit timestamp of each start timestamp in the batch
+     */
+    private Map<Long, Long> applyBatch(CommitBatch batch) {
+        Map<Long, Long> winners = Maps.newHashMap(kvStore.get(batch.commitTimestamps.keySet()));
+        Map<Long, Long> toWrite = Maps.newHashMap();
+        for (Map.Entry<Long, Long> entry : batch.commitTimestamps.entrySet()) {
+            if (!winners.containsKey(entry.getKey())) {
+                toWrite.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!toWrite.isEmpty()) {
             try {
-                // Make sure we do this put before we return because we want #get to succeed.
-                kvStore.putAll(ImmutableMap.of(startTimestamp, finalCommitTs));
+                kvStore.putAll(toWrite);
             } catch (KeyAlreadyExistsException e) {
-                // this case isn't worrisome
+                // another instance applied this batch at the same time, which isn't worrisome
             }
-            if (commitTimestamp != finalCommitTs) {
-                throw new KeyAlreadyExistsException("Key " + startTimestamp + " already exists and is mapped to " + finalCommitTs);
+            winners.putAll(toWrite);
+        }
+        return winners;
+    }
+
+    /**
+     * Every batch records how much of the log its proposer had applied, so the latest batch we have learned
+     * tells us a point from which replaying the log reaches every batch that might not have been applied.
+     */
+    private long recoverNextSeq() {
+        PaxosValue greatestLearned = learner.getGreatestLearnedValue();
+        if (greatestLearned == null) {
+            return 0L;
+        }
+        return CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(greatestLearned.getData()).appliedUpToSeq + 1;
+    }
+
+    private static final class PendingCommit {
+        private final Map<Long, Long> entries;
+        private volatile boolean done = false;
+        private volatile Map<Long, Long> finalCommitTimestamps = null;
+        private volatile RuntimeException failure = null;
+
+        PendingCommit(Map<Long, Long> entries) {
+            this.entries = entries;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        void succeed(Map<Long, Long> newFinalCommitTimestamps) {
+            finalCommitTimestamps = newFinalCommitTimestamps;
+            done = true;
+        }
+
+        void fail(RuntimeException exception) {
+            failure = exception;
+            done = true;
+        }
+
+        Map<Long, Long> getFinalCommitTimestamps() {
+            if (failure != null) {
+                throw failure;
             }
-        } catch (PaxosRoundFailureException e) {
-            throw new ServiceNotAvailableException("Could not store trascaction");
+            return finalCommitTimestamps;
         }
     }
 
+    @VisibleForTesting
+    static final class CommitBatch implements Persistable {
+        // Values of the one-round-per-transaction log are a bare 8 byte commit timestamp, which never has this
+        // length, and for any realistic timestamp does not start with this byte either
+        @VisibleForTesting
+        static final byte FORMAT_VERSION = 1;
+        private static final int HEADER_SIZE = 1 + 8;
+        private static final int ENTRY_SIZE = 16;
+
+        final long appliedUpToSeq;
+        final Map<Long, Long> commitTimestamps;
+
+        static final Hydrator<CommitBatch> BYTES_HYDRATOR = new Hydrator<CommitBatch>() {
+            @Override
+            public CommitBatch hydrateFromBytes(byte[] input) {
+                if (input.length < HEADER_SIZE + ENTRY_SIZE
+                        || (input.length - HEADER_SIZE) % ENTRY_SIZE != 0
+                        || input[0] != FORMAT_VERSION) {
+                    throw new IllegalStateException("The commit timestamp paxos log holds a value of "
+                            + input.length + " bytes that is not a commit batch of format version " + FORMAT_VERSION
+                            + ". It was most likely written by an earlier version of PaxosTransactionService, whose"
+                            + " log is not compatible with this one; give the paxos acceptors and learners of the"
+                            + " commit timestamp log fresh directories.");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(input, 1, input.length - 1);
+                long appliedUpToSeq = buffer.getLong();
+                Map<Long, Long> commitTimestamps = Maps.newHashMapWithExpectedSize(buffer.remaining() / ENTRY_SIZE);
+                while (buffer.hasRemaining()) {
+                    commitTimestamps.put(buffer.getLong(), buffer.getLong());
+                }
+                return new CommitBatch(appliedUpToSeq, commitTimestamps);
+            }
+        };
+
+        CommitBatch(long appliedUpToSeq, Map<Long, Long> commitTimestamps) {
+            Preconditions.checkArgument(!commitTimestamps.isEmpty(), "a batch must not be empty");
+            this.appliedUpToSeq = appliedUpToSeq;
+            this.commitTimestamps = commitTimestamps;
+        }
+
+        @Override
+        public byte[] persistToBytes() {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + ENTRY_SIZE * commitTimestamps.size());
+            buffer.put(FORMAT_VERSION);
+            buffer.putLong(appliedUpToSeq);
+            for (Map.Entry<Long, Long> entry : commitTimestamps.entrySet()) {
+                buffer.putLong(entry.getKey());
+                buffer.putLong(entry.getValue());
+            }
+            return buffer.array();
+        }
+    }
 }
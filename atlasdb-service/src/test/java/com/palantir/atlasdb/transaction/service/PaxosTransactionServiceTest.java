@@ -0,0 +1,227 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.Nullable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.service.PaxosTransactionService.CommitBatch;
+import com.palantir.paxos.PaxosLearner;
+import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosValue;
+
+public class PaxosTransactionServiceTest {
+    private final InMemoryLogProposer proposer = new InMemoryLogProposer();
+    private final PaxosLearner learner = mock(PaxosLearner.class);
+    private TransactionKVSWrapper kvStore;
+    private TransactionService transactionService;
+
+    @Before
+    public void setUp() {
+        KeyValueService kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TransactionConstants.TRANSACTION_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvStore = new TransactionKVSWrapper(kvs);
+        transactionService = PaxosTransactionService.create(proposer, learner, kvStore);
+    }
+
+    @Test
+    public void batchIsDecidedInASingleRound() {
+        transactionService.putUnlessExists(ImmutableMap.of(1L, 2L, 3L, 4L));
+
+        assertEquals(1, proposer.log.size());
+        assertEquals(ImmutableMap.of(1L, 2L, 3L, 4L), transactionService.get(ImmutableList.of(1L, 3L)));
+    }
+
+    @Test
+    public void firstEntryInTheLogWins() {
+        decideElsewhere(0L, ImmutableMap.of(1L, 5L));
+
+        try {
+            transactionService.putUnlessExists(ImmutableMap.of(1L, 2L, 3L, 4L));
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+
+        assertEquals(Long.valueOf(5L), transactionService.get(1L));
+        assertEquals(Long.valueOf(4L), transactionService.get(3L));
+        assertEquals(ImmutableMap.of(3L, 4L), CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(proposer.log.get(1L))
+                .commitTimestamps);
+    }
+
+    @Test
+    public void laterEntriesForTheSameStartTimestampLose() {
+        transactionService.putUnlessExists(1L, 2L);
+
+        try {
+            transactionService.putUnlessExists(1L, TransactionConstants.FAILED_COMMIT_TS);
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+        assertEquals(Long.valueOf(2L), transactionService.get(1L));
+    }
+
+    @Test
+    public void resumesFromWhereTheLatestLearnedBatchHadApplied() {
+        CommitBatch latest = new CommitBatch(3L, ImmutableMap.of(10L, 11L));
+        when(learner.getGreatestLearnedValue()).thenReturn(new PaxosValue("other", 5L, latest.persistToBytes()));
+        decideElsewhere(4L, ImmutableMap.of(7L, 8L));
+        decideElsewhere(5L, ImmutableMap.of(10L, 11L));
+        transactionService = PaxosTransactionService.create(proposer, learner, kvStore);
+
+        transactionService.putUnlessExists(1L, 2L);
+
+        assertEquals(Long.valueOf(8L), transactionService.get(7L));
+        assertEquals(Long.valueOf(11L), transactionService.get(10L));
+        assertEquals(Long.valueOf(2L), transactionService.get(1L));
+        assertEquals(ImmutableMap.of(1L, 2L), CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(proposer.log.get(6L))
+                .commitTimestamps);
+    }
+
+    @Test
+    public void appliesRoundsKnownToTheLearnerWithoutProposingAtThem() {
+        when(learner.getLearnedValuesSince(0L)).thenReturn(ImmutableList.of(
+                new PaxosValue("other", 0L, new CommitBatch(-1L, ImmutableMap.of(1L, 5L)).persistToBytes()),
+                new PaxosValue("other", 1L, new CommitBatch(0L, ImmutableMap.of(3L, 4L)).persistToBytes())));
+
+        try {
+            transactionService.putUnlessExists(ImmutableMap.of(1L, 2L, 7L, 8L));
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+
+        assertEquals(ImmutableMap.of(1L, 5L, 3L, 4L, 7L, 8L), transactionService.get(ImmutableList.of(1L, 3L, 7L)));
+        assertEquals(ImmutableSet.of(2L), proposer.log.keySet());
+        assertEquals(ImmutableMap.of(7L, 8L), CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(proposer.log.get(2L))
+                .commitTimestamps);
+    }
+
+    @Test
+    public void refusesToStartOnALogOfAnEarlierFormat() {
+        byte[] commitTimestamp = ByteBuffer.allocate(8).putLong(2L).array();
+        when(learner.getGreatestLearnedValue()).thenReturn(new PaxosValue("other", 0L, commitTimestamp));
+
+        try {
+            PaxosTransactionService.create(proposer, learner, kvStore);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("earlier version of PaxosTransactionService"));
+        }
+    }
+
+    @Test
+    public void batchesStartWithTheFormatVersion() {
+        byte[] bytes = new CommitBatch(-1L, ImmutableMap.of(1L, 2L)).persistToBytes();
+
+        assertEquals(CommitBatch.FORMAT_VERSION, bytes[0]);
+        assertEquals(ImmutableMap.of(1L, 2L), CommitBatch.BYTES_HYDRATOR.hydrateFromBytes(bytes).commitTimestamps);
+    }
+
+    @Test
+    public void concurrentCommitsShareRounds() throws InterruptedException {
+        int numCommits = 8;
+        proposer.blockFirstRound();
+        List<Thread> threads = Lists.newArrayList();
+        for (long startTs = 0; startTs < numCommits; startTs++) {
+            threads.add(commitInBackground(startTs, startTs + 100));
+            if (startTs == 0) {
+                proposer.firstRoundStarted.await();
+            }
+        }
+        // the other commits queue up behind the round in flight
+        for (Thread thread : threads.subList(1, numCommits)) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        proposer.releaseFirstRound.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(2, proposer.log.size());
+        for (long startTs = 0; startTs < numCommits; startTs++) {
+            assertEquals(Long.valueOf(startTs + 100), transactionService.get(startTs));
+        }
+    }
+
+    private Thread commitInBackground(long startTs, long commitTs) {
+        Thread thread = new Thread(() -> transactionService.putUnlessExists(startTs, commitTs));
+        thread.start();
+        return thread;
+    }
+
+    private void decideElsewhere(long seq, Map<Long, Long> commitTimestamps) {
+        proposer.log.put(seq, new CommitBatch(seq - 1, commitTimestamps).persistToBytes());
+    }
+
+    private static class InMemoryLogProposer implements PaxosProposer {
+        final ConcurrentSkipListMap<Long, byte[]> log = new ConcurrentSkipListMap<>();
+        final CountDownLatch firstRoundStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstRound = new CountDownLatch(1);
+        private volatile boolean blockFirstRound = false;
+
+        void blockFirstRound() {
+            blockFirstRound = true;
+        }
+
+        @Override
+        public byte[] propose(long seq, @Nullable byte[] proposalValue) {
+            if (blockFirstRound && firstRoundStarted.getCount() > 0) {
+                firstRoundStarted.countDown();
+                Uninterruptibles.awaitUninterruptibly(releaseFirstRound);
+            }
+            byte[] existing = log.putIfAbsent(seq, proposalValue);
+            return existing != null ? existing : proposalValue;
+        }
+
+        @Override
+        public int getQuorumSize() {
+            return 1;
+        }
+
+        @Override
+        public String getUUID() {
+            return "in-memory";
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -49,6 +50,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
@@ -67,6 +69,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.SweepCellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
@@ -778,6 +781,53 @@ public abstract class AbstractKeyValueServiceTest {
         assertTrue(cell0.getValue().contains(TEST_TIMESTAMP + 1));
     }
 
+    @Test
+    public void testGetRangeOfTimestampsForSweeping() {
+        Cell deletedCell = Cell.create(row0, column1);
+        keyValueService.putWithTimestamps(TEST_TABLE, ImmutableMultimap.of(
+                TEST_CELL, Value.create(value00, TEST_TIMESTAMP),
+                TEST_CELL, Value.create(value01, TEST_TIMESTAMP + 1),
+                deletedCell, Value.create(value00, TEST_TIMESTAMP),
+                deletedCell, Value.create(PtBytes.EMPTY_BYTE_ARRAY, TEST_TIMESTAMP + 1)));
+
+        RangeRequest range = RangeRequest.builder().startRowInclusive(row0).endRowExclusive(row1).build();
+        ClosableIterator<RowResult<SweepCellTimestamps>> rangeForSweeping =
+                keyValueService.getRangeOfTimestampsForSweeping(TEST_TABLE, range, TEST_TIMESTAMP + 2);
+        RowResult<SweepCellTimestamps> row = rangeForSweeping.next();
+        assertFalse(rangeForSweeping.hasNext());
+        rangeForSweeping.close();
+
+        assertEquals(
+                SweepCellTimestamps.of(ImmutableSet.of(TEST_TIMESTAMP, TEST_TIMESTAMP + 1), false),
+                row.getColumns().get(column0));
+        assertEquals(
+                SweepCellTimestamps.of(ImmutableSet.of(TEST_TIMESTAMP, TEST_TIMESTAMP + 1), true),
+                row.getColumns().get(column1));
+    }
+
+    @Test
+    public void testGetRangeSplitsCoverTheRange() {
+        putTestDataForSingleTimestamp();
+
+        RangeRequest range = RangeRequest.builder().startRowInclusive(row0).build();
+        List<RangeRequest> splits = keyValueService.getRangeSplits(TEST_TABLE, range, 4);
+        assertTrue(splits.size() >= 1 && splits.size() <= 4);
+        assertArrayEquals(row0, splits.get(0).getStartInclusive());
+        assertArrayEquals(PtBytes.EMPTY_BYTE_ARRAY, splits.get(splits.size() - 1).getEndExclusive());
+
+        List<byte[]> rowNames = Lists.newArrayList();
+        for (RangeRequest split : splits) {
+            try (ClosableIterator<RowResult<Value>> rows =
+                         keyValueService.getRange(TEST_TABLE, split, TEST_TIMESTAMP + 1)) {
+                rows.forEachRemaining(row -> rowNames.add(row.getRowName()));
+            }
+        }
+        assertEquals(3, rowNames.size());
+        assertArrayEquals(row0, rowNames.get(0));
+        assertArrayEquals(row1, rowNames.get(1));
+        assertArrayEquals(row2, rowNames.get(2));
+    }
+
     @Test
     public void testKeyAlreadyExists() {
         // Test that it does not throw some random exceptions
@@ -16,8 +16,11 @@
 package com.palantir.atlasdb.sweep;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -30,6 +33,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -97,7 +101,8 @@ public abstract class AbstractSweeperTest {
         setupTables(kvs);
         Supplier<Long> tsSupplier = sweepTimestamp::get;
         CellsSweeper cellsSweeper = new CellsSweeper(txManager, kvs, ImmutableList.of());
-        sweepRunner = new SweepTaskRunnerImpl(kvs, tsSupplier, tsSupplier, txService, ssm, cellsSweeper);
+        sweepRunner = new SweepTaskRunnerImpl(kvs, tsSupplier, tsSupplier, CommitTsCache.create(txService), ssm,
+                cellsSweeper);
         setupBackgroundSweeper(DEFAULT_BATCH_SIZE);
     }
 
@@ -115,13 +120,17 @@ public abstract class AbstractSweeperTest {
     }
 
     protected void setupBackgroundSweeper(int batchSize) {
+        setupBackgroundSweeper(batchSize, 1);
+    }
+
+    protected void setupBackgroundSweeper(int batchSize, int sweepThreads) {
         Supplier<Boolean> sweepEnabledSupplier = () -> true;
         Supplier<Long> sweepNoPause = () -> 0L;
         Supplier<Integer> batchSizeSupplier = () -> batchSize;
         Supplier<Integer> cellBatchSizeSupplier = () -> DEFAULT_CELL_BATCH_SIZE;
         backgroundSweeper = new BackgroundSweeperImpl(txManager, kvs, sweepRunner, sweepEnabledSupplier, sweepNoPause,
                 batchSizeSupplier, cellBatchSizeSupplier, SweepTableFactory.of(),
-                new NoOpBackgroundSweeperPerformanceLogger());
+                new NoOpBackgroundSweeperPerformanceLogger(), sweepThreads);
     }
 
     @After
@@ -485,6 +494,60 @@ public abstract class AbstractSweeperTest {
         Assert.assertEquals(0, progressResults.size());
     }
 
+    @Test
+    public void testBackgroundSweepWorkerTakesOverPartOfAnotherWorkersRange() {
+        setupBackgroundSweeper(1, 2);
+        markSweepTablesAsRecentlySwept();
+        createTable(SweepStrategy.CONSERVATIVE);
+        for (String row : ImmutableList.of("a", "f", "k", "\u00e9", "\u00fc")) {
+            putIntoDefaultColumn(row, "bar", 50);
+        }
+
+        runBackgroundSweep(150, 1);
+        sweepTimestamp.set(150);
+        // the second worker has no other table to sweep, so splits the rest of the first worker's range
+        Assert.assertTrue(backgroundSweeper.runOnce(1));
+
+        Map<Long, SweepProgressRowResult> progressByWorker = getProgressTable().stream()
+                .collect(Collectors.toMap(result -> result.getRowName().getDummy(), Function.identity()));
+        Assert.assertEquals(ImmutableSet.of(0L, 1L), progressByWorker.keySet());
+        SweepProgressRowResult first = progressByWorker.get(0L);
+        SweepProgressRowResult second = progressByWorker.get(1L);
+        Assert.assertEquals(TABLE_NAME.getQualifiedName(), first.getFullTableName());
+        Assert.assertEquals(TABLE_NAME.getQualifiedName(), second.getFullTableName());
+        Assert.assertNotNull(first.getEndRow());
+        Assert.assertTrue(
+                UnsignedBytes.lexicographicalComparator().compare(first.getEndRow(), second.getStartRow()) < 0);
+        Assert.assertNull(second.getEndRow());
+
+        for (int i = 0; i < 3; i++) {
+            backgroundSweeper.runOnce(0);
+            backgroundSweeper.runOnce(1);
+        }
+
+        Assert.assertEquals(0, getProgressTable().size());
+        SweepPriorityRowResult tableResults = getPriorityTable().stream()
+                .filter(result -> result.getRowName().getFullTableName().equals(TABLE_NAME.getQualifiedName()))
+                .findFirst()
+                .get();
+        Assert.assertEquals(new Long(5), tableResults.getCellsExamined());
+        Assert.assertTrue(tableResults.hasLastSweepTime());
+    }
+
+    private void markSweepTablesAsRecentlySwept() {
+        txManager.runTaskWithRetry(t -> {
+            SweepPriorityTable priorityTable = SweepTableFactory.of().getSweepPriorityTable(t);
+            for (String tableName : ImmutableList.of("sweep.priority", "sweep.progress")) {
+                SweepPriorityTable.SweepPriorityRow row = SweepPriorityTable.SweepPriorityRow.of(tableName);
+                priorityTable.putWriteCount(row, 0L);
+                priorityTable.putCellsExamined(row, 0L);
+                priorityTable.putCellsDeleted(row, 0L);
+                priorityTable.putLastSweepTime(row, System.currentTimeMillis());
+            }
+            return null;
+        });
+    }
+
     @Test
     public void testBackgroundSweepCanHandleNegativeImmutableTimestamp() {
         createTable(SweepStrategy.CONSERVATIVE);
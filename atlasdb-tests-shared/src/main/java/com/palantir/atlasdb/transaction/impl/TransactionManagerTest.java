@@ -15,12 +15,20 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.junit.After;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
 import com.palantir.atlasdb.transaction.api.Transaction;
@@ -91,6 +99,34 @@ public class TransactionManagerTest extends TransactionTestSetup {
         });
     }
 
+    @Test
+    public void shouldCommitTaskRunWithRetryAsync() throws Exception {
+        String value = txMgr.runTaskWithRetryAsync(t -> {
+            put(t.getTransaction(), "row1", "col1", "v1");
+            return t.getAsync(TEST_TABLE, ImmutableSet.of(getCell("row1", "col1")))
+                    .thenApply(cells -> PtBytes.toString(cells.get(getCell("row1", "col1"))));
+        }).get();
+        assertEquals("v1", value);
+
+        String committed = txMgr.runTaskReadOnly(
+                (TransactionTask<String, RuntimeException>) t -> get(t, "row1", "col1"));
+        assertEquals("v1", committed);
+    }
+
+    @Test
+    public void shouldNotRunTaskWithRetryAsyncWithClosedTransactionManager() throws Exception {
+        txMgr.close();
+        CompletableFuture<Void> result = txMgr.runTaskWithRetryAsync(t -> {
+            put(t.getTransaction(), "row1", "col1", "v1");
+            return CompletableFuture.completedFuture(null);
+        });
+
+        exception.expect(ExecutionException.class);
+        exception.expectCause(instanceOf(IllegalStateException.class));
+        assertTrue(result.isCompletedExceptionally());
+        result.get();
+    }
+
     @Override
     protected KeyValueService getKeyValueService() {
         return new InMemoryKeyValueService(false, PTExecutors.newSingleThreadExecutor(PTExecutors.newNamedThreadFactory(true)));
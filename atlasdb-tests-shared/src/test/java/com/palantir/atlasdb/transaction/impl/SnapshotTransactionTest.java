@@ -22,6 +22,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -37,10 +38,12 @@ import java.util.SortedMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.mutable.MutableInt;
@@ -101,6 +104,7 @@ import com.palantir.common.base.BatchingVisitable;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.proxy.MultiDelegateProxy;
 import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.AtlasTableLockDescriptor;
 import com.palantir.lock.HeldLocksToken;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockCollections;
@@ -814,6 +818,78 @@ public class SnapshotTransactionTest extends AtlasDbTestCase {
                 versionId);
     }
 
+    @Test
+    public void testPipelinedCommitRunsIndependentStagesOnExecutor() {
+        AtomicInteger stagesRun = new AtomicInteger();
+        Executor executor = task -> {
+            stagesRun.incrementAndGet();
+            task.run();
+        };
+        Cell cell = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("column"));
+
+        SnapshotTransaction first = createSnapshotTransaction();
+        first.pipelineCommitStages(executor);
+        first.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("first")));
+        first.commit();
+        // punch, lock validation, and the post-commit lock refresh and unlock
+        assertEquals(3, stagesRun.get());
+
+        // a later writer of the same cell can only commit once the pipelined unlock has happened
+        SnapshotTransaction second = createSnapshotTransaction();
+        second.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes("second")));
+        second.commit();
+
+        Map<Cell, byte[]> result = createSnapshotTransaction().get(TABLE, ImmutableSet.of(cell));
+        assertEquals("second", PtBytes.toString(result.get(cell)));
+    }
+
+    @Test
+    public void testLocksForWritesAboveEscalationThresholdAreReplacedByTableLock() {
+        SnapshotTransaction txn = createSnapshotTransaction();
+        txn.escalateLocksAbove(1);
+        txn.put(TABLE, ImmutableMap.of(
+                Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column")), PtBytes.toBytes("value"),
+                Cell.create(PtBytes.toBytes("row2"), PtBytes.toBytes("column")), PtBytes.toBytes("value")));
+
+        Map<LockDescriptor, LockMode> locks = txn.getLocksForWrites();
+        assertEquals(LockMode.WRITE, locks.get(AtlasTableLockDescriptor.of(TABLE.getQualifiedName())));
+        assertFalse(locks.containsKey(AtlasRowLockDescriptor.of(TABLE.getQualifiedName(), PtBytes.toBytes("row1"))));
+        // the transaction table row for our start timestamp is never escalated
+        assertEquals(2, locks.size());
+
+        txn.commit();
+    }
+
+    @Test
+    public void testLocksForWritesBelowEscalationThresholdIncludeTableReadLock() {
+        SnapshotTransaction txn = createSnapshotTransaction();
+        txn.escalateLocksAbove(1);
+        txn.put(TABLE, ImmutableMap.of(
+                Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column1")), PtBytes.toBytes("value"),
+                Cell.create(PtBytes.toBytes("row1"), PtBytes.toBytes("column2")), PtBytes.toBytes("value")));
+
+        Map<LockDescriptor, LockMode> locks = txn.getLocksForWrites();
+        assertEquals(LockMode.READ, locks.get(AtlasTableLockDescriptor.of(TABLE.getQualifiedName())));
+        assertEquals(LockMode.WRITE,
+                locks.get(AtlasRowLockDescriptor.of(TABLE.getQualifiedName(), PtBytes.toBytes("row1"))));
+
+        txn.commit();
+    }
+
+    private SnapshotTransaction createSnapshotTransaction() {
+        return new SnapshotTransaction(
+                keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                timestampService.getFreshTimestamp(),
+                ImmutableMap.of(TABLE, ConflictHandler.RETRY_ON_WRITE_WRITE),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                timestampCache);
+    }
+
 
     /**
      * Hack to get reference to underlying {@link SnapshotTransaction}. See how transaction managers are composed at
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.base.Preconditions;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockGroupBehavior;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockService;
+import com.palantir.lock.LockWireFormat;
+import com.palantir.lock.impl.AsyncLockService;
+
+/**
+ * Serves {@link com.palantir.lock.RemoteLockService#lock(String, LockRequest)} for each client without holding a
+ * request thread while the lock request is blocked. This path is more specific than the one of
+ * {@link TimeLockResource}, so it takes precedence for lock requests; all other lock service calls are still
+ * served by {@link TimeLockResource}.
+ */
+@Path("/{client: [a-zA-Z0-9_-]+}/lock/lock/{lockClient: .*}")
+public class AsyncLockResource {
+    private final Map<String, TimeLockServices> clientToServices;
+
+    public AsyncLockResource(Map<String, TimeLockServices> clientToServices) {
+        this.clientToServices = clientToServices;
+    }
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, LockWireFormat.MEDIA_TYPE})
+    public void lock(
+            @PathParam("client") String client,
+            @PathParam("lockClient") String lockClient,
+            LockRequest request,
+            @Suspended AsyncResponse response) throws InterruptedException {
+        LockService lockService = getLockServiceForClient(client);
+        if (!(lockService instanceof AsyncLockService)) {
+            response.resume(lockService.lock(lockClient, request));
+            return;
+        }
+
+        Preconditions.checkArgument(request.getLockGroupBehavior() == LockGroupBehavior.LOCK_ALL_OR_NONE,
+                "lock() only supports LockGroupBehavior.LOCK_ALL_OR_NONE. Consider using lockAndGetHeldLocks().");
+        ((AsyncLockService) lockService).lockAsync(LockClient.of(lockClient), request)
+                .whenComplete((lockResponse, error) -> {
+                    if (error != null) {
+                        response.resume(error instanceof CompletionException ? error.getCause() : error);
+                    } else {
+                        response.resume(lockResponse.success() ? lockResponse.getLockRefreshToken() : null);
+                    }
+                });
+    }
+
+    private LockService getLockServiceForClient(String client) {
+        TimeLockServices services = clientToServices.get(client);
+        if (services == null) {
+            throw new NotFoundException("Client doesn't exist");
+        }
+        return services.getLockService();
+    }
+}
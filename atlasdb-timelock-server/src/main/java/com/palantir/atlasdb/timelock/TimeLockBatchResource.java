@@ -0,0 +1,75 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.Path;
+
+import com.google.common.collect.ImmutableMap;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.MultiClientLockRefreshService;
+import com.palantir.timestamp.MultiClientTimestampService;
+import com.palantir.timestamp.TimestampRange;
+
+/**
+ * Serves requests for many clients in one round trip. Clients that do not exist are left out of the response, so
+ * that one unknown client does not fail the requests of the others; callers send those clients' requests to the
+ * clients' own endpoints, which report the error. A request still fails as a whole if this node cannot currently
+ * serve it, for example because it is not the leader.
+ */
+@Path("/" + TimeLockBatchResource.PATH)
+public class TimeLockBatchResource implements MultiClientTimestampService, MultiClientLockRefreshService {
+    /**
+     * The path this resource is served on; clients of this name would be shadowed, so they are not allowed.
+     */
+    public static final String PATH = "batch";
+
+    private final Map<String, TimeLockServices> clientToServices;
+
+    public TimeLockBatchResource(Map<String, TimeLockServices> clientToServices) {
+        this.clientToServices = clientToServices;
+    }
+
+    @Override
+    public Map<String, TimestampRange> getFreshTimestampsForClients(
+            Map<String, Integer> numTimestampsRequestedByClient) {
+        ImmutableMap.Builder<String, TimestampRange> ranges = ImmutableMap.builder();
+        for (Map.Entry<String, Integer> entry : numTimestampsRequestedByClient.entrySet()) {
+            TimeLockServices services = clientToServices.get(entry.getKey());
+            if (services != null) {
+                ranges.put(entry.getKey(), services.getTimestampService().getFreshTimestamps(entry.getValue()));
+            }
+        }
+        return ranges.build();
+    }
+
+    @Override
+    public Map<String, Set<LockRefreshToken>> refreshLockRefreshTokensForClients(
+            Map<String, List<LockRefreshToken>> tokensByClient) {
+        ImmutableMap.Builder<String, Set<LockRefreshToken>> refreshedTokens = ImmutableMap.builder();
+        for (Map.Entry<String, List<LockRefreshToken>> entry : tokensByClient.entrySet()) {
+            TimeLockServices services = clientToServices.get(entry.getKey());
+            if (services != null) {
+                refreshedTokens.put(entry.getKey(),
+                        services.getLockService().refreshLockRefreshTokens(entry.getValue()));
+            }
+        }
+        return refreshedTokens.build();
+    }
+}
@@ -23,6 +23,7 @@ import org.eclipse.jetty.util.component.LifeCycle;
 
 import com.google.common.collect.ImmutableMap;
 import com.palantir.atlasdb.timelock.config.TimeLockServerConfiguration;
+import com.palantir.lock.LockWireFormatProvider;
 import com.palantir.remoting1.servers.jersey.HttpRemotingJerseyFeature;
 
 import io.dropwizard.Application;
@@ -61,7 +62,10 @@ public class TimeLockServer extends Application<TimeLockServerConfiguration> {
                 configuration.clients());
 
         environment.jersey().register(HttpRemotingJerseyFeature.DEFAULT);
+        environment.jersey().register(new LockWireFormatProvider());
         environment.jersey().register(new TimeLockResource(clientToServices));
+        environment.jersey().register(new AsyncLockResource(clientToServices));
+        environment.jersey().register(new TimeLockBatchResource(clientToServices));
     }
 
     private static Map<String, TimeLockServices> createTimeLockServicesForClients(
@@ -15,26 +15,56 @@
  */
 package com.palantir.atlasdb.timelock.atomix;
 
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.ws.rs.ServiceUnavailableException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import com.google.common.util.concurrent.Futures;
 import com.palantir.timestamp.TimestampManagementService;
 import com.palantir.timestamp.TimestampRange;
 import com.palantir.timestamp.TimestampService;
 
 import io.atomix.variables.DistributedLong;
 
+/**
+ * Hands out timestamps from a block leased in memory, only going through consensus when the block is exhausted.
+ * <p>
+ * The {@link DistributedLong} stores an upper limit on every timestamp that has been handed out, in the same way
+ * as a {@link com.palantir.timestamp.TimestampBoundStore}. A new instance starts handing out timestamps just
+ * above the stored limit, so instances must not be shared across leadership terms; the
+ * {@link InvalidatingLeaderProxy} creates a fresh instance whenever the term changes.
+ */
+@ThreadSafe
 public class AtomixTimestampService implements TimestampService, TimestampManagementService {
+    private static final Logger log = LoggerFactory.getLogger(AtomixTimestampService.class);
+
     /**
      * Maximum number of timestamps that may be granted at once.
      */
     @VisibleForTesting
     static final int MAX_GRANT_SIZE = 10_000;
 
-    private final DistributedLong timestamp;
+    /**
+     * Number of timestamps reserved beyond the current request whenever the leased block has to be extended.
+     */
+    @VisibleForTesting
+    static final long LEASE_SIZE = 1_000_000;
+
+    private final DistributedLong upperLimit;
+
+    @GuardedBy("this")
+    private long lastHandedOut;
+    @GuardedBy("this")
+    private long leasedUpperLimit;
 
-    public AtomixTimestampService(DistributedLong timestamp) {
-        this.timestamp = timestamp;
+    public AtomixTimestampService(DistributedLong upperLimit) {
+        this.upperLimit = upperLimit;
+        this.leasedUpperLimit = AtomixRetryer.getWithRetry(upperLimit::get);
+        this.lastHandedOut = leasedUpperLimit;
     }
 
     @Override
@@ -43,27 +73,56 @@ public class AtomixTimestampService implements TimestampService, TimestampManage
     }
 
     @Override
-    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+    public synchronized TimestampRange getFreshTimestamps(int numTimestampsRequested) {
         Preconditions.checkArgument(numTimestampsRequested > 0,
                 "Must request at least one timestamp, requested: %s", numTimestampsRequested);
         Preconditions.checkArgument(numTimestampsRequested <= MAX_GRANT_SIZE,
                 "Must request at most %s timestamps, requested: %s", MAX_GRANT_SIZE, numTimestampsRequested);
 
-        long lastTimestampHandedOut = AtomixRetryer.getWithRetry(() -> timestamp.getAndAdd(numTimestampsRequested));
+        long targetTimestamp = lastHandedOut + numTimestampsRequested;
+        if (targetTimestamp > leasedUpperLimit) {
+            extendLease(targetTimestamp + LEASE_SIZE);
+        }
 
-        return TimestampRange.createInclusiveRange(
-                lastTimestampHandedOut + 1,
-                lastTimestampHandedOut + numTimestampsRequested);
+        TimestampRange range = TimestampRange.createInclusiveRange(lastHandedOut + 1, targetTimestamp);
+        lastHandedOut = targetTimestamp;
+        return range;
     }
 
     @Override
-    public void fastForwardTimestamp(long currentTimestamp) {
-        long latestTimestampFromService = Futures.getUnchecked(timestamp.get());
-        while (latestTimestampFromService < currentTimestamp) {
-            if (Futures.getUnchecked(timestamp.compareAndSet(latestTimestampFromService, currentTimestamp))) {
-                return;
-            }
-            latestTimestampFromService = Futures.getUnchecked(timestamp.get());
+    public synchronized void fastForwardTimestamp(long currentTimestamp) {
+        if (currentTimestamp > leasedUpperLimit) {
+            extendLease(currentTimestamp + LEASE_SIZE);
+        }
+        lastHandedOut = Math.max(lastHandedOut, currentTimestamp);
+    }
+
+    @VisibleForTesting
+    synchronized long getLeasedUpperLimit() {
+        return leasedUpperLimit;
+    }
+
+    /**
+     * Moves the stored upper limit from the one we leased to {@code newUpperLimit}. Any failure of the
+     * compareAndSet is treated as a lost lease, even if the stored limit now equals {@code newUpperLimit}: another
+     * instance that leased the same limit computes the same target for a request of the same size. This includes a
+     * retried compareAndSet whose original attempt was applied but whose response was lost; the replacement instance
+     * then starts above the stored limit, so at most one request fails.
+     */
+    @GuardedBy("this")
+    private void extendLease(long newUpperLimit) {
+        long expectedUpperLimit = leasedUpperLimit;
+        boolean extended = AtomixRetryer.getWithRetry(
+                () -> upperLimit.compareAndSet(expectedUpperLimit, newUpperLimit));
+        if (!extended) {
+            log.error("The stored timestamp upper limit is no longer {}, so it was changed by another timestamp"
+                    + " service. Refusing to hand out further timestamps from this instance.", expectedUpperLimit);
+            throw new ServiceUnavailableException(
+                    String.format("The timestamp upper limit was changed from %s by another service",
+                            expectedUpperLimit),
+                    0L);
         }
+        log.debug("Extended the timestamp lease from {} to {}", expectedUpperLimit, newUpperLimit);
+        leasedUpperLimit = newUpperLimit;
     }
 }
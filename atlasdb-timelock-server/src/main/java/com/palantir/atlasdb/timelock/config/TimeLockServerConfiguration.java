@@ -20,6 +20,7 @@ import java.util.Set;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.timelock.TimeLockBatchResource;
 
 import io.dropwizard.Configuration;
 
@@ -45,6 +46,9 @@ public class TimeLockServerConfiguration extends Configuration {
                 client.matches("[a-zA-Z0-9_-]+"),
                 String.format("Client names must consist of alphanumeric characters, underscores or dashes only; "
                         + "'%s' does not.", client)));
+        Preconditions.checkState(!clientNames.contains(TimeLockBatchResource.PATH),
+                "'%s' is reserved for batched requests and cannot be used as a client name.",
+                TimeLockBatchResource.PATH);
     }
 
     public TimeLockAlgorithmConfiguration algorithm() {
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+
+import javax.ws.rs.container.AsyncResponse;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockResponse;
+import com.palantir.lock.LockService;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.AsyncLockService;
+import com.palantir.timestamp.TimestampManagementService;
+import com.palantir.timestamp.TimestampService;
+
+public class AsyncLockResourceTest {
+    private static final String CLIENT = "client";
+    private static final String LOCK_CLIENT = "lock-client";
+    private static final LockDescriptor DESCRIPTOR = StringLockDescriptor.of("lock");
+    private static final LockRequest REQUEST = LockRequest.builder(ImmutableSortedMap.of(DESCRIPTOR, LockMode.WRITE))
+            .build();
+
+    private final LockService lockService = mock(LockService.class, withSettings().extraInterfaces(
+            AsyncLockService.class));
+    private final AsyncLockResource resource = new AsyncLockResource(ImmutableMap.of(CLIENT, TimeLockServices.create(
+            mock(TimestampService.class), lockService, mock(TimestampManagementService.class))));
+    private final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+
+    @Test
+    public void resumesWithTheRefreshTokenOnceLocksAreAcquired() throws InterruptedException {
+        CompletableFuture<LockResponse> future = new CompletableFuture<>();
+        when(((AsyncLockService) lockService).lockAsync(LockClient.of(LOCK_CLIENT), REQUEST)).thenReturn(future);
+
+        resource.lock(CLIENT, LOCK_CLIENT, REQUEST, asyncResponse);
+        verify(asyncResponse, never()).resume(any(Object.class));
+
+        HeldLocksToken token = new HeldLocksToken(BigInteger.ONE, LockClient.of(LOCK_CLIENT), 0L, 0L,
+                REQUEST.getLockDescriptors(), REQUEST.getLockTimeout(), null);
+        future.complete(LockResponse.createSuccessful(token));
+        verify(asyncResponse).resume(eq(token.getLockRefreshToken()));
+    }
+
+    @Test
+    public void resumesWithNullIfLocksCouldNotBeAcquired() throws InterruptedException {
+        when(((AsyncLockService) lockService).lockAsync(LockClient.of(LOCK_CLIENT), REQUEST))
+                .thenReturn(CompletableFuture.completedFuture(new LockResponse(null, ImmutableMap.of())));
+
+        resource.lock(CLIENT, LOCK_CLIENT, REQUEST, asyncResponse);
+
+        verify(asyncResponse).resume((Object) null);
+    }
+
+    @Test
+    public void resumesWithTheFailureIfLockingFailed() throws InterruptedException {
+        RuntimeException failure = new RuntimeException();
+        CompletableFuture<LockResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        when(((AsyncLockService) lockService).lockAsync(LockClient.of(LOCK_CLIENT), REQUEST)).thenReturn(future);
+
+        resource.lock(CLIENT, LOCK_CLIENT, REQUEST, asyncResponse);
+
+        verify(asyncResponse).resume(failure);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockService;
+import com.palantir.timestamp.TimestampManagementService;
+import com.palantir.timestamp.TimestampRange;
+import com.palantir.timestamp.TimestampService;
+
+public class TimeLockBatchResourceTest {
+    private static final String CLIENT_1 = "client1";
+    private static final String CLIENT_2 = "client2";
+    private static final String NON_EXISTING_CLIENT = "non-existing-client";
+    private static final TimestampRange RANGE_1 = TimestampRange.createInclusiveRange(1L, 5L);
+    private static final TimestampRange RANGE_2 = TimestampRange.createInclusiveRange(7L, 7L);
+    private static final LockRefreshToken TOKEN = new LockRefreshToken(BigInteger.ONE, 1L);
+
+    private final TimestampService timestampService1 = mock(TimestampService.class);
+    private final TimestampService timestampService2 = mock(TimestampService.class);
+    private final LockService lockService1 = mock(LockService.class);
+    private final LockService lockService2 = mock(LockService.class);
+
+    private final TimestampManagementService timestampManagementService = mock(TimestampManagementService.class);
+
+    private final TimeLockBatchResource resource = new TimeLockBatchResource(ImmutableMap.of(
+            CLIENT_1, TimeLockServices.create(timestampService1, lockService1, timestampManagementService),
+            CLIENT_2, TimeLockServices.create(timestampService2, lockService2, timestampManagementService)));
+
+    @Test
+    public void getsTimestampsFromEachClientsTimestampService() {
+        when(timestampService1.getFreshTimestamps(5)).thenReturn(RANGE_1);
+        when(timestampService2.getFreshTimestamps(1)).thenReturn(RANGE_2);
+
+        Map<String, TimestampRange> ranges = resource.getFreshTimestampsForClients(
+                ImmutableMap.of(CLIENT_1, 5, CLIENT_2, 1));
+
+        assertThat(ranges).containsEntry(CLIENT_1, RANGE_1).containsEntry(CLIENT_2, RANGE_2);
+    }
+
+    @Test
+    public void refreshesTokensWithEachClientsLockService() {
+        when(lockService1.refreshLockRefreshTokens(ImmutableList.of(TOKEN))).thenReturn(ImmutableSet.of(TOKEN));
+        when(lockService2.refreshLockRefreshTokens(ImmutableList.of())).thenReturn(ImmutableSet.of());
+
+        Map<String, Set<LockRefreshToken>> refreshed = resource.refreshLockRefreshTokensForClients(
+                ImmutableMap.of(CLIENT_1, ImmutableList.of(TOKEN), CLIENT_2, ImmutableList.of()));
+
+        assertThat(refreshed)
+                .containsEntry(CLIENT_1, ImmutableSet.of(TOKEN))
+                .containsEntry(CLIENT_2, ImmutableSet.of());
+    }
+
+    @Test
+    public void leavesClientsThatDoNotExistOutOfTheResponse() {
+        when(timestampService1.getFreshTimestamps(5)).thenReturn(RANGE_1);
+
+        Map<String, TimestampRange> ranges = resource.getFreshTimestampsForClients(
+                ImmutableMap.of(CLIENT_1, 5, NON_EXISTING_CLIENT, 1));
+
+        assertThat(ranges).containsOnlyKeys(CLIENT_1).containsEntry(CLIENT_1, RANGE_1);
+    }
+
+    @Test
+    public void refreshesTokensOfExistingClientsWhenAnotherClientDoesNotExist() {
+        when(lockService1.refreshLockRefreshTokens(ImmutableList.of(TOKEN))).thenReturn(ImmutableSet.of(TOKEN));
+
+        Map<String, Set<LockRefreshToken>> refreshed = resource.refreshLockRefreshTokensForClients(
+                ImmutableMap.of(CLIENT_1, ImmutableList.of(TOKEN), NON_EXISTING_CLIENT, ImmutableList.of(TOKEN)));
+
+        assertThat(refreshed).containsOnlyKeys(CLIENT_1).containsEntry(CLIENT_1, ImmutableSet.of(TOKEN));
+    }
+}
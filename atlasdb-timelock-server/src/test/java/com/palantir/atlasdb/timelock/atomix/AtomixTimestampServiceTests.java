@@ -15,6 +15,11 @@
  */
 package com.palantir.atlasdb.timelock.atomix;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import javax.ws.rs.ServiceUnavailableException;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -76,6 +81,54 @@ public class AtomixTimestampServiceTests extends AbstractTimestampServiceTests {
         getTimestampService().getFreshTimestamps(AtomixTimestampService.MAX_GRANT_SIZE + 1);
     }
 
+    @Test
+    public void shouldOnlyPersistUpperLimitWhenLeaseIsExhausted() {
+        DistributedLong upperLimit = DistributedValues.getTimestampForClient(ATOMIX_REPLICA, "lease");
+        AtomixTimestampService timestampService = new AtomixTimestampService(upperLimit);
+
+        long firstTimestamp = timestampService.getFreshTimestamp();
+        long persistedLimit = upperLimit.get().join();
+        assertThat(persistedLimit).isEqualTo(firstTimestamp + AtomixTimestampService.LEASE_SIZE);
+
+        timestampService.getFreshTimestamps(AtomixTimestampService.MAX_GRANT_SIZE);
+        assertThat(upperLimit.get().join()).isEqualTo(persistedLimit);
+    }
+
+    @Test
+    public void newServiceShouldStartAboveThePersistedUpperLimit() {
+        DistributedLong upperLimit = DistributedValues.getTimestampForClient(ATOMIX_REPLICA, "restart");
+        AtomixTimestampService oldService = new AtomixTimestampService(upperLimit);
+        long lastTimestampFromOldService = oldService.getFreshTimestamp();
+
+        AtomixTimestampService newService = new AtomixTimestampService(upperLimit);
+        assertThat(newService.getFreshTimestamp()).isGreaterThan(oldService.getLeasedUpperLimit());
+        assertThat(oldService.getLeasedUpperLimit()).isGreaterThan(lastTimestampFromOldService);
+    }
+
+    @Test
+    public void shouldRefuseToExtendLeaseIfAnotherServiceHasChangedTheUpperLimit() {
+        DistributedLong upperLimit = DistributedValues.getTimestampForClient(ATOMIX_REPLICA, "conflict");
+        AtomixTimestampService oldService = new AtomixTimestampService(upperLimit);
+        oldService.getFreshTimestamp();
+
+        new AtomixTimestampService(upperLimit).fastForwardTimestamp(10 * AtomixTimestampService.LEASE_SIZE);
+
+        assertThatThrownBy(() -> oldService.fastForwardTimestamp(20 * AtomixTimestampService.LEASE_SIZE))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    public void shouldNotHandOutTheSameRangeFromTwoServicesThatLeasedTheSameLimit() {
+        DistributedLong upperLimit = DistributedValues.getTimestampForClient(ATOMIX_REPLICA, "same-lease");
+        AtomixTimestampService firstService = new AtomixTimestampService(upperLimit);
+        AtomixTimestampService secondService = new AtomixTimestampService(upperLimit);
+
+        long firstTimestamp = firstService.getFreshTimestamp();
+
+        assertThatThrownBy(secondService::getFreshTimestamp).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(new AtomixTimestampService(upperLimit).getFreshTimestamp()).isGreaterThan(firstTimestamp);
+    }
+
     @Override
     public void canReturnManyUniqueTimestampsInParallel() {
     }
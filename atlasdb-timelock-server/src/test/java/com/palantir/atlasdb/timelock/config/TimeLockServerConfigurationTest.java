@@ -55,4 +55,10 @@ public class TimeLockServerConfigurationTest {
         assertThatThrownBy(() -> new TimeLockServerConfiguration(null, CLUSTER, ImmutableSet.of("")))
                 .isInstanceOf(IllegalStateException.class);
     }
+
+    @Test
+    public void shouldRejectClientNamedLikeTheBatchResource() {
+        assertThatThrownBy(() -> new TimeLockServerConfiguration(null, CLUSTER, ImmutableSet.of("batch")))
+                .isInstanceOf(IllegalStateException.class);
+    }
 }
@@ -40,6 +40,23 @@ public interface PaxosAcceptor {
     @Consumes(MediaType.APPLICATION_JSON)
     public PaxosPromise prepare(@PathParam("seq") long seq, PaxosProposalId pid);
 
+    /**
+     * Prepares for a given proposal like {@link #prepare(long, PaxosProposalId)}, and additionally promises
+     * not to accept lower numbered proposals in any later round that this acceptor has not yet prepared or
+     * accepted. A proposer holding such promises from a quorum can skip phase one for later rounds.
+     * <p>
+     * The request is rejected if the acceptor already knows of a round later than {@code seq}.
+     *
+     * @param seq the number identifying this instance of paxos
+     * @param pid the proposal to prepare for
+     * @return a paxos promise not to accept lower numbered proposals in this or later rounds
+     */
+    @POST
+    @Path("prepare-from/{seq}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PaxosPromise prepareFrom(@PathParam("seq") long seq, PaxosProposalId pid);
+
     /**
      * The acceptor decides whether to accept or reject a given proposal.
      *
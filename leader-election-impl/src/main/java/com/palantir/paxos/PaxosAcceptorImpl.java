@@ -15,38 +15,71 @@
  */
 package com.palantir.paxos;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.palantir.common.base.Throwables;
+
 public class PaxosAcceptorImpl implements PaxosAcceptor {
     private static final Logger logger = LoggerFactory.getLogger(PaxosAcceptorImpl.class);
 
+    private static final String RANGE_PROMISE_LOG_DIR = "range-promise";
+
     /**
      * @param logDir string path for directory to place durable logs
      * @param type the type of the objects accepted by the acceptor
      * @return a new acceptor
      */
     public static PaxosAcceptor newAcceptor(String logDir) {
-        PaxosStateLog<PaxosAcceptorState> log = new PaxosStateLogImpl<PaxosAcceptorState>(logDir);
+        PaxosStateLog<PaxosAcceptorState> log = new SegmentedPaxosStateLog<PaxosAcceptorState>(logDir);
+        PaxosStateLog<PaxosAcceptorState> rangePromiseLog = new SegmentedPaxosStateLog<PaxosAcceptorState>(
+                new File(logDir, RANGE_PROMISE_LOG_DIR).getPath());
         return new PaxosAcceptorImpl(
                 new ConcurrentSkipListMap<Long, PaxosAcceptorState>(),
                 log,
-                log.getGreatestLogEntry());
+                log.getGreatestLogEntry(),
+                rangePromiseLog);
     }
 
     final ConcurrentSkipListMap<Long, PaxosAcceptorState> state;
     final PaxosStateLog<PaxosAcceptorState> log;
     final long greatestInLogAtStartup;
 
+    // The range promise applies to every round from rangePromiseSeq onwards that has no state of its own.
+    // prepare and accept hold the read lock so that prepareFrom sees a consistent view of the later rounds.
+    final PaxosStateLog<PaxosAcceptorState> rangePromiseLog;
+    private final ReadWriteLock rangePromiseLock = new ReentrantReadWriteLock();
+    private long rangePromiseSeq;
+    private PaxosProposalId rangePromisedId;
+
     private PaxosAcceptorImpl(ConcurrentSkipListMap<Long, PaxosAcceptorState> state,
                               PaxosStateLog<PaxosAcceptorState> log,
-                              long greatestInLogAtStartup) {
+                              long greatestInLogAtStartup,
+                              PaxosStateLog<PaxosAcceptorState> rangePromiseLog) {
         this.state = state;
         this.log = log;
         this.greatestInLogAtStartup = greatestInLogAtStartup;
+        this.rangePromiseLog = rangePromiseLog;
+        this.rangePromiseSeq = rangePromiseLog.getGreatestLogEntry();
+        this.rangePromisedId = readRangePromise(rangePromiseLog, rangePromiseSeq);
+    }
+
+    private static PaxosProposalId readRangePromise(PaxosStateLog<PaxosAcceptorState> rangePromiseLog, long seq) {
+        if (seq == NO_LOG_ENTRY) {
+            return null;
+        }
+        try {
+            byte[] bytes = rangePromiseLog.readRound(seq);
+            return bytes != null ? PaxosAcceptorState.BYTES_HYDRATOR.hydrateFromBytes(bytes).lastPromisedId : null;
+        } catch (IOException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
     }
 
     @Override
@@ -58,6 +91,15 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return PaxosPromise.reject(pid);
         }
 
+        rangePromiseLock.readLock().lock();
+        try {
+            return prepareInternal(seq, pid);
+        } finally {
+            rangePromiseLock.readLock().unlock();
+        }
+    }
+
+    private PaxosPromise prepareInternal(long seq, PaxosProposalId pid) {
         for (;;) {
             PaxosAcceptorState oldState = state.get(seq);
 
@@ -65,6 +107,11 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
                 return PaxosPromise.reject(oldState.lastPromisedId);
             }
 
+            PaxosProposalId rangePromise = getRangePromise(seq);
+            if (oldState == null && rangePromise != null && pid.compareTo(rangePromise) < 0) {
+                return PaxosPromise.reject(rangePromise);
+            }
+
             // allow for the same propose to be repeated and return the same result.
             if (oldState != null && pid.compareTo(oldState.lastPromisedId) == 0) {
                 return PaxosPromise.accept(
@@ -87,6 +134,40 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
         }
     }
 
+    @Override
+    public PaxosPromise prepareFrom(long seq, PaxosProposalId pid) {
+        try {
+            checkLogIfNeeded(seq);
+        } catch (Exception e) {
+            logger.error("log read failed for request: {}", seq, e);
+            return PaxosPromise.reject(pid);
+        }
+
+        rangePromiseLock.writeLock().lock();
+        try {
+            if (rangePromisedId != null && pid.compareTo(rangePromisedId) < 0) {
+                return PaxosPromise.reject(rangePromisedId);
+            }
+            // later rounds may already hold accepted values that the proposer would not learn about, and
+            // moving an existing range promise back would leave rounds it did not cover unprotected
+            if (getLatestSequencePreparedOrAccepted() > seq
+                    || (rangePromiseSeq != NO_LOG_ENTRY && seq + 1 < rangePromiseSeq)) {
+                return PaxosPromise.reject(pid);
+            }
+
+            PaxosPromise promise = prepareInternal(seq, pid);
+            if (promise.isSuccessful()) {
+                long fromSeq = rangePromiseSeq != NO_LOG_ENTRY ? rangePromiseSeq : seq + 1;
+                rangePromiseLog.writeRound(fromSeq, PaxosAcceptorState.newState(pid));
+                rangePromiseSeq = fromSeq;
+                rangePromisedId = pid;
+            }
+            return promise;
+        } finally {
+            rangePromiseLock.writeLock().unlock();
+        }
+    }
+
     @Override
     public BooleanPaxosResponse accept(long seq, PaxosProposal proposal) {
         try {
@@ -96,6 +177,15 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             return new BooleanPaxosResponse(false); // nack
         }
 
+        rangePromiseLock.readLock().lock();
+        try {
+            return acceptInternal(seq, proposal);
+        } finally {
+            rangePromiseLock.readLock().unlock();
+        }
+    }
+
+    private BooleanPaxosResponse acceptInternal(long seq, PaxosProposal proposal) {
         for (;;) {
             PaxosAcceptorState oldState = state.get(seq);
 
@@ -103,11 +193,15 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
             if (oldState != null && proposal.id.compareTo(oldState.lastPromisedId) < 0) {
                 return new BooleanPaxosResponse(false);
             }
+            PaxosProposalId rangePromise = getRangePromise(seq);
+            if (oldState == null && rangePromise != null && proposal.id.compareTo(rangePromise) < 0) {
+                return new BooleanPaxosResponse(false);
+            }
 
             // ack
             PaxosAcceptorState newState = oldState != null
                     ? oldState.withState(proposal.id, proposal.id, proposal.val)
-                    : PaxosAcceptorState.newState(proposal.id);
+                    : PaxosAcceptorState.newState(proposal.id).withState(proposal.id, proposal.id, proposal.val);
             if ((oldState == null && state.putIfAbsent(seq, newState) == null)
                     || (oldState != null && state.replace(seq, oldState, newState))) {
                 log.writeRound(seq, newState);
@@ -116,6 +210,10 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
         }
     }
 
+    private PaxosProposalId getRangePromise(long seq) {
+        return rangePromiseSeq != NO_LOG_ENTRY && seq >= rangePromiseSeq ? rangePromisedId : null;
+    }
+
     @Override
     public long getLatestSequencePreparedOrAccepted() {
         if (state.isEmpty()) {
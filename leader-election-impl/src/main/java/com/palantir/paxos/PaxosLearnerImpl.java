@@ -34,7 +34,7 @@ public class PaxosLearnerImpl implements PaxosLearner {
      * @return a new learner
      */
     public static PaxosLearner newLearner(String logDir) {
-        PaxosStateLogImpl<PaxosValue> log = new PaxosStateLogImpl<PaxosValue>(logDir);
+        PaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<PaxosValue>(logDir);
         ConcurrentSkipListMap<Long, PaxosValue> state = new ConcurrentSkipListMap<Long, PaxosValue>();
 
         byte[] greatestValidValue = PaxosStateLogs.getGreatestValidLogEntry(log);
@@ -19,9 +19,11 @@ import static com.google.common.collect.ImmutableList.copyOf;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nullable;
 
@@ -31,28 +33,49 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 
 /**
  * Implementation of a paxos proposer than can be a designated proposer (leader) and designated
  * learner (informer).
+ * <p>
+ * In multi-paxos mode the proposer asks acceptors to promise its proposal id for all later rounds as well,
+ * and while it holds such promises from a quorum it runs only phase two for each new round.
  *
  * @author rullman
  */
 public class PaxosProposerImpl implements PaxosProposer {
     private static final Logger log = LoggerFactory.getLogger(PaxosProposerImpl.class);
 
+    // bounds the memory used to remember which rounds a lease has been used for
+    private static final int MAX_ROUNDS_PER_LEASE = 100_000;
+
     public static PaxosProposer newProposer(PaxosLearner localLearner,
                                             List<PaxosAcceptor> allAcceptors,
                                             List<PaxosLearner> allLearners,
                                             int quorumSize,
                                             ExecutorService executor) {
+        return newProposer(localLearner, allAcceptors, allLearners, quorumSize, executor, false);
+    }
+
+    /**
+     * @param multiPaxos whether to skip phase one for later rounds once a quorum of acceptors has promised
+     *        this proposer's id for them. All acceptors must support {@link PaxosAcceptor#prepareFrom}.
+     */
+    public static PaxosProposer newProposer(PaxosLearner localLearner,
+                                            List<PaxosAcceptor> allAcceptors,
+                                            List<PaxosLearner> allLearners,
+                                            int quorumSize,
+                                            ExecutorService executor,
+                                            boolean multiPaxos) {
         return new PaxosProposerImpl(
                 localLearner,
                 allAcceptors,
                 allLearners,
                 quorumSize,
                 UUID.randomUUID().toString(),
-                executor);
+                executor,
+                multiPaxos);
     }
 
     final ImmutableList<PaxosAcceptor> allAcceptors;
@@ -61,15 +84,19 @@ public class PaxosProposerImpl implements PaxosProposer {
     final int quorumSize;
     final String uuid;
     final AtomicLong proposalNum;
+    final boolean multiPaxos;
 
     private final ExecutorService executor;
+    private final AtomicReference<Lease> lease = new AtomicReference<Lease>();
+    private final AtomicLong greatestProposedSeq = new AtomicLong(Long.MIN_VALUE);
 
     private PaxosProposerImpl(PaxosLearner localLearner,
                               List<PaxosAcceptor> acceptors,
                               List<PaxosLearner> learners,
                               int quorumSize,
                               String uuid,
-                              ExecutorService executor) {
+                              ExecutorService executor,
+                              boolean multiPaxos) {
         Preconditions.checkState(
                 quorumSize > acceptors.size() / 2,
                 "quorum size needs to be at least the majority of acceptors");
@@ -80,18 +107,16 @@ public class PaxosProposerImpl implements PaxosProposer {
         this.uuid = uuid;
         this.proposalNum = new AtomicLong();
         this.executor = executor;
+        this.multiPaxos = multiPaxos;
     }
 
     @Override
     public byte[] propose(final long seq, @Nullable byte[] bytes) throws PaxosRoundFailureException {
-        final PaxosProposalId proposalID = new PaxosProposalId(proposalNum.incrementAndGet(), uuid);
         PaxosValue toPropose = new PaxosValue(uuid, seq, bytes);
 
-        // paxos phase one (prepare and promise)
-        final PaxosValue finalValue = phaseOne(seq, proposalID, toPropose);
-
-        // paxos phase two (accept request and accepted)
-        phaseTwo(seq, proposalID, finalValue);
+        final PaxosValue finalValue = multiPaxos
+                ? proposeWithLease(seq, toPropose)
+                : proposeWithFullRound(seq, toPropose, false);
 
         // broadcast learned value
         for (final PaxosLearner learner : allLearners) {
@@ -118,6 +143,48 @@ public class PaxosProposerImpl implements PaxosProposer {
         return finalValue.getData();
     }
 
+    private PaxosValue proposeWithFullRound(long seq, PaxosValue toPropose, boolean acquireLease)
+            throws PaxosRoundFailureException {
+        PaxosProposalId proposalID = new PaxosProposalId(proposalNum.incrementAndGet(), uuid);
+
+        // paxos phase one (prepare and promise)
+        PaxosValue finalValue = phaseOne(seq, proposalID, toPropose, acquireLease);
+        if (acquireLease) {
+            lease.set(new Lease(proposalID, seq + 1));
+        }
+
+        // paxos phase two (accept request and accepted)
+        phaseTwo(seq, proposalID, finalValue);
+        return finalValue;
+    }
+
+    private PaxosValue proposeWithLease(long seq, PaxosValue toPropose) throws PaxosRoundFailureException {
+        // acceptors refuse a lease if they know of later rounds, so only ask for one when proposing the latest round
+        boolean isLatestRound = greatestProposedSeq.getAndAccumulate(seq, Math::max) <= seq;
+
+        Lease currentLease = lease.get();
+        if (currentLease != null && currentLease.tryUse(seq)) {
+            try {
+                // a quorum has promised us this round and nothing was accepted in it, so go straight to phase two
+                phaseTwo(seq, currentLease.proposalId, toPropose);
+                return toPropose;
+            } catch (PaxosRoundFailureException e) {
+                // another proposer has prepared this round; a full round will pick up anything it got accepted
+                lease.compareAndSet(currentLease, null);
+                return proposeWithFullRound(seq, toPropose, false);
+            }
+        }
+
+        if ((currentLease == null || currentLease.isExhausted()) && isLatestRound) {
+            try {
+                return proposeWithFullRound(seq, toPropose, true);
+            } catch (PaxosRoundFailureException e) {
+                log.debug("failed to acquire a multi-paxos lease for round {}, retrying with a single round", seq, e);
+            }
+        }
+        return proposeWithFullRound(seq, toPropose, false);
+    }
+
     /**
      * Executes phase one of paxos (see
      * http://en.wikipedia.org/wiki/Paxos_(computer_science)#Basic_Paxos)
@@ -126,10 +193,14 @@ public class PaxosProposerImpl implements PaxosProposer {
      * @param proposalID the id of the proposal currently being considered
      * @param proposalValue the default proposal value if no member of the quorum has already
      *        accepted an offer
+     * @param promiseLaterRounds whether to also ask the acceptors to promise this id for all later rounds
      * @return the value accepted by the quorum
      * @throws PaxosRoundFailureException if quorum cannot be reached in this phase
      */
-    private PaxosValue phaseOne(final long seq, final PaxosProposalId pid, PaxosValue value)
+    private PaxosValue phaseOne(final long seq,
+                                final PaxosProposalId pid,
+                                PaxosValue value,
+                                final boolean promiseLaterRounds)
             throws PaxosRoundFailureException {
         List<PaxosPromise> receivedPromises = PaxosQuorumChecker.<PaxosAcceptor, PaxosPromise> collectQuorumResponses(
                 allAcceptors,
@@ -137,7 +208,7 @@ public class PaxosProposerImpl implements PaxosProposer {
                     @Override
                     @Nullable
                     public PaxosPromise apply(@Nullable PaxosAcceptor acceptor) {
-                        return acceptor.prepare(seq, pid);
+                        return promiseLaterRounds ? acceptor.prepareFrom(seq, pid) : acceptor.prepare(seq, pid);
                     }
                 },
                 quorumSize,
@@ -207,4 +278,28 @@ public class PaxosProposerImpl implements PaxosProposer {
         return uuid;
     }
 
+    /**
+     * A proposal id that a quorum of acceptors has promised for every round from {@code fromSeq} onwards.
+     * Each round may be proposed at most once under the lease, since proposing a different value in a round
+     * with the same id could overwrite a value that was already chosen.
+     */
+    private static final class Lease {
+        final PaxosProposalId proposalId;
+        final long fromSeq;
+        final Set<Long> usedSeqs = Sets.newConcurrentHashSet();
+
+        Lease(PaxosProposalId proposalId, long fromSeq) {
+            this.proposalId = proposalId;
+            this.fromSeq = fromSeq;
+        }
+
+        boolean tryUse(long seq) {
+            return seq >= fromSeq && !isExhausted() && usedSeqs.add(seq);
+        }
+
+        boolean isExhausted() {
+            return usedSeqs.size() >= MAX_ROUNDS_PER_LEASE;
+        }
+    }
+
 }
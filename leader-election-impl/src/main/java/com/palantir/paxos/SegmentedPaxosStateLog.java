@@ -0,0 +1,493 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.persist.Persistable;
+
+/**
+ * A {@link PaxosStateLog} that appends rounds to memory-mapped segment files instead of writing a file per round.
+ * <p>
+ * Each record is framed with its length, type, sequence number and a CRC32 of its contents, and the latest record
+ * for a sequence number wins. An in-memory index maps sequence numbers to records and is rebuilt by scanning the
+ * segments on startup. Writers that append concurrently share a single fsync.
+ * <p>
+ * Truncation is itself recorded in the log, and segments holding only truncated rounds are deleted. Rounds left
+ * in a directory by {@link PaxosStateLogImpl} are moved into the segments when the log is opened.
+ */
+public class SegmentedPaxosStateLog<V extends Persistable & Versionable> implements PaxosStateLog<V> {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedPaxosStateLog.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    // payload length (int), type (byte), seq (long), crc (int)
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+    private static final byte END_OF_SEGMENT = 0;
+    private static final byte ROUND = 1;
+    private static final byte TRUNCATION = 2;
+    // stands in for the empty file that PaxosStateLogImpl creates so that a new log's least entry is NO_LOG_ENTRY
+    private static final byte NO_ENTRY_MARKER = 3;
+
+    final String path;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<Long, Segment>();
+    private final ConcurrentSkipListMap<Long, Location> index = new ConcurrentSkipListMap<Long, Location>();
+
+    private final Lock appendLock = new ReentrantLock();
+    private final Lock syncLock = new ReentrantLock();
+    @GuardedBy("appendLock")
+    private Segment current;
+    @GuardedBy("syncLock")
+    private long syncedPosition = -1L;
+
+    public SegmentedPaxosStateLog(String path) {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    @VisibleForTesting
+    SegmentedPaxosStateLog(String path, int segmentSize) {
+        this.path = path;
+        this.segmentSize = segmentSize;
+        try {
+            FileUtils.forceMkdir(new File(path));
+            recover();
+            List<File> legacyRounds = getLegacyRounds();
+            if (!legacyRounds.isEmpty()) {
+                convertLegacyRounds(legacyRounds);
+            } else if (!hasRecords()) {
+                append(NO_ENTRY_MARKER, PaxosAcceptor.NO_LOG_ENTRY, new byte[0]);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO problem related to the path " + new File(path).getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public void writeRound(long seq, V round) {
+        byte[] bytes = round.persistToBytes();
+        long position;
+        appendLock.lock();
+        try {
+            // reject old state
+            Location latest = index.get(seq);
+            if (latest != null && round.getVersion() < latest.version) {
+                return;
+            }
+            position = append(ROUND, seq, bytes, round.getVersion());
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public byte[] readRound(long seq) throws IOException {
+        Location location = index.get(seq);
+        if (location == null || location.type != ROUND) {
+            return null;
+        }
+        Segment segment = segments.get(location.segmentId);
+        if (segment == null) {
+            // truncated concurrently
+            return null;
+        }
+        Record record = segment.read(location.offset);
+        if (record == null || record.seq != seq) {
+            throw new CorruptLogFileException();
+        }
+        return record.payload;
+    }
+
+    @Override
+    public long getLeastLogEntry() {
+        Map.Entry<Long, Location> least = index.firstEntry();
+        return least != null ? least.getKey() : PaxosAcceptor.NO_LOG_ENTRY;
+    }
+
+    @Override
+    public long getGreatestLogEntry() {
+        Map.Entry<Long, Location> greatest = index.lastEntry();
+        return greatest != null ? greatest.getKey() : PaxosAcceptor.NO_LOG_ENTRY;
+    }
+
+    @Override
+    public void truncate(long toDeleteInclusive) {
+        long position;
+        appendLock.lock();
+        try {
+            long greatestLogEntry = getGreatestLogEntry();
+            if (greatestLogEntry >= 0) {
+                // We never want to remove our most recent entry
+                toDeleteInclusive = Math.min(greatestLogEntry - 1, toDeleteInclusive);
+            }
+            position = append(TRUNCATION, toDeleteInclusive, new byte[0]);
+            index.headMap(toDeleteInclusive, true).clear();
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(position);
+        deleteTruncatedSegments(toDeleteInclusive);
+    }
+
+    private void deleteTruncatedSegments(long truncatedInclusive) {
+        appendLock.lock();
+        try {
+            for (Segment segment : Lists.newArrayList(segments.values())) {
+                if (segment != current && segment.greatestSeq <= truncatedInclusive) {
+                    segments.remove(segment.id);
+                    if (!segment.file.delete()) {
+                        log.warn("failed to delete log segment {}", segment.file.getAbsolutePath());
+                    }
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record to the current segment, moving on to a new segment if it does not fit.
+     *
+     * @return the position to pass to {@link #awaitDurable(long)} to wait for the record to be synced
+     */
+    @GuardedBy("appendLock")
+    private long append(byte type, long seq, byte[] payload) {
+        return append(type, seq, payload, Long.MIN_VALUE);
+    }
+
+    @GuardedBy("appendLock")
+    private long append(byte type, long seq, byte[] payload, long version) {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (current == null || current.writeOffset + recordSize > current.capacity) {
+            startNewSegment(recordSize);
+        }
+        int offset = current.write(type, seq, payload);
+        current.greatestSeq = Math.max(current.greatestSeq, seq);
+        if (type != TRUNCATION) {
+            index.put(seq, new Location(type, current.id, offset, version));
+        }
+        return position(current);
+    }
+
+    @GuardedBy("appendLock")
+    private void startNewSegment(int minimumCapacity) {
+        long id = 0;
+        if (current != null) {
+            // everything in the old segment must be durable before anything in the new one is acknowledged
+            current.force();
+            id = current.id + 1;
+        }
+        try {
+            current = Segment.create(new File(path, SEGMENT_PREFIX + id), id, Math.max(segmentSize, minimumCapacity));
+        } catch (IOException e) {
+            throw Throwables.rewrapAndThrowUncheckedException("problem creating paxos log segment", e);
+        }
+        segments.put(id, current);
+    }
+
+    /**
+     * Group commit: the first writer to get here syncs everything appended so far, and writers whose records were
+     * covered by that sync return without syncing again.
+     */
+    private void awaitDurable(long position) {
+        syncLock.lock();
+        try {
+            if (syncedPosition >= position) {
+                return;
+            }
+            Segment segment;
+            long target;
+            appendLock.lock();
+            try {
+                segment = current;
+                target = position(current);
+            } finally {
+                appendLock.unlock();
+            }
+            segment.force();
+            syncedPosition = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private static long position(Segment segment) {
+        return (segment.id << 32) | segment.writeOffset;
+    }
+
+    private boolean hasRecords() {
+        for (Segment segment : segments.values()) {
+            if (segment.greatestSeq != Long.MIN_VALUE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recover() throws IOException {
+        File[] files = new File(path).listFiles();
+        if (files == null) {
+            return;
+        }
+        List<Long> ids = Lists.newArrayList();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX)) {
+                ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length())));
+            }
+        }
+        Collections.sort(ids);
+
+        for (int i = 0; i < ids.size(); i++) {
+            long id = ids.get(i);
+            boolean isLastSegment = i == ids.size() - 1;
+            Segment segment = Segment.open(new File(path, SEGMENT_PREFIX + id), id);
+            segments.put(id, segment);
+            replay(segment, isLastSegment);
+            current = segment;
+        }
+    }
+
+    private void replay(Segment segment, boolean isLastSegment) throws IOException {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segment.capacity) {
+            Record record = segment.read(offset);
+            if (record == null) {
+                if (!isLastSegment && !segment.isEndOfSegment(offset)) {
+                    throw new CorruptLogFileException();
+                }
+                break;
+            }
+            segment.greatestSeq = Math.max(segment.greatestSeq, record.seq);
+            if (record.type == TRUNCATION) {
+                index.headMap(record.seq, true).clear();
+            } else {
+                index.put(record.seq, new Location(record.type, segment.id, offset, Long.MIN_VALUE));
+            }
+            offset += HEADER_SIZE + record.payload.length;
+        }
+        segment.writeOffset = offset;
+        if (isLastSegment) {
+            // records after a torn write were never acknowledged, and must not reappear once we write over it
+            segment.clearFrom(offset);
+        }
+    }
+
+    private List<File> getLegacyRounds() {
+        List<File> rounds = Lists.newArrayList();
+        File[] files = new File(path).listFiles();
+        if (files == null) {
+            return rounds;
+        }
+        for (File file : files) {
+            try {
+                Long.parseLong(file.getName());
+                rounds.add(file);
+            } catch (NumberFormatException e) {
+                // not a round written by PaxosStateLogImpl
+            }
+        }
+        return rounds;
+    }
+
+    /**
+     * Copies the rounds of a {@link PaxosStateLogImpl} directory into the segments, and only deletes them once
+     * the copies are durable. If we fail half way, the next attempt skips the rounds that were already copied, as
+     * they may have been overwritten since. A converted round that cannot be deleted would come back on the next
+     * start, so we refuse to start instead.
+     */
+    private void convertLegacyRounds(List<File> legacyRounds) throws IOException {
+        log.info("converting {} paxos rounds in {} to a segmented log", legacyRounds.size(), path);
+        PaxosStateLogImpl<V> legacyLog = new PaxosStateLogImpl<V>(path);
+        long position = -1L;
+        appendLock.lock();
+        try {
+            for (File file : legacyRounds) {
+                long seq = Long.parseLong(file.getName());
+                if (index.containsKey(seq)) {
+                    continue;
+                }
+                if (seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                    position = append(NO_ENTRY_MARKER, seq, new byte[0]);
+                    continue;
+                }
+                byte[] bytes = legacyLog.readRound(seq);
+                if (bytes != null) {
+                    position = append(ROUND, seq, bytes);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (position >= 0) {
+            awaitDurable(position);
+        }
+        for (File file : legacyRounds) {
+            if (!file.delete()) {
+                throw new IOException("failed to delete converted log file " + file.getAbsolutePath()
+                        + "; delete it by hand before restarting");
+            }
+        }
+    }
+
+    private static final class Location {
+        final byte type;
+        final long segmentId;
+        final int offset;
+        // versions are only tracked for rounds written since startup, as in PaxosStateLogImpl
+        final long version;
+
+        Location(byte type, long segmentId, int offset, long version) {
+            this.type = type;
+            this.segmentId = segmentId;
+            this.offset = offset;
+            this.version = version;
+        }
+    }
+
+    private static final class Record {
+        final byte type;
+        final long seq;
+        final byte[] payload;
+
+        Record(byte type, long seq, byte[] payload) {
+            this.type = type;
+            this.seq = seq;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Segment {
+        final File file;
+        final long id;
+        final int capacity;
+        // never moved; all access goes through duplicates so that concurrent readers do not share a position
+        private final MappedByteBuffer buffer;
+        int writeOffset = 0;
+        long greatestSeq = Long.MIN_VALUE;
+
+        private Segment(File file, long id, MappedByteBuffer buffer) {
+            this.file = file;
+            this.id = id;
+            this.capacity = buffer.capacity();
+            this.buffer = buffer;
+        }
+
+        static Segment create(File file, long id, int capacity) throws IOException {
+            return new Segment(file, id, map(file, capacity));
+        }
+
+        static Segment open(File file, long id) throws IOException {
+            return new Segment(file, id, map(file, (int) file.length()));
+        }
+
+        private static MappedByteBuffer map(File file, int capacity) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(capacity);
+                // the mapping stays valid after the file is closed
+                return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } finally {
+                raf.close();
+            }
+        }
+
+        int write(byte type, long seq, byte[] payload) {
+            int offset = writeOffset;
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.putInt(payload.length);
+            view.put(type);
+            view.putLong(seq);
+            view.putInt(checksum(type, seq, payload));
+            view.put(payload);
+            writeOffset = view.position();
+            return offset;
+        }
+
+        /**
+         * @return the record at the given offset, or null if there is no complete, valid record there
+         */
+        Record read(int offset) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            int length = view.getInt();
+            byte type = view.get();
+            if (type == END_OF_SEGMENT || length < 0 || length > capacity - offset - HEADER_SIZE) {
+                return null;
+            }
+            long seq = view.getLong();
+            int checksum = view.getInt();
+            byte[] payload = new byte[length];
+            view.get(payload);
+            if (checksum != checksum(type, seq, payload)) {
+                return null;
+            }
+            return new Record(type, seq, payload);
+        }
+
+        boolean isEndOfSegment(int offset) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            return view.getInt() == 0 && view.get() == END_OF_SEGMENT;
+        }
+
+        void clearFrom(int offset) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            byte[] zeros = new byte[4096];
+            while (view.hasRemaining()) {
+                view.put(zeros, 0, Math.min(zeros.length, view.remaining()));
+            }
+            force();
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        private static int checksum(byte type, long seq, byte[] payload) {
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(ByteBuffer.allocate(8).putLong(seq).array());
+            crc.update(payload);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class MultiPaxosTest {
+    private static final int NUM_NODES = 3;
+    private static final int QUORUM_SIZE = 2;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+    private final List<PaxosAcceptor> acceptors = Lists.newArrayList();
+    private final List<PaxosLearner> learners = Lists.newArrayList();
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < NUM_NODES; i++) {
+            acceptors.add(spy(PaxosAcceptorImpl.newAcceptor(folder.newFolder().getPath())));
+            learners.add(PaxosLearnerImpl.newLearner(folder.newFolder().getPath()));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void laterRoundsSkipPhaseOne() throws PaxosRoundFailureException {
+        PaxosProposer proposer = createProposer(0, true);
+
+        assertThat(proposer.propose(0, new byte[] {10})).isEqualTo(new byte[] {10});
+        assertThat(proposer.propose(1, new byte[] {11})).isEqualTo(new byte[] {11});
+        assertThat(proposer.propose(2, new byte[] {12})).isEqualTo(new byte[] {12});
+
+        for (PaxosAcceptor acceptor : acceptors) {
+            verify(acceptor, never()).prepare(anyLong(), any(PaxosProposalId.class));
+            verify(acceptor, never()).prepareFrom(eq(1L), any(PaxosProposalId.class));
+            verify(acceptor, never()).prepareFrom(eq(2L), any(PaxosProposalId.class));
+        }
+        assertThat(learners.get(0).getLearnedValue(2).getData()).isEqualTo(new byte[] {12});
+    }
+
+    @Test
+    public void competingProposerValueIsKeptWhenLeaseIsLost() throws PaxosRoundFailureException {
+        PaxosProposer leader = createProposer(0, true);
+        PaxosProposer competitor = createProposer(1, false);
+
+        leader.propose(0, new byte[] {10});
+        byte[] competitorValue = proposeUntilSuccessful(competitor, 1, new byte[] {21});
+
+        assertThat(proposeUntilSuccessful(leader, 1, new byte[] {11})).isEqualTo(competitorValue);
+    }
+
+    @Test
+    public void rangePromiseSurvivesRestart() throws IOException {
+        String logDir = folder.newFolder().getPath();
+        PaxosProposalId promised = new PaxosProposalId(5, "leader");
+        assertThat(PaxosAcceptorImpl.newAcceptor(logDir).prepareFrom(0, promised).isSuccessful()).isTrue();
+
+        PaxosAcceptor restarted = PaxosAcceptorImpl.newAcceptor(logDir);
+        PaxosProposalId lower = new PaxosProposalId(4, "other");
+        PaxosPromise rejection = restarted.prepare(3, lower);
+        assertThat(rejection.isSuccessful()).isFalse();
+        assertThat(rejection.getPromisedId()).isEqualTo(promised);
+        assertThat(restarted.accept(3, new PaxosProposal(lower, new PaxosValue("other", 3, null))).isSuccessful())
+                .isFalse();
+        assertThat(restarted.prepare(3, new PaxosProposalId(6, "other")).isSuccessful()).isTrue();
+    }
+
+    @Test
+    public void rangePromiseIsRefusedIfLaterRoundsAreKnown() throws IOException {
+        PaxosAcceptor acceptor = PaxosAcceptorImpl.newAcceptor(folder.newFolder().getPath());
+        acceptor.prepare(5, new PaxosProposalId(1, "other"));
+
+        assertThat(acceptor.prepareFrom(2, new PaxosProposalId(2, "leader")).isSuccessful()).isFalse();
+        assertThat(acceptor.prepareFrom(5, new PaxosProposalId(2, "leader")).isSuccessful()).isTrue();
+    }
+
+    private PaxosProposer createProposer(int node, boolean multiPaxos) {
+        return PaxosProposerImpl.newProposer(
+                learners.get(node),
+                ImmutableList.copyOf(acceptors),
+                ImmutableList.copyOf(learners),
+                QUORUM_SIZE,
+                executor,
+                multiPaxos);
+    }
+
+    private static byte[] proposeUntilSuccessful(PaxosProposer proposer, long seq, byte[] value) {
+        // proposal ids with equal numbers are ordered by the random proposer uuid, so the first attempt may be
+        // rejected; a rejection bumps the proposal number so that the next attempt wins
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return proposer.propose(seq, value);
+            } catch (PaxosRoundFailureException e) {
+                assertThat(attempt).isLessThan(NUM_NODES);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+public class SegmentedPaxosStateLogTest {
+    private static final int SMALL_SEGMENT_SIZE = 512;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private String dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.newFolder().getPath();
+    }
+
+    @Test
+    public void newLogHasNoEntries() {
+        SegmentedPaxosStateLog<PaxosValue> log = openLog();
+
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+    }
+
+    @Test
+    public void roundsSurviveReopeningAcrossSegments() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = openLog();
+        for (long seq = 0; seq < 50; seq++) {
+            log.writeRound(seq, value(seq, "value" + seq));
+        }
+        assertThat(new File(dir).list().length).isGreaterThan(1);
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = openLog();
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(49L);
+        for (long seq = 0; seq < 50; seq++) {
+            assertThat(readValue(reopened, seq)).isEqualTo("value" + seq);
+        }
+    }
+
+    @Test
+    public void latestWriteOfARoundWins() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = openLog();
+        log.writeRound(3, value(3, "first"));
+        log.writeRound(3, value(3, "second"));
+
+        assertThat(readValue(log, 3)).isEqualTo("second");
+        assertThat(readValue(openLog(), 3)).isEqualTo("second");
+    }
+
+    @Test
+    public void truncationIsDurableAndKeepsTheGreatestEntry() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = openLog();
+        for (long seq = 0; seq < 50; seq++) {
+            log.writeRound(seq, value(seq, "value" + seq));
+        }
+        int segmentsBeforeTruncation = new File(dir).list().length;
+
+        log.truncate(20);
+        assertThat(log.readRound(20)).isNull();
+        assertThat(log.getLeastLogEntry()).isEqualTo(21L);
+        assertThat(new File(dir).list().length).isLessThan(segmentsBeforeTruncation);
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = openLog();
+        assertThat(reopened.readRound(10)).isNull();
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(21L);
+
+        reopened.truncate(100);
+        assertThat(reopened.getLeastLogEntry()).isEqualTo(49L);
+        assertThat(readValue(reopened, 49)).isEqualTo("value49");
+    }
+
+    @Test
+    public void concurrentWritersAreAllDurable() throws Exception {
+        final SegmentedPaxosStateLog<PaxosValue> log = openLog();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < 8; thread++) {
+            final long firstSeq = thread * 1000L;
+            futures.add(executor.submit(() -> {
+                for (long seq = firstSeq; seq < firstSeq + 100; seq++) {
+                    log.writeRound(seq, value(seq, "value" + seq));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = openLog();
+        for (int thread = 0; thread < 8; thread++) {
+            for (long seq = thread * 1000L; seq < thread * 1000L + 100; seq++) {
+                assertThat(readValue(reopened, seq)).isEqualTo("value" + seq);
+            }
+        }
+    }
+
+    @Test
+    public void tornWriteAtTheEndIsDiscarded() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = new SegmentedPaxosStateLog<PaxosValue>(dir, 4096);
+        log.writeRound(1, value(1, "one"));
+        try (RandomAccessFile segment = new RandomAccessFile(new File(dir, "segment-0"), "rw")) {
+            segment.seek(200);
+            segment.write(new byte[] {0, 0, 0, 5, 1, 0, 0, 0, 0, 0, 0, 0, 7});
+        }
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = new SegmentedPaxosStateLog<PaxosValue>(dir, 4096);
+        assertThat(reopened.getGreatestLogEntry()).isEqualTo(1L);
+        reopened.writeRound(2, value(2, "two"));
+        assertThat(readValue(new SegmentedPaxosStateLog<PaxosValue>(dir, 4096), 2)).isEqualTo("two");
+    }
+
+    @Test
+    public void convertsRoundsWrittenOneFilePerRound() throws IOException {
+        PaxosStateLogImpl<PaxosValue> legacyLog = new PaxosStateLogImpl<PaxosValue>(dir);
+        for (long seq = 0; seq < 5; seq++) {
+            legacyLog.writeRound(seq, value(seq, "legacy" + seq));
+        }
+
+        SegmentedPaxosStateLog<PaxosValue> log = openLog();
+        assertThat(log.getLeastLogEntry()).isEqualTo(PaxosAcceptor.NO_LOG_ENTRY);
+        assertThat(log.getGreatestLogEntry()).isEqualTo(4L);
+        assertThat(readValue(log, 2)).isEqualTo("legacy2");
+        assertThat(new File(dir, "2")).doesNotExist();
+        assertThat(readValue(openLog(), 4)).isEqualTo("legacy4");
+    }
+
+    @Test
+    public void leftoverLegacyRoundsDoNotOverwriteNewerState() throws IOException {
+        PaxosStateLogImpl<PaxosValue> legacyLog = new PaxosStateLogImpl<PaxosValue>(dir);
+        legacyLog.writeRound(2, value(2, "legacy2"));
+        byte[] legacyFile = Files.readAllBytes(new File(dir, "2").toPath());
+
+        SegmentedPaxosStateLog<PaxosValue> log = openLog();
+        log.writeRound(2, value(2, "new2"));
+        Files.write(new File(dir, "2").toPath(), legacyFile);
+
+        assertThat(readValue(openLog(), 2)).isEqualTo("new2");
+        assertThat(new File(dir, "2")).doesNotExist();
+    }
+
+    private SegmentedPaxosStateLog<PaxosValue> openLog() {
+        return new SegmentedPaxosStateLog<PaxosValue>(dir, SMALL_SEGMENT_SIZE);
+    }
+
+    private static PaxosValue value(long seq, String data) {
+        return new PaxosValue("leader", seq, data.getBytes());
+    }
+
+    private static String readValue(PaxosStateLog<PaxosValue> log, long seq) throws IOException {
+        return new String(PaxosValue.BYTES_HYDRATOR.hydrateFromBytes(log.readRound(seq)).getData());
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+/**
+ * A descriptor for a lock covering a whole table. It never equals a row or cell descriptor of the same table,
+ * which always contain a separator byte after the table name, so holding it does not by itself exclude writers
+ * of individual rows or cells: those must also take this lock in {@link LockMode#READ} mode.
+ */
+public class AtlasTableLockDescriptor {
+
+    private AtlasTableLockDescriptor() {
+        // cannot instantiate
+    }
+
+    /** Returns a {@code LockDescriptor} instance for the given table. */
+    public static LockDescriptor of(String tableName) {
+        Preconditions.checkArgument(!Strings.isNullOrEmpty(tableName));
+        return new LockDescriptor(tableName.getBytes());
+    }
+}
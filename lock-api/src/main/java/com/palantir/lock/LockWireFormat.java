@@ -0,0 +1,353 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Bytes;
+import com.palantir.common.base.Throwables;
+
+/**
+ * A compact binary encoding of {@link LockRequest}s and {@link HeldLocksToken}s, for lock requests with many
+ * locks, where the JSON encoding of the lock descriptors dominates the cost of the call.
+ * <p>
+ * Lock descriptors of Atlas rows and cells start with their table name, followed by a zero byte. Each distinct
+ * such prefix is written once per message and then referred to by its index. Numbers are written as varints, so
+ * that timestamps and lengths mostly take a few bytes. All other descriptors are written as they are.
+ * <p>
+ * Clients opt into the format by sending requests with the content type {@value #MEDIA_TYPE}, and get responses
+ * in it by accepting it.
+ * <p>
+ * Readers never allocate for a count or length before the bytes it describes have arrived, so a short malformed
+ * message cannot make them allocate more memory than the message itself takes.
+ */
+public final class LockWireFormat {
+    public static final String MEDIA_TYPE = "application/x-atlasdb-lock";
+
+    private static final byte VERSION = 1;
+
+    private static final int NULLABLE_ABSENT = 0;
+    private static final int NULLABLE_PRESENT = 1;
+
+    private static final int DESCRIPTOR_RAW = 0;
+    private static final int DESCRIPTOR_WITH_TABLE = 1;
+
+    // Lengths up to this are read in one go; longer ones are read in chunks of it as the bytes arrive
+    private static final int READ_CHUNK_SIZE = 8192;
+    // Leaves room for the array header, see ArrayList.MAX_ARRAY_SIZE
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final LockMode[] LOCK_MODES = LockMode.values();
+    private static final LockGroupBehavior[] LOCK_GROUP_BEHAVIORS = LockGroupBehavior.values();
+    private static final BlockingMode[] BLOCKING_MODES = BlockingMode.values();
+    private static final TimeUnit[] TIME_UNITS = TimeUnit.values();
+
+    private LockWireFormat() {
+        // cannot instantiate
+    }
+
+    public static byte[] encode(LockRequest request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(request, bytes);
+        } catch (IOException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static byte[] encode(HeldLocksToken token) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(token, bytes);
+        } catch (IOException e) {
+            throw Throwables.throwUncheckedException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static LockRequest decodeLockRequest(byte[] bytes) {
+        try {
+            return readLockRequest(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed lock request", e);
+        }
+    }
+
+    public static HeldLocksToken decodeHeldLocksToken(byte[] bytes) {
+        try {
+            return readHeldLocksToken(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed held locks token", e);
+        }
+    }
+
+    public static void write(LockRequest request, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeByte(VERSION);
+        writeLocks(request.getLockDescriptors(), out);
+        writeDuration(request.getLockTimeout(), out);
+        out.writeByte(request.getLockGroupBehavior().ordinal());
+        out.writeByte(request.getBlockingMode().ordinal());
+        if (request.getBlockingDuration() == null) {
+            out.writeByte(NULLABLE_ABSENT);
+        } else {
+            out.writeByte(NULLABLE_PRESENT);
+            writeDuration(request.getBlockingDuration(), out);
+        }
+        writeNullableVarLong(request.getVersionId(), out);
+        writeString(request.getCreatingThreadName(), out);
+        out.flush();
+    }
+
+    public static void write(HeldLocksToken token, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeByte(VERSION);
+        writeBytes(token.getTokenId().toByteArray(), out);
+        writeString(token.getClient().getClientId(), out);
+        writeVarLong(token.getCreationDateMs(), out);
+        writeVarLong(token.getExpirationDateMs(), out);
+        writeLocks(token.getLockDescriptors(), out);
+        writeDuration(token.getLockTimeout(), out);
+        writeNullableVarLong(token.getVersionId(), out);
+        out.flush();
+    }
+
+    public static LockRequest readLockRequest(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        checkVersion(in);
+        List<LockWithMode> locks = readLocks(in);
+        TimeDuration lockTimeout = readDuration(in);
+        LockGroupBehavior lockGroupBehavior = readEnum(LOCK_GROUP_BEHAVIORS, in);
+        BlockingMode blockingMode = readEnum(BLOCKING_MODES, in);
+        TimeDuration blockingDuration = in.readUnsignedByte() == NULLABLE_PRESENT ? readDuration(in) : null;
+        Long versionId = readNullableVarLong(in);
+        String creatingThreadName = readString(in);
+        return new LockRequest.SerializationProxy(locks, lockTimeout, lockGroupBehavior, blockingMode,
+                blockingDuration, versionId, creatingThreadName).build();
+    }
+
+    public static HeldLocksToken readHeldLocksToken(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        checkVersion(in);
+        BigInteger tokenId = new BigInteger(readBytes(in));
+        LockClient client = new LockClient(readString(in));
+        long creationDateMs = readVarLong(in);
+        long expirationDateMs = readVarLong(in);
+        List<LockWithMode> locks = readLocks(in);
+        TimeDuration lockTimeout = readDuration(in);
+        Long versionId = readNullableVarLong(in);
+
+        ImmutableSortedMap.Builder<LockDescriptor, LockMode> lockMap = ImmutableSortedMap.naturalOrder();
+        for (LockWithMode lock : locks) {
+            lockMap.put(lock.getLockDescriptor(), lock.getLockMode());
+        }
+        return new HeldLocksToken(tokenId, client, creationDateMs, expirationDateMs,
+                LockCollections.of(lockMap.build()), lockTimeout, versionId);
+    }
+
+    private static void checkVersion(DataInputStream in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported lock wire format version " + version);
+        }
+    }
+
+    private static void writeLocks(SortedLockCollection<LockDescriptor> locks, DataOutputStream out)
+            throws IOException {
+        Map<String, Integer> tableIndexes = Maps.newHashMap();
+        writeVarLong(locks.size(), out);
+        for (Map.Entry<LockDescriptor, LockMode> lock : locks.entries()) {
+            byte[] bytes = lock.getKey().getBytes();
+            int separator = Bytes.indexOf(bytes, (byte) 0);
+            out.writeByte(lock.getValue().ordinal());
+            if (separator <= 0) {
+                out.writeByte(DESCRIPTOR_RAW);
+                writeBytes(bytes, out);
+                continue;
+            }
+            // A new table is written with the index it will have, which readers use to add it to their dictionary
+            String table = new String(bytes, 0, separator, Charsets.ISO_8859_1);
+            Integer index = tableIndexes.get(table);
+            out.writeByte(DESCRIPTOR_WITH_TABLE);
+            if (index == null) {
+                index = tableIndexes.size();
+                tableIndexes.put(table, index);
+                writeVarLong(index, out);
+                writeVarLong(separator, out);
+                out.write(bytes, 0, separator);
+            } else {
+                writeVarLong(index, out);
+            }
+            writeVarLong(bytes.length - separator - 1, out);
+            out.write(bytes, separator + 1, bytes.length - separator - 1);
+        }
+    }
+
+    private static List<LockWithMode> readLocks(DataInputStream in) throws IOException {
+        int size = readLength(in);
+        List<byte[]> tables = Lists.newArrayList();
+        List<LockWithMode> locks = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            LockMode mode = readEnum(LOCK_MODES, in);
+            int kind = in.readUnsignedByte();
+            byte[] bytes;
+            if (kind == DESCRIPTOR_RAW) {
+                bytes = readBytes(in);
+            } else if (kind == DESCRIPTOR_WITH_TABLE) {
+                int index = readLength(in);
+                if (index == tables.size()) {
+                    tables.add(readBytes(in));
+                } else if (index > tables.size()) {
+                    throw new IOException("Table index " + index + " refers to an unknown table");
+                }
+                byte[] table = tables.get(index);
+                int remainderLength = readLength(in);
+                if (table.length + 1L + remainderLength > MAX_ARRAY_SIZE) {
+                    throw new IOException("Lock descriptor of " + (table.length + 1L + remainderLength)
+                            + " bytes is too long");
+                }
+                byte[] remainder = readBytes(remainderLength, in);
+                bytes = new byte[table.length + 1 + remainderLength];
+                System.arraycopy(table, 0, bytes, 0, table.length);
+                System.arraycopy(remainder, 0, bytes, table.length + 1, remainderLength);
+            } else {
+                throw new IOException("Unknown lock descriptor kind " + kind);
+            }
+            locks.add(new LockWithMode(new LockDescriptor(bytes), mode));
+        }
+        return locks;
+    }
+
+    private static void writeDuration(TimeDuration duration, DataOutputStream out) throws IOException {
+        writeVarLong(duration.getTime(), out);
+        out.writeByte(duration.getUnit().ordinal());
+    }
+
+    private static TimeDuration readDuration(DataInputStream in) throws IOException {
+        long time = readVarLong(in);
+        return SimpleTimeDuration.of(time, readEnum(TIME_UNITS, in));
+    }
+
+    private static void writeString(String string, DataOutputStream out) throws IOException {
+        writeBytes(string.getBytes(Charsets.UTF_8), out);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), Charsets.UTF_8);
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutputStream out) throws IOException {
+        writeVarLong(bytes.length, out);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        return readBytes(readLength(in), in);
+    }
+
+    private static byte[] readBytes(int length, DataInputStream in) throws IOException {
+        if (length <= READ_CHUNK_SIZE) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+        if (length > MAX_ARRAY_SIZE) {
+            throw new IOException("Length " + length + " is too long");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(READ_CHUNK_SIZE);
+        byte[] chunk = new byte[READ_CHUNK_SIZE];
+        int remaining = length;
+        while (remaining > 0) {
+            int chunkLength = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, chunkLength);
+            bytes.write(chunk, 0, chunkLength);
+            remaining -= chunkLength;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullableVarLong(@Nullable Long value, DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULLABLE_ABSENT);
+        } else {
+            out.writeByte(NULLABLE_PRESENT);
+            writeVarLong(value, out);
+        }
+    }
+
+    @Nullable
+    private static Long readNullableVarLong(DataInputStream in) throws IOException {
+        return in.readUnsignedByte() == NULLABLE_PRESENT ? readVarLong(in) : null;
+    }
+
+    /**
+     * Writes seven bits per byte, least significant first, with the top bit set on all but the last byte. Negative
+     * values take ten bytes, but timestamps, dates and lengths never are.
+     */
+    private static void writeVarLong(long value, DataOutputStream out) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+
+    private static <T extends Enum<T>> T readEnum(T[] values, DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= values.length) {
+            throw new IOException("Unknown " + values[0].getDeclaringClass().getSimpleName() + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
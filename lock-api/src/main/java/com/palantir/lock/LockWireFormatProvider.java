@@ -0,0 +1,95 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes {@link LockRequest}s and {@link HeldLocksToken}s in the {@link LockWireFormat}. Register it
+ * with any server exposing the lock service so that clients can use the format.
+ */
+@Provider
+@Consumes(LockWireFormat.MEDIA_TYPE)
+@Produces(LockWireFormat.MEDIA_TYPE)
+public class LockWireFormatProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == LockRequest.class || type == HeldLocksToken.class;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type,
+                           Type genericType,
+                           Annotation[] annotations,
+                           MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders,
+                           InputStream entityStream) throws IOException {
+        try {
+            if (LockRequest.class.equals(type)) {
+                return LockWireFormat.readLockRequest(entityStream);
+            }
+            return LockWireFormat.readHeldLocksToken(entityStream);
+        } catch (IOException e) {
+            throw new BadRequestException("Malformed " + type.getSimpleName(), e);
+        } catch (RuntimeException e) {
+            // well-formed, but rejected by the builders, for example a request without locks
+            throw new BadRequestException("Invalid " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == LockRequest.class || type == HeldLocksToken.class;
+    }
+
+    @Override
+    public long getSize(Object value,
+                        Class<?> type,
+                        Type genericType,
+                        Annotation[] annotations,
+                        MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object value,
+                        Class<?> type,
+                        Type genericType,
+                        Annotation[] annotations,
+                        MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        if (value instanceof LockRequest) {
+            LockWireFormat.write((LockRequest) value, entityStream);
+        } else {
+            LockWireFormat.write((HeldLocksToken) value, entityStream);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.palantir.common.annotation.Idempotent;
+
+/**
+ * Refreshes lock tokens held against the {@link RemoteLockService}s of several clients of a TimeLock server in
+ * a single round trip.
+ */
+@Path("/batch")
+public interface MultiClientLockRefreshService {
+    /**
+     * Equivalent to calling {@link RemoteLockService#refreshLockRefreshTokens(Iterable)} for each client in turn.
+     *
+     * @param tokensByClient the tokens to refresh, keyed by the client whose lock service granted them
+     * @return the subset of each client's tokens which are still valid after being refreshed.
+     */
+    @POST
+    @Path("refresh-lock-tokens")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent Map<String, Set<LockRefreshToken>> refreshLockRefreshTokensForClients(
+            Map<String, List<LockRefreshToken>> tokensByClient);
+}
@@ -37,7 +37,7 @@ public interface RemoteLockService {
     @POST
     @Path("lock/{client: .*}")
     @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, LockWireFormat.MEDIA_TYPE})
     @Nullable
     LockRefreshToken lock(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
@@ -47,8 +47,8 @@ public interface RemoteLockService {
      */
     @POST
     @Path("try-lock/{client: .*}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, LockWireFormat.MEDIA_TYPE})
+    @Consumes({MediaType.APPLICATION_JSON, LockWireFormat.MEDIA_TYPE})
     HeldLocksToken lockAndGetHeldLocks(@PathParam("client") String client, LockRequest request) throws InterruptedException;
 
     /**
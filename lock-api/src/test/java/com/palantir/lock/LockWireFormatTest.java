@@ -0,0 +1,158 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSortedMap;
+
+public class LockWireFormatTest {
+    private static final String TABLE = "namespace.table";
+
+    @Test
+    public void lockRequestRoundTrips() {
+        LockRequest request = LockRequest.builder(manyLocks(100))
+                .timeoutAfter(SimpleTimeDuration.of(3, TimeUnit.MINUTES))
+                .blockForAtMost(SimpleTimeDuration.of(500, TimeUnit.MILLISECONDS))
+                .withLockedInVersionId(1234567890123L)
+                .withCreatingThreadName("thread")
+                .build();
+
+        LockRequest decoded = LockWireFormat.decodeLockRequest(LockWireFormat.encode(request));
+
+        assertThat(decoded, equalTo(request));
+        assertThat(decoded.getLocks().size(), equalTo(request.getLocks().size()));
+        assertThat(decoded.getCreatingThreadName(), equalTo(request.getCreatingThreadName()));
+    }
+
+    @Test
+    public void lockRequestWithDefaultsRoundTrips() {
+        LockRequest request = LockRequest.builder(ImmutableSortedMap.of(StringLockDescriptor.of("lock"), LockMode.READ))
+                .build();
+
+        assertThat(LockWireFormat.decodeLockRequest(LockWireFormat.encode(request)), equalTo(request));
+    }
+
+    @Test
+    public void heldLocksTokenRoundTrips() {
+        HeldLocksToken token = new HeldLocksToken(
+                BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TEN),
+                LockClient.of("client"),
+                1490000000000L,
+                1490000120000L,
+                LockCollections.of(manyLocks(10)),
+                SimpleTimeDuration.of(2, TimeUnit.MINUTES),
+                null);
+
+        HeldLocksToken decoded = LockWireFormat.decodeHeldLocksToken(LockWireFormat.encode(token));
+
+        assertThat(decoded.getTokenId(), equalTo(token.getTokenId()));
+        assertThat(decoded.getClient(), equalTo(token.getClient()));
+        assertThat(decoded.getCreationDateMs(), equalTo(token.getCreationDateMs()));
+        assertThat(decoded.getExpirationDateMs(), equalTo(token.getExpirationDateMs()));
+        assertThat(decoded.getLockDescriptors(), equalTo(token.getLockDescriptors()));
+        assertThat(decoded.getLockTimeout(), equalTo(token.getLockTimeout()));
+        assertThat(decoded.getVersionId(), equalTo(token.getVersionId()));
+    }
+
+    @Test
+    public void encodingIsMuchSmallerThanJson() throws Exception {
+        LockRequest request = LockRequest.builder(manyLocks(1000)).withLockedInVersionId(1L).build();
+
+        int jsonSize = new ObjectMapper().writeValueAsBytes(request).length;
+        int wireFormatSize = LockWireFormat.encode(request).length;
+
+        assertThat(wireFormatSize * 4, lessThan(jsonSize));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion() {
+        LockWireFormat.decodeLockRequest(new byte[] {2});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedInput() {
+        LockRequest request = LockRequest.builder(manyLocks(2)).build();
+        byte[] bytes = LockWireFormat.encode(request);
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        LockWireFormat.decodeLockRequest(truncated);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void rejectsHugeLockCountWithoutAllocatingForIt() throws IOException {
+        readLockRequest(1, 0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void rejectsHugeDescriptorLengthWithoutAllocatingForIt() throws IOException {
+        readLockRequest(1, 1, 0, 0, 0x80, 0x80, 0x80, 0x80, 0x04);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void rejectsTablePrefixedDescriptorsWhoseLengthOverflows() throws IOException {
+        readLockRequest(1, 1, 0, 1, 0, 1, 'a', 0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void rejectsUnknownTableIndex() throws IOException {
+        readLockRequest(1, 1, 0, 1, 5, 0);
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void rejectsRequestsWithoutLocks() throws IOException {
+        readLockRequest(1, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // the provider reads objects of the class it is given
+    private static Object readLockRequest(int... bytes) throws IOException {
+        byte[] body = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            body[i] = (byte) bytes[i];
+        }
+        return new LockWireFormatProvider().readFrom((Class) LockRequest.class, LockRequest.class,
+                new Annotation[0], MediaType.valueOf(LockWireFormat.MEDIA_TYPE), null,
+                new ByteArrayInputStream(body));
+    }
+
+    private static ImmutableSortedMap<LockDescriptor, LockMode> manyLocks(int numRows) {
+        ImmutableSortedMap.Builder<LockDescriptor, LockMode> locks = ImmutableSortedMap.naturalOrder();
+        locks.put(AtlasTimestampLockDescriptor.of(42L), LockMode.READ);
+        locks.put(AtlasTableLockDescriptor.of(TABLE), LockMode.READ);
+        for (int i = 0; i < numRows; i++) {
+            byte[] row = ("row" + i).getBytes(Charsets.UTF_8);
+            locks.put(AtlasRowLockDescriptor.of(TABLE, row), LockMode.WRITE);
+            locks.put(AtlasCellLockDescriptor.of("other", row, new byte[] {0, 1}), LockMode.WRITE);
+        }
+        return locks.build();
+    }
+}
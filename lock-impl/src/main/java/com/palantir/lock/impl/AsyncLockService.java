@@ -0,0 +1,35 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockResponse;
+import com.palantir.lock.LockService;
+
+/**
+ * A lock service which can wait for locks without holding a thread.
+ */
+public interface AsyncLockService {
+    /**
+     * Equivalent to {@link LockService#lockWithFullLockResponse(LockClient, LockRequest)}, except that the calling
+     * thread is never blocked: if the request has to wait for locks held by other clients, the returned future is
+     * completed once those locks have been released or the request's blocking duration has elapsed.
+     */
+    CompletableFuture<LockResponse> lockAsync(LockClient client, LockRequest request);
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.palantir.lock.LockClient;
+
+/**
+ * The multiset of version ids locked in by each client.
+ * <p>
+ * Each client's version ids are kept in a sorted concurrent map of counts, so the minimum can be read without
+ * synchronizing with clients that are locking or unlocking at the same time.
+ */
+@ThreadSafe
+final class ClientVersionIds {
+    private final ConcurrentMap<LockClient, ConcurrentNavigableMap<Long, Integer>> countsByClient =
+            new ConcurrentHashMap<>();
+
+    void add(LockClient client, long versionId) {
+        countsByClient.compute(client, (c, counts) -> {
+            ConcurrentNavigableMap<Long, Integer> result = (counts == null)
+                    ? new ConcurrentSkipListMap<Long, Integer>()
+                    : counts;
+            result.merge(versionId, 1, Integer::sum);
+            return result;
+        });
+    }
+
+    void remove(LockClient client, long versionId) {
+        countsByClient.computeIfPresent(client, (c, counts) -> {
+            counts.computeIfPresent(versionId, (v, count) -> (count == 1) ? null : count - 1);
+            return counts.isEmpty() ? null : counts;
+        });
+    }
+
+    @Nullable
+    Long getMin(LockClient client) {
+        ConcurrentNavigableMap<Long, Integer> counts = countsByClient.get(client);
+        if (counts == null) {
+            return null;
+        }
+        Map.Entry<Long, Integer> first = counts.firstEntry();
+        return (first == null) ? null : first.getKey();
+    }
+
+    /**
+     * Returns a view of the count of each version id locked in by each client.
+     */
+    Map<LockClient, ? extends Map<Long, Integer>> asMap() {
+        return Collections.unmodifiableMap(countsByClient);
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A set multimap in which every key has its own concurrent set of values.
+ * <p>
+ * Updates only synchronize with other updates to the same key, and reads never block, so unlike
+ * {@link com.google.common.collect.Multimaps#synchronizedSetMultimap} unrelated clients do not contend on a
+ * single monitor. Keys are removed once their last value is removed.
+ */
+@ThreadSafe
+final class ConcurrentSetMultimap<K, V> {
+    private final ConcurrentMap<K, Set<V>> valuesByKey = new ConcurrentHashMap<>();
+
+    void put(K key, V value) {
+        valuesByKey.compute(key, (k, values) -> {
+            Set<V> result = (values == null) ? Sets.<V>newConcurrentHashSet() : values;
+            result.add(value);
+            return result;
+        });
+    }
+
+    void remove(K key, V value) {
+        valuesByKey.computeIfPresent(key, (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    /**
+     * Returns a weakly consistent, unmodifiable view of the values currently associated with the key.
+     */
+    Set<V> get(K key) {
+        Set<V> values = valuesByKey.get(key);
+        return (values == null) ? Collections.<V>emptySet() : Collections.unmodifiableSet(values);
+    }
+
+    Map<K, Set<V>> asMap() {
+        return Collections.unmodifiableMap(valuesByKey);
+    }
+}
@@ -28,13 +28,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -63,11 +65,9 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultiset;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -103,15 +103,20 @@ import com.palantir.util.Pair;
  *
  * @author jtamer
  */
-@ThreadSafe public final class LockServiceImpl implements LockService, RemoteLockService, LockServiceImplMBean, Closeable {
+@ThreadSafe public final class LockServiceImpl
+        implements LockService, RemoteLockService, AsyncLockService, LockServiceImplMBean, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(LockServiceImpl.class);
     private static final Logger requestLogger = LoggerFactory.getLogger("lock.request");
 
-    /** Executor for the reaper threads. */
+    /** Executor for the reaper threads and for attempts of asynchronous lock requests. */
     private final ExecutorService executor = PTExecutors.newCachedThreadPool(
             new NamedThreadFactory(LockServiceImpl.class.getName(), true));
 
+    /** Times out asynchronous lock requests which block until a timeout. */
+    private final ScheduledThreadPoolExecutor asyncLockTimeoutExecutor = PTExecutors.newScheduledThreadPool(1,
+            new NamedThreadFactory(LockServiceImpl.class.getName() + "-async-lock-timeouts", true));
+
     private static final Function<HeldLocksToken, String> TOKEN_TO_ID =
             new Function<HeldLocksToken, String>() {
         @Override
@@ -163,7 +168,7 @@ import com.palantir.util.Pair;
 
     /** The backing client-aware read write lock for each lock descriptor. */
     private final LoadingCache<LockDescriptor, ClientAwareReadWriteLock> descriptorToLockMap =
-            CacheBuilder.newBuilder().weakValues().build(
+            CacheBuilder.newBuilder().weakValues().concurrencyLevel(DESCRIPTOR_MAP_CONCURRENCY_LEVEL).build(
                     new CacheLoader<LockDescriptor, ClientAwareReadWriteLock>() {
                         @Override
                         public ClientAwareReadWriteLock load(LockDescriptor from) {
@@ -179,35 +184,42 @@ import com.palantir.util.Pair;
     private final ConcurrentMap<HeldLocksGrant, HeldLocks<HeldLocksGrant>> heldLocksGrantMap =
             new MapMaker().makeMap();
 
-    /** The priority queue of lock tokens waiting to be reaped. */
-    private final BlockingQueue<HeldLocksToken> lockTokenReaperQueue =
-            new PriorityBlockingQueue<HeldLocksToken>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock tokens waiting to be reaped. */
+    private final TokenExpirationWheel<HeldLocksToken> lockTokenReaperWheel;
 
-    /** The priority queue of lock grants waiting to be reaped. */
-    private final BlockingQueue<HeldLocksGrant> lockGrantReaperQueue =
-            new PriorityBlockingQueue<HeldLocksGrant>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock grants waiting to be reaped. */
+    private final TokenExpirationWheel<HeldLocksGrant> lockGrantReaperWheel;
 
     /** The mapping from lock client to the set of tokens held by that client. */
-    private final SetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
-            Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, HeldLocksToken>create());
+    private final ConcurrentSetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
+            new ConcurrentSetMultimap<LockClient, HeldLocksToken>();
 
-    private final SetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
-        Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, LockRequest>create());
+    private final ConcurrentSetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
+            new ConcurrentSetMultimap<LockClient, LockRequest>();
 
     private final Set<Thread> indefinitelyBlockingThreads =
             Sets.newConcurrentHashSet();
 
-    private final Multimap<LockClient, Long> versionIdMap = Multimaps.synchronizedMultimap(
-            Multimaps.newMultimap(Maps.<LockClient, Collection<Long>>newHashMap(), new Supplier<TreeMultiset<Long>>() {
-                @Override
-                public TreeMultiset<Long> get() {
-                    return TreeMultiset.create();
-                }
-            }));
+    /** Asynchronous lock requests which have not completed yet. */
+    private final Set<AsyncLockRequest> outstandingAsyncLockRequests = Sets.newConcurrentHashSet();
+
+    /** The asynchronous lock requests to retry when each lock is released. */
+    private final SetMultimap<LockDescriptor, AsyncLockRequest> asyncLockWaiters =
+            Multimaps.synchronizedSetMultimap(HashMultimap.<LockDescriptor, AsyncLockRequest>create());
+
+    /**
+     * The number of entries in {@link #asyncLockWaiters}, incremented before an entry is added, so that releasing
+     * locks does not have to synchronize on the multimap while nothing is waiting.
+     */
+    private final AtomicInteger asyncLockWaiterCount = new AtomicInteger();
+
+    private final ClientVersionIds versionIdMap = new ClientVersionIds();
 
     private static final AtomicInteger instanceCount = new AtomicInteger();
     private static final int MAX_FAILED_LOCKS_TO_LOG = 20;
     private static final int MAX_LOCKS_TO_LOG = 10000;
+    private static final long REAPER_TICK_MILLIS = 100;
+    private static final int DESCRIPTOR_MAP_CONCURRENCY_LEVEL = 64;
 
     /** Creates a new lock server instance with default options. */
     // TODO (jtamer) read lock server options from a prefs file
@@ -239,18 +251,23 @@ import com.palantir.util.Pair;
         maxAllowedBlockingDuration = SimpleTimeDuration.of(options.getMaxAllowedBlockingDuration());
         maxNormalLockAge = SimpleTimeDuration.of(options.getMaxNormalLockAge());
         randomBitCount = options.getRandomBitCount();
+        asyncLockTimeoutExecutor.setRemoveOnCancelPolicy(true);
+        lockTokenReaperWheel = new TokenExpirationWheel<HeldLocksToken>(
+                REAPER_TICK_MILLIS, maxAllowedClockDrift.toMillis(), currentTimeMillis());
+        lockGrantReaperWheel = new TokenExpirationWheel<HeldLocksGrant>(
+                REAPER_TICK_MILLIS, maxAllowedClockDrift.toMillis(), currentTimeMillis());
         executor.execute(new Runnable() {
             @Override
             public void run() {
                 Thread.currentThread().setName("Held Locks Token Reaper");
-                reapLocks(lockTokenReaperQueue, heldLocksTokenMap);
+                reapLocks(lockTokenReaperWheel, heldLocksTokenMap);
             }
         });
         executor.execute(new Runnable() {
             @Override
             public void run() {
                 Thread.currentThread().setName("Held Locks Grant Reaper");
-                reapLocks(lockGrantReaperQueue, heldLocksGrantMap);
+                reapLocks(lockGrantReaperWheel, heldLocksGrantMap);
             }
         });
     }
@@ -266,7 +283,7 @@ import com.palantir.util.Pair;
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksToken> heldLocks = HeldLocks.of(token, heldLocksMap);
             if (heldLocksTokenMap.putIfAbsent(token, heldLocks) == null) {
-                lockTokenReaperQueue.add(token);
+                lockTokenReaperWheel.add(token);
                 if (!client.isAnonymous()) {
                     lockClientMultimap.put(client, token);
                 }
@@ -288,7 +305,7 @@ import com.palantir.util.Pair;
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksGrant> newHeldLocks = HeldLocks.of(grant, heldLocksMap);
             if (heldLocksGrantMap.putIfAbsent(grant, newHeldLocks) == null) {
-                lockGrantReaperQueue.add(grant);
+                lockGrantReaperWheel.add(grant);
                 return grant;
             }
             log.error("Lock ID collision! The RANDOM_BIT_COUNT constant must be increased. "
@@ -313,15 +330,7 @@ import com.palantir.util.Pair;
 
     @Override
     public LockResponse lockWithFullLockResponse(LockClient client, LockRequest request) throws InterruptedException {
-        Preconditions.checkNotNull(client);
-        Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
-        Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
-                "Requested lock timeout (%s) is greater than maximum allowed lock timeout (%s)",
-                request.getLockTimeout(), maxAllowedLockTimeout);
-        Preconditions.checkArgument((request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT)
-                || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
-                "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
-                request.getBlockingDuration(), maxAllowedBlockingDuration);
+        checkLockRequest(client, request);
         long startTime = System.currentTimeMillis();
         if (requestLogger.isDebugEnabled()) {
             requestLogger.debug("LockServiceImpl processing lock request {} for requesting thread {}",
@@ -413,6 +422,7 @@ import com.palantir.util.Pair;
                 for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
                     entry.getKey().get(client, entry.getValue()).unlock();
                 }
+                wakeAsyncLockWaiters(locks.keySet());
             } catch (Throwable e) { // (authorized)
                 log.error("Internal lock server error: state has been corrupted!!", e);
                 throw Throwables.throwUncheckedException(e);
@@ -420,6 +430,50 @@ import com.palantir.util.Pair;
         }
     }
 
+    /**
+     * Requests which lock all or none of their locks wait for them as continuations: a failed attempt registers
+     * the request against the lock it failed on, and the request is attempted again without blocking when that
+     * lock is released. Other requests are rare and fall back to blocking a thread of the lock server's executor.
+     */
+    @Override
+    public CompletableFuture<LockResponse> lockAsync(final LockClient client, final LockRequest request) {
+        checkLockRequest(client, request);
+        if (isShutDown) {
+            throw new ServiceNotAvailableException("This lock server is shut down.");
+        }
+        if (request.getLockGroupBehavior() != LOCK_ALL_OR_NONE
+                || request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
+            return CompletableFuture.supplyAsync(new java.util.function.Supplier<LockResponse>() {
+                @Override
+                public LockResponse get() {
+                    try {
+                        return lockWithFullLockResponse(client, request);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(e);
+                    }
+                }
+            }, executor);
+        }
+
+        AsyncLockRequest asyncRequest = new AsyncLockRequest(client, request);
+        outstandingAsyncLockRequests.add(asyncRequest);
+        asyncRequest.start();
+        return asyncRequest.future;
+    }
+
+    private void checkLockRequest(LockClient client, LockRequest request) {
+        Preconditions.checkNotNull(client);
+        Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
+        Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
+                "Requested lock timeout (%s) is greater than maximum allowed lock timeout (%s)",
+                request.getLockTimeout(), maxAllowedLockTimeout);
+        Preconditions.checkArgument((request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT)
+                || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
+                "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
+                request.getBlockingDuration(), maxAllowedBlockingDuration);
+    }
+
     private boolean isIndefinitelyBlocking(BlockingMode blockingMode) {
         return BlockingMode.BLOCK_INDEFINITELY.equals(blockingMode) ||
                 BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE.equals(blockingMode);
@@ -493,6 +547,157 @@ import com.palantir.util.Pair;
         }
     }
 
+    private void wakeAsyncLockWaiters(Collection<? extends ClientAwareReadWriteLock> releasedLocks) {
+        if (asyncLockWaiterCount.get() == 0) {
+            return;
+        }
+        for (ClientAwareReadWriteLock lock : releasedLocks) {
+            List<AsyncLockRequest> waiters;
+            synchronized (asyncLockWaiters) {
+                waiters = ImmutableList.copyOf(asyncLockWaiters.get(lock.getDescriptor()));
+            }
+            for (AsyncLockRequest waiter : waiters) {
+                waiter.wake();
+            }
+        }
+    }
+
+    /**
+     * A lock request waiting for its locks without holding a thread.
+     * <p>
+     * Attempts never block, and are serialized: wakeups which arrive while an attempt is running are coalesced
+     * into one further attempt. A request is registered against the lock it is waiting for before it is attempted
+     * again, so a release that happens after an attempt saw the lock held always wakes the request.
+     */
+    private final class AsyncLockRequest implements Runnable {
+        private final LockClient client;
+        private final BlockingMode blockingMode;
+        private final LockRequest nonBlockingRequest;
+        private final CompletableFuture<LockResponse> future = new CompletableFuture<LockResponse>();
+        private final AtomicInteger pendingWakeups = new AtomicInteger();
+        private volatile Map<LockDescriptor, LockClient> lastLockHolders = ImmutableSortedMap.of();
+        @Nullable private volatile ScheduledFuture<?> timeout;
+        // only accessed by attempts, which are serialized by pendingWakeups
+        @Nullable private LockDescriptor waitingFor;
+
+        AsyncLockRequest(LockClient client, LockRequest request) {
+            this.client = client;
+            this.blockingMode = request.getBlockingMode();
+            LockRequest.Builder builder = LockRequest.builder(request.getLockDescriptors())
+                    .timeoutAfter(request.getLockTimeout())
+                    .doNotBlock()
+                    .withCreatingThreadName(request.getCreatingThreadName());
+            if (request.getVersionId() != null) {
+                builder.withLockedInVersionId(request.getVersionId());
+            }
+            this.nonBlockingRequest = builder.build();
+            if (blockingMode == BLOCK_UNTIL_TIMEOUT) {
+                timeout = asyncLockTimeoutExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(new LockResponse(null, lastLockHolders));
+                    }
+                }, request.getBlockingDuration().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void start() {
+            wake();
+        }
+
+        void wake() {
+            if (pendingWakeups.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    fail(new ServiceNotAvailableException("This lock server is shut down."));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int wakeups = pendingWakeups.get();
+            while (wakeups > 0) {
+                attempt();
+                wakeups = pendingWakeups.addAndGet(-wakeups);
+            }
+        }
+
+        private void attempt() {
+            while (!future.isDone()) {
+                LockResponse response;
+                try {
+                    response = lockWithFullLockResponse(client, nonBlockingRequest);
+                } catch (Throwable t) { // (authorized)
+                    fail(t);
+                    break;
+                }
+                if (response.success()) {
+                    if (!complete(response)) {
+                        // timed out or failed while we were acquiring the locks
+                        unlock(response.getToken());
+                    }
+                    break;
+                }
+                lastLockHolders = response.getLockHolders();
+                if (blockingMode == DO_NOT_BLOCK || response.getLockHolders().isEmpty()) {
+                    complete(response);
+                    break;
+                }
+                LockDescriptor heldLock = response.getLockHolders().firstKey();
+                if (heldLock.equals(waitingFor)) {
+                    // we were registered before this attempt, so the release of this lock will wake us
+                    return;
+                }
+                waitFor(heldLock);
+            }
+            stopWaiting();
+        }
+
+        private boolean complete(LockResponse response) {
+            boolean completed = future.complete(response);
+            if (completed) {
+                finish();
+            }
+            return completed;
+        }
+
+        void fail(Throwable error) {
+            if (future.completeExceptionally(error)) {
+                finish();
+            }
+        }
+
+        /**
+         * Cleans up once the future is done. The waiter registration is only touched by attempts, so we wake the
+         * request to have it removed.
+         */
+        private void finish() {
+            outstandingAsyncLockRequests.remove(this);
+            ScheduledFuture<?> pendingTimeout = timeout;
+            if (pendingTimeout != null) {
+                pendingTimeout.cancel(false);
+            }
+            wake();
+        }
+
+        private void waitFor(LockDescriptor descriptor) {
+            stopWaiting();
+            asyncLockWaiterCount.incrementAndGet();
+            asyncLockWaiters.put(descriptor, this);
+            waitingFor = descriptor;
+        }
+
+        private void stopWaiting() {
+            if (waitingFor != null) {
+                asyncLockWaiters.remove(waitingFor, this);
+                asyncLockWaiterCount.decrementAndGet();
+                waitingFor = null;
+            }
+        }
+    }
+
     @Override
     public boolean unlock(LockRefreshToken token) {
         return unlockSimple(SimpleHeldLocksToken.fromLockRefreshToken(token));
@@ -536,7 +741,7 @@ import com.palantir.util.Pair;
         LockClient client = heldLocks.realToken.getClient();
         if (client.isAnonymous()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             String errorMessage =
                     "Received .unlockAndFreeze() call for anonymous client with token %s";
             log.warn(replaceFormatSpecifiersByBraces(errorMessage), heldLocks.realToken);
@@ -544,7 +749,7 @@ import com.palantir.util.Pair;
         }
         if (heldLocks.locks.hasReadLock()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             String errorMessage = "Received .unlockAndFreeze() call for read locks: %s";
             log.warn(replaceFormatSpecifiersByBraces(errorMessage), heldLocks.realToken);
             throw new IllegalArgumentException(String.format(errorMessage, heldLocks.realToken));
@@ -583,6 +788,7 @@ import com.palantir.util.Pair;
         for (Entry<? extends ClientAwareReadWriteLock, LockMode> entry : heldLocks.locks.entries()) {
             entry.getKey().get(client, entry.getValue()).unlock();
         }
+        wakeAsyncLockWaiters(heldLocks.locks.getKeys());
         if (heldLocks.realToken.getVersionId() != null) {
             versionIdMap.remove(client, heldLocks.realToken.getVersionId());
         }
@@ -598,12 +804,10 @@ import com.palantir.util.Pair;
             throw new IllegalArgumentException("Illegal client!");
         }
         ImmutableSet.Builder<HeldLocksToken> tokens = ImmutableSet.builder();
-        synchronized (lockClientMultimap) {
-            for (HeldLocksToken token : lockClientMultimap.get(client)) {
-                @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
-                if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
-                    tokens.add(token);
-                }
+        for (HeldLocksToken token : lockClientMultimap.get(client)) {
+            @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
+            if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
+                tokens.add(token);
             }
         }
         ImmutableSet<HeldLocksToken> tokenSet = tokens.build();
@@ -752,7 +956,7 @@ import com.palantir.util.Pair;
         }
         if (isFrozen(heldLocks.locks.getKeys())) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             log.warn("Cannot convert to grant because token is frozen: {}", token);
             throw new IllegalArgumentException("token is frozen: " + token);
         }
@@ -761,7 +965,7 @@ import com.palantir.util.Pair;
                     INTERNAL_LOCK_GRANT_CLIENT);
         } catch (IllegalMonitorStateException e) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            lockTokenReaperWheel.add(token);
             log.warn("Failure converting {} to grant", token, e);
             throw e;
         }
@@ -874,20 +1078,14 @@ import com.palantir.util.Pair;
 
     @Override
     @Nullable public Long getMinLockedInVersionId(LockClient client) {
-        Long versionId = null;
-        synchronized (versionIdMap) {
-            Collection<Long> versionsForClient = versionIdMap.get(client);
-            if (versionsForClient != null && !versionsForClient.isEmpty()) {
-                versionId = versionsForClient.iterator().next();
-            }
-        }
+        @Nullable Long versionId = versionIdMap.getMin(client);
         if (log.isTraceEnabled()) {
             log.trace(".getMinLockedInVersionId() returns {}", versionId);
         }
         return versionId;
     }
 
-    private <T extends ExpiringToken> void reapLocks(BlockingQueue<T> queue,
+    private <T extends ExpiringToken> void reapLocks(TokenExpirationWheel<T> wheel,
             ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
         while (true) {
             // shutdownNow() sends interrupt signal to the running threads to terminate them.
@@ -898,39 +1096,32 @@ import com.palantir.util.Pair;
                 break;
             }
             try {
-                T token = null;
+                wheel.awaitNextDeadline();
+            } catch (InterruptedException e) {
+                if (isShutDown) {
+                    break;
+                } else {
+                    log.warn("The lock server reaper thread should not be " +
+                            "interrupted if the server is not shutting down.", e);
+                }
+            }
+            for (T token : wheel.advanceTo(currentTimeMillis())) {
                 try {
-                    token = queue.take();
-                    long sleepTimeMs = token.getExpirationDateMs() - currentTimeMillis()
-                            + maxAllowedClockDrift.toMillis();
-                    if (sleepTimeMs > 0) {
-                        Thread.sleep(sleepTimeMs);
+                    @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
+                    if (heldLocks == null) {
+                        continue;
                     }
-                } catch (InterruptedException e) {
-                    if (isShutDown) {
-                        break;
+                    T realToken = heldLocks.realToken;
+                    if (realToken.getExpirationDateMs() > currentTimeMillis()
+                            - maxAllowedClockDrift.toMillis()) {
+                        wheel.add(realToken);
                     } else {
-                        log.warn("The lock server reaper thread should not be " +
-                                "interrupted if the server is not shutting down.", e);
-                        if (token == null) {
-                            continue;
-                        }
+                        log.warn("Lock token {} was not properly refreshed and is now being reaped.", realToken);
+                        unlockInternal(realToken, heldLocksMap);
                     }
+                } catch (Throwable t) {
+                    log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
                 }
-                @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
-                if (heldLocks == null) {
-                    continue;
-                }
-                T realToken = heldLocks.realToken;
-                if (realToken.getExpirationDateMs() > currentTimeMillis()
-                        - maxAllowedClockDrift.toMillis()) {
-                    queue.add(realToken);
-                } else {
-                    log.warn("Lock token {} was not properly refreshed and is now being reaped.", realToken);
-                    unlockInternal(realToken, heldLocksMap);
-                }
-            } catch (Throwable t) {
-                log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
             }
         }
     }
@@ -961,17 +1152,6 @@ import com.palantir.util.Pair;
         return options;
     }
 
-    private <T> List<T> queueToOrderedList(Queue<T> queue) {
-        List<T> list = Lists.newLinkedList();
-        while (!queue.isEmpty()) {
-            list.add(queue.poll());
-        }
-        for (T element : list) {
-            queue.add(element);
-        }
-        return list;
-    }
-
     /**
      * Prints the current state of the lock server to the logs. Useful for
      * debugging.
@@ -990,8 +1170,8 @@ import com.palantir.util.Pair;
                 Pair.create("outstandingLockRequestMultimap", outstandingLockRequestMultimap.asMap().entrySet()),
                 Pair.create("heldLocksTokenMap", heldLocksTokenMap.entrySet()),
                 Pair.create("heldLocksGrantMap", heldLocksGrantMap.entrySet()),
-                Pair.create("lockTokenReaperQueue", queueToOrderedList(lockTokenReaperQueue)),
-                Pair.create("lockGrantReaperQueue", queueToOrderedList(lockGrantReaperQueue)),
+                Pair.create("lockTokenReaperWheel", lockTokenReaperWheel.getTokens()),
+                Pair.create("lockGrantReaperWheel", lockGrantReaperWheel.getTokens()),
                 Pair.create("lockClientMultimap", lockClientMultimap.asMap().entrySet()),
                 Pair.create("versionIdMap", versionIdMap.asMap().entrySet()))) {
             Collection<?> elements = nameValuePair.getRhSide();
@@ -1012,10 +1192,18 @@ import com.palantir.util.Pair;
     public void close() {
         isShutDown = true;
         executor.shutdownNow();
+        asyncLockTimeoutExecutor.shutdownNow();
         wakeIndefiniteBlockers();
+        failOutstandingAsyncLockRequests();
         callOnClose.run();
     }
 
+    private void failOutstandingAsyncLockRequests() {
+        for (AsyncLockRequest request : outstandingAsyncLockRequests) {
+            request.fail(new ServiceNotAvailableException("This lock server is shut down."));
+        }
+    }
+
     private void wakeIndefiniteBlockers() {
         for (Thread blocked : indefinitelyBlockingThreads) {
             blocked.interrupt();
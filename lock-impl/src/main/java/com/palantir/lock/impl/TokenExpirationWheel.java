@@ -0,0 +1,226 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.palantir.lock.ExpiringToken;
+
+/**
+ * A hierarchical timing wheel which hands tokens back once they are past their expiration date plus a fixed
+ * amount of slack.
+ * <p>
+ * Level {@code i} of the wheel has {@value #WHEEL_SIZE} buckets, each spanning {@code tickMs * WHEEL_SIZE^i}
+ * milliseconds, and tokens cascade down to finer levels as their deadline approaches; tokens further out than
+ * the coarsest level are parked until it wraps around. Adding a token is O(1) and never blocks.
+ * <p>
+ * {@link #add} may be called from any thread: new tokens are staged in a concurrent queue and only placed on the
+ * wheel by the thread calling {@link #advanceTo}, which must be the same single thread for the wheel's lifetime.
+ * That thread can sleep in {@link #awaitNextDeadline} until the next non-empty bucket is due, and is woken early
+ * only by an added token that is due before then.
+ */
+final class TokenExpirationWheel<T extends ExpiringToken> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int NUM_LEVELS = 4;
+
+    private final long tickMs;
+    private final long slackMs;
+    private final Queue<T> staged = new ConcurrentLinkedQueue<>();
+    // concurrent queues so that getTokens() can read them while the wheel is turning
+    private final Queue<T>[][] buckets;
+    private final Queue<T> overflow = new ConcurrentLinkedQueue<>();
+    // earliest deadline of the tokens staged since the advancing thread last drained them
+    private final AtomicLong earliestStagedDeadlineMs = new AtomicLong(Long.MAX_VALUE);
+    private final Object wakeUpLock = new Object();
+    // the time the advancing thread is sleeping until, or Long.MIN_VALUE while it is awake
+    private volatile long wakeUpMs = Long.MIN_VALUE;
+
+    // only accessed by the thread advancing the wheel
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TokenExpirationWheel(long tickMs, long slackMs, long startTimeMs) {
+        Preconditions.checkArgument(tickMs > 0, "tickMs must be positive but was %s", tickMs);
+        Preconditions.checkArgument(slackMs >= 0, "slackMs must not be negative but was %s", slackMs);
+        this.tickMs = tickMs;
+        this.slackMs = slackMs;
+        this.currentTick = startTimeMs / tickMs;
+        this.buckets = new Queue[NUM_LEVELS][WHEEL_SIZE];
+        for (Queue<T>[] level : buckets) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+    }
+
+    void add(T token) {
+        staged.add(token);
+        long deadlineMs = deadlineTick(token) * tickMs;
+        earliestStagedDeadlineMs.accumulateAndGet(deadlineMs, Math::min);
+        // the advancing thread publishes wakeUpMs before reading earliestStagedDeadlineMs, so either it sees
+        // this token's deadline or we see the time it is sleeping until
+        if (deadlineMs < wakeUpMs) {
+            synchronized (wakeUpLock) {
+                wakeUpLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Returns the time, in milliseconds since the epoch, at which the next call to {@link #advanceTo} may return
+     * or cascade tokens already placed on the wheel, or {@link Long#MAX_VALUE} if there are none.
+     */
+    long getNextDeadlineMs() {
+        long nextTick = Long.MAX_VALUE;
+        for (int level = 0; level < NUM_LEVELS; level++) {
+            int shift = WHEEL_BITS * level;
+            long currentSlot = currentTick >>> shift;
+            // buckets on this level only hold the slots after the current one, up to the end of its rotation
+            long rotationEnd = ((currentSlot >>> WHEEL_BITS) + 1) << WHEEL_BITS;
+            for (long slot = currentSlot + 1; slot < rotationEnd; slot++) {
+                if (!buckets[level][(int) slot & WHEEL_MASK].isEmpty()) {
+                    nextTick = Math.min(nextTick, slot << shift);
+                    break;
+                }
+            }
+        }
+        if (!overflow.isEmpty()) {
+            int shift = WHEEL_BITS * NUM_LEVELS;
+            nextTick = Math.min(nextTick, ((currentTick >>> shift) + 1) << shift);
+        }
+        return nextTick == Long.MAX_VALUE ? Long.MAX_VALUE : nextTick * tickMs;
+    }
+
+    /**
+     * Blocks the advancing thread until {@link #getNextDeadlineMs}, or until the deadline of a token added in the
+     * meantime if that is earlier.
+     */
+    void awaitNextDeadline() throws InterruptedException {
+        synchronized (wakeUpLock) {
+            wakeUpMs = getNextDeadlineMs();
+            try {
+                while (true) {
+                    long targetMs = Math.min(wakeUpMs, earliestStagedDeadlineMs.get());
+                    wakeUpMs = targetMs;
+                    long sleepTimeMs = targetMs - System.currentTimeMillis();
+                    if (sleepTimeMs <= 0) {
+                        return;
+                    }
+                    wakeUpLock.wait(sleepTimeMs);
+                }
+            } finally {
+                wakeUpMs = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Turns the wheel to the given time and removes and returns every token whose expiration date plus slack is
+     * no later than it, in no particular order.
+     */
+    List<T> advanceTo(long nowMs) {
+        List<T> expired = Lists.newArrayList();
+        earliestStagedDeadlineMs.set(Long.MAX_VALUE);
+        for (T token = staged.poll(); token != null; token = staged.poll()) {
+            place(token, expired);
+        }
+        long targetTick = nowMs / tickMs;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade(expired);
+            drainTo(buckets[0][(int) currentTick & WHEEL_MASK], expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Returns a weakly consistent snapshot of the tokens on the wheel, ordered by expiration date.
+     */
+    List<T> getTokens() {
+        List<T> tokens = Lists.newArrayList(staged);
+        for (Queue<T>[] level : buckets) {
+            for (Queue<T> bucket : level) {
+                tokens.addAll(bucket);
+            }
+        }
+        tokens.addAll(overflow);
+        Collections.sort(tokens, ExpiringToken.COMPARATOR);
+        return tokens;
+    }
+
+    private long deadlineTick(T token) {
+        long deadlineMs = token.getExpirationDateMs() + slackMs;
+        return (deadlineMs + tickMs - 1) / tickMs;
+    }
+
+    private void place(T token, List<T> expired) {
+        long deadlineTick = deadlineTick(token);
+        if (deadlineTick <= currentTick) {
+            expired.add(token);
+            return;
+        }
+        // use the finest level on which the deadline falls within the current rotation
+        for (int level = 0; level < NUM_LEVELS; level++) {
+            int higherLevelShift = WHEEL_BITS * (level + 1);
+            if ((deadlineTick >>> higherLevelShift) == (currentTick >>> higherLevelShift)) {
+                buckets[level][(int) (deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK].add(token);
+                return;
+            }
+        }
+        overflow.add(token);
+    }
+
+    /**
+     * Re-places the tokens in every bucket whose span starts at the current tick, coarsest level first, so that
+     * tokens moving down a level are cascaded again if their new bucket also starts now.
+     */
+    private void cascade(List<T> expired) {
+        if (startsSpan(NUM_LEVELS)) {
+            replace(overflow, expired);
+        }
+        for (int level = NUM_LEVELS - 1; level > 0; level--) {
+            if (startsSpan(level)) {
+                replace(buckets[level][(int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK], expired);
+            }
+        }
+    }
+
+    private boolean startsSpan(int level) {
+        return (currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0;
+    }
+
+    private void replace(Queue<T> bucket, List<T> expired) {
+        List<T> tokens = Lists.newArrayList();
+        drainTo(bucket, tokens);
+        for (T token : tokens) {
+            place(token, expired);
+        }
+    }
+
+    private static <T> void drainTo(Queue<T> bucket, List<T> tokens) {
+        for (T token = bucket.poll(); token != null; token = bucket.poll()) {
+            tokens.add(token);
+        }
+    }
+}
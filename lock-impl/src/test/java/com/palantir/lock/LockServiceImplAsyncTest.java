@@ -0,0 +1,135 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.lock.impl.LockServiceImpl;
+
+public final class LockServiceImplAsyncTest {
+    private static final LockClient HOLDER = LockClient.of("holder");
+    private static final LockClient WAITER = LockClient.of("waiter");
+    private static final LockDescriptor LOCK_1 = StringLockDescriptor.of("lock1");
+    private static final LockDescriptor LOCK_2 = StringLockDescriptor.of("lock2");
+
+    private LockServiceImpl server;
+
+    @Before
+    public void setUp() {
+        server = LockServiceImpl.create();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void asyncLockSucceedsImmediatelyIfLocksAreFree() throws Exception {
+        LockResponse response = server.lockAsync(WAITER, LockRequest.builder(writeLocks(LOCK_1, LOCK_2)).build())
+                .get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(response.success());
+        Assert.assertEquals(WAITER, response.getToken().getClient());
+    }
+
+    @Test
+    public void asyncLockCompletesOnceBlockingLocksAreReleased() throws Exception {
+        HeldLocksToken first = lock(HOLDER, LOCK_1);
+        HeldLocksToken second = lock(HOLDER, LOCK_2);
+
+        CompletableFuture<LockResponse> future = server.lockAsync(
+                WAITER, LockRequest.builder(writeLocks(LOCK_1, LOCK_2)).build());
+        Thread.sleep(100);
+        Assert.assertFalse(future.isDone());
+
+        server.unlock(first);
+        Thread.sleep(100);
+        Assert.assertFalse(future.isDone());
+
+        server.unlock(second);
+        LockResponse response = future.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(response.success());
+        Assert.assertEquals(ImmutableList.of(LOCK_1, LOCK_2), response.getToken().getLockDescriptors().getKeys());
+    }
+
+    @Test
+    public void asyncLockFailsAfterBlockingDuration() throws Exception {
+        lock(HOLDER, LOCK_1);
+
+        LockResponse response = server.lockAsync(WAITER, LockRequest.builder(writeLocks(LOCK_1))
+                .blockForAtMost(SimpleTimeDuration.of(100, TimeUnit.MILLISECONDS))
+                .build())
+                .get(10, TimeUnit.SECONDS);
+
+        Assert.assertFalse(response.success());
+        Assert.assertEquals(HOLDER, response.getLockHolders().get(LOCK_1));
+    }
+
+    @Test
+    public void asyncLockWhichDoesNotBlockFailsImmediately() throws Exception {
+        lock(HOLDER, LOCK_1);
+
+        LockResponse response = server.lockAsync(WAITER, LockRequest.builder(writeLocks(LOCK_1))
+                .doNotBlock()
+                .build())
+                .get(10, TimeUnit.SECONDS);
+
+        Assert.assertFalse(response.success());
+    }
+
+    @Test
+    public void closingTheServerFailsWaitingRequests() throws Exception {
+        lock(HOLDER, LOCK_1);
+        CompletableFuture<LockResponse> future = server.lockAsync(
+                WAITER, LockRequest.builder(writeLocks(LOCK_1)).build());
+        Thread.sleep(100);
+
+        server.close();
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ServiceNotAvailableException);
+        }
+    }
+
+    private HeldLocksToken lock(LockClient client, LockDescriptor descriptor) throws InterruptedException {
+        HeldLocksToken token = server.lockWithFullLockResponse(client, LockRequest.builder(writeLocks(descriptor))
+                .doNotBlock()
+                .build()).getToken();
+        Assert.assertNotNull(token);
+        return token;
+    }
+
+    private static ImmutableSortedMap<LockDescriptor, LockMode> writeLocks(LockDescriptor... descriptors) {
+        ImmutableSortedMap.Builder<LockDescriptor, LockMode> locks = ImmutableSortedMap.naturalOrder();
+        for (LockDescriptor descriptor : descriptors) {
+            locks.put(descriptor, LockMode.WRITE);
+        }
+        return locks.build();
+    }
+}
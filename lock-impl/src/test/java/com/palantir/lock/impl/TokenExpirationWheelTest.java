@@ -0,0 +1,159 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.lock.HeldLocksGrant;
+import com.palantir.lock.LockCollections;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
+
+public final class TokenExpirationWheelTest {
+    private static final long TICK_MS = 100;
+    private static final long SLACK_MS = 50;
+    private static final LockDescriptor LOCK = StringLockDescriptor.of("lock");
+
+    @Test
+    public void returnsTokenOnceExpirationPlusSlackHasPassed() {
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(TICK_MS, SLACK_MS, 0L);
+        HeldLocksGrant grant = grantExpiringAt(1, 1000L);
+        wheel.add(grant);
+
+        Assert.assertTrue(wheel.advanceTo(1049L).isEmpty());
+        Assert.assertTrue(wheel.advanceTo(1099L).isEmpty());
+        Assert.assertEquals(ImmutableList.of(grant), wheel.advanceTo(1100L));
+        Assert.assertTrue(wheel.advanceTo(5000L).isEmpty());
+    }
+
+    @Test
+    public void returnsAlreadyExpiredTokenImmediately() {
+        TokenExpirationWheel<HeldLocksGrant> wheel =
+                new TokenExpirationWheel<HeldLocksGrant>(TICK_MS, SLACK_MS, 10000L);
+        HeldLocksGrant grant = grantExpiringAt(1, 5000L);
+        wheel.add(grant);
+
+        Assert.assertEquals(ImmutableList.of(grant), wheel.advanceTo(10000L));
+    }
+
+    @Test
+    public void cascadesTokensFromCoarserLevels() {
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(TICK_MS, 0L, 0L);
+        HeldLocksGrant nearGrant = grantExpiringAt(1, 6500L);
+        HeldLocksGrant farGrant = grantExpiringAt(2, 3 * 64 * 64 * TICK_MS + 12345L);
+        wheel.add(nearGrant);
+        wheel.add(farGrant);
+
+        Assert.assertEquals(ImmutableList.of(nearGrant), wheel.advanceTo(6500L));
+        Assert.assertTrue(wheel.advanceTo(farGrant.getExpirationDateMs() - 1).isEmpty());
+        Assert.assertEquals(ImmutableList.of(farGrant), wheel.advanceTo(farGrant.getExpirationDateMs() + TICK_MS));
+    }
+
+    @Test
+    public void returnsTokensBeyondTheCoarsestLevel() {
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(1L, 0L, 0L);
+        long horizon = 1L << 24;
+        HeldLocksGrant grant = grantExpiringAt(1, horizon + 1000L);
+        wheel.add(grant);
+
+        Assert.assertTrue(wheel.advanceTo(horizon + 999L).isEmpty());
+        Assert.assertEquals(ImmutableList.of(grant), wheel.advanceTo(horizon + 1000L));
+    }
+
+    @Test
+    public void listsTokensInExpirationOrder() {
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(TICK_MS, SLACK_MS, 0L);
+        HeldLocksGrant laterGrant = grantExpiringAt(1, 100000L);
+        HeldLocksGrant earlierGrant = grantExpiringAt(2, 2000L);
+        wheel.add(laterGrant);
+        wheel.advanceTo(1000L);
+        wheel.add(earlierGrant);
+
+        Assert.assertEquals(ImmutableList.of(earlierGrant, laterGrant), wheel.getTokens());
+    }
+
+    @Test
+    public void nextDeadlineIsTheStartOfTheEarliestNonEmptyBucket() {
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(TICK_MS, 0L, 0L);
+        Assert.assertEquals(Long.MAX_VALUE, wheel.getNextDeadlineMs());
+
+        wheel.add(grantExpiringAt(1, 100000L));
+        wheel.advanceTo(0L);
+        // 100000ms is tick 1000, which sits in the level 1 bucket starting at tick 960
+        Assert.assertEquals(96000L, wheel.getNextDeadlineMs());
+
+        wheel.add(grantExpiringAt(2, 2050L));
+        wheel.advanceTo(1000L);
+        Assert.assertEquals(2100L, wheel.getNextDeadlineMs());
+    }
+
+    @Test(timeout = 10000)
+    public void awaitNextDeadlineSleepsUntilTokensAreDue() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(1L, 0L, now);
+        HeldLocksGrant grant = grantExpiringAt(1, now + 200L);
+        wheel.add(grant);
+
+        List<HeldLocksGrant> expired;
+        do {
+            wheel.awaitNextDeadline();
+            expired = wheel.advanceTo(System.currentTimeMillis());
+        } while (expired.isEmpty());
+        Assert.assertTrue(System.currentTimeMillis() >= grant.getExpirationDateMs());
+        Assert.assertEquals(ImmutableList.of(grant), expired);
+    }
+
+    @Test(timeout = 10000)
+    public void addingAnEarlierTokenWakesTheWaitingThread() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        TokenExpirationWheel<HeldLocksGrant> wheel = new TokenExpirationWheel<HeldLocksGrant>(TICK_MS, 0L, now);
+        wheel.add(grantExpiringAt(1, now + TimeUnit.HOURS.toMillis(1)));
+        wheel.advanceTo(now);
+
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    wheel.awaitNextDeadline();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        wheel.add(grantExpiringAt(2, now + 200L));
+        waiter.join();
+    }
+
+    private static HeldLocksGrant grantExpiringAt(long grantId, long expirationDateMs) {
+        return new HeldLocksGrant(BigInteger.valueOf(grantId), 0L, expirationDateMs,
+                LockCollections.of(ImmutableSortedMap.of(LOCK, LockMode.WRITE)),
+                SimpleTimeDuration.of(1, TimeUnit.SECONDS),
+                null);
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2017 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+import java.util.Map;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Serves the {@link TimestampService} of several clients of a TimeLock server in a single round trip.
+ */
+@Path("/batch")
+public interface MultiClientTimestampService {
+    /**
+     * Equivalent to calling {@link TimestampService#getFreshTimestamps(int)} for each client in turn.
+     *
+     * @param numTimestampsRequestedByClient the number of timestamps requested, keyed by client
+     * @return never null. The range of timestamps handed out to each requesting client; as for
+     * {@link TimestampService#getFreshTimestamps(int)}, a range may have less than the requested amount.
+     */
+    @POST // This has to be POST because we can't allow caching.
+    @Path("fresh-timestamps")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    Map<String, TimestampRange> getFreshTimestampsForClients(Map<String, Integer> numTimestampsRequestedByClient);
+}